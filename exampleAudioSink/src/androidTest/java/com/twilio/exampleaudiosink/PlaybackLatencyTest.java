@@ -0,0 +1,98 @@
+package com.twilio.exampleaudiosink;
+
+import android.content.Context;
+import android.media.AudioFormat;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the time from asking to play a recording to its first sample being played out for
+ * MediaPlayer and the AudioTrack based player.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PlaybackLatencyTest {
+    private static final String TAG = "PlaybackLatencyTest";
+    private static final int SAMPLE_RATE = 48000;
+    private static final int CHANNELS = 2;
+    private static final int PLAYS = 10;
+    private static final long TIMEOUT_MS = 5000;
+
+    private File recording;
+
+    @Before
+    public void setUp() throws IOException {
+        Context context = InstrumentationRegistry.getTargetContext();
+        recording = new File(context.getCacheDir(), "playback_latency.wav");
+        WavFileHelper wavFileHelper = new WavFileHelper(recording.getPath());
+        wavFileHelper.createFile();
+        ByteBuffer sample = ByteBuffer.allocateDirect(SAMPLE_RATE / 100 * CHANNELS * 2);
+        // Ten seconds of silence, long enough that no play runs to the end
+        for (int i = 0; i < 1000; i++) {
+            sample.clear();
+            wavFileHelper.writeBytesToFile(sample, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE,
+                    CHANNELS);
+        }
+        wavFileHelper.finish();
+    }
+
+    @After
+    public void tearDown() {
+        recording.delete();
+    }
+
+    @Test
+    public void audioTrackPlayerStartsSoonerThanMediaPlayer() throws Exception {
+        MediaPlayerHelper mediaPlayerHelper = new MediaPlayerHelper();
+        AudioTrackPlayer audioTrackPlayer = new AudioTrackPlayer();
+        long[] mediaPlayerNs = new long[PLAYS];
+        long[] audioTrackNs = new long[PLAYS];
+
+        for (int play = 0; play < PLAYS; play++) {
+            long start = System.nanoTime();
+            mediaPlayerHelper.playFile(recording.getPath(), mp -> {
+            });
+            while (mediaPlayerHelper.getPositionMs() == 0) {
+                checkTimeout(start);
+                Thread.sleep(1);
+            }
+            mediaPlayerNs[play] = System.nanoTime() - start;
+            mediaPlayerHelper.stopPlaying();
+
+            start = System.nanoTime();
+            audioTrackPlayer.playFile(recording.getPath(), () -> {
+            });
+            while (audioTrackPlayer.getPositionMs() == 0) {
+                checkTimeout(start);
+                Thread.sleep(1);
+            }
+            audioTrackNs[play] = System.nanoTime() - start;
+            audioTrackPlayer.stopPlaying();
+        }
+        audioTrackPlayer.release();
+
+        Arrays.sort(mediaPlayerNs);
+        Arrays.sort(audioTrackNs);
+        Log.i(TAG, String.format("Time to first sample: MediaPlayer p50=%.1fms max=%.1fms, " +
+                        "AudioTrackPlayer p50=%.1fms max=%.1fms",
+                mediaPlayerNs[PLAYS / 2] / 1e6, mediaPlayerNs[PLAYS - 1] / 1e6,
+                audioTrackNs[PLAYS / 2] / 1e6, audioTrackNs[PLAYS - 1] / 1e6));
+        assertTrue(audioTrackNs[PLAYS / 2] < mediaPlayerNs[PLAYS / 2]);
+    }
+
+    private static void checkTimeout(long start) {
+        assertTrue("Playback did not start", System.nanoTime() - start < TIMEOUT_MS * 1000000);
+    }
+}
@@ -0,0 +1,209 @@
+package com.twilio.exampleaudiosink;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.media.AudioFormat;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.os.Build;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * AacFileHelper encodes 16-bit PCM to AAC-LC with {@link MediaCodec} as it arrives and muxes it
+ * into an .m4a file. At 64 kbps per channel a minute of 48kHz stereo audio takes roughly 1 MB
+ * instead of the 11 MB a .wav file needs.
+ *
+ * <p>Encoding happens on whichever thread calls {@link #writeBytesToFile}, so pair it with
+ * {@link AsyncAudioFileWriter} to keep it off the audio thread.
+ *
+ * <p>Given a {@link Mp4RecordingMuxer} the audio is written as one track of a shared .mp4
+ * instead, alongside the video {@link VideoRecorderRenderer} encodes. The muxer must be prepared
+ * before {@link #createFile} is called.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+class AacFileHelper implements AudioFileWriter {
+    private static final String fileName = "/audio_sink.m4a";
+    private static final String MIME_TYPE = "audio/mp4a-latm";
+    private static final int BIT_RATE_PER_CHANNEL = 64000;
+
+    private final String fullFilePath;
+    private final Mp4RecordingMuxer sharedMuxer;
+    private final EncoderOutputDrainer.Output encoderOutput = new EncoderOutputDrainer.Output() {
+        @Override
+        public void onFormatChanged(MediaFormat format) {
+            if (sharedMuxer != null) {
+                trackIndex = sharedMuxer.addTrack(format);
+            } else {
+                trackIndex = mediaMuxer.addTrack(format);
+                mediaMuxer.start();
+            }
+            // The shared muxer may have started without this track
+            muxerStarted = trackIndex >= 0;
+        }
+
+        @Override
+        public void onSample(ByteBuffer data, MediaCodec.BufferInfo bufferInfo) {
+            if (!muxerStarted) {
+                return;
+            }
+            if (sharedMuxer != null) {
+                sharedMuxer.writeSampleData(trackIndex, data, bufferInfo);
+            } else {
+                mediaMuxer.writeSampleData(trackIndex, data, bufferInfo);
+            }
+            encodedBytes += bufferInfo.size;
+        }
+    };
+    private File outputFile;
+    private MediaCodec mediaCodec;
+    private EncoderOutputDrainer encoderDrainer;
+    private MediaMuxer mediaMuxer;
+    private ByteBuffer[] inputBuffers;
+    private int trackIndex;
+    private boolean muxerStarted;
+    private int sampleRate;
+    private int bytesPerFrame;
+    // Bytes of a frame split across calls, queued once the rest of the frame arrives
+    private byte[] partialFrame;
+    private int partialFrameLength;
+    private long queuedFrames;
+    private long presentationTimeOffsetUs;
+    private long encodedBytes;
+
+    AacFileHelper(Context context) {
+        this.fullFilePath = context.getFilesDir().getPath() + fileName;
+        this.sharedMuxer = null;
+    }
+
+    AacFileHelper(Mp4RecordingMuxer sharedMuxer) {
+        this.fullFilePath = sharedMuxer.getFullFilePath();
+        this.sharedMuxer = sharedMuxer;
+    }
+
+    @Override
+    public void createFile() throws IOException {
+        outputFile = new File(fullFilePath);
+        mediaCodec = null;
+        trackIndex = -1;
+        muxerStarted = false;
+        if (sharedMuxer == null) {
+            if (outputFile.exists()) {
+                outputFile.delete();
+            }
+            mediaMuxer = new MediaMuxer(fullFilePath,
+                    MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        }
+        queuedFrames = 0;
+        partialFrameLength = 0;
+        encodedBytes = 0;
+    }
+
+    @Override
+    public void writeBytesToFile(ByteBuffer byteBuffer, int encoding, int sampleRate, int channels)
+            throws IOException {
+        if (mediaCodec == null) {
+            startEncoder(encoding, sampleRate, channels);
+        }
+        int position = byteBuffer.position();
+        int limit = byteBuffer.limit();
+
+        while (partialFrameLength + byteBuffer.remaining() >= bytesPerFrame) {
+            int inputIndex = encoderDrainer.dequeueInputBuffer();
+            ByteBuffer input = inputBuffers[inputIndex];
+            input.clear();
+            int length = 0;
+            if (partialFrameLength > 0) {
+                // Complete the frame left over from the previous call first
+                byteBuffer.get(partialFrame, partialFrameLength,
+                        bytesPerFrame - partialFrameLength);
+                input.put(partialFrame);
+                partialFrameLength = 0;
+                length = bytesPerFrame;
+            }
+            int wholeFrames = Math.min(byteBuffer.remaining(), input.remaining());
+            wholeFrames -= wholeFrames % bytesPerFrame;
+            byteBuffer.limit(byteBuffer.position() + wholeFrames);
+            input.put(byteBuffer);
+            byteBuffer.limit(limit);
+            length += wholeFrames;
+
+            mediaCodec.queueInputBuffer(inputIndex, 0, length, presentationTimeUs(), 0);
+            queuedFrames += length / bytesPerFrame;
+        }
+        // The codec only takes whole frames, so keep the start of a split one for the next call
+        int rest = byteBuffer.remaining();
+        byteBuffer.get(partialFrame, partialFrameLength, rest);
+        partialFrameLength += rest;
+        byteBuffer.position(position);
+        encoderDrainer.drain(false);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (mediaCodec != null) {
+            encoderDrainer.finish(presentationTimeUs());
+            mediaCodec.stop();
+            mediaCodec.release();
+            mediaCodec = null;
+            encoderDrainer = null;
+        }
+        if (sharedMuxer != null) {
+            // The shared muxer finalizes the file once the video track is released as well
+            sharedMuxer.releaseTrack(trackIndex);
+            return;
+        }
+        if (muxerStarted) {
+            mediaMuxer.stop();
+        }
+        mediaMuxer.release();
+        mediaMuxer = null;
+        outputFile.setReadable(true);
+    }
+
+    @Override
+    public String getFullFilePath() {
+        return fullFilePath;
+    }
+
+    @Override
+    public boolean doesFileExist() {
+        if (outputFile == null) return false;
+        return outputFile.exists();
+    }
+
+    long getEncodedBytes() {
+        return encodedBytes;
+    }
+
+    private void startEncoder(int encoding, int sampleRate, int channels) throws IOException {
+        if (encoding != AudioFormat.ENCODING_PCM_16BIT) {
+            throw new IllegalArgumentException("AAC encoding requires 16-bit PCM");
+        }
+        this.sampleRate = sampleRate;
+        this.bytesPerFrame = 2 * channels;
+        this.partialFrame = new byte[bytesPerFrame];
+        // Line the audio up with the video, which is timed from when the muxer was prepared
+        this.presentationTimeOffsetUs = sharedMuxer != null ?
+                sharedMuxer.toPresentationTimeUs(System.nanoTime()) : 0;
+
+        MediaFormat format = MediaFormat.createAudioFormat(MIME_TYPE, sampleRate, channels);
+        format.setInteger(MediaFormat.KEY_AAC_PROFILE,
+                MediaCodecInfo.CodecProfileLevel.AACObjectLC);
+        format.setInteger(MediaFormat.KEY_BIT_RATE, BIT_RATE_PER_CHANNEL * channels);
+
+        mediaCodec = MediaCodec.createEncoderByType(MIME_TYPE);
+        mediaCodec.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+        mediaCodec.start();
+        inputBuffers = mediaCodec.getInputBuffers();
+        encoderDrainer = new EncoderOutputDrainer(mediaCodec, encoderOutput);
+    }
+
+    private long presentationTimeUs() {
+        return presentationTimeOffsetUs + queuedFrames * 1000000L / sampleRate;
+    }
+}
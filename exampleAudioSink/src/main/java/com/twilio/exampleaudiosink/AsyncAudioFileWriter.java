@@ -0,0 +1,192 @@
+package com.twilio.exampleaudiosink;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * AsyncAudioFileWriter keeps disk I/O off the audio thread. {@link #write} only copies the sample
+ * into a preallocated {@link PcmRingBuffer} and a dedicated writer thread drains the ring to the
+ * {@link AudioFileWriter} in large batches. If flash stalls long enough for the ring to fill, new
+ * samples are dropped and counted instead of blocking {@link com.twilio.video.AudioSink}.
+ *
+ * <p>The ring holds bytes in a single format. Given a {@link PcmFormatConverter}, every sample is
+ * converted to its target format on the calling thread before it enters the ring, so the sink may
+ * change format at any point. Without one the format of the first sample is kept, and samples in
+ * any other format are dropped and counted rather than written as if they were in it.
+ */
+class AsyncAudioFileWriter {
+    // Roughly 1.3 seconds of 48kHz stereo 16-bit PCM
+    static final int DEFAULT_RING_CAPACITY = 256 * 1024;
+    static final int DEFAULT_BATCH_SIZE = 64 * 1024;
+    private static final long DRAIN_INTERVAL_NS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final AudioFileWriter audioFileWriter;
+    private final PcmFormatConverter converter;
+    private final PcmRingBuffer ringBuffer;
+    private final byte[] batch;
+    private final ByteBuffer batchBuffer;
+
+    /*
+     * The format is written by the producer before the first sample is published to the ring so
+     * the writer thread always observes it before it drains any bytes.
+     */
+    private volatile int encoding;
+    private volatile int sampleRate;
+    private volatile int channels;
+    private volatile long mismatchedBytes;
+
+    private volatile boolean running;
+    private volatile IOException writeError;
+    private Thread writerThread;
+
+    AsyncAudioFileWriter(AudioFileWriter audioFileWriter) {
+        this(audioFileWriter, null);
+    }
+
+    AsyncAudioFileWriter(AudioFileWriter audioFileWriter, PcmFormatConverter converter) {
+        this(audioFileWriter, converter, DEFAULT_RING_CAPACITY, DEFAULT_BATCH_SIZE);
+    }
+
+    AsyncAudioFileWriter(AudioFileWriter audioFileWriter, int ringCapacity, int batchSize) {
+        this(audioFileWriter, null, ringCapacity, batchSize);
+    }
+
+    /**
+     * @param converter converts every sample to the format written to the file on the calling
+     *                  thread, or null to write samples in the format they arrive in
+     */
+    AsyncAudioFileWriter(AudioFileWriter audioFileWriter, PcmFormatConverter converter,
+                         int ringCapacity, int batchSize) {
+        this.audioFileWriter = audioFileWriter;
+        this.converter = converter;
+        this.ringBuffer = new PcmRingBuffer(ringCapacity);
+        this.batch = new byte[batchSize];
+        this.batchBuffer = ByteBuffer.wrap(batch);
+    }
+
+    /**
+     * Creates the output file and starts the writer thread.
+     */
+    void start() throws IOException {
+        if (writerThread != null) {
+            throw new IllegalStateException("Writer already started");
+        }
+        audioFileWriter.createFile();
+        ringBuffer.reset();
+        mismatchedBytes = 0;
+        if (converter != null) {
+            // Called before the sink is attached, so the audio thread is not converting
+            converter.reset();
+            encoding = converter.getTargetEncoding();
+            channels = converter.getTargetChannels();
+            sampleRate = converter.getTargetSampleRate();
+        } else {
+            sampleRate = 0;
+        }
+        writeError = null;
+        running = true;
+        writerThread = new Thread(this::drainLoop, "AsyncAudioFileWriter");
+        writerThread.setPriority(Thread.NORM_PRIORITY - 1);
+        writerThread.start();
+    }
+
+    /**
+     * Enqueues a sample for writing. Never blocks and, once the converter has seen the sink's
+     * format, never allocates, so it is safe to call directly from
+     * {@link com.twilio.video.AudioSink#renderSample}. Must always be called from the same
+     * thread.
+     *
+     * @return false if the writer is not running or the sample was dropped.
+     */
+    boolean write(ByteBuffer audioSample, int encoding, int sampleRate, int channels) {
+        if (!running) {
+            return false;
+        }
+        if (converter != null) {
+            audioSample = converter.convert(audioSample, encoding, sampleRate, channels);
+        } else if (this.sampleRate == 0) {
+            this.encoding = encoding;
+            this.channels = channels;
+            this.sampleRate = sampleRate;
+        } else if (encoding != this.encoding || sampleRate != this.sampleRate ||
+                channels != this.channels) {
+            mismatchedBytes += audioSample.remaining();
+            return false;
+        }
+        return ringBuffer.offer(audioSample);
+    }
+
+    /**
+     * Stops the writer thread once everything buffered has been written and completes the WAV
+     * header.
+     *
+     * @throws IOException if the writer thread failed to write to the file.
+     */
+    void finish() throws IOException {
+        if (writerThread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while flushing audio");
+        } finally {
+            writerThread = null;
+        }
+        audioFileWriter.finish();
+
+        if (writeError != null) {
+            throw writeError;
+        }
+    }
+
+    boolean isFileWriteInProgress() {
+        return writerThread != null;
+    }
+
+    /**
+     * Returns the number of bytes dropped because the ring was full, or because they arrived in
+     * another format than the first sample without a converter to normalize them.
+     */
+    long getDroppedBytes() {
+        return ringBuffer.getDroppedBytes() + mismatchedBytes;
+    }
+
+    /**
+     * Returns the largest number of bytes that were waiting in the ring at any point.
+     */
+    int getHighWaterMark() {
+        return ringBuffer.getHighWaterMark();
+    }
+
+    private void drainLoop() {
+        try {
+            while (running) {
+                if (ringBuffer.size() < batch.length) {
+                    LockSupport.parkNanos(DRAIN_INTERVAL_NS);
+                }
+                drainAvailable();
+            }
+            // Flush whatever arrived before we were stopped
+            drainAvailable();
+        } catch (IOException e) {
+            writeError = e;
+            running = false;
+        }
+    }
+
+    private void drainAvailable() throws IOException {
+        int drained;
+        while ((drained = ringBuffer.drainTo(batch, 0, batch.length)) > 0) {
+            batchBuffer.clear();
+            batchBuffer.limit(drained);
+            audioFileWriter.writeBytesToFile(batchBuffer, encoding, sampleRate, channels);
+        }
+    }
+}
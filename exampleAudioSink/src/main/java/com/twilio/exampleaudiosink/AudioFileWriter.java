@@ -0,0 +1,36 @@
+package com.twilio.exampleaudiosink;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * AudioFileWriter is implemented by the helpers that persist {@link com.twilio.video.AudioSink}
+ * samples to a file, either as raw PCM in a .wav file or through an encoder.
+ */
+interface AudioFileWriter {
+    /**
+     * Creates a new, empty output file replacing any previous recording.
+     */
+    void createFile() throws IOException;
+
+    /**
+     * Appends the bytes between the buffer's position and limit to the file. The header or
+     * encoder is set up from the provided format with the first sample.
+     *
+     * @param byteBuffer The samples to write
+     * @param encoding   An AudioFormat.ENCODING_PCM_* value
+     * @param sampleRate The sample rate in hertz
+     * @param channels   The number of channels
+     */
+    void writeBytesToFile(ByteBuffer byteBuffer, int encoding, int sampleRate, int channels)
+            throws IOException;
+
+    /**
+     * Completes the file and closes it.
+     */
+    void finish() throws IOException;
+
+    String getFullFilePath();
+
+    boolean doesFileExist();
+}
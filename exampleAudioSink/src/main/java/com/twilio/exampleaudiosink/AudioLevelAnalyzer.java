@@ -0,0 +1,192 @@
+package com.twilio.exampleaudiosink;
+
+import android.media.AudioFormat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * AudioLevelAnalyzer measures the RMS and peak level of every
+ * {@link com.twilio.video.AudioSink#renderSample} callback and runs a lightweight energy based
+ * voice activity detector over them. Samples are read in place from the incoming buffer, so the
+ * analysis neither copies nor allocates and is cheap enough to run on the audio thread.
+ *
+ * <p>The detector takes the quietest of the last {@link #NOISE_WINDOW_FRAMES} frames as the
+ * background noise floor, which follows changes in background noise within a second since
+ * speech always pauses briefly between syllables. Voice is reported while frames are clearly
+ * louder than the floor. A frame must stay loud for {@link #ONSET_MS} before voice is reported
+ * and voice is held for {@link #HANGOVER_MS} after the level drops, so short clicks are ignored
+ * and word endings are kept.
+ *
+ * <p>{@link #analyze} must only be called from one thread. Any other thread can poll the latest
+ * result with {@link #readLevels} without blocking the analyzing thread.
+ */
+final class AudioLevelAnalyzer {
+    static final float SILENCE_DB = -96f;
+    static final int ONSET_MS = 20;
+    static final int HANGOVER_MS = 300;
+    // One second of 10ms frames
+    static final int NOISE_WINDOW_FRAMES = 100;
+    // Frames must be this much louder than the noise floor to count as voice
+    private static final float VOICE_MARGIN_DB = 9f;
+    // Anything quieter is never voice, however low the noise floor is
+    private static final float MIN_VOICE_DB = -50f;
+
+    /**
+     * Levels is a copy of the analyzer's most recent results.
+     */
+    static final class Levels {
+        float rmsDb = SILENCE_DB;
+        float peakDb = SILENCE_DB;
+        float noiseFloorDb = SILENCE_DB;
+        boolean voiceActive;
+        long frames;
+    }
+
+    // Only touched by the analyzing thread
+    private final float[] recentRmsDb = new float[NOISE_WINDOW_FRAMES];
+    private float noiseFloorDb = SILENCE_DB;
+    private int loudMs;
+    private int hangoverMs;
+    private boolean voiceActive;
+    private long frames;
+
+    /*
+     * The published results, guarded by a sequence counter that is odd while they are being
+     * written. Readers retry until they see the same even sequence before and after copying.
+     */
+    private volatile int sequence;
+    private volatile float publishedRmsDb = SILENCE_DB;
+    private volatile float publishedPeakDb = SILENCE_DB;
+    private volatile float publishedNoiseFloorDb = SILENCE_DB;
+    private volatile boolean publishedVoiceActive;
+    private volatile long publishedFrames;
+
+    /**
+     * Analyzes the samples between the buffer's position and limit. The buffer is left untouched.
+     *
+     * @return true if the callback is part of a voice segment.
+     */
+    boolean analyze(ByteBuffer audioSample, int encoding, int sampleRate, int channels) {
+        int sampleCount = audioSample.remaining() / PcmFormatConverter.bytesPerSample(encoding);
+        if (sampleCount == 0) {
+            return voiceActive;
+        }
+        ByteOrder order = audioSample.order();
+        audioSample.order(ByteOrder.LITTLE_ENDIAN);
+        double sumOfSquares = 0;
+        float peak = 0;
+        int start = audioSample.position();
+
+        switch (encoding) {
+            case AudioFormat.ENCODING_PCM_16BIT:
+                for (int i = 0; i < sampleCount; i++) {
+                    int sample = audioSample.getShort(start + i * 2);
+                    sumOfSquares += sample * sample;
+                    peak = Math.max(peak, Math.abs(sample));
+                }
+                sumOfSquares /= 32768.0 * 32768.0;
+                peak /= 32768f;
+                break;
+            case AudioFormat.ENCODING_PCM_8BIT:
+                for (int i = 0; i < sampleCount; i++) {
+                    int sample = (audioSample.get(start + i) & 0xff) - 128;
+                    sumOfSquares += sample * sample;
+                    peak = Math.max(peak, Math.abs(sample));
+                }
+                sumOfSquares /= 128.0 * 128.0;
+                peak /= 128f;
+                break;
+            default:
+                for (int i = 0; i < sampleCount; i++) {
+                    float sample = audioSample.getFloat(start + i * 4);
+                    sumOfSquares += sample * sample;
+                    peak = Math.max(peak, Math.abs(sample));
+                }
+                break;
+        }
+        audioSample.order(order);
+
+        float rmsDb = toDb((float) Math.sqrt(sumOfSquares / sampleCount));
+        float peakDb = toDb(peak);
+        int frameMs = Math.max(1, sampleCount / channels * 1000 / sampleRate);
+        detectVoice(rmsDb, frameMs);
+        frames++;
+        publish(rmsDb, peakDb);
+
+        return voiceActive;
+    }
+
+    /**
+     * Copies the most recent results into the provided levels. Safe to call from any thread.
+     */
+    void readLevels(Levels levels) {
+        int before;
+        do {
+            while (((before = sequence) & 1) != 0) {
+                Thread.yield();
+            }
+            levels.rmsDb = publishedRmsDb;
+            levels.peakDb = publishedPeakDb;
+            levels.noiseFloorDb = publishedNoiseFloorDb;
+            levels.voiceActive = publishedVoiceActive;
+            levels.frames = publishedFrames;
+        } while (sequence != before);
+    }
+
+    /**
+     * Forgets the noise floor and voice state, for example when the analyzed track changes.
+     * Must be called from the analyzing thread or while it is idle.
+     */
+    void reset() {
+        noiseFloorDb = SILENCE_DB;
+        loudMs = 0;
+        hangoverMs = 0;
+        voiceActive = false;
+        frames = 0;
+        publish(SILENCE_DB, SILENCE_DB);
+    }
+
+    private void detectVoice(float rmsDb, int frameMs) {
+        recentRmsDb[(int) (frames % NOISE_WINDOW_FRAMES)] = rmsDb;
+        int recentFrames = (int) Math.min(frames + 1, NOISE_WINDOW_FRAMES);
+        float minimum = rmsDb;
+        for (int i = 0; i < recentFrames; i++) {
+            minimum = Math.min(minimum, recentRmsDb[i]);
+        }
+        noiseFloorDb = minimum;
+
+        boolean loud = rmsDb > MIN_VOICE_DB && rmsDb > noiseFloorDb + VOICE_MARGIN_DB;
+        if (loud) {
+            loudMs += frameMs;
+            if (loudMs >= ONSET_MS) {
+                voiceActive = true;
+                hangoverMs = HANGOVER_MS;
+            }
+        } else {
+            loudMs = 0;
+            if (voiceActive) {
+                hangoverMs -= frameMs;
+                voiceActive = hangoverMs > 0;
+            }
+        }
+    }
+
+    private void publish(float rmsDb, float peakDb) {
+        int next = sequence + 1;
+        sequence = next;
+        publishedRmsDb = rmsDb;
+        publishedPeakDb = peakDb;
+        publishedNoiseFloorDb = noiseFloorDb;
+        publishedVoiceActive = voiceActive;
+        publishedFrames = frames;
+        sequence = next + 1;
+    }
+
+    private static float toDb(float level) {
+        if (level <= 0) {
+            return SILENCE_DB;
+        }
+        return Math.max(SILENCE_DB, (float) (20 * Math.log10(level)));
+    }
+}
@@ -0,0 +1,391 @@
+package com.twilio.exampleaudiosink;
+
+import android.media.AudioFormat;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * AudioMixer combines the samples of any number of {@link com.twilio.video.AudioSink}s into a
+ * single 16-bit PCM stream and writes it to an {@link AudioFileWriter}.
+ *
+ * <p>Every input buffers its samples in its own {@link PcmRingBuffer}. A mixer thread wakes up
+ * once per fixed size frame, converts each input to the output sample rate and channel count,
+ * sums them and soft clips the result. Inputs are placed on the output timeline by the time
+ * their samples arrive: an input joins the mix once it has buffered {@link #JITTER_FRAMES} frames
+ * and is trimmed back whenever it drifts more than {@link #MAX_LATENCY_FRAMES} frames ahead.
+ * Mixing reuses the same scratch arrays for every frame and does not allocate.
+ */
+class AudioMixer {
+    static final int DEFAULT_SAMPLE_RATE = 48000;
+    static final int DEFAULT_CHANNELS = 2;
+    static final int FRAME_DURATION_MS = 10;
+    static final int JITTER_FRAMES = 3;
+    static final int MAX_LATENCY_FRAMES = 10;
+    // A frame of the largest input AudioSinks deliver, 48kHz stereo 16-bit PCM
+    private static final int MAX_INPUT_FRAME_BYTES = 48000 * FRAME_DURATION_MS / 1000 * 2 * 2;
+    /*
+     * Inputs are trimmed once they buffer more than MAX_LATENCY_FRAMES, so each ring only needs
+     * that plus room for the samples arriving until the next mix, rounded up to a power of two.
+     * That is 32 KB, about 170ms of 48kHz stereo.
+     */
+    private static final int INPUT_RING_CAPACITY = Integer.highestOneBit(
+            (MAX_LATENCY_FRAMES + JITTER_FRAMES) * MAX_INPUT_FRAME_BYTES - 1) << 1;
+    // Samples above this level are compressed smoothly instead of hard clipped
+    private static final float CLIP_THRESHOLD = 0.9f;
+
+    private final AudioFileWriter audioFileWriter;
+    private final int sampleRate;
+    private final int channels;
+    private final int samplesPerFrame;
+    private final long frameDurationNs;
+
+    // Scratch buffers shared by every input, only touched by the thread calling mixFrame
+    private final float[] mix;
+    private final short[] mixedSamples;
+    private byte[] inputBytes = new byte[0];
+    private final ByteBuffer outputBuffer;
+    private final ShortBuffer outputShorts;
+
+    private final Object inputsLock = new Object();
+    private volatile Input[] inputs = new Input[0];
+
+    private volatile long mixedFrames;
+    private volatile long clippedSamples;
+
+    private volatile boolean running;
+    private volatile IOException writeError;
+    private Thread mixerThread;
+
+    AudioMixer(AudioFileWriter audioFileWriter) {
+        this(audioFileWriter, DEFAULT_SAMPLE_RATE, DEFAULT_CHANNELS);
+    }
+
+    AudioMixer(AudioFileWriter audioFileWriter, int sampleRate, int channels) {
+        this.audioFileWriter = audioFileWriter;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.samplesPerFrame = sampleRate * FRAME_DURATION_MS / 1000;
+        this.frameDurationNs = TimeUnit.MILLISECONDS.toNanos(FRAME_DURATION_MS);
+        this.mix = new float[samplesPerFrame * channels];
+        this.mixedSamples = new short[samplesPerFrame * channels];
+        this.outputBuffer = ByteBuffer.allocateDirect(samplesPerFrame * channels * 2)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        this.outputShorts = outputBuffer.asShortBuffer();
+    }
+
+    /**
+     * Adds a new input to the mix. The returned input can be written to from any one thread.
+     */
+    Input addInput() {
+        Input input = new Input();
+        synchronized (inputsLock) {
+            Input[] updated = Arrays.copyOf(inputs, inputs.length + 1);
+            updated[inputs.length] = input;
+            inputs = updated;
+        }
+        return input;
+    }
+
+    void removeInput(Input input) {
+        synchronized (inputsLock) {
+            for (int i = 0; i < inputs.length; i++) {
+                if (inputs[i] == input) {
+                    Input[] updated = new Input[inputs.length - 1];
+                    System.arraycopy(inputs, 0, updated, 0, i);
+                    System.arraycopy(inputs, i + 1, updated, i, updated.length - i);
+                    inputs = updated;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the output file and starts mixing one frame every {@link #FRAME_DURATION_MS}.
+     */
+    void start() throws IOException {
+        if (mixerThread != null) {
+            throw new IllegalStateException("Mixer already started");
+        }
+        audioFileWriter.createFile();
+        writeError = null;
+        running = true;
+        mixerThread = new Thread(this::mixLoop, "AudioMixer");
+        mixerThread.start();
+    }
+
+    /**
+     * Stops the mixer thread and completes the output file.
+     *
+     * @throws IOException if the mixer thread failed to write to the file.
+     */
+    void stop() throws IOException {
+        if (mixerThread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(mixerThread);
+        try {
+            mixerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while stopping the mixer");
+        } finally {
+            mixerThread = null;
+        }
+        audioFileWriter.finish();
+
+        if (writeError != null) {
+            throw writeError;
+        }
+    }
+
+    /**
+     * Mixes the next frame from every input. Called by the mixer thread, or directly when the
+     * mixer is driven manually.
+     *
+     * @return a buffer holding the mixed 16-bit PCM frame, valid until the next call.
+     */
+    ByteBuffer mixFrame() {
+        Arrays.fill(mix, 0f);
+        Input[] inputs = this.inputs;
+        for (Input input : inputs) {
+            input.mixInto(mix);
+        }
+
+        long clipped = 0;
+        for (int i = 0; i < mix.length; i++) {
+            float sample = mix[i];
+            if (sample > CLIP_THRESHOLD || sample < -CLIP_THRESHOLD) {
+                sample = softClip(sample);
+                clipped++;
+            }
+            mixedSamples[i] = (short) Math.min(sample * 32768f, Short.MAX_VALUE);
+        }
+        if (clipped > 0) {
+            clippedSamples += clipped;
+        }
+        mixedFrames++;
+
+        outputShorts.clear();
+        outputShorts.put(mixedSamples);
+        outputBuffer.clear();
+        return outputBuffer;
+    }
+
+    int getSampleRate() {
+        return sampleRate;
+    }
+
+    int getChannels() {
+        return channels;
+    }
+
+    int getSamplesPerFrame() {
+        return samplesPerFrame;
+    }
+
+    int getInputCount() {
+        return inputs.length;
+    }
+
+    long getMixedFrames() {
+        return mixedFrames;
+    }
+
+    /**
+     * Returns the number of output samples that exceeded the clip threshold and were compressed.
+     */
+    long getClippedSamples() {
+        return clippedSamples;
+    }
+
+    private static float softClip(float sample) {
+        float magnitude = Math.abs(sample);
+        float knee = 1f - CLIP_THRESHOLD;
+        float compressed = CLIP_THRESHOLD +
+                knee * (float) Math.tanh((magnitude - CLIP_THRESHOLD) / knee);
+        return sample < 0 ? -compressed : compressed;
+    }
+
+    private void mixLoop() {
+        long deadline = System.nanoTime() + frameDurationNs;
+        try {
+            while (running) {
+                long now = System.nanoTime();
+                if (now < deadline) {
+                    LockSupport.parkNanos(deadline - now);
+                    continue;
+                }
+                // Catch up frame by frame if the writer stalled
+                while (deadline <= now) {
+                    audioFileWriter.writeBytesToFile(mixFrame(),
+                            AudioFormat.ENCODING_PCM_16BIT, sampleRate, channels);
+                    deadline += frameDurationNs;
+                }
+            }
+        } catch (IOException e) {
+            writeError = e;
+        }
+    }
+
+    private byte[] inputBytes(int length) {
+        if (inputBytes.length < length) {
+            inputBytes = new byte[length];
+        }
+        return inputBytes;
+    }
+
+    /**
+     * Input is one source feeding an {@link AudioMixer}. {@link #write} must only be called from
+     * a single thread, which is the case for {@link com.twilio.video.AudioSink#renderSample}.
+     */
+    final class Input {
+        private final PcmRingBuffer ringBuffer = new PcmRingBuffer(INPUT_RING_CAPACITY);
+
+        private volatile int encoding;
+        private volatile int inputSampleRate;
+        private volatile int inputChannels;
+
+        // Only touched by the mixing thread
+        private float[] source = new float[0];
+        private double phase;
+        private boolean primed;
+        private long underruns;
+        private long trimmedBytes;
+
+        private Input() {
+        }
+
+        /**
+         * Enqueues a sample for mixing. Never blocks and never allocates.
+         *
+         * @return false if the sample was dropped.
+         */
+        boolean write(ByteBuffer audioSample, int encoding, int sampleRate, int channels) {
+            if (encoding != AudioFormat.ENCODING_PCM_16BIT) {
+                return false;
+            }
+            if (this.inputSampleRate == 0) {
+                this.encoding = encoding;
+                this.inputChannels = channels;
+                this.inputSampleRate = sampleRate;
+            }
+            return ringBuffer.offer(audioSample);
+        }
+
+        long getDroppedBytes() {
+            return ringBuffer.getDroppedBytes();
+        }
+
+        /**
+         * Returns the number of frames this input could not fill completely.
+         */
+        long getUnderruns() {
+            return underruns;
+        }
+
+        /**
+         * Returns the number of bytes skipped to keep this input aligned with the output.
+         */
+        long getTrimmedBytes() {
+            return trimmedBytes;
+        }
+
+        /*
+         * Resamples one output frame worth of this input with linear interpolation and adds it
+         * to the mix. The source array holds two carried frames followed by the frames pulled
+         * for this output frame, already mapped to the output channel layout. phase is the
+         * position of the next output sample relative to the second carried frame.
+         */
+        private void mixInto(float[] mix) {
+            int inputSampleRate = this.inputSampleRate;
+            if (inputSampleRate == 0 || encoding != AudioFormat.ENCODING_PCM_16BIT) {
+                return;
+            }
+            int inputFrameBytes = inputChannels * 2;
+            double step = (double) inputSampleRate / sampleRate;
+            int bytesPerFrame = (int) Math.ceil(samplesPerFrame * step) * inputFrameBytes;
+            int buffered = ringBuffer.size();
+
+            if (!primed) {
+                if (buffered < JITTER_FRAMES * bytesPerFrame) {
+                    return;
+                }
+                primed = true;
+                phase = 1;
+            } else if (buffered > MAX_LATENCY_FRAMES * bytesPerFrame) {
+                int excess = buffered - JITTER_FRAMES * bytesPerFrame;
+                trimmedBytes += ringBuffer.skip(excess - excess % inputFrameBytes);
+            }
+
+            int needed = (int) Math.floor(phase + (samplesPerFrame - 1) * step) + 1;
+            if (source.length < (needed + 2) * channels) {
+                source = new float[(needed + 2) * channels];
+            }
+            byte[] bytes = inputBytes(needed * inputFrameBytes);
+            int pulled = ringBuffer.drainTo(bytes, 0, needed * inputFrameBytes) / inputFrameBytes;
+            if (pulled < needed) {
+                underruns++;
+                primed = false;
+            }
+            decode(bytes, pulled, needed);
+
+            for (int i = 0; i < samplesPerFrame; i++) {
+                double position = phase + i * step + 1;
+                int index = (int) position;
+                float fraction = (float) (position - index);
+                int first = index * channels;
+                int second = first + channels;
+                for (int channel = 0; channel < channels; channel++) {
+                    float a = source[first + channel];
+                    float b = source[second + channel];
+                    mix[i * channels + channel] += a + (b - a) * fraction;
+                }
+            }
+
+            // Carry the last two frames over to the next output frame
+            System.arraycopy(source, needed * channels, source, 0, 2 * channels);
+            phase += samplesPerFrame * step - needed;
+        }
+
+        /*
+         * Converts little endian 16-bit PCM to floats in the output channel layout. Mono output
+         * averages every input channel, otherwise each output channel takes the matching input
+         * channel and mono input is duplicated.
+         */
+        private void decode(byte[] bytes, int frames, int needed) {
+            int inputChannels = this.inputChannels;
+            int offset = 0;
+            for (int frame = 0; frame < frames; frame++) {
+                int target = (frame + 2) * channels;
+                if (channels == 1) {
+                    float sum = 0;
+                    for (int channel = 0; channel < inputChannels; channel++) {
+                        sum += sampleAt(bytes, offset + channel * 2);
+                    }
+                    source[target] = sum / inputChannels;
+                } else {
+                    for (int channel = 0; channel < channels; channel++) {
+                        int inputChannel = Math.min(channel, inputChannels - 1);
+                        source[target + channel] = sampleAt(bytes, offset + inputChannel * 2);
+                    }
+                }
+                offset += inputChannels * 2;
+            }
+            // Missing frames are mixed as silence
+            Arrays.fill(source, (frames + 2) * channels, (needed + 2) * channels, 0f);
+        }
+
+        private float sampleAt(byte[] bytes, int offset) {
+            return (short) ((bytes[offset] & 0xff) | (bytes[offset + 1] << 8)) / 32768f;
+        }
+    }
+}
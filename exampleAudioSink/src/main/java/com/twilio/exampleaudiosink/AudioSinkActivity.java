@@ -6,10 +6,12 @@ import android.content.DialogInterface;
 import android.content.pm.PackageManager;
 import android.graphics.Color;
 import android.media.AudioAttributes;
+import android.media.AudioFormat;
 import android.media.AudioFocusRequest;
 import android.media.AudioManager;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
 import android.support.annotation.NonNull;
 import android.support.design.widget.FloatingActionButton;
 import android.support.design.widget.Snackbar;
@@ -21,6 +23,7 @@ import android.util.Log;
 import android.view.View;
 import android.widget.EditText;
 import android.widget.ImageButton;
+import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -29,7 +32,13 @@ import com.twilio.exampleaudiosink.dialog.Dialog;
 import com.twilio.video.AudioSink;
 import com.twilio.video.ConnectOptions;
 import com.twilio.video.LocalAudioTrack;
+import com.twilio.video.RemoteAudioTrack;
+import com.twilio.video.RemoteAudioTrackPublication;
+import com.twilio.video.RemoteDataTrack;
+import com.twilio.video.RemoteDataTrackPublication;
 import com.twilio.video.RemoteParticipant;
+import com.twilio.video.RemoteVideoTrack;
+import com.twilio.video.RemoteVideoTrackPublication;
 import com.twilio.video.Room;
 import com.twilio.video.TwilioException;
 import com.twilio.video.Video;
@@ -40,7 +49,6 @@ import java.util.Collections;
 import java.util.UUID;
 
 public class AudioSinkActivity extends AppCompatActivity {
-    private static final int MAX_PARTICIPANTS = 2;
     private static final int MIC_PERMISSION_REQUEST_CODE = 5;
     private static final String TAG = "AudioSinkActivity";
 
@@ -53,6 +61,39 @@ public class AudioSinkActivity extends AppCompatActivity {
      */
     private static final String LOCAL_AUDIO_TRACK_NAME = "mic";
 
+    /*
+     * Set to true to encode the recording as it is captured instead of storing raw PCM. AAC is
+     * used where MediaCodec and MediaMuxer are available, IMA ADPCM everywhere else.
+     */
+    private static final boolean COMPRESS_RECORDING = false;
+
+    /*
+     * Every recording is normalized to this format regardless of what the AudioSink delivers.
+     */
+    private static final int RECORDING_ENCODING = AudioFormat.ENCODING_PCM_16BIT;
+    private static final int RECORDING_SAMPLE_RATE = 48000;
+    private static final int RECORDING_CHANNELS = 2;
+
+    /*
+     * Set to true to leave out the parts of the recording where nobody is speaking.
+     */
+    private static final boolean SKIP_SILENCE = false;
+
+    /*
+     * Set to true to split long recordings into segments that roll over every few minutes or at
+     * a pause in the conversation, with an index that lets playback start anywhere.
+     */
+    private static final boolean SEGMENT_RECORDING = false;
+    private static final String SEGMENTED_RECORDING_NAME = "audio_sink";
+    private static final long LEVEL_METER_INTERVAL_MS = 100;
+
+    /*
+     * Set to true to record the remote participant's video together with their audio into a
+     * single .mp4 file. This needs MediaCodec and MediaMuxer, so it is ignored before Android 4.3.
+     */
+    private static final boolean RECORD_VIDEO = false;
+    private static final String VIDEO_RECORDING_NAME = "/audio_sink.mp4";
+
     /*
      * You must provide a Twilio Access Token to connect to the Video service
      */
@@ -77,24 +118,58 @@ public class AudioSinkActivity extends AppCompatActivity {
 
     private FloatingActionButton connectActionFab;
 
-    private ImageButton toggleAudioSinkButton, togglePlayAudioButton;
-    private TextView audioSinkStatusText;
+    private ImageButton toggleAudioSinkButton, togglePlayAudioButton, toggleRoomRecordingButton;
+    private TextView audioSinkStatusText, speakingIndicatorText;
+    private ProgressBar levelMeter;
     private AlertDialog connectDialog;
     private AudioManager audioManager;
 
-    private WavFileHelper wavFileHelper;
+    private AudioFileWriter audioFileWriter;
     private MediaPlayerHelper mediaPlayerHelper;
+    private AudioTrackPlayer audioTrackPlayer;
+    private RoomAudioRecorder roomAudioRecorder;
+    private AsyncAudioFileWriter asyncAudioFileWriter;
+    private SegmentingAudioFileWriter segmentingAudioFileWriter;
+    private Mp4RecordingMuxer recordingMuxer;
+    private VideoRecorderRenderer videoRecorderRenderer;
+    private RemoteVideoTrack recordedVideoTrack;
+    private final AudioLevelAnalyzer audioLevelAnalyzer = new AudioLevelAnalyzer();
+    private final AudioLevelAnalyzer.Levels audioLevels = new AudioLevelAnalyzer.Levels();
+    private final Handler levelMeterHandler = new Handler();
     private AudioSink audioSink = new AudioSink() {
         @Override
         public void renderSample(@NonNull ByteBuffer audioSample, int encoding, int sampleRate, int channels) {
-            try {
-                wavFileHelper.writeBytesToFile(audioSample, encoding, sampleRate, channels);
-            } catch (IOException e) {
-                Log.e(TAG, String.format("A fatal error has occurred. Stacktrace %s", e.getLocalizedMessage()));
+            /*
+             * renderSample is invoked on the audio thread every 10ms so only measure the levels
+             * and hand the sample to the writer here. The writer thread takes care of the disk
+             * I/O.
+             */
+            boolean voiceActive = audioLevelAnalyzer.analyze(audioSample, encoding, sampleRate,
+                    channels);
+            boolean recorded = (voiceActive || !SKIP_SILENCE) &&
+                    asyncAudioFileWriter.write(audioSample, encoding, sampleRate, channels);
+            if (segmentingAudioFileWriter != null) {
+                // Segments break at the silence this analyzer detected
+                segmentingAudioFileWriter.onSampleCaptured(audioSample.remaining(), encoding,
+                        sampleRate, channels, voiceActive, recorded);
             }
         }
     };
 
+    /*
+     * Polls the analyzer from the main thread while the sink is attached.
+     */
+    private final Runnable levelMeterUpdater = new Runnable() {
+        @Override
+        public void run() {
+            audioLevelAnalyzer.readLevels(audioLevels);
+            levelMeter.setProgress((int) (audioLevels.rmsDb - AudioLevelAnalyzer.SILENCE_DB));
+            speakingIndicatorText.setVisibility(audioLevels.voiceActive ?
+                    View.VISIBLE : View.INVISIBLE);
+            levelMeterHandler.postDelayed(this, LEVEL_METER_INTERVAL_MS);
+        }
+    };
+
     private int previousAudioMode;
     private boolean previousMicrophoneMute;
     private boolean disconnectedFromOnDestroy;
@@ -173,13 +248,17 @@ public class AudioSinkActivity extends AppCompatActivity {
             localAudioTrack = null;
         }
 
-        if (wavFileHelper.isFileWriteInProgress()) {
+        finishVideoRecording();
+        if (asyncAudioFileWriter.isFileWriteInProgress()) {
             try {
-                wavFileHelper.finish();
+                asyncAudioFileWriter.finish();
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }
+        roomAudioRecorder.release();
+        audioTrackPlayer.release();
+        levelMeterHandler.removeCallbacks(levelMeterUpdater);
 
         super.onDestroy();
     }
@@ -208,8 +287,36 @@ public class AudioSinkActivity extends AppCompatActivity {
     }
 
     private void initializeHelpers() {
-        wavFileHelper = new WavFileHelper(AudioSinkActivity.this);
+        if (RECORD_VIDEO && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            recordingMuxer = new Mp4RecordingMuxer(getFilesDir().getPath() +
+                    VIDEO_RECORDING_NAME);
+            videoRecorderRenderer = new VideoRecorderRenderer(recordingMuxer);
+            audioFileWriter = new AacFileHelper(recordingMuxer);
+        } else if (SEGMENT_RECORDING) {
+            segmentingAudioFileWriter = new SegmentingAudioFileWriter(getFilesDir(),
+                    SEGMENTED_RECORDING_NAME);
+            audioFileWriter = segmentingAudioFileWriter;
+        } else {
+            /*
+             * The mapped writer keeps the wav header up to date while recording so the file
+             * stays playable even if the app is killed before the recording is finished.
+             */
+            audioFileWriter = COMPRESS_RECORDING ?
+                    createCompressedFileWriter() :
+                    new MappedWavFileHelper(AudioSinkActivity.this);
+        }
+        asyncAudioFileWriter = new AsyncAudioFileWriter(audioFileWriter, new PcmFormatConverter(
+                RECORDING_ENCODING, RECORDING_SAMPLE_RATE, RECORDING_CHANNELS));
         mediaPlayerHelper = new MediaPlayerHelper();
+        audioTrackPlayer = new AudioTrackPlayer();
+        roomAudioRecorder = new RoomAudioRecorder(getFilesDir());
+    }
+
+    private AudioFileWriter createCompressedFileWriter() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            return new AacFileHelper(AudioSinkActivity.this);
+        }
+        return new ImaAdpcmWavFileHelper(AudioSinkActivity.this);
     }
 
     private void setAccessToken() {
@@ -344,6 +451,9 @@ public class AudioSinkActivity extends AppCompatActivity {
             public void onConnected(@NonNull Room room) {
                 audioSinkStatusText.setText(String.format("Connected to %s", room.getName()));
                 setTitle(room.getName());
+                for (RemoteParticipant remoteParticipant : room.getRemoteParticipants()) {
+                    remoteParticipant.setListener(remoteParticipantListener());
+                }
                 if (hasNecessaryParticipants(room)) {
                     audioSinkStatusText.setText(getString(R.string.status_capture_ready));
                     enableAudioSinkButton(true);
@@ -375,9 +485,12 @@ public class AudioSinkActivity extends AppCompatActivity {
                 audioSinkStatusText.setText(String.format("Disconnected from %s", room.getName()));
                 AudioSinkActivity.this.room = null;
                 enableAudioSinkButton(false);
-                if (wavFileHelper.isFileWriteInProgress()) {
+                if (roomAudioRecorder.isRecording()) {
+                    roomAudioRecorder.stop();
+                }
+                if (asyncAudioFileWriter.isFileWriteInProgress()) {
                     finish();
-                    enablePlayFileButton(wavFileHelper.doesFileExist() && !wavFileHelper.isFileWriteInProgress());
+                    enablePlayFileButton(audioFileWriter.doesFileExist() && !asyncAudioFileWriter.isFileWriteInProgress());
                 }
                 // Only reinitialize the UI if disconnect was not called from onDestroy()
                 if (!disconnectedFromOnDestroy) {
@@ -388,6 +501,7 @@ public class AudioSinkActivity extends AppCompatActivity {
 
             @Override
             public void onParticipantConnected(@NonNull Room room, @NonNull RemoteParticipant remoteParticipant) {
+                remoteParticipant.setListener(remoteParticipantListener());
                 if (hasNecessaryParticipants(room)) {
                     audioSinkStatusText.setText(getString(R.string.status_capture_ready));
                     enableAudioSinkButton(true);
@@ -396,13 +510,18 @@ public class AudioSinkActivity extends AppCompatActivity {
 
             @Override
             public void onParticipantDisconnected(@NonNull Room room, @NonNull RemoteParticipant remoteParticipant) {
+                for (RemoteAudioTrackPublication publication : remoteParticipant.getRemoteAudioTracks()) {
+                    if (publication.getRemoteAudioTrack() != null) {
+                        roomAudioRecorder.removeTrack(publication.getRemoteAudioTrack());
+                    }
+                }
                 if (!hasNecessaryParticipants(room)) {
                     audioSinkStatusText.setText(getString(R.string.status_two_particpants_needed));
                     enableAudioSinkButton(false);
-                    if (wavFileHelper.isFileWriteInProgress()) {
+                    if (asyncAudioFileWriter.isFileWriteInProgress()) {
                         try {
-                            wavFileHelper.finish();
-                            enablePlayFileButton(wavFileHelper.doesFileExist() && !wavFileHelper.isFileWriteInProgress());
+                            finishRecording();
+                            enablePlayFileButton(audioFileWriter.doesFileExist() && !asyncAudioFileWriter.isFileWriteInProgress());
                         } catch (IOException e) {
                             e.printStackTrace();
                         }
@@ -430,32 +549,206 @@ public class AudioSinkActivity extends AppCompatActivity {
         };
     }
 
+    /*
+     * Remote participant events listener. Used to attach and detach the per track sinks while
+     * the whole room is being recorded.
+     */
+    private RemoteParticipant.Listener remoteParticipantListener() {
+        return new RemoteParticipant.Listener() {
+            @Override
+            public void onAudioTrackPublished(@NonNull RemoteParticipant remoteParticipant,
+                                              @NonNull RemoteAudioTrackPublication remoteAudioTrackPublication) {
+            }
+
+            @Override
+            public void onAudioTrackUnpublished(@NonNull RemoteParticipant remoteParticipant,
+                                                @NonNull RemoteAudioTrackPublication remoteAudioTrackPublication) {
+            }
+
+            @Override
+            public void onAudioTrackSubscribed(@NonNull RemoteParticipant remoteParticipant,
+                                               @NonNull RemoteAudioTrackPublication remoteAudioTrackPublication,
+                                               @NonNull RemoteAudioTrack remoteAudioTrack) {
+                if (roomAudioRecorder.isRecording()) {
+                    roomAudioRecorder.addTrack(remoteParticipant, remoteAudioTrack);
+                    updateRoomRecordingStatus();
+                }
+            }
+
+            @Override
+            public void onAudioTrackSubscriptionFailed(@NonNull RemoteParticipant remoteParticipant,
+                                                       @NonNull RemoteAudioTrackPublication remoteAudioTrackPublication,
+                                                       @NonNull TwilioException twilioException) {
+            }
+
+            @Override
+            public void onAudioTrackUnsubscribed(@NonNull RemoteParticipant remoteParticipant,
+                                                 @NonNull RemoteAudioTrackPublication remoteAudioTrackPublication,
+                                                 @NonNull RemoteAudioTrack remoteAudioTrack) {
+                if (roomAudioRecorder.isRecording()) {
+                    roomAudioRecorder.removeTrack(remoteAudioTrack);
+                    updateRoomRecordingStatus();
+                }
+            }
+
+            @Override
+            public void onVideoTrackPublished(@NonNull RemoteParticipant remoteParticipant,
+                                              @NonNull RemoteVideoTrackPublication remoteVideoTrackPublication) {
+            }
+
+            @Override
+            public void onVideoTrackUnpublished(@NonNull RemoteParticipant remoteParticipant,
+                                                @NonNull RemoteVideoTrackPublication remoteVideoTrackPublication) {
+            }
+
+            @Override
+            public void onVideoTrackSubscribed(@NonNull RemoteParticipant remoteParticipant,
+                                               @NonNull RemoteVideoTrackPublication remoteVideoTrackPublication,
+                                               @NonNull RemoteVideoTrack remoteVideoTrack) {
+            }
+
+            @Override
+            public void onVideoTrackSubscriptionFailed(@NonNull RemoteParticipant remoteParticipant,
+                                                       @NonNull RemoteVideoTrackPublication remoteVideoTrackPublication,
+                                                       @NonNull TwilioException twilioException) {
+            }
+
+            @Override
+            public void onVideoTrackUnsubscribed(@NonNull RemoteParticipant remoteParticipant,
+                                                 @NonNull RemoteVideoTrackPublication remoteVideoTrackPublication,
+                                                 @NonNull RemoteVideoTrack remoteVideoTrack) {
+                // The audio keeps recording, the video track ends where the video did
+                if (remoteVideoTrack == recordedVideoTrack) {
+                    finishVideoRecording();
+                }
+            }
+
+            @Override
+            public void onDataTrackPublished(@NonNull RemoteParticipant remoteParticipant,
+                                             @NonNull RemoteDataTrackPublication remoteDataTrackPublication) {
+            }
+
+            @Override
+            public void onDataTrackUnpublished(@NonNull RemoteParticipant remoteParticipant,
+                                               @NonNull RemoteDataTrackPublication remoteDataTrackPublication) {
+            }
+
+            @Override
+            public void onDataTrackSubscribed(@NonNull RemoteParticipant remoteParticipant,
+                                              @NonNull RemoteDataTrackPublication remoteDataTrackPublication,
+                                              @NonNull RemoteDataTrack remoteDataTrack) {
+            }
+
+            @Override
+            public void onDataTrackSubscriptionFailed(@NonNull RemoteParticipant remoteParticipant,
+                                                      @NonNull RemoteDataTrackPublication remoteDataTrackPublication,
+                                                      @NonNull TwilioException twilioException) {
+            }
+
+            @Override
+            public void onDataTrackUnsubscribed(@NonNull RemoteParticipant remoteParticipant,
+                                                @NonNull RemoteDataTrackPublication remoteDataTrackPublication,
+                                                @NonNull RemoteDataTrack remoteDataTrack) {
+            }
+
+            @Override
+            public void onAudioTrackEnabled(@NonNull RemoteParticipant remoteParticipant,
+                                            @NonNull RemoteAudioTrackPublication remoteAudioTrackPublication) {
+            }
+
+            @Override
+            public void onAudioTrackDisabled(@NonNull RemoteParticipant remoteParticipant,
+                                             @NonNull RemoteAudioTrackPublication remoteAudioTrackPublication) {
+            }
+
+            @Override
+            public void onVideoTrackEnabled(@NonNull RemoteParticipant remoteParticipant,
+                                            @NonNull RemoteVideoTrackPublication remoteVideoTrackPublication) {
+            }
+
+            @Override
+            public void onVideoTrackDisabled(@NonNull RemoteParticipant remoteParticipant,
+                                             @NonNull RemoteVideoTrackPublication remoteVideoTrackPublication) {
+            }
+        };
+    }
+
     public boolean hasNecessaryParticipants(@NonNull Room room) {
-        if (room.getRemoteParticipants().size() > 1)
-            throw new RuntimeException(String.format(getString(R.string.unsupported_participant_count_exception_message), MAX_PARTICIPANTS));
         return room.getRemoteParticipants().size() > 0;
     }
 
     private void attachSink() {
         room.getRemoteParticipants().get(0).getRemoteAudioTracks().get(0).getRemoteAudioTrack().addSink(audioSink);
         toggleAudioSinkButton.setColorFilter(Color.GRAY);
+        levelMeter.setVisibility(View.VISIBLE);
+        levelMeterHandler.post(levelMeterUpdater);
     }
 
     private void detachSink() {
         room.getRemoteParticipants().get(0).getRemoteAudioTracks().get(0).getRemoteAudioTrack().removeSink(audioSink);
         toggleAudioSinkButton.setColorFilter(Color.WHITE);
+        levelMeterHandler.removeCallbacks(levelMeterUpdater);
+        levelMeter.setVisibility(View.INVISIBLE);
+        speakingIndicatorText.setVisibility(View.INVISIBLE);
+        audioLevelAnalyzer.reset();
+    }
+
+    /*
+     * The muxer has to know up front whether a video track will be added, so only a video track
+     * that is already subscribed when the recording starts is recorded.
+     */
+    private void startVideoRecording() throws IOException {
+        if (recordingMuxer == null) {
+            return;
+        }
+        recordedVideoTrack = null;
+        for (RemoteVideoTrackPublication publication :
+                room.getRemoteParticipants().get(0).getRemoteVideoTracks()) {
+            if (publication.getRemoteVideoTrack() != null) {
+                recordedVideoTrack = publication.getRemoteVideoTrack();
+                break;
+            }
+        }
+        recordingMuxer.prepare(recordedVideoTrack != null ? 2 : 1);
+        if (recordedVideoTrack != null) {
+            videoRecorderRenderer.start();
+            recordedVideoTrack.addRenderer(videoRecorderRenderer);
+        }
+    }
+
+    private void finishVideoRecording() {
+        if (recordedVideoTrack == null) {
+            return;
+        }
+        videoRecorderRenderer.stop();
+        recordedVideoTrack.removeRenderer(videoRecorderRenderer);
+        recordedVideoTrack = null;
+    }
+
+    private void finishRecording() throws IOException {
+        finishVideoRecording();
+        asyncAudioFileWriter.finish();
+        Log.d(TAG, String.format("Recording finished. Dropped %d bytes, ring high-water mark %d bytes",
+                asyncAudioFileWriter.getDroppedBytes(), asyncAudioFileWriter.getHighWaterMark()));
     }
 
     private void initializeUI() {
         audioSinkStatusText = findViewById(R.id.status_text);
+        speakingIndicatorText = findViewById(R.id.speaking_indicator);
+        levelMeter = findViewById(R.id.level_meter);
 
         toggleAudioSinkButton = findViewById(R.id.toggle_sink);
         toggleAudioSinkButton.setOnClickListener(audioSinkClickListener());
         toggleAudioSinkButton.setEnabled(room != null && room.getRemoteParticipants().size() > 0);
         toggleAudioSinkButton.setColorFilter(Color.WHITE);
 
+        toggleRoomRecordingButton = findViewById(R.id.toggle_room_recording);
+        toggleRoomRecordingButton.setOnClickListener(roomRecordingClickListener());
+        toggleRoomRecordingButton.setEnabled(room != null && room.getRemoteParticipants().size() > 0);
+        toggleRoomRecordingButton.setColorFilter(Color.WHITE);
+
         togglePlayAudioButton = findViewById(R.id.toggle_play_file);
-        togglePlayAudioButton.setEnabled(wavFileHelper.doesFileExist());
+        togglePlayAudioButton.setEnabled(audioFileWriter.doesFileExist());
         togglePlayAudioButton.setOnClickListener(playAudioClickListener());
 
         connectActionFab = findViewById(R.id.connect_action_fab);
@@ -490,6 +783,12 @@ public class AudioSinkActivity extends AppCompatActivity {
 
     private void enableAudioSinkButton(boolean isEnabled) {
         toggleAudioSinkButton.setEnabled(isEnabled);
+        toggleRoomRecordingButton.setEnabled(isEnabled || roomAudioRecorder.isRecording());
+    }
+
+    private void updateRoomRecordingStatus() {
+        audioSinkStatusText.setText(getString(R.string.status_room_recording,
+                roomAudioRecorder.getTrackCount()));
     }
 
     private void enablePlayFileButton(boolean isEnabled) {
@@ -499,13 +798,20 @@ public class AudioSinkActivity extends AppCompatActivity {
     private View.OnClickListener audioSinkClickListener() {
         return v -> {
             try {
-                if (wavFileHelper.isFileWriteInProgress()) {
-                    wavFileHelper.finish();
+                if (asyncAudioFileWriter.isFileWriteInProgress()) {
+                    finishRecording();
                     detachSink();
-                    enablePlayFileButton(wavFileHelper.doesFileExist() && !wavFileHelper.isFileWriteInProgress());
+                    enablePlayFileButton(audioFileWriter.doesFileExist() && !asyncAudioFileWriter.isFileWriteInProgress());
                     audioSinkStatusText.setText(getString(R.string.status_finished_capturing));
                 } else {
-                    wavFileHelper.createFile();
+                    if (recordingMuxer != null && recordingMuxer.isRecording()) {
+                        // The video of the previous recording is still being encoded
+                        Snackbar.make(connectActionFab, "Still finishing the last recording",
+                                Snackbar.LENGTH_SHORT).show();
+                        return;
+                    }
+                    startVideoRecording();
+                    asyncAudioFileWriter.start();
                     attachSink();
                     audioSinkStatusText.setText(getString(R.string.status_capturing));
                 }
@@ -515,23 +821,40 @@ public class AudioSinkActivity extends AppCompatActivity {
         };
     }
 
+    private View.OnClickListener roomRecordingClickListener() {
+        return v -> {
+            if (roomAudioRecorder.isRecording()) {
+                roomAudioRecorder.stop();
+                toggleRoomRecordingButton.setColorFilter(Color.WHITE);
+                audioSinkStatusText.setText(getString(R.string.status_finished_room_recording));
+            } else if (room != null) {
+                roomAudioRecorder.start(room);
+                toggleRoomRecordingButton.setColorFilter(Color.GRAY);
+                updateRoomRecordingStatus();
+            }
+        };
+    }
+
     private View.OnClickListener playAudioClickListener() {
         return v -> {
-            if (mediaPlayerHelper.isPlaying()) {
+            if (audioTrackPlayer.isPlaying() || mediaPlayerHelper.isPlaying()) {
+                audioTrackPlayer.stopPlaying();
                 mediaPlayerHelper.stopPlaying();
                 togglePlayAudioButton.setImageDrawable(getResources().getDrawable(android.R.drawable.ic_media_play));
             } else {
-                if (!wavFileHelper.doesFileExist()) {
+                if (!audioFileWriter.doesFileExist()) {
                     Snackbar.make(connectActionFab, "Couldn't find AudioSink Recording", Snackbar.LENGTH_SHORT).show();
                     togglePlayAudioButton.setImageDrawable(getResources().getDrawable(android.R.drawable.ic_media_play));
                     return;
                 }
+                if (recordingMuxer != null && recordingMuxer.isRecording()) {
+                    Snackbar.make(connectActionFab, "Still finishing the last recording",
+                            Snackbar.LENGTH_SHORT).show();
+                    togglePlayAudioButton.setImageDrawable(getResources().getDrawable(android.R.drawable.ic_media_play));
+                    return;
+                }
                 try {
-                    mediaPlayerHelper.playFile(wavFileHelper.getFullFilePath(), mp -> {
-                        if (!mediaPlayerHelper.isPlaying()) {
-                            togglePlayAudioButton.setImageDrawable(getResources().getDrawable(android.R.drawable.ic_media_play));
-                        }
-                    });
+                    playRecording();
                     togglePlayAudioButton.setImageDrawable(getResources().getDrawable(android.R.drawable.ic_media_pause));
                 } catch (IOException e) {
                     e.printStackTrace();
@@ -540,6 +863,30 @@ public class AudioSinkActivity extends AppCompatActivity {
         };
     }
 
+    /*
+     * Wav recordings are streamed straight from the file with AudioTrackPlayer. Compressed
+     * and video recordings need MediaPlayer to decode them.
+     */
+    private void playRecording() throws IOException {
+        AudioTrackPlayer.OnCompletionListener onCompletion = () -> {
+            if (!audioTrackPlayer.isPlaying()) {
+                togglePlayAudioButton.setImageDrawable(getResources().getDrawable(android.R.drawable.ic_media_play));
+            }
+        };
+        if (recordingMuxer == null && SEGMENT_RECORDING) {
+            audioTrackPlayer.playSegments(SegmentIndex.open(audioFileWriter.getFullFilePath()), 0,
+                    onCompletion);
+        } else if (recordingMuxer == null && !COMPRESS_RECORDING) {
+            audioTrackPlayer.playFile(audioFileWriter.getFullFilePath(), onCompletion);
+        } else {
+            mediaPlayerHelper.playFile(audioFileWriter.getFullFilePath(), mp -> {
+                if (!mediaPlayerHelper.isPlaying()) {
+                    togglePlayAudioButton.setImageDrawable(getResources().getDrawable(android.R.drawable.ic_media_play));
+                }
+            });
+        }
+    }
+
     private DialogInterface.OnClickListener connectClickListener(final EditText roomEditText) {
         return (dialog, which) -> {
             /*
@@ -0,0 +1,425 @@
+package com.twilio.exampleaudiosink;
+
+import android.annotation.TargetApi;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+import android.media.PlaybackParams;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * AudioTrackPlayer plays wav recordings by streaming them from a memory mapping into an
+ * {@link AudioTrack}. Unlike {@link MediaPlayerHelper} there is nothing to prepare: starting
+ * playback only parses the header and wakes the streaming thread, which feeds the track in
+ * {@link #CHUNK_MS} chunks. Seeking flushes the track and continues from the new position, and
+ * the playback speed can be changed while playing.
+ *
+ * <p>The streaming thread, the chunk buffer and the track itself are kept between plays as long
+ * as the recording format stays the same, so playing again does not allocate.
+ *
+ * <p>All methods are meant to be called from the main thread, which is also where the
+ * completion listener is invoked.
+ */
+class AudioTrackPlayer {
+    private static final String TAG = "AudioTrackPlayer";
+    static final int CHUNK_MS = 10;
+    static final float MIN_SPEED = 0.5f;
+    static final float MAX_SPEED = 2f;
+    private static final int DRAIN_POLL_MS = 5;
+
+    interface OnCompletionListener {
+        void onCompletion();
+    }
+
+    /*
+     * Request describes what to play. It is handed to the streaming thread under the lock.
+     */
+    private static final class Request {
+        File file;
+        SegmentIndex segmentIndex;
+        long positionMs;
+        OnCompletionListener listener;
+        long requestedNanos;
+    }
+
+    private final Object lock = new Object();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Thread streamingThread;
+
+    // Guarded by lock
+    private Request pendingRequest;
+    private long pendingSeekMs = -1;
+    private boolean stopRequested;
+    private boolean released;
+
+    private volatile boolean playing;
+    private volatile float speed = 1f;
+    private volatile long positionBaseMs;
+    private volatile long timeToFirstSampleNanos;
+
+    // Created by the streaming thread, read by getPositionMs
+    private volatile AudioTrack audioTrack;
+
+    // Only touched by the streaming thread
+    private ByteBuffer chunkBuffer;
+    private byte[] chunk = new byte[0];
+    private WavFileReader reader;
+    private int segmentNumber;
+    private float appliedSpeed = 1f;
+
+    boolean isPlaying() {
+        return playing;
+    }
+
+    /**
+     * Starts playing a wav file from the beginning.
+     *
+     * @throws IOException if the file is not a PCM wav file this player can stream
+     */
+    void playFile(String path, OnCompletionListener listener) throws IOException {
+        // Parse the header up front so unsupported files are reported to the caller
+        checkPlayable(WavFileReader.open(new File(path)));
+        Request request = new Request();
+        request.file = new File(path);
+        request.listener = listener;
+        submit(request);
+    }
+
+    /**
+     * Starts playing a segmented recording at the given position. The following segments are
+     * played without a gap.
+     */
+    void playSegments(SegmentIndex segmentIndex, long positionMs, OnCompletionListener listener)
+            throws IOException {
+        checkPlayable(WavFileReader.open(segmentIndex.locate(positionMs).segmentFile));
+        Request request = new Request();
+        request.segmentIndex = segmentIndex;
+        request.positionMs = positionMs;
+        request.listener = listener;
+        submit(request);
+    }
+
+    /**
+     * Moves playback to the given position in the recording. Takes effect within one chunk.
+     */
+    void seekTo(long positionMs) {
+        synchronized (lock) {
+            pendingSeekMs = Math.max(0, positionMs);
+        }
+    }
+
+    /**
+     * Changes the playback speed. On Android M and later the pitch is preserved, on older
+     * versions the track is resampled and the pitch changes with the speed.
+     */
+    void setSpeed(float speed) {
+        this.speed = Math.max(MIN_SPEED, Math.min(MAX_SPEED, speed));
+    }
+
+    /**
+     * Returns the position of the audio currently coming out of the speaker.
+     */
+    long getPositionMs() {
+        AudioTrack track = audioTrack;
+        // Until the new play has started the track may still hold the previous one
+        if (track == null || !playing || timeToFirstSampleNanos == 0) {
+            return positionBaseMs;
+        }
+        return positionBaseMs +
+                (track.getPlaybackHeadPosition() & 0xffffffffL) * 1000 / track.getSampleRate();
+    }
+
+    /**
+     * Returns the time between the last play call and the track starting to play out audio.
+     */
+    double getTimeToFirstSampleMs() {
+        return timeToFirstSampleNanos / 1e6;
+    }
+
+    boolean stopPlaying() {
+        synchronized (lock) {
+            if (!playing && pendingRequest == null) {
+                return false;
+            }
+            pendingRequest = null;
+            stopRequested = true;
+            lock.notifyAll();
+        }
+        playing = false;
+        return true;
+    }
+
+    /**
+     * Stops playback and releases the track and the streaming thread.
+     */
+    void release() {
+        synchronized (lock) {
+            released = true;
+            stopRequested = true;
+            pendingRequest = null;
+            lock.notifyAll();
+        }
+        playing = false;
+    }
+
+    private void checkPlayable(WavFileReader reader) throws IOException {
+        int encoding = reader.getEncoding();
+        reader.close();
+        if (encoding == AudioFormat.ENCODING_PCM_FLOAT &&
+                Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            throw new IOException("Float playback requires Android Lollipop");
+        }
+    }
+
+    private void submit(Request request) {
+        synchronized (lock) {
+            if (released) {
+                return;
+            }
+            pendingRequest = request;
+            pendingSeekMs = -1;
+            stopRequested = false;
+            request.requestedNanos = System.nanoTime();
+            timeToFirstSampleNanos = 0;
+            if (streamingThread == null) {
+                streamingThread = new Thread(this::streamRequests, TAG);
+                streamingThread.start();
+            }
+            lock.notifyAll();
+        }
+        playing = true;
+    }
+
+    private void streamRequests() {
+        // Scheduled like the platform's own audio threads so the track does not underrun
+        Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+        while (true) {
+            Request request;
+            synchronized (lock) {
+                while (pendingRequest == null && !released) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (released) {
+                    break;
+                }
+                request = pendingRequest;
+                pendingRequest = null;
+                stopRequested = false;
+            }
+            boolean completed = false;
+            try {
+                completed = stream(request);
+            } catch (IOException e) {
+                Log.e(TAG, String.format("Failed to play recording: %s", e.getMessage()));
+                completed = true;
+            } finally {
+                closeReader();
+            }
+            if (completed) {
+                synchronized (lock) {
+                    // A newer request keeps the player busy
+                    if (pendingRequest == null) {
+                        playing = false;
+                    }
+                }
+                mainHandler.post(request.listener::onCompletion);
+            }
+        }
+        if (audioTrack != null) {
+            audioTrack.release();
+            audioTrack = null;
+        }
+    }
+
+    /**
+     * Streams one request until it ends or is interrupted.
+     *
+     * @return true if the recording played to the end.
+     */
+    private boolean stream(Request request) throws IOException {
+        openAt(request, request.positionMs);
+        prepareTrack();
+        long framesWritten = 0;
+        boolean firstBufferWritten = false;
+        boolean firstSampleSeen = false;
+        audioTrack.play();
+
+        while (true) {
+            long seekMs;
+            synchronized (lock) {
+                if (stopRequested || pendingRequest != null) {
+                    audioTrack.pause();
+                    audioTrack.flush();
+                    return false;
+                }
+                seekMs = pendingSeekMs;
+                pendingSeekMs = -1;
+            }
+            if (seekMs >= 0) {
+                audioTrack.pause();
+                audioTrack.flush();
+                openAt(request, seekMs);
+                framesWritten = 0;
+                audioTrack.play();
+            }
+            applySpeed();
+
+            int length = reader.read(chunk, 0, chunk.length);
+            if (length < 0) {
+                if (!openNextSegment(request)) {
+                    break;
+                }
+                continue;
+            }
+            write(length);
+            framesWritten += length / reader.getBytesPerFrame();
+
+            if (!firstBufferWritten) {
+                Log.d(TAG, String.format("Playback started %.1fms after it was requested",
+                        (System.nanoTime() - request.requestedNanos) / 1e6));
+                firstBufferWritten = true;
+            }
+            if (!firstSampleSeen && audioTrack.getPlaybackHeadPosition() > 0) {
+                timeToFirstSampleNanos = System.nanoTime() - request.requestedNanos;
+                firstSampleSeen = true;
+            }
+        }
+
+        // Let the track play out what it has buffered
+        audioTrack.stop();
+        while ((audioTrack.getPlaybackHeadPosition() & 0xffffffffL) < framesWritten) {
+            synchronized (lock) {
+                if (stopRequested || pendingRequest != null) {
+                    audioTrack.pause();
+                    audioTrack.flush();
+                    return false;
+                }
+                try {
+                    lock.wait(DRAIN_POLL_MS);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void openAt(Request request, long positionMs) throws IOException {
+        closeReader();
+        if (request.segmentIndex != null) {
+            SegmentIndex.Position position = request.segmentIndex.locate(positionMs);
+            reader = WavFileReader.open(position.segmentFile);
+            reader.seek(position.byteOffset);
+            segmentNumber = position.segmentNumber;
+        } else {
+            reader = WavFileReader.open(request.file);
+            reader.seekToMs(positionMs);
+        }
+        positionBaseMs = positionMs;
+    }
+
+    private boolean openNextSegment(Request request) throws IOException {
+        if (request.segmentIndex == null ||
+                segmentNumber + 1 >= request.segmentIndex.getSegmentCount()) {
+            return false;
+        }
+        closeReader();
+        segmentNumber++;
+        reader = WavFileReader.open(request.segmentIndex.getSegmentFile(segmentNumber));
+        return true;
+    }
+
+    private void closeReader() {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                Log.e(TAG, String.format("Failed to close recording: %s", e.getMessage()));
+            }
+            reader = null;
+        }
+    }
+
+    /*
+     * Reuses the track from the previous play if the format matches, otherwise creates a new
+     * one with a buffer a few chunks deep.
+     */
+    private void prepareTrack() {
+        int sampleRate = reader.getSampleRate();
+        int channelConfig = reader.getChannels() == 1 ?
+                AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO;
+        int encoding = reader.getEncoding();
+        int chunkSize = sampleRate * CHUNK_MS / 1000 * reader.getBytesPerFrame();
+
+        if (audioTrack == null || audioTrack.getSampleRate() != sampleRate ||
+                audioTrack.getChannelConfiguration() != channelConfig ||
+                audioTrack.getAudioFormat() != encoding) {
+            if (audioTrack != null) {
+                audioTrack.release();
+            }
+            int bufferSize = Math.max(AudioTrack.getMinBufferSize(sampleRate, channelConfig,
+                    encoding), 4 * chunkSize);
+            audioTrack = new AudioTrack(AudioManager.STREAM_MUSIC, sampleRate, channelConfig,
+                    encoding, bufferSize, AudioTrack.MODE_STREAM);
+            appliedSpeed = 1f;
+        }
+        if (chunk.length != chunkSize) {
+            chunk = new byte[chunkSize];
+            chunkBuffer = ByteBuffer.wrap(chunk);
+        }
+    }
+
+    private void write(int length) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            writeBlocking(length);
+        } else {
+            for (int written = 0; written < length; ) {
+                int result = audioTrack.write(chunk, written, length - written);
+                if (result <= 0) {
+                    Log.e(TAG, String.format("AudioTrack write failed: %d", result));
+                    return;
+                }
+                written += result;
+            }
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private void writeBlocking(int length) {
+        chunkBuffer.clear().limit(length);
+        int result = audioTrack.write(chunkBuffer, length, AudioTrack.WRITE_BLOCKING);
+        if (result < 0) {
+            Log.e(TAG, String.format("AudioTrack write failed: %d", result));
+        }
+    }
+
+    private void applySpeed() {
+        float speed = this.speed;
+        if (speed == appliedSpeed) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            applyPlaybackParams(speed);
+        } else {
+            audioTrack.setPlaybackRate(Math.round(audioTrack.getSampleRate() * speed));
+        }
+        appliedSpeed = speed;
+    }
+
+    @TargetApi(Build.VERSION_CODES.M)
+    private void applyPlaybackParams(float speed) {
+        audioTrack.setPlaybackParams(new PlaybackParams().setSpeed(speed));
+    }
+}
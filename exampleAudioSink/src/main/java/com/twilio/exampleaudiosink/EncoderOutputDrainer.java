@@ -0,0 +1,105 @@
+package com.twilio.exampleaudiosink;
+
+import android.annotation.TargetApi;
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+import android.os.Build;
+
+import java.nio.ByteBuffer;
+
+/**
+ * EncoderOutputDrainer moves the encoded buffers of a started {@link MediaCodec} encoder to an
+ * {@link Output}, and ends the stream once the last input has been queued. {@link AacFileHelper}
+ * and {@link VideoRecorderRenderer} share it, so only the way they mux their samples differs.
+ *
+ * <p>All methods must be called from the thread that feeds the encoder.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+final class EncoderOutputDrainer {
+    private static final long TIMEOUT_US = 10000;
+
+    interface Output {
+        /**
+         * Called once the encoder knows its output format, before any sample is handed over.
+         */
+        void onFormatChanged(MediaFormat format);
+
+        /**
+         * Called with each encoded sample, the buffer positioned on its data. Codec specific
+         * data is not handed over, muxers take it from the output format.
+         */
+        void onSample(ByteBuffer data, MediaCodec.BufferInfo bufferInfo);
+    }
+
+    private final MediaCodec mediaCodec;
+    private final Output output;
+    private final MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+    private ByteBuffer[] outputBuffers;
+
+    EncoderOutputDrainer(MediaCodec mediaCodec, Output output) {
+        this.mediaCodec = mediaCodec;
+        this.output = output;
+        this.outputBuffers = mediaCodec.getOutputBuffers();
+    }
+
+    /**
+     * Waits for a free input buffer, draining the encoder while it is backed up.
+     *
+     * @return the index of the input buffer
+     */
+    int dequeueInputBuffer() {
+        int inputIndex;
+        while ((inputIndex = mediaCodec.dequeueInputBuffer(TIMEOUT_US)) < 0) {
+            // The encoder is backed up, make room by draining it
+            drain(false);
+        }
+        return inputIndex;
+    }
+
+    /**
+     * Queues the end of stream and hands over everything the encoder still holds.
+     */
+    void finish(long presentationTimeUs) {
+        mediaCodec.queueInputBuffer(dequeueInputBuffer(), 0, 0, presentationTimeUs,
+                MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+        drain(true);
+    }
+
+    /**
+     * Moves every encoded buffer the codec has ready to the output. When the end of stream has
+     * been queued keep waiting until the codec signals it has flushed everything.
+     */
+    void drain(boolean endOfStream) {
+        while (true) {
+            int outputIndex = mediaCodec.dequeueOutputBuffer(bufferInfo,
+                    endOfStream ? TIMEOUT_US : 0);
+
+            if (outputIndex == MediaCodec.INFO_TRY_AGAIN_LATER) {
+                if (!endOfStream) {
+                    return;
+                }
+            } else if (outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                output.onFormatChanged(mediaCodec.getOutputFormat());
+            } else if (outputIndex == MediaCodec.INFO_OUTPUT_BUFFERS_CHANGED) {
+                outputBuffers = mediaCodec.getOutputBuffers();
+            } else if (outputIndex >= 0) {
+                ByteBuffer data = outputBuffers[outputIndex];
+
+                // The codec specific data is handed to the muxer through the output format
+                if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0) {
+                    bufferInfo.size = 0;
+                }
+                if (bufferInfo.size > 0) {
+                    data.position(bufferInfo.offset);
+                    data.limit(bufferInfo.offset + bufferInfo.size);
+                    output.onSample(data, bufferInfo);
+                }
+                mediaCodec.releaseOutputBuffer(outputIndex, false);
+
+                if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.twilio.exampleaudiosink;
+
+import java.nio.ByteBuffer;
+
+/**
+ * I420EncoderInputWriter moves I420 frames into the layouts video encoders accept. Frames are
+ * first packed tightly with {@link #pack} so they can be queued without holding on to the
+ * renderer's planes, then written into an encoder input buffer with {@link #write}, which scales
+ * with nearest neighbour sampling when the remote participant changes resolution after the
+ * encoder has been configured.
+ *
+ * <p>Lookup tables and the row buffer are reused between frames, so one instance must only be
+ * used from one thread.
+ */
+final class I420EncoderInputWriter {
+    private int[] columnMap = new int[0];
+    private int[] rowMap = new int[0];
+    private int mappedSourceWidth;
+    private int mappedSourceHeight;
+    private byte[] row = new byte[0];
+
+    static int frameSize(int width, int height) {
+        return width * height + 2 * chromaSize(width, height);
+    }
+
+    /**
+     * Packs the three planes of a frame into {@code destination} with the stride of every plane
+     * equal to its width. The plane positions are left untouched.
+     */
+    static void pack(ByteBuffer[] planes, int[] strides, int width, int height,
+                     byte[] destination) {
+        int chromaWidth = (width + 1) / 2;
+        int chromaHeight = (height + 1) / 2;
+        int offset = packPlane(planes[0], strides[0], width, height, destination, 0);
+        offset = packPlane(planes[1], strides[1], chromaWidth, chromaHeight, destination, offset);
+        packPlane(planes[2], strides[2], chromaWidth, chromaHeight, destination, offset);
+    }
+
+    /**
+     * Writes a packed I420 frame into an encoder input buffer as planar or semi-planar YUV
+     * 4:2:0 at the encoder's size, starting at the buffer's current position.
+     *
+     * @return the number of bytes written
+     */
+    int write(byte[] source, int sourceWidth, int sourceHeight, ByteBuffer destination,
+              int width, int height, boolean semiPlanar) {
+        int start = destination.position();
+        int sourceChromaWidth = (sourceWidth + 1) / 2;
+        int sourceChromaHeight = (sourceHeight + 1) / 2;
+        int uOffset = sourceWidth * sourceHeight;
+        int vOffset = uOffset + sourceChromaWidth * sourceChromaHeight;
+        int chromaWidth = width / 2;
+        int chromaHeight = height / 2;
+        prepareMaps(sourceWidth, sourceHeight, width, height);
+        if (row.length < width) {
+            row = new byte[width];
+        }
+
+        // The luma plane keeps the frame's aspect, the chroma planes sample every other entry
+        for (int y = 0; y < height; y++) {
+            int sourceRow = rowMap[y] * sourceWidth;
+            if (sourceWidth == width) {
+                destination.put(source, sourceRow, width);
+                continue;
+            }
+            for (int x = 0; x < width; x++) {
+                row[x] = source[sourceRow + columnMap[x]];
+            }
+            destination.put(row, 0, width);
+        }
+        if (semiPlanar) {
+            for (int y = 0; y < chromaHeight; y++) {
+                int sourceRow = chromaRow(y, sourceChromaHeight) * sourceChromaWidth;
+                for (int x = 0; x < chromaWidth; x++) {
+                    int sourceColumn = chromaColumn(x, sourceChromaWidth);
+                    row[2 * x] = source[uOffset + sourceRow + sourceColumn];
+                    row[2 * x + 1] = source[vOffset + sourceRow + sourceColumn];
+                }
+                destination.put(row, 0, 2 * chromaWidth);
+            }
+        } else {
+            writeChromaPlane(source, uOffset, sourceChromaWidth, sourceChromaHeight,
+                    destination, chromaWidth, chromaHeight);
+            writeChromaPlane(source, vOffset, sourceChromaWidth, sourceChromaHeight,
+                    destination, chromaWidth, chromaHeight);
+        }
+        return destination.position() - start;
+    }
+
+    private void writeChromaPlane(byte[] source, int planeOffset, int sourceChromaWidth,
+                                  int sourceChromaHeight, ByteBuffer destination,
+                                  int chromaWidth, int chromaHeight) {
+        for (int y = 0; y < chromaHeight; y++) {
+            int sourceRow = planeOffset + chromaRow(y, sourceChromaHeight) * sourceChromaWidth;
+            if (sourceChromaWidth == chromaWidth) {
+                destination.put(source, sourceRow, chromaWidth);
+                continue;
+            }
+            for (int x = 0; x < chromaWidth; x++) {
+                row[x] = source[sourceRow + chromaColumn(x, sourceChromaWidth)];
+            }
+            destination.put(row, 0, chromaWidth);
+        }
+    }
+
+    private int chromaRow(int y, int sourceChromaHeight) {
+        return Math.min(rowMap[2 * y] / 2, sourceChromaHeight - 1);
+    }
+
+    private int chromaColumn(int x, int sourceChromaWidth) {
+        return Math.min(columnMap[2 * x] / 2, sourceChromaWidth - 1);
+    }
+
+    private void prepareMaps(int sourceWidth, int sourceHeight, int width, int height) {
+        if (columnMap.length == width && rowMap.length == height &&
+                mappedSourceWidth == sourceWidth && mappedSourceHeight == sourceHeight) {
+            return;
+        }
+        columnMap = new int[width];
+        rowMap = new int[height];
+        for (int x = 0; x < width; x++) {
+            columnMap[x] = (int) ((2L * x + 1) * sourceWidth / (2L * width));
+        }
+        for (int y = 0; y < height; y++) {
+            rowMap[y] = (int) ((2L * y + 1) * sourceHeight / (2L * height));
+        }
+        mappedSourceWidth = sourceWidth;
+        mappedSourceHeight = sourceHeight;
+    }
+
+    private static int chromaSize(int width, int height) {
+        return ((width + 1) / 2) * ((height + 1) / 2);
+    }
+
+    private static int packPlane(ByteBuffer plane, int stride, int width, int height,
+                                 byte[] destination, int offset) {
+        int position = plane.position();
+        for (int y = 0; y < height; y++) {
+            plane.position(y * stride);
+            plane.get(destination, offset, width);
+            offset += width;
+        }
+        plane.position(position);
+        return offset;
+    }
+}
@@ -0,0 +1,273 @@
+package com.twilio.exampleaudiosink;
+
+import android.content.Context;
+import android.media.AudioFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * ImaAdpcmWavFileHelper encodes 16-bit PCM to IMA ADPCM as it arrives and stores it in a .wav
+ * file, cutting the size of a recording to roughly a quarter. It is written in plain Java so it
+ * works on every API level and off device, and is used when {@link AacFileHelper} is not
+ * available.
+ */
+class ImaAdpcmWavFileHelper implements AudioFileWriter {
+    private static final String fileName = "/audio_sink_adpcm.wav";
+
+    static final int WAV_HEADER_SIZE = 60;
+    static final int SAMPLES_PER_BLOCK = 1017;
+    private static final int BLOCK_ALIGN_PER_CHANNEL = 512;
+    private static final int BLOCKS_PER_WRITE = 32;
+    private static final short WAVE_FORMAT_IMA_ADPCM = 0x11;
+
+    private static final int[] INDEX_TABLE = {
+            -1, -1, -1, -1, 2, 4, 6, 8,
+            -1, -1, -1, -1, 2, 4, 6, 8
+    };
+
+    private static final int[] STEP_TABLE = {
+            7, 8, 9, 10, 11, 12, 13, 14, 16, 17, 19, 21, 23, 25, 28, 31, 34, 37, 41, 45, 50, 55,
+            60, 66, 73, 80, 88, 97, 107, 118, 130, 143, 157, 173, 190, 209, 230, 253, 279, 307,
+            337, 371, 408, 449, 494, 544, 598, 658, 724, 796, 876, 963, 1060, 1166, 1282, 1411,
+            1552, 1707, 1878, 2066, 2272, 2499, 2749, 3024, 3327, 3660, 4026, 4428, 4871, 5358,
+            5894, 6484, 7132, 7845, 8630, 9493, 10442, 11487, 12635, 13899, 15289, 16818, 18500,
+            20350, 22385, 24623, 27086, 29794, 32767
+    };
+
+    private final String fullFilePath;
+    private File outputFile;
+    private RandomAccessFile randomAccessFile;
+    private FileChannel fileChannel;
+
+    private int channels;
+    private int blockAlign;
+    private short[] blockSamples;
+    private int blockSampleCount;
+    private ByteBuffer encoded;
+    private final int[] predictor = new int[2];
+    private final int[] stepIndex = new int[2];
+
+    private long writePosition;
+    private long sampleFrames;
+    private boolean didWriteWavHeader;
+
+    ImaAdpcmWavFileHelper(Context context) {
+        this(context.getFilesDir().getPath() + fileName);
+    }
+
+    ImaAdpcmWavFileHelper(String fullFilePath) {
+        this.fullFilePath = fullFilePath;
+    }
+
+    @Override
+    public void createFile() throws IOException {
+        outputFile = new File(fullFilePath);
+        if (outputFile.exists()) {
+            outputFile.delete();
+        }
+        randomAccessFile = new RandomAccessFile(outputFile, "rw");
+        fileChannel = randomAccessFile.getChannel();
+        writePosition = 0;
+        sampleFrames = 0;
+        didWriteWavHeader = false;
+    }
+
+    @Override
+    public void writeBytesToFile(ByteBuffer byteBuffer, int encoding, int sampleRate, int channels)
+            throws IOException {
+        if (!didWriteWavHeader) {
+            start(encoding, sampleRate, channels);
+            didWriteWavHeader = true;
+        }
+        int blockLength = blockSamples.length;
+        int end = byteBuffer.limit() - 1;
+
+        // Samples are little endian 16-bit PCM
+        for (int i = byteBuffer.position(); i < end; i += 2) {
+            blockSamples[blockSampleCount++] =
+                    (short) ((byteBuffer.get(i) & 0xff) | (byteBuffer.get(i + 1) << 8));
+            if (blockSampleCount == blockLength) {
+                encodeBlock();
+            }
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (didWriteWavHeader) {
+            if (blockSampleCount > 0) {
+                // Pad the last block with silence. The fact chunk holds the real length.
+                long frames = sampleFrames + blockSampleCount / channels;
+                while (blockSampleCount < blockSamples.length) {
+                    blockSamples[blockSampleCount++] = 0;
+                }
+                encodeBlock();
+                sampleFrames = frames;
+            }
+            flushEncoded();
+            updateWavHeader();
+        }
+        fileChannel.close();
+        randomAccessFile.close();
+        outputFile.setReadable(true);
+    }
+
+    @Override
+    public String getFullFilePath() {
+        return fullFilePath;
+    }
+
+    @Override
+    public boolean doesFileExist() {
+        if (outputFile == null) return false;
+        return outputFile.exists();
+    }
+
+    long getSampleFrames() {
+        return sampleFrames;
+    }
+
+    private void start(int encoding, int sampleRate, int channels) throws IOException {
+        if (encoding != AudioFormat.ENCODING_PCM_16BIT) {
+            throw new IllegalArgumentException("IMA ADPCM requires 16-bit PCM");
+        }
+        if (channels != 1 && channels != 2) {
+            throw new IllegalArgumentException("Unacceptable channel count");
+        }
+        this.channels = channels;
+        this.blockAlign = BLOCK_ALIGN_PER_CHANNEL * channels;
+        this.blockSamples = new short[SAMPLES_PER_BLOCK * channels];
+        this.blockSampleCount = 0;
+        Arrays.fill(stepIndex, 0);
+        this.encoded = ByteBuffer.allocate(blockAlign * BLOCKS_PER_WRITE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        ByteBuffer header = ByteBuffer.allocate(WAV_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+                // RIFF header
+                .put(new byte[]{'R', 'I', 'F', 'F'}) // ChunkID
+                .putInt(0) // ChunkSize (updated on finish)
+                .put(new byte[]{'W', 'A', 'V', 'E'}) // Format
+                // fmt subchunk
+                .put(new byte[]{'f', 'm', 't', ' '}) // Subchunk1ID
+                .putInt(20) // Subchunk1Size
+                .putShort(WAVE_FORMAT_IMA_ADPCM) // AudioFormat
+                .putShort((short) channels) // NumChannels
+                .putInt(sampleRate) // SampleRate
+                .putInt(sampleRate * blockAlign / SAMPLES_PER_BLOCK) // ByteRate
+                .putShort((short) blockAlign) // BlockAlign
+                .putShort((short) 4) // BitsPerSample
+                .putShort((short) 2) // ExtraParamSize
+                .putShort((short) SAMPLES_PER_BLOCK) // SamplesPerBlock
+                // fact subchunk
+                .put(new byte[]{'f', 'a', 'c', 't'})
+                .putInt(4)
+                .putInt(0) // SampleLength (updated on finish)
+                // data subchunk
+                .put(new byte[]{'d', 'a', 't', 'a'}) // Subchunk2ID
+                .putInt(0); // Subchunk2Size (updated on finish)
+        header.flip();
+        while (header.hasRemaining()) {
+            writePosition += fileChannel.write(header, writePosition);
+        }
+    }
+
+    /*
+     * Encodes one block in the Microsoft IMA ADPCM layout. Each channel starts with a header
+     * holding its first sample verbatim and the current step index, followed by the remaining
+     * samples as 4-bit codes interleaved per channel in groups of eight.
+     */
+    private void encodeBlock() throws IOException {
+        for (int channel = 0; channel < channels; channel++) {
+            short first = blockSamples[channel];
+            predictor[channel] = first;
+            encoded.putShort(first);
+            encoded.put((byte) stepIndex[channel]);
+            encoded.put((byte) 0);
+        }
+        for (int frame = 1; frame < SAMPLES_PER_BLOCK; frame += 8) {
+            for (int channel = 0; channel < channels; channel++) {
+                for (int i = 0; i < 8; i += 2) {
+                    int low = encodeSample(channel,
+                            blockSamples[(frame + i) * channels + channel]);
+                    int high = encodeSample(channel,
+                            blockSamples[(frame + i + 1) * channels + channel]);
+                    encoded.put((byte) (low | (high << 4)));
+                }
+            }
+        }
+        blockSampleCount = 0;
+        sampleFrames += SAMPLES_PER_BLOCK;
+
+        if (!encoded.hasRemaining()) {
+            flushEncoded();
+        }
+    }
+
+    private int encodeSample(int channel, int sample) {
+        int step = STEP_TABLE[stepIndex[channel]];
+        int diff = sample - predictor[channel];
+        int code = 0;
+        if (diff < 0) {
+            code = 8;
+            diff = -diff;
+        }
+
+        // Approximate diff / step in three bits while tracking what the decoder will rebuild
+        int delta = step >> 3;
+        if (diff >= step) {
+            code |= 4;
+            diff -= step;
+            delta += step;
+        }
+        step >>= 1;
+        if (diff >= step) {
+            code |= 2;
+            diff -= step;
+            delta += step;
+        }
+        step >>= 1;
+        if (diff >= step) {
+            code |= 1;
+            delta += step;
+        }
+
+        int value = (code & 8) != 0 ? predictor[channel] - delta : predictor[channel] + delta;
+        predictor[channel] = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+        stepIndex[channel] = Math.max(0, Math.min(STEP_TABLE.length - 1,
+                stepIndex[channel] + INDEX_TABLE[code]));
+
+        return code;
+    }
+
+    private void flushEncoded() throws IOException {
+        encoded.flip();
+        while (encoded.hasRemaining()) {
+            writePosition += fileChannel.write(encoded, writePosition);
+        }
+        encoded.clear();
+    }
+
+    private void updateWavHeader() throws IOException {
+        ByteBuffer sizes = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+
+        // ChunkSize
+        sizes.putInt(0, (int) (writePosition - 8));
+        fileChannel.write(sizes, 4);
+
+        // SampleLength
+        sizes.clear();
+        sizes.putInt(0, (int) sampleFrames);
+        fileChannel.write(sizes, 48);
+
+        // Subchunk2Size
+        sizes.clear();
+        sizes.putInt(0, (int) (writePosition - WAV_HEADER_SIZE));
+        fileChannel.write(sizes, 56);
+    }
+}
@@ -0,0 +1,219 @@
+package com.twilio.exampleaudiosink;
+
+import android.content.Context;
+import android.media.AudioFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * MappedWavFileHelper writes PCM straight into a memory mapping of the output file. The file is
+ * mapped in fixed size windows as it grows and the RIFF sizes are refreshed at a bounded interval
+ * while recording. Dirty mapped pages belong to the kernel, so if the process is killed before
+ * {@link #finish()} the file still carries a header describing everything written up to the last
+ * refresh and remains playable.
+ *
+ * <p>The header reserves a JUNK chunk after the RIFF header. Once the recording passes 4 GB the
+ * header is promoted in place to RF64 (EBU Tech 3306) and the 64-bit sizes are kept in the ds64
+ * chunk that replaces JUNK.
+ */
+class MappedWavFileHelper implements AudioFileWriter {
+    private static final String fileName = "/audio_sink.wav";
+
+    static final int WAV_HEADER_SIZE = 80;
+    static final int DEFAULT_WINDOW_SIZE = 4 * 1024 * 1024;
+    private static final long UINT32_MAX = 0xFFFFFFFFL;
+
+    // Offsets into the header
+    private static final int RIFF_ID_OFFSET = 0;
+    private static final int RIFF_SIZE_OFFSET = 4;
+    private static final int JUNK_ID_OFFSET = 12;
+    private static final int DS64_RIFF_SIZE_OFFSET = 20;
+    private static final int DS64_DATA_SIZE_OFFSET = 28;
+    private static final int DS64_SAMPLE_COUNT_OFFSET = 36;
+    private static final int DATA_SIZE_OFFSET = 76;
+
+    private final String fullFilePath;
+    private final int windowSize;
+    private File outputFile;
+    private RandomAccessFile randomAccessFile;
+    private FileChannel fileChannel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long dataLength;
+    private long dataLengthAtLastHeaderUpdate;
+    private int headerUpdateIntervalBytes;
+    private int blockAlign;
+    private boolean didWriteWavHeader;
+
+    MappedWavFileHelper(Context context) {
+        this(context.getFilesDir().getPath() + fileName, DEFAULT_WINDOW_SIZE);
+    }
+
+    MappedWavFileHelper(String fullFilePath, int windowSize) {
+        this.fullFilePath = fullFilePath;
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    public void createFile() throws IOException {
+        outputFile = new File(fullFilePath);
+        if (outputFile.exists()) {
+            outputFile.delete();
+        }
+        randomAccessFile = new RandomAccessFile(outputFile, "rw");
+        fileChannel = randomAccessFile.getChannel();
+        header = null;
+        window = null;
+        dataLength = 0;
+        dataLengthAtLastHeaderUpdate = 0;
+        didWriteWavHeader = false;
+    }
+
+    /**
+     * Copies the bytes between the buffer's position and limit into the mapping. The position of
+     * the buffer is left untouched.
+     */
+    @Override
+    public void writeBytesToFile(ByteBuffer byteBuffer, int encoding, int sampleRate, int channels)
+            throws IOException {
+        if (!didWriteWavHeader) {
+            writeWavHeader(encoding, sampleRate, channels);
+            didWriteWavHeader = true;
+        }
+        int position = byteBuffer.position();
+        int limit = byteBuffer.limit();
+
+        while (byteBuffer.hasRemaining()) {
+            if (!window.hasRemaining()) {
+                mapWindow(windowStart + windowSize);
+            }
+            int length = Math.min(byteBuffer.remaining(), window.remaining());
+            byteBuffer.limit(byteBuffer.position() + length);
+            window.put(byteBuffer);
+            byteBuffer.limit(limit);
+            dataLength += length;
+        }
+        byteBuffer.position(position);
+
+        if (dataLength - dataLengthAtLastHeaderUpdate >= headerUpdateIntervalBytes) {
+            updateWavHeader();
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (didWriteWavHeader) {
+            updateWavHeader();
+        }
+        header = null;
+        window = null;
+
+        // Drop the unused tail of the last window
+        fileChannel.truncate(didWriteWavHeader ? WAV_HEADER_SIZE + dataLength : 0);
+        fileChannel.close();
+        randomAccessFile.close();
+        outputFile.setReadable(true);
+    }
+
+    @Override
+    public String getFullFilePath() {
+        return fullFilePath;
+    }
+
+    @Override
+    public boolean doesFileExist() {
+        if (outputFile == null) return false;
+        return outputFile.exists();
+    }
+
+    /**
+     * Writes the RIFF sizes for the provided data length into a header, promoting it to RF64 if
+     * the sizes no longer fit in 32 bits. The id is written last so a reader never sees an RF64
+     * id without valid ds64 sizes.
+     */
+    static void writeSizes(ByteBuffer header, long dataLength, int blockAlign) {
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        long riffSize = WAV_HEADER_SIZE + dataLength - 8;
+
+        if (riffSize <= UINT32_MAX) {
+            header.putInt(RIFF_SIZE_OFFSET, (int) riffSize);
+            header.putInt(DATA_SIZE_OFFSET, (int) dataLength);
+        } else {
+            header.putLong(DS64_RIFF_SIZE_OFFSET, riffSize);
+            header.putLong(DS64_DATA_SIZE_OFFSET, dataLength);
+            header.putLong(DS64_SAMPLE_COUNT_OFFSET, dataLength / blockAlign);
+            header.put(JUNK_ID_OFFSET, (byte) 'd')
+                    .put(JUNK_ID_OFFSET + 1, (byte) 's')
+                    .put(JUNK_ID_OFFSET + 2, (byte) '6')
+                    .put(JUNK_ID_OFFSET + 3, (byte) '4');
+            header.putInt(RIFF_SIZE_OFFSET, (int) UINT32_MAX);
+            header.putInt(DATA_SIZE_OFFSET, (int) UINT32_MAX);
+            header.put(RIFF_ID_OFFSET, (byte) 'R')
+                    .put(RIFF_ID_OFFSET + 1, (byte) 'F')
+                    .put(RIFF_ID_OFFSET + 2, (byte) '6')
+                    .put(RIFF_ID_OFFSET + 3, (byte) '4');
+        }
+    }
+
+    /**
+     * Writes the header with a JUNK chunk reserving room for a ds64 chunk.
+     */
+    static void writeWavHeader(ByteBuffer header, int encoding, int sampleRate, int channels) {
+        if (channels < 1) {
+            throw new IllegalArgumentException("Unacceptable channel count");
+        }
+        short bitDepth = (short) (PcmFormatConverter.bytesPerSample(encoding) * 8);
+        short audioFormat = (short) (encoding == AudioFormat.ENCODING_PCM_FLOAT ? 3 : 1);
+        short blockAlign = (short) (channels * PcmFormatConverter.bytesPerSample(encoding));
+
+        header.order(ByteOrder.LITTLE_ENDIAN)
+                // RIFF header
+                .put(new byte[]{'R', 'I', 'F', 'F'}) // ChunkID
+                .putInt(0) // ChunkSize (updated while recording)
+                .put(new byte[]{'W', 'A', 'V', 'E'}) // Format
+                // JUNK subchunk, becomes ds64 if the recording outgrows RIFF
+                .put(new byte[]{'J', 'U', 'N', 'K'})
+                .putInt(28)
+                .put(new byte[28])
+                // fmt subchunk
+                .put(new byte[]{'f', 'm', 't', ' '}) // Subchunk1ID
+                .putInt(16) // Subchunk1Size
+                .putShort(audioFormat) // AudioFormat
+                .putShort((short) channels) // NumChannels
+                .putInt(sampleRate) // SampleRate
+                .putInt(sampleRate * blockAlign) // ByteRate
+                .putShort(blockAlign) // BlockAlign
+                .putShort(bitDepth) // BitsPerSample
+                // data subchunk
+                .put(new byte[]{'d', 'a', 't', 'a'}) // Subchunk2ID
+                .putInt(0); // Subchunk2Size (updated while recording)
+    }
+
+    private void writeWavHeader(int encoding, int sampleRate, int channels) throws IOException {
+        header = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, WAV_HEADER_SIZE);
+        writeWavHeader(header, encoding, sampleRate, channels);
+        blockAlign = channels * PcmFormatConverter.bytesPerSample(encoding);
+
+        // Refresh the sizes once per second of audio
+        headerUpdateIntervalBytes = sampleRate * blockAlign;
+        mapWindow(WAV_HEADER_SIZE);
+    }
+
+    private void mapWindow(long start) throws IOException {
+        windowStart = start;
+        window = fileChannel.map(FileChannel.MapMode.READ_WRITE, start, windowSize);
+        updateWavHeader();
+    }
+
+    private void updateWavHeader() {
+        writeSizes(header, dataLength, blockAlign);
+        dataLengthAtLastHeaderUpdate = dataLength;
+    }
+}
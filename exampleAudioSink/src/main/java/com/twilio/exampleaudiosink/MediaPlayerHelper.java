@@ -33,6 +33,13 @@ class MediaPlayerHelper {
         isReleased = false;
     }
 
+    long getPositionMs() {
+        if (player == null || isReleased) {
+            return 0;
+        }
+        return player.getCurrentPosition();
+    }
+
     boolean stopPlaying() {
         if (player == null) return false;
         if (!player.isPlaying()) return false;
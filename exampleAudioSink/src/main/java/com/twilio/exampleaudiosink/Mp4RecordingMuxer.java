@@ -0,0 +1,187 @@
+package com.twilio.exampleaudiosink;
+
+import android.annotation.TargetApi;
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mp4RecordingMuxer lets several encoders write into one .mp4 file. {@link MediaMuxer} only
+ * starts once every track has been added, so samples written before the last encoder reports its
+ * format are held in memory and written as soon as the muxer starts. The file is finalized when
+ * every track has been released.
+ *
+ * <p>An encoder may never report its format, for example when the remote video is muted from the
+ * start. If a track is still missing {@link #TRACK_WAIT_MS} after the recording was prepared, or
+ * the held samples reach {@link #MAX_PENDING_BYTES}, the muxer starts with the tracks it has and
+ * rejects any added later.
+ *
+ * <p>All methods may be called from any encoder thread.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+final class Mp4RecordingMuxer {
+    private static final String TAG = "Mp4RecordingMuxer";
+    private static final long TRACK_WAIT_MS = 3000;
+    // About six seconds of 720p video at the bit rate VideoRecorderRenderer encodes with
+    private static final int MAX_PENDING_BYTES = 2 * 1024 * 1024;
+
+    private final String fullFilePath;
+    private final long trackWaitNanos = TimeUnit.MILLISECONDS.toNanos(TRACK_WAIT_MS);
+    private final List<PendingSample> pendingSamples = new ArrayList<>();
+    private MediaMuxer mediaMuxer;
+    private int expectedTracks;
+    private int addedTracks;
+    private int openTracks;
+    private boolean started;
+    private int pendingBytes;
+    private volatile long startNanos;
+
+    Mp4RecordingMuxer(String fullFilePath) {
+        this.fullFilePath = fullFilePath;
+    }
+
+    /**
+     * Replaces any previous recording and waits for the given number of tracks. Presentation
+     * times of every track are measured from this call.
+     */
+    synchronized void prepare(int trackCount) throws IOException {
+        if (mediaMuxer != null) {
+            throw new IllegalStateException("A recording is already in progress");
+        }
+        File outputFile = new File(fullFilePath);
+        if (outputFile.exists()) {
+            outputFile.delete();
+        }
+        mediaMuxer = new MediaMuxer(fullFilePath, MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        expectedTracks = trackCount;
+        openTracks = trackCount;
+        addedTracks = 0;
+        started = false;
+        pendingSamples.clear();
+        pendingBytes = 0;
+        startNanos = System.nanoTime();
+    }
+
+    long toPresentationTimeUs(long timeNanos) {
+        return (timeNanos - startNanos) / 1000;
+    }
+
+    /**
+     * Sets the rotation players apply to the video track. Ignored once the muxer has started.
+     */
+    synchronized void setOrientationHint(int degrees) {
+        if (!started) {
+            mediaMuxer.setOrientationHint(degrees);
+        }
+    }
+
+    /**
+     * @return the index to write the track's samples with, or -1 if the muxer already started
+     * without the track
+     */
+    synchronized int addTrack(MediaFormat format) {
+        if (started) {
+            Log.w(TAG, String.format("The recording started without the %s track",
+                    format.getString(MediaFormat.KEY_MIME)));
+            return -1;
+        }
+        int trackIndex = mediaMuxer.addTrack(format);
+        addedTracks++;
+        startIfReady();
+        return trackIndex;
+    }
+
+    synchronized void writeSampleData(int trackIndex, ByteBuffer data,
+                                      MediaCodec.BufferInfo bufferInfo) {
+        if (!started && (pendingBytes + bufferInfo.size > MAX_PENDING_BYTES ||
+                System.nanoTime() - startNanos > trackWaitNanos)) {
+            Log.w(TAG, String.format("Starting with %d of %d tracks", addedTracks,
+                    expectedTracks));
+            expectedTracks = addedTracks;
+            startIfReady();
+        }
+        if (started) {
+            mediaMuxer.writeSampleData(trackIndex, data, bufferInfo);
+            return;
+        }
+        pendingSamples.add(new PendingSample(trackIndex, data, bufferInfo));
+        pendingBytes += bufferInfo.size;
+    }
+
+    /**
+     * Called by each encoder once it has written its last sample, with the index returned by
+     * {@link #addTrack} or -1 if the encoder never produced any output.
+     */
+    synchronized void releaseTrack(int trackIndex) {
+        if (mediaMuxer == null) {
+            return;
+        }
+        if (trackIndex < 0) {
+            // Stop waiting for a track that will never arrive
+            expectedTracks--;
+            startIfReady();
+        }
+        if (--openTracks > 0) {
+            return;
+        }
+        if (started) {
+            try {
+                mediaMuxer.stop();
+            } catch (IllegalStateException e) {
+                Log.e(TAG, "Unable to finalize " + fullFilePath, e);
+            }
+        }
+        mediaMuxer.release();
+        mediaMuxer = null;
+        pendingSamples.clear();
+        new File(fullFilePath).setReadable(true);
+    }
+
+    String getFullFilePath() {
+        return fullFilePath;
+    }
+
+    synchronized boolean isRecording() {
+        return mediaMuxer != null;
+    }
+
+    private void startIfReady() {
+        if (started || expectedTracks <= 0 || addedTracks < expectedTracks) {
+            return;
+        }
+        mediaMuxer.start();
+        started = true;
+        for (PendingSample sample : pendingSamples) {
+            mediaMuxer.writeSampleData(sample.trackIndex, sample.data, sample.bufferInfo);
+        }
+        pendingSamples.clear();
+        pendingBytes = 0;
+    }
+
+    private static final class PendingSample {
+        final int trackIndex;
+        final ByteBuffer data;
+        final MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+
+        PendingSample(int trackIndex, ByteBuffer source, MediaCodec.BufferInfo sourceInfo) {
+            this.trackIndex = trackIndex;
+            this.data = ByteBuffer.allocateDirect(sourceInfo.size);
+            int position = source.position();
+            source.limit(sourceInfo.offset + sourceInfo.size);
+            source.position(sourceInfo.offset);
+            data.put(source);
+            data.flip();
+            source.position(position);
+            bufferInfo.set(0, sourceInfo.size, sourceInfo.presentationTimeUs, sourceInfo.flags);
+        }
+    }
+}
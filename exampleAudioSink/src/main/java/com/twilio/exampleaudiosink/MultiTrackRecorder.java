@@ -0,0 +1,245 @@
+package com.twilio.exampleaudiosink;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MultiTrackRecorder records any number of audio tracks to their own .wav files concurrently.
+ * All tracks share one {@link PcmBufferPool} and one small pool of writer threads, so the memory
+ * and thread count stay fixed as tracks come and go.
+ *
+ * <p>Samples are copied into a pooled buffer on the audio thread. Full buffers are queued on the
+ * track and written by whichever writer thread picks the track up, which keeps every track's
+ * writes in order without dedicating a thread to it.
+ */
+class MultiTrackRecorder {
+    static final int DEFAULT_WRITER_THREADS = 2;
+    static final int DEFAULT_BUFFER_COUNT = 64;
+    // Roughly 85ms of 48kHz stereo 16-bit PCM
+    static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+
+    private final File directory;
+    private final PcmBufferPool bufferPool;
+    private final ExecutorService writerExecutor;
+    private final AtomicInteger activeTracks = new AtomicInteger();
+    private final AtomicLong writtenBytes = new AtomicLong();
+    private final AtomicLong droppedBytes = new AtomicLong();
+
+    MultiTrackRecorder(File directory) {
+        this(directory, DEFAULT_WRITER_THREADS, DEFAULT_BUFFER_COUNT, DEFAULT_BUFFER_SIZE);
+    }
+
+    MultiTrackRecorder(File directory, int writerThreads, int bufferCount, int bufferSize) {
+        this.directory = directory;
+        this.bufferPool = new PcmBufferPool(bufferCount, bufferSize);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.writerExecutor = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable,
+                    "MultiTrackRecorder-" + threadCount.incrementAndGet());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates the file for a new track and returns the handle its samples are written through.
+     *
+     * @param name a unique name for the track, used as the file name.
+     */
+    Track startTrack(String name) throws IOException {
+        WavFileHelper wavFileHelper = new WavFileHelper(
+                new File(directory, sanitize(name) + ".wav").getPath(),
+                WavFileHelper.DEFAULT_PREALLOCATION_CHUNK_SIZE);
+        wavFileHelper.createFile();
+        activeTracks.incrementAndGet();
+        return new Track(wavFileHelper);
+    }
+
+    /**
+     * Stops the writer threads. Any track that is still recording is discarded.
+     */
+    void release() {
+        writerExecutor.shutdown();
+        try {
+            writerExecutor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    int getActiveTracks() {
+        return activeTracks.get();
+    }
+
+    long getWrittenBytes() {
+        return writtenBytes.get();
+    }
+
+    long getDroppedBytes() {
+        return droppedBytes.get();
+    }
+
+    PcmBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    private static String sanitize(String name) {
+        return name.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+
+    /**
+     * Track is the per-track handle of a {@link MultiTrackRecorder}. {@link #write} must only be
+     * called from a single thread, which is the case for
+     * {@link com.twilio.video.AudioSink#renderSample}.
+     */
+    final class Track {
+        private final WavFileHelper wavFileHelper;
+        private final ArrayBlockingQueue<ByteBuffer> pendingBuffers;
+        private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+        private final Runnable drainTask = this::drain;
+        private final AtomicLong trackDroppedBytes = new AtomicLong();
+
+        /*
+         * Held by write and by finish to hand the partial buffer over. The writer threads never
+         * take it, so it is only contended while the track finishes.
+         */
+        private final Object writeLock = new Object();
+        private ByteBuffer currentBuffer;
+
+        private volatile int encoding;
+        private volatile int sampleRate;
+        private volatile int channels;
+        private volatile boolean finished;
+        private IOException writeError;
+
+        private Track(WavFileHelper wavFileHelper) {
+            this.wavFileHelper = wavFileHelper;
+            this.pendingBuffers = new ArrayBlockingQueue<>(bufferPool.getBufferCount());
+        }
+
+        /**
+         * Copies the sample into pooled buffers. Never blocks; if the pool is exhausted the rest
+         * of the sample is dropped and counted.
+         *
+         * @return false if any part of the sample was dropped.
+         */
+        boolean write(ByteBuffer audioSample, int encoding, int sampleRate, int channels) {
+            synchronized (writeLock) {
+                if (finished) {
+                    return false;
+                }
+                if (this.sampleRate == 0) {
+                    this.encoding = encoding;
+                    this.channels = channels;
+                    this.sampleRate = sampleRate;
+                }
+                int position = audioSample.position();
+                int limit = audioSample.limit();
+                boolean complete = true;
+
+                while (audioSample.hasRemaining()) {
+                    if (currentBuffer == null &&
+                            (currentBuffer = bufferPool.acquire()) == null) {
+                        trackDroppedBytes.addAndGet(audioSample.remaining());
+                        droppedBytes.addAndGet(audioSample.remaining());
+                        complete = false;
+                        break;
+                    }
+                    int length = Math.min(audioSample.remaining(), currentBuffer.remaining());
+                    audioSample.limit(audioSample.position() + length);
+                    currentBuffer.put(audioSample);
+                    audioSample.limit(limit);
+
+                    if (!currentBuffer.hasRemaining()) {
+                        submit(currentBuffer);
+                        currentBuffer = null;
+                    }
+                }
+                audioSample.position(position);
+
+                return complete;
+            }
+        }
+
+        /**
+         * Writes everything still buffered and completes the file. Samples written afterwards
+         * are refused, so this may be called while the sink feeding the track is still attached.
+         */
+        void finish() throws IOException {
+            synchronized (writeLock) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+                // A sample being written completes first, so the partial buffer is taken whole
+                if (currentBuffer != null) {
+                    currentBuffer.flip();
+                    pendingBuffers.offer(currentBuffer);
+                    currentBuffer = null;
+                }
+            }
+            try {
+                synchronized (this) {
+                    drainPending();
+                    wavFileHelper.finish();
+                    if (writeError != null) {
+                        throw writeError;
+                    }
+                }
+            } finally {
+                activeTracks.decrementAndGet();
+            }
+        }
+
+        String getFullFilePath() {
+            return wavFileHelper.getFullFilePath();
+        }
+
+        long getDroppedBytes() {
+            return trackDroppedBytes.get();
+        }
+
+        private void submit(ByteBuffer buffer) {
+            buffer.flip();
+            // Never fails since the queue can hold every buffer in the pool
+            pendingBuffers.offer(buffer);
+            if (drainScheduled.compareAndSet(false, true)) {
+                writerExecutor.execute(drainTask);
+            }
+        }
+
+        private void drain() {
+            do {
+                synchronized (this) {
+                    drainPending();
+                }
+                drainScheduled.set(false);
+                // Pick up buffers submitted after the queue was emptied but before the flag reset
+            } while (!pendingBuffers.isEmpty() && drainScheduled.compareAndSet(false, true));
+        }
+
+        private void drainPending() {
+            ByteBuffer buffer;
+            while ((buffer = pendingBuffers.poll()) != null) {
+                if (writeError == null) {
+                    int length = buffer.remaining();
+                    try {
+                        wavFileHelper.writeBytesToFile(buffer, encoding, sampleRate, channels);
+                        writtenBytes.addAndGet(length);
+                    } catch (IOException e) {
+                        writeError = e;
+                    }
+                }
+                bufferPool.release(buffer);
+            }
+        }
+    }
+}
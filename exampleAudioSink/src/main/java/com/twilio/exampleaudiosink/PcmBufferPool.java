@@ -0,0 +1,66 @@
+package com.twilio.exampleaudiosink;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PcmBufferPool hands out a fixed number of equally sized buffers. Every buffer is allocated up
+ * front, so the memory used for recording stays the same no matter how many tracks share the
+ * pool. When the pool is exhausted {@link #acquire()} returns null instead of allocating.
+ */
+final class PcmBufferPool {
+    private final ArrayBlockingQueue<ByteBuffer> freeBuffers;
+    private final int bufferCount;
+    private final int bufferSize;
+    private final AtomicInteger peakInUse = new AtomicInteger();
+
+    PcmBufferPool(int bufferCount, int bufferSize) {
+        this.bufferCount = bufferCount;
+        this.bufferSize = bufferSize;
+        this.freeBuffers = new ArrayBlockingQueue<>(bufferCount);
+        for (int i = 0; i < bufferCount; i++) {
+            freeBuffers.add(ByteBuffer.allocate(bufferSize));
+        }
+    }
+
+    /**
+     * Returns a cleared buffer or null if every buffer is in use.
+     */
+    ByteBuffer acquire() {
+        ByteBuffer buffer = freeBuffers.poll();
+        if (buffer == null) {
+            return null;
+        }
+        buffer.clear();
+
+        int inUse = getInUse();
+        int peak;
+        while (inUse > (peak = peakInUse.get())) {
+            if (peakInUse.compareAndSet(peak, inUse)) {
+                break;
+            }
+        }
+        return buffer;
+    }
+
+    void release(ByteBuffer buffer) {
+        freeBuffers.offer(buffer);
+    }
+
+    int getBufferCount() {
+        return bufferCount;
+    }
+
+    int getBufferSize() {
+        return bufferSize;
+    }
+
+    int getInUse() {
+        return bufferCount - freeBuffers.size();
+    }
+
+    int getPeakInUse() {
+        return peakInUse.get();
+    }
+}
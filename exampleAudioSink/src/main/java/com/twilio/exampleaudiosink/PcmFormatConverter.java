@@ -0,0 +1,276 @@
+package com.twilio.exampleaudiosink;
+
+import android.media.AudioFormat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * PcmFormatConverter normalizes PCM in any of the encodings {@link com.twilio.video.AudioSink}
+ * can deliver (8-bit, 16-bit or float) to a fixed target encoding, sample rate and channel count.
+ *
+ * <p>Samples are decoded to floats, mapped to the target channel layout, resampled with linear
+ * interpolation and encoded again. The converter is stateful: partial frames and the resampler
+ * position carry over between calls so a stream can be converted one callback at a time, and
+ * every buffer is reused so a steady stream is converted without allocating. Not thread safe.
+ *
+ * <p>Channels are mapped as follows. When downmixing, each target channel is the average of the
+ * source channels at the same position modulo the target channel count, so stereo to mono
+ * averages left and right. When upmixing, each target channel repeats the source channel at the
+ * same position modulo the source channel count, so mono is copied to every channel.
+ */
+final class PcmFormatConverter {
+    private final int targetEncoding;
+    private final int targetSampleRate;
+    private final int targetChannels;
+    private final int targetFrameBytes;
+
+    // The format of the stream currently being converted
+    private int sourceEncoding;
+    private int sourceSampleRate;
+    private int sourceChannels;
+    private int sourceFrameBytes;
+    private double step;
+
+    /*
+     * Decoded frames in the target channel layout. The first frame is carried over from the
+     * previous call so the resampler can interpolate across callbacks.
+     */
+    private float[] frames = new float[0];
+    private double phase;
+
+    // A partial frame left at the end of the previous call
+    private final byte[] pendingBytes = new byte[4 * 8];
+    private final ByteBuffer pendingBuffer =
+            ByteBuffer.wrap(pendingBytes).order(ByteOrder.LITTLE_ENDIAN);
+    private int pendingLength;
+
+    private ByteBuffer output = ByteBuffer.allocateDirect(0).order(ByteOrder.LITTLE_ENDIAN);
+
+    PcmFormatConverter(int targetEncoding, int targetSampleRate, int targetChannels) {
+        if (targetChannels <= 0 || targetSampleRate <= 0) {
+            throw new IllegalArgumentException("Unacceptable target format");
+        }
+        this.targetEncoding = targetEncoding;
+        this.targetSampleRate = targetSampleRate;
+        this.targetChannels = targetChannels;
+        this.targetFrameBytes = bytesPerSample(targetEncoding) * targetChannels;
+    }
+
+    /**
+     * Returns the size of a single sample in the given encoding.
+     *
+     * @param encoding An AudioFormat.ENCODING_PCM_* value
+     * @throws IllegalArgumentException for any other encoding
+     */
+    static int bytesPerSample(int encoding) {
+        switch (encoding) {
+            case AudioFormat.ENCODING_PCM_8BIT:
+                return 1;
+            case AudioFormat.ENCODING_PCM_16BIT:
+                return 2;
+            case AudioFormat.ENCODING_PCM_FLOAT:
+                return 4;
+            default:
+                throw new IllegalArgumentException("Unacceptable encoding");
+        }
+    }
+
+    /**
+     * Converts the remaining bytes of the provided buffer, which is left untouched, to the target
+     * format. When the source is already in the target format it is returned as is.
+     *
+     * @return little endian PCM in the target format, valid until the next call.
+     * @throws IllegalArgumentException if the source format is not supported.
+     */
+    ByteBuffer convert(ByteBuffer src, int encoding, int sampleRate, int channels) {
+        if (encoding != sourceEncoding || sampleRate != sourceSampleRate ||
+                channels != sourceChannels) {
+            configure(encoding, sampleRate, channels);
+        }
+        if (encoding == targetEncoding && sampleRate == targetSampleRate &&
+                channels == targetChannels && pendingLength == 0 &&
+                src.remaining() % sourceFrameBytes == 0) {
+            return src;
+        }
+
+        int position = src.position();
+        ByteOrder order = src.order();
+        src.order(ByteOrder.LITTLE_ENDIAN);
+
+        int available = pendingLength + src.remaining();
+        int frameCount = available / sourceFrameBytes;
+        ensureFrameCapacity(frameCount);
+
+        int frame = 0;
+        int offset = position;
+        if (pendingLength > 0 && frameCount > 0) {
+            // Complete the frame left over from the previous call
+            int missing = sourceFrameBytes - pendingLength;
+            for (int i = 0; i < missing; i++) {
+                pendingBytes[pendingLength + i] = src.get(offset + i);
+            }
+            decodeFrame(pendingBuffer, 0, frame++);
+            offset += missing;
+            pendingLength = 0;
+        }
+        for (; frame < frameCount; frame++) {
+            decodeFrame(src, offset, frame);
+            offset += sourceFrameBytes;
+        }
+        // Keep any trailing partial frame for the next call
+        while (offset < src.limit()) {
+            pendingBytes[pendingLength++] = src.get(offset++);
+        }
+        src.order(order);
+
+        output.clear();
+        if (sourceSampleRate == targetSampleRate) {
+            encodeFrames(1, frameCount);
+            if (frameCount > 0) {
+                System.arraycopy(frames, frameCount * targetChannels, frames, 0, targetChannels);
+            }
+        } else {
+            resample(frameCount);
+        }
+        output.flip();
+
+        return output;
+    }
+
+    /**
+     * Discards any partial frame and resampler state, for example between two recordings.
+     */
+    void reset() {
+        pendingLength = 0;
+        phase = 1;
+        Arrays.fill(frames, 0f);
+    }
+
+    int getTargetEncoding() {
+        return targetEncoding;
+    }
+
+    int getTargetSampleRate() {
+        return targetSampleRate;
+    }
+
+    int getTargetChannels() {
+        return targetChannels;
+    }
+
+    private void configure(int encoding, int sampleRate, int channels) {
+        if (channels <= 0 || sampleRate <= 0) {
+            throw new IllegalArgumentException("Unacceptable source format");
+        }
+        this.sourceFrameBytes = bytesPerSample(encoding) * channels;
+        if (sourceFrameBytes > pendingBytes.length) {
+            throw new IllegalArgumentException("Unacceptable channel count");
+        }
+        this.sourceEncoding = encoding;
+        this.sourceSampleRate = sampleRate;
+        this.sourceChannels = channels;
+        this.step = (double) sampleRate / targetSampleRate;
+        reset();
+    }
+
+    private void ensureFrameCapacity(int frameCount) {
+        // Room for the carried frame as well
+        if (frames.length < (frameCount + 1) * targetChannels) {
+            frames = Arrays.copyOf(frames, (frameCount + 1) * targetChannels);
+        }
+        int maxOutputFrames = (int) Math.ceil((frameCount + 1) / step) + 1;
+        if (output.capacity() < maxOutputFrames * targetFrameBytes) {
+            output = ByteBuffer.allocateDirect(maxOutputFrames * targetFrameBytes)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /*
+     * Decodes one source frame at the given byte offset into frame + 1 of the frames array.
+     */
+    private void decodeFrame(ByteBuffer src, int offset, int frame) {
+        int target = (frame + 1) * targetChannels;
+        int sampleBytes = sourceFrameBytes / sourceChannels;
+
+        if (targetChannels == sourceChannels) {
+            for (int channel = 0; channel < sourceChannels; channel++) {
+                frames[target + channel] = decodeSample(src, offset + channel * sampleBytes);
+            }
+        } else if (targetChannels < sourceChannels) {
+            for (int channel = 0; channel < targetChannels; channel++) {
+                float sum = 0;
+                int count = 0;
+                for (int source = channel; source < sourceChannels; source += targetChannels) {
+                    sum += decodeSample(src, offset + source * sampleBytes);
+                    count++;
+                }
+                frames[target + channel] = sum / count;
+            }
+        } else {
+            for (int channel = 0; channel < targetChannels; channel++) {
+                int source = channel % sourceChannels;
+                frames[target + channel] = decodeSample(src, offset + source * sampleBytes);
+            }
+        }
+    }
+
+    private float decodeSample(ByteBuffer src, int offset) {
+        switch (sourceEncoding) {
+            case AudioFormat.ENCODING_PCM_8BIT:
+                // 8-bit PCM is unsigned
+                return ((src.get(offset) & 0xff) - 128) / 128f;
+            case AudioFormat.ENCODING_PCM_16BIT:
+                return src.getShort(offset) / 32768f;
+            default:
+                return src.getFloat(offset);
+        }
+    }
+
+    /*
+     * Produces every output frame that can be interpolated from the frames decoded so far. The
+     * phase is the position of the next output frame relative to the carried frame.
+     */
+    private void resample(int frameCount) {
+        double position = phase;
+        while ((int) position + 1 <= frameCount) {
+            int index = (int) position;
+            float fraction = (float) (position - index);
+            int first = index * targetChannels;
+            int second = first + targetChannels;
+            for (int channel = 0; channel < targetChannels; channel++) {
+                float a = frames[first + channel];
+                float b = frames[second + channel];
+                encodeSample(a + (b - a) * fraction);
+            }
+            position += step;
+        }
+        phase = position - frameCount;
+        System.arraycopy(frames, frameCount * targetChannels, frames, 0, targetChannels);
+    }
+
+    private void encodeFrames(int first, int count) {
+        int end = (first + count) * targetChannels;
+        for (int i = first * targetChannels; i < end; i++) {
+            encodeSample(frames[i]);
+        }
+    }
+
+    private void encodeSample(float sample) {
+        switch (targetEncoding) {
+            case AudioFormat.ENCODING_PCM_8BIT:
+                int unsigned = Math.round(sample * 128f) + 128;
+                output.put((byte) Math.max(0, Math.min(255, unsigned)));
+                break;
+            case AudioFormat.ENCODING_PCM_16BIT:
+                int value = Math.round(sample * 32768f);
+                output.putShort((short) Math.max(Short.MIN_VALUE,
+                        Math.min(Short.MAX_VALUE, value)));
+                break;
+            default:
+                output.putFloat(sample);
+                break;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.twilio.exampleaudiosink;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PcmRingBuffer is a preallocated single-producer/single-consumer byte ring. The producer is the
+ * thread delivering {@link com.twilio.video.AudioSink#renderSample} callbacks and the consumer is
+ * the thread draining samples to disk. Neither side takes a lock or allocates, and the producer
+ * never waits: a chunk that does not fit is dropped whole and accounted for instead.
+ */
+final class PcmRingBuffer {
+    private final byte[] buffer;
+    private final int mask;
+
+    // Positions grow monotonically and are masked into the buffer on access
+    private final AtomicLong readPosition = new AtomicLong();
+    private final AtomicLong writePosition = new AtomicLong();
+
+    // Only updated by the producer, read by anyone
+    private final AtomicLong droppedBytes = new AtomicLong();
+    private volatile int highWaterMark;
+
+    PcmRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        this.buffer = new byte[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Copies the remaining bytes of the provided buffer into the ring. The position of the
+     * provided buffer is left untouched. Must only be called from the producer thread.
+     *
+     * @param src the samples to enqueue.
+     * @return true if the samples were enqueued, false if they were dropped because the ring is
+     * full.
+     */
+    boolean offer(ByteBuffer src) {
+        int length = src.remaining();
+        long write = writePosition.get();
+        long used = write - readPosition.get();
+
+        if (length > buffer.length - used) {
+            droppedBytes.lazySet(droppedBytes.get() + length);
+            return false;
+        }
+
+        int index = (int) (write & mask);
+        int firstPart = Math.min(length, buffer.length - index);
+        int position = src.position();
+        src.get(buffer, index, firstPart);
+        src.get(buffer, 0, length - firstPart);
+        src.position(position);
+
+        // Publish the bytes to the consumer
+        writePosition.lazySet(write + length);
+
+        used += length;
+        if (used > highWaterMark) {
+            highWaterMark = (int) used;
+        }
+        return true;
+    }
+
+    /**
+     * Moves up to maxLength bytes out of the ring. Must only be called from the consumer thread.
+     *
+     * @return the number of bytes copied into dst.
+     */
+    int drainTo(byte[] dst, int offset, int maxLength) {
+        long read = readPosition.get();
+        int available = (int) Math.min(writePosition.get() - read, maxLength);
+
+        if (available == 0) {
+            return 0;
+        }
+
+        int index = (int) (read & mask);
+        int firstPart = Math.min(available, buffer.length - index);
+        System.arraycopy(buffer, index, dst, offset, firstPart);
+        System.arraycopy(buffer, 0, dst, offset + firstPart, available - firstPart);
+
+        // Hand the space back to the producer
+        readPosition.lazySet(read + available);
+
+        return available;
+    }
+
+    /**
+     * Discards up to length bytes from the ring. Must only be called from the consumer thread.
+     *
+     * @return the number of bytes discarded.
+     */
+    int skip(int length) {
+        long read = readPosition.get();
+        int available = (int) Math.min(writePosition.get() - read, length);
+        readPosition.lazySet(read + available);
+
+        return available;
+    }
+
+    /**
+     * Discards any buffered bytes and resets the counters. Only safe while neither the producer
+     * nor the consumer is active.
+     */
+    void reset() {
+        readPosition.set(0);
+        writePosition.set(0);
+        droppedBytes.set(0);
+        highWaterMark = 0;
+    }
+
+    int size() {
+        return (int) (writePosition.get() - readPosition.get());
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+
+    long getDroppedBytes() {
+        return droppedBytes.get();
+    }
+
+    int getHighWaterMark() {
+        return highWaterMark;
+    }
+}
@@ -0,0 +1,161 @@
+package com.twilio.exampleaudiosink;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.twilio.video.AudioSink;
+import com.twilio.video.RemoteAudioTrack;
+import com.twilio.video.RemoteAudioTrackPublication;
+import com.twilio.video.RemoteParticipant;
+import com.twilio.video.Room;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * RoomAudioRecorder attaches a separate {@link AudioSink} to every {@link RemoteAudioTrack} in a
+ * {@link Room} and records each one to its own file through a shared {@link MultiTrackRecorder}.
+ * The tracks are also combined by an {@link AudioMixer} into a single mixdown of the whole room.
+ * Tracks subscribed while recording are picked up through {@link #addTrack} and tracks that go
+ * away are finished through {@link #removeTrack}. All methods must be called from the main
+ * thread.
+ */
+class RoomAudioRecorder {
+    private static final String TAG = "RoomAudioRecorder";
+    private static final String FILE_PREFIX = "audio_sink_";
+    private static final String MIX_FILE_NAME = "audio_sink_mix.wav";
+
+    private final MultiTrackRecorder multiTrackRecorder;
+    private final AudioMixer audioMixer;
+    private final Map<String, TrackSink> trackSinks = new HashMap<>();
+    private boolean recording;
+
+    RoomAudioRecorder(File directory) {
+        this.multiTrackRecorder = new MultiTrackRecorder(directory);
+        this.audioMixer = new AudioMixer(new WavFileHelper(
+                new File(directory, MIX_FILE_NAME).getPath(),
+                WavFileHelper.DEFAULT_PREALLOCATION_CHUNK_SIZE));
+    }
+
+    /**
+     * Starts recording every audio track the local participant is subscribed to.
+     */
+    void start(@NonNull Room room) {
+        try {
+            audioMixer.start();
+        } catch (IOException e) {
+            Log.e(TAG, String.format("Unable to record the mixdown: %s", e.getLocalizedMessage()));
+        }
+        recording = true;
+        for (RemoteParticipant remoteParticipant : room.getRemoteParticipants()) {
+            for (RemoteAudioTrackPublication publication :
+                    remoteParticipant.getRemoteAudioTracks()) {
+                if (publication.isTrackSubscribed() && publication.getRemoteAudioTrack() != null) {
+                    addTrack(remoteParticipant, publication.getRemoteAudioTrack());
+                }
+            }
+        }
+    }
+
+    void addTrack(@NonNull RemoteParticipant remoteParticipant,
+                  @NonNull RemoteAudioTrack remoteAudioTrack) {
+        if (!recording || trackSinks.containsKey(remoteAudioTrack.getSid())) {
+            return;
+        }
+        try {
+            MultiTrackRecorder.Track track = multiTrackRecorder.startTrack(FILE_PREFIX +
+                    remoteParticipant.getIdentity() + "_" + remoteAudioTrack.getSid());
+            TrackSink trackSink = new TrackSink(remoteAudioTrack, track, audioMixer);
+            remoteAudioTrack.addSink(trackSink);
+            trackSinks.put(remoteAudioTrack.getSid(), trackSink);
+        } catch (IOException e) {
+            Log.e(TAG, String.format("Unable to record %s: %s", remoteAudioTrack.getSid(),
+                    e.getLocalizedMessage()));
+        }
+    }
+
+    void removeTrack(@NonNull RemoteAudioTrack remoteAudioTrack) {
+        TrackSink trackSink = trackSinks.remove(remoteAudioTrack.getSid());
+        if (trackSink != null) {
+            trackSink.finish();
+        }
+    }
+
+    /**
+     * Finishes every track that is still recording.
+     */
+    void stop() {
+        recording = false;
+        Iterator<TrackSink> iterator = trackSinks.values().iterator();
+        while (iterator.hasNext()) {
+            iterator.next().finish();
+            iterator.remove();
+        }
+        try {
+            audioMixer.stop();
+        } catch (IOException e) {
+            Log.e(TAG, String.format("Failed to finish the mixdown: %s", e.getLocalizedMessage()));
+        }
+        PcmBufferPool bufferPool = multiTrackRecorder.getBufferPool();
+        Log.d(TAG, String.format("Recording finished. Wrote %d bytes, dropped %d bytes, " +
+                        "peak buffer pool usage %d of %d, %d mixed samples clipped",
+                multiTrackRecorder.getWrittenBytes(),
+                multiTrackRecorder.getDroppedBytes(),
+                bufferPool.getPeakInUse(),
+                bufferPool.getBufferCount(),
+                audioMixer.getClippedSamples()));
+    }
+
+    void release() {
+        if (recording) {
+            stop();
+        }
+        multiTrackRecorder.release();
+    }
+
+    boolean isRecording() {
+        return recording;
+    }
+
+    int getTrackCount() {
+        return trackSinks.size();
+    }
+
+    private static class TrackSink implements AudioSink {
+        private final RemoteAudioTrack remoteAudioTrack;
+        private final MultiTrackRecorder.Track track;
+        private final AudioMixer audioMixer;
+        private final AudioMixer.Input mixerInput;
+
+        TrackSink(RemoteAudioTrack remoteAudioTrack, MultiTrackRecorder.Track track,
+                  AudioMixer audioMixer) {
+            this.remoteAudioTrack = remoteAudioTrack;
+            this.track = track;
+            this.audioMixer = audioMixer;
+            this.mixerInput = audioMixer.addInput();
+        }
+
+        @Override
+        public void renderSample(@NonNull ByteBuffer audioSample, int encoding,
+                                 int sampleRate, int channels) {
+            track.write(audioSample, encoding, sampleRate, channels);
+            mixerInput.write(audioSample, encoding, sampleRate, channels);
+        }
+
+        void finish() {
+            // Stop the samples before flushing what has been buffered
+            remoteAudioTrack.removeSink(this);
+            audioMixer.removeInput(mixerInput);
+            try {
+                track.finish();
+            } catch (IOException e) {
+                Log.e(TAG, String.format("Failed to finish %s: %s", track.getFullFilePath(),
+                        e.getLocalizedMessage()));
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.twilio.exampleaudiosink;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+
+/**
+ * SegmentIndex reads the index written by {@link SegmentingAudioFileWriter}. The index holds a
+ * small header with the recording format followed by one entry per second of recorded audio,
+ * each giving the segment and byte offset where that second starts and the wall clock time it
+ * was written at. Finding a position in the recording is therefore a single read at a known
+ * offset, and finding a wall clock time is a binary search over the entries.
+ */
+final class SegmentIndex {
+    static final int MAGIC = 0x58495341; // "ASIX"
+    static final int HEADER_SIZE = 16;
+    static final int ENTRY_SIZE = 16;
+    private static final int WAV_HEADER_SIZE = 44;
+
+    /**
+     * Position is where playback has to start to reach a given point in the recording.
+     */
+    static final class Position {
+        final File segmentFile;
+        final int segmentNumber;
+        // Byte offset into the segment's audio data, excluding the wav header
+        final long byteOffset;
+        // The same offset as a time into the segment
+        final long segmentTimeMs;
+
+        Position(File segmentFile, int segmentNumber, long byteOffset, long segmentTimeMs) {
+            this.segmentFile = segmentFile;
+            this.segmentNumber = segmentNumber;
+            this.byteOffset = byteOffset;
+            this.segmentTimeMs = segmentTimeMs;
+        }
+    }
+
+    private final File directory;
+    private final String baseName;
+    private final int encoding;
+    private final int sampleRate;
+    private final int channels;
+    private final int bytesPerFrame;
+    private final ByteBuffer entries;
+    private final int entryCount;
+    private final int segmentCount;
+    private final long recordedBytes;
+
+    private SegmentIndex(File directory, String baseName, ByteBuffer index) {
+        this.directory = directory;
+        this.baseName = baseName;
+        this.encoding = index.getInt(4);
+        this.sampleRate = index.getInt(8);
+        this.channels = index.getInt(12);
+        this.bytesPerFrame = channels * PcmFormatConverter.bytesPerSample(encoding);
+        this.entries = index;
+        this.entryCount = (index.limit() - HEADER_SIZE) / ENTRY_SIZE;
+        // The last segment may hold less than a second and so have no entry of its own
+        int segments = 0;
+        long bytes = 0;
+        File segment;
+        while ((segment = segmentFile(directory, baseName, segments)).exists()) {
+            bytes += Math.max(0, segment.length() - WAV_HEADER_SIZE);
+            segments++;
+        }
+        this.segmentCount = segments;
+        this.recordedBytes = bytes;
+    }
+
+    /**
+     * Loads the index at the path returned by {@link SegmentingAudioFileWriter#getFullFilePath}.
+     */
+    static SegmentIndex open(String indexPath) throws IOException {
+        File indexFile = new File(indexPath);
+        String name = indexFile.getName();
+        String baseName = name.substring(0, name.length() - ".idx".length());
+        ByteBuffer index;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(indexFile, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            index = ByteBuffer.allocate((int) channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            while (index.hasRemaining() && channel.read(index) >= 0) {
+                // Keep reading until the whole index is loaded
+            }
+            index.flip();
+        }
+        if (index.limit() < HEADER_SIZE || index.getInt(0) != MAGIC) {
+            throw new IOException("Not a segment index: " + indexPath);
+        }
+        return new SegmentIndex(indexFile.getParentFile(), baseName, index);
+    }
+
+    static File indexFile(File directory, String baseName) {
+        return new File(directory, baseName + ".idx");
+    }
+
+    static File segmentFile(File directory, String baseName, int segmentNumber) {
+        return new File(directory, String.format(Locale.US, "%s_%03d.wav", baseName,
+                segmentNumber));
+    }
+
+    /**
+     * Removes the index and every segment of a previous recording with the same name.
+     */
+    static void delete(File directory, String baseName) {
+        indexFile(directory, baseName).delete();
+        for (int segmentNumber = 0; ; segmentNumber++) {
+            if (!segmentFile(directory, baseName, segmentNumber).delete()) {
+                return;
+            }
+        }
+    }
+
+    int getEncoding() {
+        return encoding;
+    }
+
+    int getSampleRate() {
+        return sampleRate;
+    }
+
+    int getChannels() {
+        return channels;
+    }
+
+    long getDurationMs() {
+        return recordedBytes / bytesPerFrame * 1000 / sampleRate;
+    }
+
+    int getSegmentCount() {
+        return segmentCount;
+    }
+
+    File getSegmentFile(int segmentNumber) {
+        return segmentFile(directory, baseName, segmentNumber);
+    }
+
+    /**
+     * Finds the segment and offset of a point in the recording, measured in recorded audio.
+     * Positions beyond the end of the recording are clamped to its last indexed second.
+     */
+    Position locate(long positionMs) {
+        if (entryCount == 0) {
+            return new Position(getSegmentFile(0), 0, 0, 0);
+        }
+        positionMs = Math.max(0, positionMs);
+        int entry = (int) Math.min(positionMs / 1000, entryCount - 1);
+        long remainderMs = Math.min(positionMs - entry * 1000L, 999);
+        int segmentNumber = segmentNumber(entry);
+        long byteOffset = segmentOffset(entry) +
+                remainderMs * sampleRate / 1000 * bytesPerFrame;
+
+        // The segment may have rolled over within this second
+        long segmentLength = getSegmentFile(segmentNumber).length() - WAV_HEADER_SIZE;
+        if (byteOffset >= segmentLength && segmentNumber + 1 < segmentCount) {
+            byteOffset -= segmentLength;
+            segmentNumber++;
+        }
+        return new Position(getSegmentFile(segmentNumber), segmentNumber, byteOffset,
+                byteOffset / bytesPerFrame * 1000 / sampleRate);
+    }
+
+    /**
+     * Finds the recorded audio that was captured closest to, but not after, a wall clock time as
+     * returned by {@link System#currentTimeMillis}. When silence was trimmed from the recording
+     * this is the first audio recorded after the gap.
+     */
+    Position locateWallClock(long wallClockMs) {
+        int low = 0;
+        int high = entryCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (wallClockMs(middle) <= wallClockMs) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return locate(low * 1000L);
+    }
+
+    private int segmentNumber(int entry) {
+        return entries.getInt(HEADER_SIZE + entry * ENTRY_SIZE);
+    }
+
+    private long segmentOffset(int entry) {
+        return entries.getInt(HEADER_SIZE + entry * ENTRY_SIZE + 4) & 0xffffffffL;
+    }
+
+    private long wallClockMs(int entry) {
+        return entries.getLong(HEADER_SIZE + entry * ENTRY_SIZE + 8);
+    }
+}
@@ -0,0 +1,262 @@
+package com.twilio.exampleaudiosink;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * SegmentingAudioFileWriter splits a long recording into numbered .wav segments so that no
+ * single file grows without bound. A new segment is started once the current one reaches the
+ * maximum length, or earlier where a silence starts after the minimum length so segments tend
+ * to break between sentences.
+ *
+ * <p>Alongside the segments it writes a {@link SegmentIndex} with one fixed size entry per
+ * second of recorded audio, which lets playback jump straight to the segment and byte offset of
+ * any point in the recording. Each entry also holds the wall clock time that second of audio was
+ * captured, which keeps lining up with the call when silence was skipped or samples dropped.
+ *
+ * <p>The writer does not analyze the audio itself. The audio thread reports every sample with
+ * {@link #onSampleCaptured}, along with the decision of the {@link AudioLevelAnalyzer} that also
+ * decides whether the sample is recorded. Segments break at the first batch written by
+ * {@link AsyncAudioFileWriter} that reaches the start of a silence.
+ */
+class SegmentingAudioFileWriter implements AudioFileWriter {
+    static final int DEFAULT_MAX_SEGMENT_SECONDS = 300;
+    static final int DEFAULT_MIN_SEGMENT_SECONDS = 30;
+    // Far more seconds than AsyncAudioFileWriter can hold back between capture and writing
+    private static final int CAPTURE_TIME_SLOTS = 64;
+
+    private final File directory;
+    private final String baseName;
+    private final int maxSegmentSeconds;
+    private final int minSegmentSeconds;
+    private final ByteBuffer indexEntry =
+            ByteBuffer.allocate(SegmentIndex.ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    private File indexFile;
+    private RandomAccessFile indexRandomAccessFile;
+    private FileChannel indexChannel;
+    private WavFileHelper segment;
+    private int segmentNumber;
+    private long segmentBytes;
+    private long recordedBytes;
+    private int bytesPerSecond;
+    private long lastWallClockMs;
+
+    /*
+     * Only touched by the audio thread. The audio thread sees samples in the sink's format while
+     * this writer sees them converted, so both sides measure the recording in microseconds.
+     */
+    private long capturedUs;
+    // Frames since the sink last changed its sample rate, counted so rounding does not add up
+    private long captureRateStartUs;
+    private long captureRateFrames;
+    private int captureSampleRate;
+    private boolean previousSampleWasSilent;
+
+    /*
+     * Published by the audio thread. The capture time of each second of recorded audio is
+     * stored before the count of seconds is raised, so the writer thread only reads slots that
+     * have been filled.
+     */
+    private final long[] captureTimesMs = new long[CAPTURE_TIME_SLOTS];
+    private volatile long capturedSeconds;
+    private volatile long silenceStartUs;
+
+    SegmentingAudioFileWriter(File directory, String baseName) {
+        this(directory, baseName, DEFAULT_MAX_SEGMENT_SECONDS, DEFAULT_MIN_SEGMENT_SECONDS);
+    }
+
+    /**
+     * @param directory         The directory the index and segments are written to
+     * @param baseName          The name of the index file without extension. Segments are named
+     *                          after it with a running number appended
+     * @param maxSegmentSeconds The length at which a segment is always rolled over
+     * @param minSegmentSeconds The length after which a segment is rolled over at the next silence
+     */
+    SegmentingAudioFileWriter(File directory, String baseName, int maxSegmentSeconds,
+                              int minSegmentSeconds) {
+        this.directory = directory;
+        this.baseName = baseName;
+        this.maxSegmentSeconds = maxSegmentSeconds;
+        this.minSegmentSeconds = minSegmentSeconds;
+    }
+
+    /**
+     * Reports a sample captured by the audio thread. Must be called from the audio thread for
+     * every sample, whether it was recorded or not, after it was handed to
+     * {@link AsyncAudioFileWriter}.
+     *
+     * @param length      The size of the sample in bytes, in the format it was captured in
+     * @param voiceActive The voice activity decision made for the sample
+     * @param recorded    Whether the sample was queued for writing, false if it was skipped as
+     *                    silence or dropped
+     */
+    void onSampleCaptured(int length, int encoding, int sampleRate, int channels,
+                          boolean voiceActive, boolean recorded) {
+        onSampleCaptured(length, encoding, sampleRate, channels, voiceActive, recorded,
+                System.currentTimeMillis());
+    }
+
+    void onSampleCaptured(int length, int encoding, int sampleRate, int channels,
+                          boolean voiceActive, boolean recorded, long captureTimeMs) {
+        if (!voiceActive && !previousSampleWasSilent) {
+            // Skipped silence still marks where in the recording it would have been
+            silenceStartUs = capturedUs;
+        }
+        previousSampleWasSilent = !voiceActive;
+        if (!recorded) {
+            return;
+        }
+        if (sampleRate != captureSampleRate) {
+            captureRateStartUs = capturedUs;
+            captureRateFrames = 0;
+            captureSampleRate = sampleRate;
+        }
+        captureRateFrames += length / (channels * PcmFormatConverter.bytesPerSample(encoding));
+        long end = captureRateStartUs + captureRateFrames * 1000000L / sampleRate;
+        long second = capturedSeconds;
+        for (; second * 1000000L < end; second++) {
+            captureTimesMs[(int) (second % CAPTURE_TIME_SLOTS)] = captureTimeMs;
+        }
+        capturedUs = end;
+        capturedSeconds = second;
+    }
+
+    @Override
+    public void createFile() throws IOException {
+        SegmentIndex.delete(directory, baseName);
+        indexFile = SegmentIndex.indexFile(directory, baseName);
+        indexRandomAccessFile = new RandomAccessFile(indexFile, "rw");
+        indexChannel = indexRandomAccessFile.getChannel();
+        segment = null;
+        segmentNumber = -1;
+        segmentBytes = 0;
+        recordedBytes = 0;
+        bytesPerSecond = 0;
+        lastWallClockMs = System.currentTimeMillis();
+        // Called before the audio thread starts reporting samples
+        capturedUs = 0;
+        captureRateStartUs = 0;
+        captureRateFrames = 0;
+        captureSampleRate = 0;
+        previousSampleWasSilent = false;
+        silenceStartUs = -1;
+        capturedSeconds = 0;
+    }
+
+    @Override
+    public void writeBytesToFile(ByteBuffer byteBuffer, int encoding, int sampleRate, int channels)
+            throws IOException {
+        if (segment == null) {
+            bytesPerSecond = sampleRate * channels * PcmFormatConverter.bytesPerSample(encoding);
+            writeIndexHeader(encoding, sampleRate, channels);
+            startSegment();
+        } else if (segmentBytes >= (long) maxSegmentSeconds * bytesPerSecond ||
+                isSilenceSinceMinimumLength()) {
+            startSegment();
+        }
+
+        int length = byteBuffer.remaining();
+        segment.writeBytesToFile(byteBuffer, encoding, sampleRate, channels);
+
+        // Add an index entry for every whole second of audio that starts in this write
+        long nextSecond = (recordedBytes + bytesPerSecond - 1) / bytesPerSecond;
+        long end = recordedBytes + length;
+        for (long second = nextSecond; second * bytesPerSecond < end; second++) {
+            long offset = segmentBytes + (second * bytesPerSecond - recordedBytes);
+            // Seconds the audio thread has not reported yet are assumed to follow on
+            lastWallClockMs = second < capturedSeconds ?
+                    captureTimesMs[(int) (second % CAPTURE_TIME_SLOTS)] :
+                    lastWallClockMs + 1000;
+            writeIndexEntry(offset, lastWallClockMs);
+        }
+        segmentBytes += length;
+        recordedBytes = end;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (segment != null) {
+            segment.finish();
+            segment = null;
+        }
+        indexChannel.close();
+        indexRandomAccessFile.close();
+        indexFile.setReadable(true);
+    }
+
+    /**
+     * Returns the path of the index file, which is what {@link SegmentIndex#open} expects.
+     */
+    @Override
+    public String getFullFilePath() {
+        return SegmentIndex.indexFile(directory, baseName).getPath();
+    }
+
+    @Override
+    public boolean doesFileExist() {
+        if (indexFile == null) return false;
+        return indexFile.exists();
+    }
+
+    int getSegmentCount() {
+        return segmentNumber + 1;
+    }
+
+    /*
+     * A silence that started once the segment reached the minimum length, and that the
+     * recording has caught up with.
+     */
+    private boolean isSilenceSinceMinimumLength() {
+        long silenceStartUs = this.silenceStartUs;
+        long segmentStartUs = toMicros(recordedBytes - segmentBytes);
+        return silenceStartUs >= segmentStartUs + minSegmentSeconds * 1000000L &&
+                silenceStartUs <= toMicros(recordedBytes);
+    }
+
+    private long toMicros(long bytes) {
+        return bytes * 1000000L / bytesPerSecond;
+    }
+
+    private void startSegment() throws IOException {
+        if (segment != null) {
+            segment.finish();
+        }
+        segmentNumber++;
+        segment = new WavFileHelper(
+                SegmentIndex.segmentFile(directory, baseName, segmentNumber).getPath(),
+                WavFileHelper.DEFAULT_PREALLOCATION_CHUNK_SIZE);
+        segment.createFile();
+        segmentBytes = 0;
+    }
+
+    private void writeIndexHeader(int encoding, int sampleRate, int channels)
+            throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SegmentIndex.HEADER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(SegmentIndex.MAGIC)
+                .putInt(encoding)
+                .putInt(sampleRate)
+                .putInt(channels);
+        header.flip();
+        while (header.hasRemaining()) {
+            indexChannel.write(header, header.position());
+        }
+    }
+
+    private void writeIndexEntry(long segmentOffset, long wallClockMs) throws IOException {
+        indexEntry.clear();
+        indexEntry.putInt(segmentNumber)
+                .putInt((int) segmentOffset)
+                .putLong(wallClockMs)
+                .flip();
+        long position = indexChannel.size();
+        while (indexEntry.hasRemaining()) {
+            position += indexChannel.write(indexEntry, position);
+        }
+    }
+}
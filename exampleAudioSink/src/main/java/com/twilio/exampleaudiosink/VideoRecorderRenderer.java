@@ -0,0 +1,418 @@
+package com.twilio.exampleaudiosink;
+
+import android.annotation.TargetApi;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.twilio.video.I420Frame;
+import com.twilio.video.VideoRenderer;
+
+import org.webrtc.YuvConverter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.microedition.khronos.egl.EGL10;
+import javax.microedition.khronos.egl.EGLContext;
+
+/**
+ * VideoRecorderRenderer encodes the frames of a video track to H.264 with {@link MediaCodec} and
+ * writes them into a {@link Mp4RecordingMuxer}, so a participant's video ends up in the same
+ * file as the audio {@link AacFileHelper} encodes from their {@link com.twilio.video.AudioSink}.
+ *
+ * <p>{@link #renderFrame} only copies the frame into one of a few preallocated buffers and
+ * releases it. Encoding happens on a dedicated thread, and when that thread falls behind the
+ * oldest queued frame is replaced rather than blocking the renderer. The encoder is configured
+ * with the size of the first frame, later frames of a different size are scaled to it.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+class VideoRecorderRenderer implements VideoRenderer {
+    private static final String TAG = "VideoRecorderRenderer";
+    static final int DEFAULT_QUEUE_CAPACITY = 3;
+    private static final String MIME_TYPE = "video/avc";
+    private static final int FRAME_RATE = 30;
+    private static final int I_FRAME_INTERVAL_SECONDS = 1;
+    private static final float BITS_PER_PIXEL = 0.1f;
+    // Many encoders only accept dimensions that are a multiple of 16
+    private static final int SIZE_ALIGNMENT = 16;
+    // YuvConverter requires the row stride to be a multiple of eight
+    private static final int STRIDE_ALIGNMENT = 8;
+    private static final long POLL_INTERVAL_MS = 10;
+    private static final int LATENCY_SLOTS = 64;
+
+    private final Mp4RecordingMuxer muxer;
+    private final ArrayBlockingQueue<RecordedFrame> freeFrames;
+    private final ArrayBlockingQueue<RecordedFrame> pendingFrames;
+    private volatile boolean recording;
+    private volatile long droppedFrames;
+    private Thread encoderThread;
+
+    // The render thread's looper, if it has one, so stop() can free the converter there
+    private volatile Handler renderThreadHandler;
+
+    // Texture frames are read back on the render thread into this buffer
+    private YuvConverter yuvConverter;
+    private EGLContext yuvConverterContext;
+    private ByteBuffer textureBuffer;
+    private ByteBuffer[] texturePlanes;
+    private int[] textureStrides;
+
+    // Only touched by the encoder thread
+    private final I420EncoderInputWriter inputWriter = new I420EncoderInputWriter();
+    private final EncoderOutputDrainer.Output encoderOutput = new EncoderOutputDrainer.Output() {
+        @Override
+        public void onFormatChanged(MediaFormat format) {
+            trackIndex = muxer.addTrack(format);
+        }
+
+        @Override
+        public void onSample(ByteBuffer data, MediaCodec.BufferInfo bufferInfo) {
+            // The muxer may have started without this track
+            if (trackIndex >= 0) {
+                muxer.writeSampleData(trackIndex, data, bufferInfo);
+                recordLatency(bufferInfo.presentationTimeUs);
+            }
+        }
+    };
+    private final long[] latencyPresentationTimes = new long[LATENCY_SLOTS];
+    private final long[] latencyArrivalTimes = new long[LATENCY_SLOTS];
+    private MediaCodec mediaCodec;
+    private EncoderOutputDrainer encoderDrainer;
+    private ByteBuffer[] inputBuffers;
+    private int encoderWidth;
+    private int encoderHeight;
+    private boolean semiPlanar;
+    private int trackIndex;
+    private long lastPresentationTimeUs;
+    private long queuedFrames;
+
+    // Written by the encoder thread, read by anyone
+    private volatile long encodedFrames;
+    private volatile long totalLatencyNanos;
+    private volatile long maxLatencyNanos;
+
+    VideoRecorderRenderer(Mp4RecordingMuxer muxer) {
+        this(muxer, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    VideoRecorderRenderer(Mp4RecordingMuxer muxer, int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("The queue needs room for at least one frame");
+        }
+        this.muxer = muxer;
+        this.freeFrames = new ArrayBlockingQueue<>(queueCapacity);
+        this.pendingFrames = new ArrayBlockingQueue<>(queueCapacity);
+        for (int i = 0; i < queueCapacity; i++) {
+            freeFrames.add(new RecordedFrame());
+        }
+    }
+
+    /**
+     * Starts accepting frames. The muxer must already be prepared with a track for this
+     * recorder, which means the previous recording has been finished.
+     */
+    synchronized void start() {
+        if (encoderThread != null && encoderThread.isAlive()) {
+            throw new IllegalStateException("Recorder already started");
+        }
+        freeFrames.addAll(pendingFrames);
+        pendingFrames.clear();
+        droppedFrames = 0;
+        encodedFrames = 0;
+        totalLatencyNanos = 0;
+        maxLatencyNanos = 0;
+        recording = true;
+        encoderThread = new Thread(this::encodeFrames, TAG);
+        encoderThread.start();
+    }
+
+    /**
+     * Stops accepting frames and returns right away. The encoder thread encodes the frames still
+     * queued and releases the track, and the muxer finalizes the file once every track is
+     * released. The converter used for texture frames is released on the render thread, posted
+     * to its looper if it has one and otherwise with the next frame rendered, so call this before
+     * removing the renderer from its track.
+     */
+    void stop() {
+        recording = false;
+        Handler renderThreadHandler = this.renderThreadHandler;
+        if (renderThreadHandler != null) {
+            renderThreadHandler.post(this::releaseConverter);
+        }
+    }
+
+    @Override
+    public void renderFrame(I420Frame i420Frame) {
+        long arrivalNanos = System.nanoTime();
+        if (!recording) {
+            releaseConverter();
+            i420Frame.release();
+            return;
+        }
+        RecordedFrame frame = freeFrames.poll();
+        if (frame == null) {
+            // The encoder fell behind, reuse the oldest queued frame instead of waiting for it
+            frame = pendingFrames.poll();
+            droppedFrames++;
+            if (frame == null) {
+                i420Frame.release();
+                return;
+            }
+        }
+        try {
+            if (i420Frame.yuvPlanes != null) {
+                frame.ensureSize(i420Frame.width, i420Frame.height);
+                I420EncoderInputWriter.pack(i420Frame.yuvPlanes, i420Frame.yuvStrides,
+                        i420Frame.width, i420Frame.height, frame.data);
+            } else {
+                readTexture(i420Frame, frame);
+            }
+            frame.rotation = i420Frame.rotationDegree;
+            frame.arrivalNanos = arrivalNanos;
+        } finally {
+            // Frames must be released after rendering to free the native memory
+            i420Frame.release();
+        }
+        pendingFrames.offer(frame);
+    }
+
+    int getQueueDepth() {
+        return pendingFrames.size();
+    }
+
+    /**
+     * Returns how many frames were discarded because the encoder could not keep up.
+     */
+    long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    long getEncodedFrames() {
+        return encodedFrames;
+    }
+
+    /**
+     * Returns the average time from a frame being rendered to its encoded sample being muxed.
+     */
+    double getAverageEncodeLatencyMs() {
+        long frames = encodedFrames;
+        return frames == 0 ? 0 : totalLatencyNanos / 1e6 / frames;
+    }
+
+    double getMaxEncodeLatencyMs() {
+        return maxLatencyNanos / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d frames encoded, %d dropped, %d queued, encode latency " +
+                        "avg %.1fms max %.1fms", getEncodedFrames(), getDroppedFrames(),
+                getQueueDepth(), getAverageEncodeLatencyMs(), getMaxEncodeLatencyMs());
+    }
+
+    /*
+     * Runs on the render thread, possibly twice.
+     */
+    private void releaseConverter() {
+        if (yuvConverter != null) {
+            yuvConverter.release();
+            yuvConverter = null;
+            yuvConverterContext = null;
+        }
+    }
+
+    /*
+     * Reads the texture back at the frame's own size. The rotation is left to the muxer's
+     * orientation hint like it is for in-memory frames. The converter is created on the render
+     * thread since it needs its EGL context.
+     */
+    private void readTexture(I420Frame i420Frame, RecordedFrame frame) {
+        int width = i420Frame.width;
+        int height = i420Frame.height;
+        int stride = (width + STRIDE_ALIGNMENT - 1) / STRIDE_ALIGNMENT * STRIDE_ALIGNMENT;
+        int capacity = stride * (height + (height + 1) / 2);
+        EGLContext currentContext = ((EGL10) EGLContext.getEGL()).eglGetCurrentContext();
+        if (yuvConverter == null || !currentContext.equals(yuvConverterContext)) {
+            /*
+             * The converter belongs to the context it was created on. If that context is gone
+             * its GL objects went with it, so the old converter is simply dropped.
+             */
+            yuvConverter = new YuvConverter();
+            yuvConverterContext = currentContext;
+            // The next track recorded may render on another thread
+            Looper looper = Looper.myLooper();
+            renderThreadHandler = looper != null ? new Handler(looper) : null;
+        }
+        if (textureBuffer == null || textureBuffer.capacity() != capacity) {
+            textureBuffer = ByteBuffer.allocateDirect(capacity);
+            textureStrides = new int[]{stride, stride, stride};
+            // U and V sit side by side below the luma plane
+            texturePlanes = new ByteBuffer[]{
+                    slice(textureBuffer, 0),
+                    slice(textureBuffer, stride * height),
+                    slice(textureBuffer, stride * height + stride / 2)
+            };
+        }
+        textureBuffer.clear();
+        yuvConverter.convert(textureBuffer, width, height, stride, i420Frame.textureId,
+                i420Frame.samplingMatrix);
+        frame.ensureSize(width, height);
+        I420EncoderInputWriter.pack(texturePlanes, textureStrides, width, height, frame.data);
+    }
+
+    private void encodeFrames() {
+        trackIndex = -1;
+        try {
+            while (true) {
+                RecordedFrame frame = pendingFrames.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (frame != null) {
+                    try {
+                        encode(frame);
+                    } finally {
+                        freeFrames.offer(frame);
+                    }
+                } else if (!recording) {
+                    break;
+                }
+                if (mediaCodec != null) {
+                    encoderDrainer.drain(false);
+                }
+            }
+            finishEncoder();
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Video encoding failed", e);
+            releaseEncoder();
+        } catch (InterruptedException e) {
+            releaseEncoder();
+        } finally {
+            recording = false;
+            muxer.releaseTrack(trackIndex);
+            Log.d(TAG, String.format("Recording finished: %s", this));
+        }
+    }
+
+    private void encode(RecordedFrame frame) throws IOException {
+        if (mediaCodec == null) {
+            startEncoder(frame);
+        }
+        int inputIndex = encoderDrainer.dequeueInputBuffer();
+        ByteBuffer input = inputBuffers[inputIndex];
+        input.clear();
+        int size = inputWriter.write(frame.data, frame.width, frame.height, input,
+                encoderWidth, encoderHeight, semiPlanar);
+
+        // The muxer needs strictly increasing timestamps within a track
+        long presentationTimeUs = Math.max(muxer.toPresentationTimeUs(frame.arrivalNanos),
+                lastPresentationTimeUs + 1);
+        lastPresentationTimeUs = presentationTimeUs;
+        int slot = (int) (queuedFrames++ % LATENCY_SLOTS);
+        latencyPresentationTimes[slot] = presentationTimeUs;
+        latencyArrivalTimes[slot] = frame.arrivalNanos;
+
+        mediaCodec.queueInputBuffer(inputIndex, 0, size, presentationTimeUs, 0);
+    }
+
+    private void startEncoder(RecordedFrame frame) throws IOException {
+        encoderWidth = Math.max(SIZE_ALIGNMENT, frame.width / SIZE_ALIGNMENT * SIZE_ALIGNMENT);
+        encoderHeight = Math.max(SIZE_ALIGNMENT, frame.height / SIZE_ALIGNMENT * SIZE_ALIGNMENT);
+        lastPresentationTimeUs = -1;
+        queuedFrames = 0;
+
+        mediaCodec = MediaCodec.createEncoderByType(MIME_TYPE);
+        int colorFormat = selectColorFormat(mediaCodec.getCodecInfo());
+        semiPlanar = colorFormat ==
+                MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420SemiPlanar;
+
+        MediaFormat format = MediaFormat.createVideoFormat(MIME_TYPE, encoderWidth, encoderHeight);
+        format.setInteger(MediaFormat.KEY_COLOR_FORMAT, colorFormat);
+        format.setInteger(MediaFormat.KEY_BIT_RATE,
+                (int) (encoderWidth * encoderHeight * FRAME_RATE * BITS_PER_PIXEL));
+        format.setInteger(MediaFormat.KEY_FRAME_RATE, FRAME_RATE);
+        format.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, I_FRAME_INTERVAL_SECONDS);
+        mediaCodec.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+        mediaCodec.start();
+        inputBuffers = mediaCodec.getInputBuffers();
+        encoderDrainer = new EncoderOutputDrainer(mediaCodec, encoderOutput);
+        muxer.setOrientationHint(frame.rotation);
+        Log.d(TAG, String.format("Encoding %dx%d frames at %dx%d as %s", frame.width,
+                frame.height, encoderWidth, encoderHeight, semiPlanar ? "NV12" : "I420"));
+    }
+
+    private static int selectColorFormat(MediaCodecInfo codecInfo) throws IOException {
+        int[] colorFormats = codecInfo.getCapabilitiesForType(MIME_TYPE).colorFormats;
+        for (int colorFormat : colorFormats) {
+            if (colorFormat == MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Planar ||
+                    colorFormat == MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420SemiPlanar) {
+                return colorFormat;
+            }
+        }
+        throw new IOException(codecInfo.getName() + " does not accept YUV 4:2:0 input");
+    }
+
+    private void finishEncoder() {
+        if (mediaCodec == null) {
+            return;
+        }
+        encoderDrainer.finish(lastPresentationTimeUs + 1);
+        releaseEncoder();
+    }
+
+    private void releaseEncoder() {
+        if (mediaCodec == null) {
+            return;
+        }
+        try {
+            mediaCodec.stop();
+        } catch (IllegalStateException e) {
+            Log.e(TAG, "Unable to stop the encoder", e);
+        }
+        mediaCodec.release();
+        mediaCodec = null;
+        encoderDrainer = null;
+    }
+
+    private void recordLatency(long presentationTimeUs) {
+        for (int i = 0; i < LATENCY_SLOTS; i++) {
+            if (latencyPresentationTimes[i] == presentationTimeUs) {
+                long latencyNanos = System.nanoTime() - latencyArrivalTimes[i];
+                totalLatencyNanos += latencyNanos;
+                maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+                encodedFrames++;
+                return;
+            }
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        return view.slice();
+    }
+
+    private static final class RecordedFrame {
+        byte[] data = new byte[0];
+        int width;
+        int height;
+        int rotation;
+        long arrivalNanos;
+
+        /*
+         * Buffers are only replaced when the remote participant changes resolution.
+         */
+        void ensureSize(int width, int height) {
+            int size = I420EncoderInputWriter.frameSize(width, height);
+            if (data.length < size) {
+                data = new byte[size];
+            }
+            this.width = width;
+            this.height = height;
+        }
+    }
+}
@@ -4,38 +4,64 @@ import android.content.Context;
 import android.media.AudioFormat;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 
-public class WavFileHelper {
+public class WavFileHelper implements AudioFileWriter {
 
     private static final String fileName = "/audio_sink.wav";
+    private static final int WAV_HEADER_SIZE = 44;
+
+    /*
+     * Growing the file in large steps means the file size metadata is only updated once per
+     * chunk instead of on every write. One megabyte is a little over five seconds of 48kHz
+     * stereo 16-bit audio.
+     */
+    static final int DEFAULT_PREALLOCATION_CHUNK_SIZE = 1024 * 1024;
+
     private boolean didWriteWavHeader;
     private boolean didCompleteWavHeader;
     private final String fullFilePath;
-    private FileOutputStream fileOutputStream;
+    private final int preallocationChunkSize;
+    private RandomAccessFile randomAccessFile;
+    private FileChannel fileChannel;
+    private long writePosition;
+    private long allocatedLength;
     private File outputFile;
 
     WavFileHelper(Context context) {
-        fullFilePath = context.getFilesDir().getPath() + fileName;
+        this(context.getFilesDir().getPath() + fileName, DEFAULT_PREALLOCATION_CHUNK_SIZE);
+    }
+
+    WavFileHelper(String fullFilePath) {
+        this(fullFilePath, 0);
+    }
+
+    /**
+     * @param fullFilePath           The path of the wav file to write
+     * @param preallocationChunkSize The size of the steps the file is extended by ahead of the
+     *                               data, or zero to grow the file with each write
+     */
+    WavFileHelper(String fullFilePath, int preallocationChunkSize) {
+        this.fullFilePath = fullFilePath;
+        this.preallocationChunkSize = preallocationChunkSize;
     }
 
     /**
      * Writes the proper 44-byte RIFF/WAVE header to/for the given stream Two size fields are left
      * empty/null since we do not yet know the final stream size
      *
-     * @param out         The stream to write the header to
+     * @param out         The channel to write the header to
      * @param channelMask An AudioFormat.CHANNEL_* mask
      * @param sampleRate  The sample rate in hertz
      * @param encoding    An AudioFormat.ENCODING_PCM_* value
      * @throws IOException
      */
     private static void writeWavHeader(
-            OutputStream out, int channelMask, int sampleRate, int encoding) throws IOException {
+            FileChannel out, int channelMask, int sampleRate, int encoding) throws IOException {
         short channels;
         switch (channelMask) {
             case AudioFormat.CHANNEL_IN_MONO:
@@ -70,14 +96,17 @@ public class WavFileHelper {
      * Writes the proper 44-byte RIFF/WAVE header to/for the given stream Two size fields are left
      * empty/null since we do not yet know the final stream size
      *
-     * @param out        The stream to write the header to
+     * @param out        The channel to write the header to
      * @param channels   The number of channels
      * @param sampleRate The sample rate in hertz
      * @param bitDepth   The bit depth
      * @throws IOException
      */
     private static void writeWavHeader(
-            OutputStream out, short channels, int sampleRate, short bitDepth) throws IOException {
+            FileChannel out, short channels, int sampleRate, short bitDepth) throws IOException {
+        // Float samples need the IEEE float format code, everything else is integer PCM
+        byte audioFormat = (byte) (bitDepth == 32 ? 3 : 1);
+
         // Convert the multi-byte integers to raw bytes in little endian format as required by the
         // spec
         byte[] littleBytes =
@@ -91,7 +120,7 @@ public class WavFileHelper {
                         .array();
 
         // Not necessarily the best, but it's very easy to visualize this way
-        out.write(
+        ByteBuffer header = ByteBuffer.wrap(
                 new byte[]{
                         // RIFF header
                         'R',
@@ -115,7 +144,7 @@ public class WavFileHelper {
                         0,
                         0,
                         0, // Subchunk1Size
-                        1,
+                        audioFormat,
                         0, // AudioFormat
                         littleBytes[0],
                         littleBytes[1], // NumChannels
@@ -141,6 +170,9 @@ public class WavFileHelper {
                         0,
                         0, // Subchunk2Size (must be updated later)
                 });
+        while (header.hasRemaining()) {
+            out.write(header, header.position());
+        }
     }
 
     /**
@@ -190,11 +222,13 @@ public class WavFileHelper {
         return outputFile;
     }
 
+    @Override
     public String getFullFilePath() {
         return fullFilePath;
     }
 
-    boolean doesFileExist() {
+    @Override
+    public boolean doesFileExist() {
         if (outputFile == null) return false;
         return outputFile.exists();
     }
@@ -208,40 +242,76 @@ public class WavFileHelper {
      * The following wav header helper functions are from this gist: https://gist.github.com/kmark/d8b1b01fb0d2febf5770
      */
 
-    void createFile() throws IOException {
+    @Override
+    public void createFile() throws IOException {
         outputFile = new File(fullFilePath);
         if (outputFile.exists()) {
             outputFile.delete();
         }
         outputFile.createNewFile();
-        fileOutputStream = new FileOutputStream(outputFile, true);
+        randomAccessFile = new RandomAccessFile(outputFile, "rw");
+        fileChannel = randomAccessFile.getChannel();
+        writePosition = 0;
+        allocatedLength = 0;
         didWriteWavHeader = false;
         didCompleteWavHeader = false;
     }
 
-    void writeBytesToFile(ByteBuffer byteBuffer, int encoding, int sampleRate, int channels) throws IOException {
+    /**
+     * Writes the bytes between the buffer's position and limit straight from the buffer, which
+     * may be heap or direct, without copying them into an intermediate array. The position of
+     * the buffer is left untouched.
+     */
+    @Override
+    public void writeBytesToFile(ByteBuffer byteBuffer, int encoding, int sampleRate, int channels) throws IOException {
         if (!didWriteWavHeader) {
-            writeWavHeader(fileOutputStream, getChannelMask(channels), sampleRate, encoding);
+            preallocate(WAV_HEADER_SIZE);
+            writeWavHeader(fileChannel, getChannelMask(channels), sampleRate, encoding);
+            writePosition = WAV_HEADER_SIZE;
             didWriteWavHeader = true;
         }
-        fileOutputStream.write(byteBuffer.array());
+        int position = byteBuffer.position();
+        preallocate(writePosition + byteBuffer.remaining());
+        while (byteBuffer.hasRemaining()) {
+            writePosition += fileChannel.write(byteBuffer, writePosition);
+        }
+        byteBuffer.position(position);
     }
 
-    void finish() throws IOException {
-        fileOutputStream.close();
+    @Override
+    public void finish() throws IOException {
+        // Drop any space preallocated past the end of the data
+        if (allocatedLength > writePosition) {
+            fileChannel.truncate(writePosition);
+        }
+        fileChannel.close();
+        randomAccessFile.close();
         outputFile.setReadable(true);
-        updateWavHeader(outputFile);
+        if (didWriteWavHeader) {
+            updateWavHeader(outputFile);
+        }
         didCompleteWavHeader = true;
     }
 
+    private void preallocate(long length) throws IOException {
+        if (preallocationChunkSize <= 0 || length <= allocatedLength) {
+            return;
+        }
+        long chunks = (length + preallocationChunkSize - 1) / preallocationChunkSize;
+        allocatedLength = chunks * preallocationChunkSize;
+        randomAccessFile.setLength(allocatedLength);
+    }
+
     private int getChannelMask(int channels) {
         switch (channels) {
             case 1:
                 return AudioFormat.CHANNEL_IN_MONO;
             case 2:
                 return AudioFormat.CHANNEL_IN_STEREO;
+            default:
+                // Writing the samples under the wrong channel count would corrupt the file
+                throw new IllegalArgumentException("Unacceptable channel count");
         }
-        return AudioFormat.CHANNEL_IN_STEREO;
     }
 
 }
@@ -0,0 +1,239 @@
+package com.twilio.exampleaudiosink;
+
+import android.media.AudioFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * WavFileReader memory maps the audio data of a PCM wav file, such as the ones written by
+ * {@link WavFileHelper} and {@link MappedWavFileHelper}, and reads it from any frame. Reads are
+ * plain copies out of the page cache, so seeking costs nothing and nothing is buffered ahead.
+ *
+ * <p>The data is mapped in fixed size windows so recordings larger than a single mapping, up to
+ * RF64 files, can be read. A data size that is missing or stale because the file was not
+ * finished is replaced by the length of the file.
+ */
+final class WavFileReader {
+    static final int DEFAULT_WINDOW_SIZE = 4 * 1024 * 1024;
+    private static final long UINT32_MAX = 0xFFFFFFFFL;
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_IEEE_FLOAT = 3;
+
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel fileChannel;
+    private final int windowSize;
+    private final int encoding;
+    private final int sampleRate;
+    private final int channels;
+    private final int bytesPerFrame;
+    private final long dataOffset;
+    private final long dataLength;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+
+    private WavFileReader(RandomAccessFile randomAccessFile, int windowSize, int encoding,
+                          int sampleRate, int channels, long dataOffset, long dataLength) {
+        this.randomAccessFile = randomAccessFile;
+        this.fileChannel = randomAccessFile.getChannel();
+        this.windowSize = windowSize;
+        this.encoding = encoding;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.bytesPerFrame = channels * PcmFormatConverter.bytesPerSample(encoding);
+        this.dataOffset = dataOffset;
+        this.dataLength = dataLength - dataLength % bytesPerFrame;
+    }
+
+    static WavFileReader open(File file) throws IOException {
+        return open(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Opens a wav file and parses its header.
+     *
+     * @throws IOException if the file is not a wav file holding 8-bit, 16-bit or float PCM
+     */
+    static WavFileReader open(File file, int windowSize) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            return parse(randomAccessFile, windowSize);
+        } catch (IOException | RuntimeException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    private static WavFileReader parse(RandomAccessFile randomAccessFile, int windowSize)
+            throws IOException {
+        FileChannel channel = randomAccessFile.getChannel();
+        long fileLength = channel.size();
+        ByteBuffer chunk = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, chunk, 0);
+        int riffId = chunk.getInt(0);
+        if ((riffId != fourCc("RIFF") && riffId != fourCc("RF64")) ||
+                chunk.getInt(8) != fourCc("WAVE")) {
+            throw new IOException("Not a wav file");
+        }
+
+        int encoding = 0;
+        int sampleRate = 0;
+        int channels = 0;
+        long ds64DataLength = -1;
+        long offset = 12;
+        ByteBuffer body = ByteBuffer.allocate(28).order(ByteOrder.LITTLE_ENDIAN);
+        while (offset + 8 <= fileLength) {
+            chunk.clear().limit(8);
+            readFully(channel, chunk, offset);
+            int id = chunk.getInt(0);
+            long size = chunk.getInt(4) & UINT32_MAX;
+            offset += 8;
+
+            if (id == fourCc("fmt ")) {
+                body.clear().limit(16);
+                readFully(channel, body, offset);
+                int format = body.getShort(0) & 0xffff;
+                channels = body.getShort(2);
+                sampleRate = body.getInt(4);
+                encoding = encoding(format, body.getShort(14));
+            } else if (id == fourCc("ds64")) {
+                body.clear().limit(16);
+                readFully(channel, body, offset);
+                ds64DataLength = body.getLong(8);
+            } else if (id == fourCc("data")) {
+                if (encoding == 0) {
+                    throw new IOException("Missing fmt chunk");
+                }
+                long available = fileLength - offset;
+                long dataLength = size == UINT32_MAX && ds64DataLength >= 0 ?
+                        ds64DataLength : size;
+                // Writers leave the size empty or stale until the recording is finished
+                if (dataLength == 0 || dataLength == UINT32_MAX || dataLength > available) {
+                    dataLength = available;
+                }
+                return new WavFileReader(randomAccessFile, windowSize, encoding, sampleRate,
+                        channels, offset, dataLength);
+            }
+            offset += size + (size & 1);
+        }
+        throw new IOException("Missing data chunk");
+    }
+
+    private static int encoding(int format, int bitsPerSample) throws IOException {
+        if (format == WAVE_FORMAT_IEEE_FLOAT && bitsPerSample == 32) {
+            return AudioFormat.ENCODING_PCM_FLOAT;
+        }
+        if (format == WAVE_FORMAT_PCM && bitsPerSample == 16) {
+            return AudioFormat.ENCODING_PCM_16BIT;
+        }
+        if (format == WAVE_FORMAT_PCM && bitsPerSample == 8) {
+            return AudioFormat.ENCODING_PCM_8BIT;
+        }
+        throw new IOException(String.format("Unsupported wav format %d with %d bits",
+                format, bitsPerSample));
+    }
+
+    int getEncoding() {
+        return encoding;
+    }
+
+    int getSampleRate() {
+        return sampleRate;
+    }
+
+    int getChannels() {
+        return channels;
+    }
+
+    int getBytesPerFrame() {
+        return bytesPerFrame;
+    }
+
+    long getDataLength() {
+        return dataLength;
+    }
+
+    long getDurationMs() {
+        return dataLength / bytesPerFrame * 1000 / sampleRate;
+    }
+
+    /**
+     * Returns the read position in bytes from the start of the audio data.
+     */
+    long position() {
+        return position;
+    }
+
+    /**
+     * Moves the read position to the given byte offset into the audio data, rounded down to a
+     * whole frame and clamped to the data.
+     */
+    void seek(long byteOffset) {
+        byteOffset = Math.max(0, Math.min(byteOffset, dataLength));
+        position = byteOffset - byteOffset % bytesPerFrame;
+    }
+
+    void seekToMs(long positionMs) {
+        seek(positionMs * sampleRate / 1000 * bytesPerFrame);
+    }
+
+    /**
+     * Copies up to length bytes from the read position and advances it.
+     *
+     * @return the number of bytes copied, or -1 at the end of the data.
+     */
+    int read(byte[] destination, int offset, int length) throws IOException {
+        if (position >= dataLength) {
+            return -1;
+        }
+        length = (int) Math.min(length, dataLength - position);
+        int copied = 0;
+        while (copied < length) {
+            long filePosition = dataOffset + position;
+            if (window == null || filePosition < windowStart ||
+                    filePosition >= windowStart + window.limit()) {
+                mapWindow(filePosition);
+            }
+            int windowOffset = (int) (filePosition - windowStart);
+            int count = Math.min(length - copied, window.limit() - windowOffset);
+            window.position(windowOffset);
+            window.get(destination, offset + copied, count);
+            copied += count;
+            position += count;
+        }
+        return copied;
+    }
+
+    void close() throws IOException {
+        window = null;
+        fileChannel.close();
+        randomAccessFile.close();
+    }
+
+    private void mapWindow(long filePosition) throws IOException {
+        windowStart = filePosition - filePosition % windowSize;
+        long end = Math.min(dataOffset + dataLength, windowStart + windowSize);
+        window = fileChannel.map(FileChannel.MapMode.READ_ONLY, windowStart, end - windowStart);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Truncated wav header");
+            }
+            position += read;
+        }
+    }
+
+    private static int fourCc(String id) {
+        return id.charAt(0) | id.charAt(1) << 8 | id.charAt(2) << 16 | id.charAt(3) << 24;
+    }
+}
@@ -0,0 +1,62 @@
+package com.twilio.exampleaudiosink;
+
+import android.media.AudioFormat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static com.twilio.exampleaudiosink.AsyncAudioFileWriterTest.BYTES_PER_CALLBACK;
+import static com.twilio.exampleaudiosink.Benchmarks.percentile;
+
+/**
+ * Reports how long {@link AsyncAudioFileWriter#write} holds up
+ * {@link com.twilio.video.AudioSink#renderSample} over a minute of 48kHz stereo.
+ */
+public class AsyncAudioFileWriterBenchmark {
+    private File outputFile;
+
+    @Before
+    public void setUp() throws IOException {
+        outputFile = File.createTempFile("async_wav_writer", ".wav");
+    }
+
+    @After
+    public void tearDown() {
+        outputFile.delete();
+    }
+
+    @Test
+    public void renderSampleLatency() throws IOException {
+        int callbacks = 6000; // One minute of audio
+        AsyncAudioFileWriter writer = new AsyncAudioFileWriter(new WavFileHelper(outputFile.getPath()));
+        ByteBuffer sample = ByteBuffer.allocateDirect(BYTES_PER_CALLBACK)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        long[] latenciesNs = new long[callbacks];
+
+        writer.start();
+        for (int i = 0; i < callbacks; i++) {
+            AsyncAudioFileWriterTest.fillSine(sample, i);
+            long start = System.nanoTime();
+            writer.write(sample, AudioFormat.ENCODING_PCM_16BIT, 48000, 2);
+            latenciesNs[i] = System.nanoTime() - start;
+        }
+        writer.finish();
+
+        Arrays.sort(latenciesNs);
+        Benchmarks.report("AsyncAudioFileWriter.write latency: p50=%dns p99=%dns p99.9=%dns " +
+                        "max=%dns, dropped=%d bytes, high-water mark=%d bytes",
+                percentile(latenciesNs, 50),
+                percentile(latenciesNs, 99),
+                percentile(latenciesNs, 99.9),
+                latenciesNs[latenciesNs.length - 1],
+                writer.getDroppedBytes(),
+                writer.getHighWaterMark());
+    }
+}
@@ -0,0 +1,169 @@
+package com.twilio.exampleaudiosink;
+
+import android.media.AudioFormat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Feeds synthetic 48kHz stereo PCM through {@link AsyncAudioFileWriter} the same way
+ * {@link com.twilio.video.AudioSink#renderSample} would.
+ */
+public class AsyncAudioFileWriterTest {
+    private static final int SAMPLE_RATE = 48000;
+    private static final int CHANNELS = 2;
+    static final int BYTES_PER_CALLBACK = SAMPLE_RATE / 100 * CHANNELS * 2;
+    private static final int WAV_HEADER_SIZE = 44;
+
+    private File outputFile;
+
+    @Before
+    public void setUp() throws IOException {
+        outputFile = File.createTempFile("async_wav_writer", ".wav");
+    }
+
+    @After
+    public void tearDown() {
+        outputFile.delete();
+    }
+
+    @Test
+    public void writesEveryByteInOrder() throws IOException {
+        int callbacks = 500;
+        AsyncAudioFileWriter writer = new AsyncAudioFileWriter(
+                new WavFileHelper(outputFile.getPath()), 2 * 1024 * 1024, 16 * 1024);
+        ByteBuffer sample = ByteBuffer.allocate(BYTES_PER_CALLBACK).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] expected = new byte[callbacks * BYTES_PER_CALLBACK];
+
+        writer.start();
+        for (int i = 0; i < callbacks; i++) {
+            fillSine(sample, i);
+            sample.get(expected, i * BYTES_PER_CALLBACK, BYTES_PER_CALLBACK);
+            sample.rewind();
+            writer.write(sample, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE, CHANNELS);
+        }
+        writer.finish();
+
+        assertEquals(0, writer.getDroppedBytes());
+        assertEquals(WAV_HEADER_SIZE + expected.length, outputFile.length());
+        assertArrayEquals(expected, readData());
+        assertDataSize(expected.length);
+    }
+
+    @Test
+    public void convertsFormatChangesMidStream() throws IOException {
+        int callbacks = 50;
+        AsyncAudioFileWriter writer = new AsyncAudioFileWriter(
+                new WavFileHelper(outputFile.getPath()),
+                new PcmFormatConverter(AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE, CHANNELS),
+                2 * 1024 * 1024, 16 * 1024);
+
+        writer.start();
+        // Half a second each of stereo, 16kHz mono and float stereo
+        writeConstant(writer, callbacks, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE, 2, 1000);
+        writeConstant(writer, callbacks, AudioFormat.ENCODING_PCM_16BIT, 16000, 1, -2000);
+        writeConstant(writer, callbacks, AudioFormat.ENCODING_PCM_FLOAT, SAMPLE_RATE, 2, 8192);
+        writer.finish();
+
+        assertEquals(0, writer.getDroppedBytes());
+        ByteBuffer data = ByteBuffer.wrap(readData()).order(ByteOrder.LITTLE_ENDIAN);
+        int frames = data.remaining() / (CHANNELS * 2);
+        assertEquals(0, data.remaining() % (CHANNELS * 2));
+        // Every section is written at 48kHz, give or take the frames spanning a switch
+        assertEquals(3 * callbacks * SAMPLE_RATE / 100, frames, 3);
+        int sectionFrames = frames / 3;
+        int[] expected = {1000, -2000, 8192};
+        for (int section = 0; section < 3; section++) {
+            for (int frame = section * sectionFrames + 10;
+                 frame < (section + 1) * sectionFrames - 10; frame++) {
+                for (int channel = 0; channel < CHANNELS; channel++) {
+                    assertEquals("frame " + frame, expected[section],
+                            data.getShort((frame * CHANNELS + channel) * 2));
+                }
+            }
+        }
+        assertDataSize(data.capacity());
+    }
+
+    @Test
+    public void dropsFormatChangesWithoutAConverter() throws IOException {
+        AsyncAudioFileWriter writer = new AsyncAudioFileWriter(
+                new WavFileHelper(outputFile.getPath()), 2 * 1024 * 1024, 16 * 1024);
+
+        writer.start();
+        writeConstant(writer, 10, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE, 2, 1000);
+        writeConstant(writer, 10, AudioFormat.ENCODING_PCM_16BIT, 16000, 1, -2000);
+        writer.finish();
+
+        // The mono samples are not written as if they were stereo
+        assertEquals(10 * 160 * 2, writer.getDroppedBytes());
+        assertEquals(10 * BYTES_PER_CALLBACK, outputFile.length() - WAV_HEADER_SIZE);
+        ByteBuffer samples = ByteBuffer.wrap(readData()).order(ByteOrder.LITTLE_ENDIAN);
+        while (samples.hasRemaining()) {
+            assertEquals(1000, samples.getShort());
+        }
+    }
+
+    /*
+     * Writes 10ms callbacks holding the same 16-bit value, or that value as a float, in every
+     * sample.
+     */
+    private static void writeConstant(AsyncAudioFileWriter writer, int callbacks, int encoding,
+                                      int sampleRate, int channels, int value) {
+        int samples = sampleRate / 100 * channels;
+        ByteBuffer sample = ByteBuffer.allocate(samples * PcmFormatConverter.bytesPerSample(
+                encoding)).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < samples; i++) {
+            if (encoding == AudioFormat.ENCODING_PCM_FLOAT) {
+                sample.putFloat(value / 32768f);
+            } else {
+                sample.putShort((short) value);
+            }
+        }
+        for (int i = 0; i < callbacks; i++) {
+            sample.rewind();
+            writer.write(sample, encoding, sampleRate, channels);
+        }
+    }
+
+    static void fillSine(ByteBuffer sample, int callback) {
+        sample.clear();
+        int frames = sample.capacity() / (CHANNELS * 2);
+        for (int frame = 0; frame < frames; frame++) {
+            long t = (long) callback * frames + frame;
+            short value = (short) (Math.sin(2 * Math.PI * 440 * t / SAMPLE_RATE) * Short.MAX_VALUE);
+            for (int channel = 0; channel < CHANNELS; channel++) {
+                sample.putShort(value);
+            }
+        }
+        sample.flip();
+    }
+
+    private byte[] readData() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(outputFile, "r")) {
+            byte[] data = new byte[(int) file.length() - WAV_HEADER_SIZE];
+            file.seek(WAV_HEADER_SIZE);
+            file.readFully(data);
+            return data;
+        }
+    }
+
+    private void assertDataSize(long expected) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(outputFile, "r")) {
+            byte[] size = new byte[4];
+            file.seek(40);
+            file.readFully(size);
+            assertEquals(expected, ByteBuffer.wrap(size).order(ByteOrder.LITTLE_ENDIAN).getInt());
+        }
+    }
+}
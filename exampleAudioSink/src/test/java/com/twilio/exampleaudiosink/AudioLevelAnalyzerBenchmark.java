@@ -0,0 +1,47 @@
+package com.twilio.exampleaudiosink;
+
+import android.media.AudioFormat;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static com.twilio.exampleaudiosink.AudioLevelAnalyzerTest.CHANNELS;
+import static com.twilio.exampleaudiosink.AudioLevelAnalyzerTest.FRAMES_PER_CALLBACK;
+import static com.twilio.exampleaudiosink.AudioLevelAnalyzerTest.FRAME_MS;
+import static com.twilio.exampleaudiosink.AudioLevelAnalyzerTest.SAMPLE_RATE;
+import static com.twilio.exampleaudiosink.Benchmarks.percentile;
+
+public class AudioLevelAnalyzerBenchmark {
+    @Test
+    public void analysisCostPerFrame() {
+        AudioLevelAnalyzer analyzer = new AudioLevelAnalyzer();
+        AudioLevelAnalyzerTest.Corpus corpus = new AudioLevelAnalyzerTest.Corpus();
+        int corpusFrames = AudioLevelAnalyzerTest.labels().length;
+        ByteBuffer[] samples = new ByteBuffer[corpusFrames];
+        for (int frame = 0; frame < corpusFrames; frame++) {
+            samples[frame] = ByteBuffer.allocateDirect(FRAMES_PER_CALLBACK * CHANNELS * 2)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            corpus.fill(samples[frame], frame);
+        }
+        int warmupFrames = 5000;
+        int measuredFrames = 20000;
+        long[] analyzeNs = new long[measuredFrames];
+
+        for (int frame = 0; frame < warmupFrames + measuredFrames; frame++) {
+            ByteBuffer sample = samples[frame % corpusFrames];
+            long start = System.nanoTime();
+            analyzer.analyze(sample, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE, CHANNELS);
+            long elapsed = System.nanoTime() - start;
+            if (frame >= warmupFrames) {
+                analyzeNs[frame - warmupFrames] = elapsed;
+            }
+        }
+
+        Arrays.sort(analyzeNs);
+        Benchmarks.report("AudioLevelAnalyzer: p50=%dns p99=%dns per %dms frame of %dHz stereo",
+                percentile(analyzeNs, 50), percentile(analyzeNs, 99), FRAME_MS, SAMPLE_RATE);
+    }
+}
@@ -0,0 +1,175 @@
+package com.twilio.exampleaudiosink;
+
+import android.media.AudioFormat;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AudioLevelAnalyzerTest {
+    static final int SAMPLE_RATE = 48000;
+    static final int CHANNELS = 2;
+    static final int FRAME_MS = 10;
+    static final int FRAMES_PER_CALLBACK = SAMPLE_RATE * FRAME_MS / 1000;
+
+    /*
+     * The synthetic corpus as pairs of duration in ms and whether the segment is speech. Speech
+     * is a harmonic voice with a gliding pitch, split into syllables by short pauses. Background
+     * noise is added throughout and gets louder half way through.
+     */
+    private static final int[][] CORPUS = {
+            {1000, 0}, {1500, 1}, {800, 0}, {600, 1}, {2000, 0},
+            {2000, 1}, {1200, 0}, {400, 1}, {1500, 0}, {3000, 1}, {1000, 0}
+    };
+    private static final double QUIET_NOISE_DB = -65;
+    private static final double LOUD_NOISE_DB = -45;
+
+    @Test
+    public void measuresLevels() {
+        AudioLevelAnalyzer analyzer = new AudioLevelAnalyzer();
+        AudioLevelAnalyzer.Levels levels = new AudioLevelAnalyzer.Levels();
+        ByteBuffer sample = ByteBuffer.allocateDirect(FRAMES_PER_CALLBACK * CHANNELS * 2)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < FRAMES_PER_CALLBACK; i++) {
+            short value = (short) (16384 * Math.sin(2 * Math.PI * 1000 * i / SAMPLE_RATE));
+            sample.putShort(value).putShort(value);
+        }
+        sample.flip();
+
+        analyzer.analyze(sample, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE, CHANNELS);
+        analyzer.readLevels(levels);
+
+        // A half scale sine peaks at -6 dBFS with an RMS 3 dB lower
+        assertEquals(-6.02, levels.peakDb, 0.05);
+        assertEquals(-9.03, levels.rmsDb, 0.05);
+        assertEquals(1, levels.frames);
+        assertEquals(0, sample.position());
+        assertEquals(ByteOrder.LITTLE_ENDIAN, sample.order());
+    }
+
+    @Test
+    public void detectsSpeechInSyntheticCorpus() {
+        AudioLevelAnalyzer analyzer = new AudioLevelAnalyzer();
+        boolean[] labels = labels();
+        ByteBuffer sample = ByteBuffer.allocateDirect(FRAMES_PER_CALLBACK * CHANNELS * 2)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        Corpus corpus = new Corpus();
+        int scored = 0;
+        int correct = 0;
+
+        for (int frame = 0; frame < labels.length; frame++) {
+            corpus.fill(sample, frame);
+            boolean voice = analyzer.analyze(sample, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE,
+                    CHANNELS);
+            if (isTransition(labels, frame)) {
+                continue;
+            }
+            scored++;
+            if (voice == labels[frame]) {
+                correct++;
+            }
+        }
+
+        double accuracy = (double) correct / scored;
+        // Most of the misses are the second it takes to learn the louder background noise
+        assertTrue(String.format("Agreed on %d of %d frames", correct, scored), accuracy > 0.93);
+    }
+
+    @Test
+    public void ignoresClicks() {
+        AudioLevelAnalyzer analyzer = new AudioLevelAnalyzer();
+        ByteBuffer silence = ByteBuffer.allocateDirect(FRAMES_PER_CALLBACK * CHANNELS * 2);
+        ByteBuffer click = ByteBuffer.allocateDirect(FRAMES_PER_CALLBACK * CHANNELS * 2)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        while (click.hasRemaining()) {
+            click.putShort((short) 20000);
+        }
+        click.flip();
+
+        for (int i = 0; i < 100; i++) {
+            analyzer.analyze(silence, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE, CHANNELS);
+        }
+        assertFalse(analyzer.analyze(click, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE,
+                CHANNELS));
+        assertFalse(analyzer.analyze(silence, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE,
+                CHANNELS));
+    }
+
+    static boolean[] labels() {
+        int total = 0;
+        for (int[] segment : CORPUS) {
+            total += segment[0] / FRAME_MS;
+        }
+        boolean[] labels = new boolean[total];
+        int frame = 0;
+        for (int[] segment : CORPUS) {
+            for (int i = 0; i < segment[0] / FRAME_MS; i++) {
+                labels[frame++] = segment[1] == 1;
+            }
+        }
+        return labels;
+    }
+
+    /*
+     * Frames covered by the detector's onset delay or hangover after a label change are not
+     * scored, since the detector lags the labels there by design.
+     */
+    private static boolean isTransition(boolean[] labels, int frame) {
+        int onsetFrames = AudioLevelAnalyzer.ONSET_MS / FRAME_MS;
+        int hangoverFrames = AudioLevelAnalyzer.HANGOVER_MS / FRAME_MS;
+        for (int i = Math.max(1, frame - hangoverFrames); i <= frame; i++) {
+            if (labels[i] != labels[i - 1]) {
+                int sinceChange = frame - i;
+                return labels[i] ? sinceChange < onsetFrames : sinceChange < hangoverFrames;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Corpus renders the synthetic speech and noise one callback at a time.
+     */
+    static final class Corpus {
+        private final boolean[] labels = labels();
+        private final Random random = new Random(42);
+        private double phase;
+
+        void fill(ByteBuffer sample, int frame) {
+            sample.clear();
+            double noiseLevel = Math.pow(10, (frame < labels.length / 2 ?
+                    QUIET_NOISE_DB : LOUD_NOISE_DB) / 20);
+            for (int i = 0; i < FRAMES_PER_CALLBACK; i++) {
+                double t = (double) (frame * FRAMES_PER_CALLBACK + i) / SAMPLE_RATE;
+                double value = noiseLevel * random.nextGaussian();
+                if (labels[frame]) {
+                    value += voice(t);
+                }
+                short pcm = (short) Math.max(Short.MIN_VALUE,
+                        Math.min(Short.MAX_VALUE, value * 32768));
+                sample.putShort(pcm).putShort(pcm);
+            }
+            sample.flip();
+        }
+
+        private double voice(double t) {
+            double pitch = 140 + 40 * Math.sin(2 * Math.PI * 0.7 * t);
+            phase += 2 * Math.PI * pitch / SAMPLE_RATE;
+            double value = 0;
+            for (int harmonic = 1; harmonic <= 10; harmonic++) {
+                value += Math.sin(harmonic * phase) / harmonic;
+            }
+            // Four syllables a second with a short pause after each one
+            double syllableTime = t % 0.25;
+            if (syllableTime > 0.2) {
+                return 0;
+            }
+            return 0.1 * value * Math.sin(Math.PI * syllableTime / 0.2);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.twilio.exampleaudiosink;
+
+import android.media.AudioFormat;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.twilio.exampleaudiosink.Benchmarks.percentile;
+
+public class AudioMixerBenchmark {
+    private static final int[] INPUT_SAMPLE_RATES = {48000, 16000, 44100};
+    private static final int[] INPUT_CHANNELS = {2, 1, 2};
+
+    @Test
+    public void mixCostPerFrame() {
+        int warmupFrames = 500;
+        int measuredFrames = 2000;
+
+        for (int participants = 2; participants <= 32; participants *= 2) {
+            AudioMixer mixer = new AudioMixer(null);
+            AudioMixer.Input[] inputs = new AudioMixer.Input[participants];
+            ByteBuffer[] samples = new ByteBuffer[participants];
+            for (int i = 0; i < participants; i++) {
+                int format = i % INPUT_SAMPLE_RATES.length;
+                inputs[i] = mixer.addInput();
+                samples[i] = AudioMixerTest.constant(INPUT_SAMPLE_RATES[format],
+                        INPUT_CHANNELS[format], (short) (1000 + i));
+            }
+            long[] mixNs = new long[measuredFrames];
+
+            for (int frame = 0; frame < warmupFrames + measuredFrames; frame++) {
+                for (int i = 0; i < participants; i++) {
+                    int format = i % INPUT_SAMPLE_RATES.length;
+                    inputs[i].write(samples[i], AudioFormat.ENCODING_PCM_16BIT,
+                            INPUT_SAMPLE_RATES[format], INPUT_CHANNELS[format]);
+                }
+                long start = System.nanoTime();
+                mixer.mixFrame();
+                long elapsed = System.nanoTime() - start;
+                if (frame >= warmupFrames) {
+                    mixNs[frame - warmupFrames] = elapsed;
+                }
+            }
+
+            Arrays.sort(mixNs);
+            long mean = Arrays.stream(mixNs).sum() / measuredFrames;
+            Benchmarks.report("%2d participants: mean=%dns p50=%dns p99=%dns per %dms frame " +
+                            "(%.2f%% of real time)",
+                    participants, mean, percentile(mixNs, 50), percentile(mixNs, 99),
+                    AudioMixer.FRAME_DURATION_MS, mean / 1e4 / AudioMixer.FRAME_DURATION_MS);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.twilio.exampleaudiosink;
+
+import android.media.AudioFormat;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AudioMixerTest {
+    @Test
+    public void mixesDifferentRatesAndChannels() {
+        AudioMixer mixer = new AudioMixer(null);
+        AudioMixer.Input stereo = mixer.addInput();
+        AudioMixer.Input mono = mixer.addInput();
+        ByteBuffer stereoSample = constant(48000, 2, (short) 8192);
+        ByteBuffer monoSample = constant(16000, 1, (short) 4096);
+
+        for (int i = 0; i < AudioMixer.JITTER_FRAMES + 5; i++) {
+            stereo.write(stereoSample, AudioFormat.ENCODING_PCM_16BIT, 48000, 2);
+            mono.write(monoSample, AudioFormat.ENCODING_PCM_16BIT, 16000, 1);
+        }
+        for (int frame = 0; frame < 5; frame++) {
+            ByteBuffer mixed = mixer.mixFrame().order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(mixer.getSamplesPerFrame() * 2 * 2, mixed.remaining());
+            while (mixed.hasRemaining()) {
+                assertEquals(12288, mixed.getShort(), 2);
+            }
+        }
+        assertEquals(0, stereo.getUnderruns());
+        assertEquals(0, mono.getUnderruns());
+    }
+
+    @Test
+    public void holdsInputsBackUntilTheJitterBufferFills() {
+        AudioMixer mixer = new AudioMixer(null);
+        AudioMixer.Input input = mixer.addInput();
+        ByteBuffer sample = constant(48000, 2, (short) 8192);
+
+        for (int i = 0; i < AudioMixer.JITTER_FRAMES - 1; i++) {
+            input.write(sample, AudioFormat.ENCODING_PCM_16BIT, 48000, 2);
+            ByteBuffer mixed = mixer.mixFrame().order(ByteOrder.LITTLE_ENDIAN);
+            while (mixed.hasRemaining()) {
+                assertEquals(0, mixed.getShort());
+            }
+        }
+        input.write(sample, AudioFormat.ENCODING_PCM_16BIT, 48000, 2);
+        assertEquals(8192, mixer.mixFrame().order(ByteOrder.LITTLE_ENDIAN).getShort(0));
+    }
+
+    @Test
+    public void softClipsLoudMixes() {
+        AudioMixer mixer = new AudioMixer(null);
+        ByteBuffer sample = constant(48000, 2, (short) 24000);
+        AudioMixer.Input[] inputs = new AudioMixer.Input[4];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = mixer.addInput();
+            for (int frame = 0; frame < AudioMixer.JITTER_FRAMES; frame++) {
+                inputs[i].write(sample, AudioFormat.ENCODING_PCM_16BIT, 48000, 2);
+            }
+        }
+        ByteBuffer mixed = mixer.mixFrame().order(ByteOrder.LITTLE_ENDIAN);
+        short first = mixed.getShort(0);
+
+        assertTrue(first > 0.9 * Short.MAX_VALUE);
+        assertTrue(first <= Short.MAX_VALUE);
+        assertEquals(mixer.getSamplesPerFrame() * 2, mixer.getClippedSamples());
+    }
+
+    static ByteBuffer constant(int sampleRate, int channels, short value) {
+        int frames = sampleRate * AudioMixer.FRAME_DURATION_MS / 1000;
+        ByteBuffer sample = ByteBuffer.allocateDirect(frames * channels * 2)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        while (sample.hasRemaining()) {
+            sample.putShort(value);
+        }
+        sample.flip();
+        return sample;
+    }
+}
@@ -0,0 +1,35 @@
+package com.twilio.exampleaudiosink;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static com.twilio.exampleaudiosink.Benchmarks.threadAllocatedBytes;
+import static org.junit.Assert.assertTrue;
+
+public class I420EncoderInputWriterBenchmark {
+    @Test
+    public void steadyStateDoesNotAllocate() {
+        byte[] frame = I420EncoderInputWriterTest.frame(1280, 720);
+        I420EncoderInputWriter writer = new I420EncoderInputWriter();
+        ByteBuffer output = ByteBuffer.allocateDirect(I420EncoderInputWriter.frameSize(1920, 1072));
+        for (int i = 0; i < 20; i++) {
+            output.clear();
+            writer.write(frame, 1280, 720, output, 1920, 1072, true);
+        }
+
+        int frames = 100;
+        long allocatedBefore = threadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            output.clear();
+            writer.write(frame, 1280, 720, output, 1920, 1072, true);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threadAllocatedBytes() - allocatedBefore;
+
+        Benchmarks.report("I420EncoderInputWriter: %.2f ms and %.2f bytes allocated per 720p " +
+                "frame scaled to 1080p", elapsed / 1e6 / frames, (double) allocated / frames);
+        assertTrue(allocated < 1024);
+    }
+}
@@ -0,0 +1,87 @@
+package com.twilio.exampleaudiosink;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+
+public class I420EncoderInputWriterTest {
+    @Test
+    public void packsStridedPlanes() {
+        int width = 4;
+        int height = 2;
+        ByteBuffer y = ByteBuffer.allocateDirect(8 * height);
+        ByteBuffer u = ByteBuffer.allocateDirect(8);
+        ByteBuffer v = ByteBuffer.allocateDirect(8);
+        for (int i = 0; i < 8 * height; i++) {
+            y.put(i, (byte) i);
+        }
+        u.put(0, (byte) 100).put(1, (byte) 101);
+        v.put(0, (byte) 200).put(1, (byte) 201);
+        y.position(3);
+
+        byte[] packed = new byte[I420EncoderInputWriter.frameSize(width, height)];
+        I420EncoderInputWriter.pack(new ByteBuffer[]{y, u, v}, new int[]{8, 8, 8}, width,
+                height, packed);
+
+        assertEquals(12, packed.length);
+        assertEquals(3, packed[3]);
+        assertEquals(8, packed[4]);
+        assertEquals(11, packed[7]);
+        assertEquals(100, packed[8]);
+        assertEquals(101, packed[9]);
+        assertEquals((byte) 200, packed[10]);
+        assertEquals((byte) 201, packed[11]);
+        // The caller's plane positions are left alone
+        assertEquals(3, y.position());
+    }
+
+    @Test
+    public void writesPlanarAndSemiPlanarLayouts() {
+        byte[] frame = frame(4, 4);
+        I420EncoderInputWriter writer = new I420EncoderInputWriter();
+
+        ByteBuffer planar = ByteBuffer.allocate(24);
+        assertEquals(24, writer.write(frame, 4, 4, planar, 4, 4, false));
+        assertEquals(frame.length, planar.position());
+        for (int i = 0; i < frame.length; i++) {
+            assertEquals(frame[i], planar.get(i));
+        }
+
+        ByteBuffer semiPlanar = ByteBuffer.allocate(24);
+        assertEquals(24, writer.write(frame, 4, 4, semiPlanar, 4, 4, true));
+        // U and V are interleaved after the luma plane
+        assertEquals(frame[16], semiPlanar.get(16));
+        assertEquals(frame[20], semiPlanar.get(17));
+        assertEquals(frame[17], semiPlanar.get(18));
+        assertEquals(frame[23], semiPlanar.get(23));
+    }
+
+    @Test
+    public void scalesToTheEncoderSize() {
+        byte[] frame = frame(8, 4);
+        I420EncoderInputWriter writer = new I420EncoderInputWriter();
+        ByteBuffer output = ByteBuffer.allocate(I420EncoderInputWriter.frameSize(4, 2));
+
+        writer.write(frame, 8, 4, output, 4, 2, false);
+
+        // Every other column of rows 1 and 3
+        assertEquals(frame[8 + 1], output.get(0));
+        assertEquals(frame[8 + 7], output.get(3));
+        assertEquals(frame[3 * 8 + 1], output.get(4));
+        // Chroma follows the luma sampling at half resolution
+        assertEquals(frame[32], output.get(8));
+        assertEquals(frame[32 + 2], output.get(9));
+        assertEquals(frame[40], output.get(10));
+        assertEquals(frame[40 + 2], output.get(11));
+    }
+
+    static byte[] frame(int width, int height) {
+        byte[] frame = new byte[I420EncoderInputWriter.frameSize(width, height)];
+        for (int i = 0; i < frame.length; i++) {
+            frame[i] = (byte) (i * 7);
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,54 @@
+package com.twilio.exampleaudiosink;
+
+import android.media.AudioFormat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static com.twilio.exampleaudiosink.Benchmarks.threadCpuNanos;
+import static com.twilio.exampleaudiosink.ImaAdpcmWavFileHelperTest.CHANNELS;
+import static com.twilio.exampleaudiosink.ImaAdpcmWavFileHelperTest.FRAMES_PER_CALLBACK;
+import static com.twilio.exampleaudiosink.ImaAdpcmWavFileHelperTest.SAMPLE_RATE;
+
+public class ImaAdpcmWavFileHelperBenchmark {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("audio_sink_adpcm", ".wav");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void encodingCost() throws IOException {
+        int seconds = 60;
+        short[] input = new short[FRAMES_PER_CALLBACK * CHANNELS];
+        ImaAdpcmWavFileHelper writer = new ImaAdpcmWavFileHelper(file.getPath());
+        ByteBuffer sample = ByteBuffer.allocateDirect(FRAMES_PER_CALLBACK * CHANNELS * 2)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        writer.createFile();
+        long startCpuNs = threadCpuNanos();
+        for (int callback = 0; callback < seconds * 100; callback++) {
+            ImaAdpcmWavFileHelperTest.fill(sample, callback * FRAMES_PER_CALLBACK, input, 0);
+            writer.writeBytesToFile(sample, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE, CHANNELS);
+        }
+        writer.finish();
+        long cpuNs = threadCpuNanos() - startCpuNs;
+
+        long pcmBytes = (long) seconds * SAMPLE_RATE * CHANNELS * 2;
+        Benchmarks.report("IMA ADPCM: %.2f ms CPU per second of audio (includes generating the " +
+                        "input), compression ratio %.2f:1",
+                cpuNs / 1e6 / seconds, (double) pcmBytes / file.length());
+    }
+}
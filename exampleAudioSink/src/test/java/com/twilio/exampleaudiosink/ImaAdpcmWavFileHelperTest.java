@@ -0,0 +1,149 @@
+package com.twilio.exampleaudiosink;
+
+import android.media.AudioFormat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ImaAdpcmWavFileHelperTest {
+    static final int SAMPLE_RATE = 48000;
+    static final int CHANNELS = 2;
+    static final int FRAMES_PER_CALLBACK = SAMPLE_RATE / 100;
+
+    private static final int[] INDEX_TABLE = {
+            -1, -1, -1, -1, 2, 4, 6, 8,
+            -1, -1, -1, -1, 2, 4, 6, 8
+    };
+
+    private static final int[] STEP_TABLE = {
+            7, 8, 9, 10, 11, 12, 13, 14, 16, 17, 19, 21, 23, 25, 28, 31, 34, 37, 41, 45, 50, 55,
+            60, 66, 73, 80, 88, 97, 107, 118, 130, 143, 157, 173, 190, 209, 230, 253, 279, 307,
+            337, 371, 408, 449, 494, 544, 598, 658, 724, 796, 876, 963, 1060, 1166, 1282, 1411,
+            1552, 1707, 1878, 2066, 2272, 2499, 2749, 3024, 3327, 3660, 4026, 4428, 4871, 5358,
+            5894, 6484, 7132, 7845, 8630, 9493, 10442, 11487, 12635, 13899, 15289, 16818, 18500,
+            20350, 22385, 24623, 27086, 29794, 32767
+    };
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("audio_sink_adpcm", ".wav");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void decodesCloseToTheInput() throws IOException {
+        int callbacks = 100;
+        short[] input = new short[callbacks * FRAMES_PER_CALLBACK * CHANNELS];
+        ImaAdpcmWavFileHelper writer = new ImaAdpcmWavFileHelper(file.getPath());
+        writer.createFile();
+        ByteBuffer sample = ByteBuffer.allocateDirect(FRAMES_PER_CALLBACK * CHANNELS * 2)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (int callback = 0; callback < callbacks; callback++) {
+            fill(sample, callback * FRAMES_PER_CALLBACK, input,
+                    callback * FRAMES_PER_CALLBACK * CHANNELS);
+            writer.writeBytesToFile(sample, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE, CHANNELS);
+        }
+        writer.finish();
+
+        ByteBuffer wav = ByteBuffer.wrap(Files.readAllBytes(file.toPath()))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        int blockAlign = wav.getShort(32);
+        int samplesPerBlock = wav.getShort(38);
+        int sampleFrames = wav.getInt(48);
+        int dataSize = wav.getInt(56);
+        assertEquals(0x11, wav.getShort(20));
+        assertEquals(callbacks * FRAMES_PER_CALLBACK, sampleFrames);
+        assertEquals(wav.capacity() - ImaAdpcmWavFileHelper.WAV_HEADER_SIZE, dataSize);
+        assertEquals(0, dataSize % blockAlign);
+        assertEquals(wav.capacity() - 8, wav.getInt(4));
+        // Four bits a sample plus the block headers
+        assertTrue(wav.capacity() < input.length * 2 / 3);
+
+        short[] output = decode(wav, dataSize / blockAlign, samplesPerBlock);
+        double signal = 0;
+        double noise = 0;
+        for (int i = 0; i < input.length; i++) {
+            signal += (double) input[i] * input[i];
+            noise += (double) (input[i] - output[i]) * (input[i] - output[i]);
+        }
+        double snr = 10 * Math.log10(signal / noise);
+        assertTrue("SNR " + snr + " dB", snr > 20);
+    }
+
+    /*
+     * Fills the sample with a chord that drifts in level, which exercises both the step size
+     * adaptation and the channel interleaving.
+     */
+    static void fill(ByteBuffer sample, int firstFrame, short[] input, int offset) {
+        sample.clear();
+        for (int i = 0; i < FRAMES_PER_CALLBACK; i++) {
+            double t = (double) (firstFrame + i) / SAMPLE_RATE;
+            double level = 8000 + 6000 * Math.sin(2 * Math.PI * 0.5 * t);
+            short left = (short) (level * (Math.sin(2 * Math.PI * 220 * t) +
+                    0.5 * Math.sin(2 * Math.PI * 660 * t)) / 1.5);
+            short right = (short) (level * Math.sin(2 * Math.PI * 330 * t));
+            input[offset + i * CHANNELS] = left;
+            input[offset + i * CHANNELS + 1] = right;
+            sample.putShort(left).putShort(right);
+        }
+        sample.flip();
+    }
+
+    private static short[] decode(ByteBuffer wav, int blocks, int samplesPerBlock) {
+        short[] output = new short[blocks * samplesPerBlock * CHANNELS];
+        int[] predictor = new int[CHANNELS];
+        int[] stepIndex = new int[CHANNELS];
+        wav.position(ImaAdpcmWavFileHelper.WAV_HEADER_SIZE);
+
+        for (int block = 0; block < blocks; block++) {
+            int base = block * samplesPerBlock * CHANNELS;
+            for (int channel = 0; channel < CHANNELS; channel++) {
+                predictor[channel] = wav.getShort();
+                stepIndex[channel] = wav.get();
+                wav.get();
+                output[base + channel] = (short) predictor[channel];
+            }
+            for (int frame = 1; frame < samplesPerBlock; frame += 8) {
+                for (int channel = 0; channel < CHANNELS; channel++) {
+                    for (int i = 0; i < 8; i += 2) {
+                        int packed = wav.get() & 0xff;
+                        output[base + (frame + i) * CHANNELS + channel] =
+                                decodeSample(predictor, stepIndex, channel, packed & 0xf);
+                        output[base + (frame + i + 1) * CHANNELS + channel] =
+                                decodeSample(predictor, stepIndex, channel, packed >> 4);
+                    }
+                }
+            }
+        }
+        return output;
+    }
+
+    private static short decodeSample(int[] predictor, int[] stepIndex, int channel, int code) {
+        int step = STEP_TABLE[stepIndex[channel]];
+        int delta = step >> 3;
+        if ((code & 4) != 0) delta += step;
+        if ((code & 2) != 0) delta += step >> 1;
+        if ((code & 1) != 0) delta += step >> 2;
+        int value = (code & 8) != 0 ? predictor[channel] - delta : predictor[channel] + delta;
+        predictor[channel] = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+        stepIndex[channel] = Math.max(0, Math.min(STEP_TABLE.length - 1,
+                stepIndex[channel] + INDEX_TABLE[code]));
+        return (short) predictor[channel];
+    }
+}
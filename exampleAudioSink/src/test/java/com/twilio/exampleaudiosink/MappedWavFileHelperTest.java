@@ -0,0 +1,101 @@
+package com.twilio.exampleaudiosink;
+
+import android.media.AudioFormat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MappedWavFileHelperTest {
+    private static final int SAMPLE_RATE = 48000;
+    private static final int CHANNELS = 2;
+    private static final int BYTES_PER_CALLBACK = SAMPLE_RATE / 100 * CHANNELS * 2;
+    private static final int BYTES_PER_SECOND = SAMPLE_RATE * CHANNELS * 2;
+
+    private File outputFile;
+
+    @Before
+    public void setUp() throws IOException {
+        outputFile = File.createTempFile("mapped_wav_file_helper", ".wav");
+    }
+
+    @After
+    public void tearDown() {
+        outputFile.delete();
+    }
+
+    @Test
+    public void headerDescribesDataWhileRecording() throws IOException {
+        MappedWavFileHelper wavFileHelper = new MappedWavFileHelper(outputFile.getPath(),
+                64 * 1024);
+        ByteBuffer sample = ByteBuffer.allocateDirect(BYTES_PER_CALLBACK);
+
+        wavFileHelper.createFile();
+        // Two and a half seconds, crossing several windows
+        for (int i = 0; i < 250; i++) {
+            wavFileHelper.writeBytesToFile(sample, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE,
+                    CHANNELS);
+        }
+
+        // Read the header as a player would if the process died now
+        ByteBuffer header = readHeader();
+        long dataSize = header.getInt(76) & 0xFFFFFFFFL;
+        assertEquals("RIFF", id(header, 0));
+        assertTrue(dataSize >= 2 * BYTES_PER_SECOND);
+        assertTrue(dataSize <= 250 * BYTES_PER_CALLBACK);
+        assertEquals(MappedWavFileHelper.WAV_HEADER_SIZE + dataSize - 8,
+                header.getInt(4) & 0xFFFFFFFFL);
+
+        wavFileHelper.finish();
+
+        header = readHeader();
+        assertEquals(250 * BYTES_PER_CALLBACK, header.getInt(76));
+        assertEquals(MappedWavFileHelper.WAV_HEADER_SIZE + 250 * BYTES_PER_CALLBACK,
+                outputFile.length());
+    }
+
+    @Test
+    public void promotesToRf64PastFourGigabytes() {
+        ByteBuffer header = ByteBuffer.allocate(MappedWavFileHelper.WAV_HEADER_SIZE);
+        MappedWavFileHelper.writeWavHeader(header, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE,
+                CHANNELS);
+        assertEquals("JUNK", id(header, 12));
+        assertEquals(BYTES_PER_SECOND, header.getInt(64));
+
+        long dataLength = 5L * 1024 * 1024 * 1024;
+        MappedWavFileHelper.writeSizes(header, dataLength, CHANNELS * 2);
+
+        assertEquals("RF64", id(header, 0));
+        assertEquals(-1, header.getInt(4));
+        assertEquals("ds64", id(header, 12));
+        assertEquals(MappedWavFileHelper.WAV_HEADER_SIZE + dataLength - 8, header.getLong(20));
+        assertEquals(dataLength, header.getLong(28));
+        assertEquals(dataLength / (CHANNELS * 2), header.getLong(36));
+        assertEquals(-1, header.getInt(76));
+    }
+
+    private ByteBuffer readHeader() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(outputFile, "r")) {
+            byte[] header = new byte[MappedWavFileHelper.WAV_HEADER_SIZE];
+            file.readFully(header);
+            return ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private static String id(ByteBuffer header, int offset) {
+        return new String(new char[]{
+                (char) header.get(offset),
+                (char) header.get(offset + 1),
+                (char) header.get(offset + 2),
+                (char) header.get(offset + 3)});
+    }
+}
@@ -0,0 +1,139 @@
+package com.twilio.exampleaudiosink;
+
+import android.media.AudioFormat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MultiTrackRecorderTest {
+    private static final int SAMPLE_RATE = 48000;
+    private static final int CHANNELS = 2;
+    private static final int BYTES_PER_CALLBACK = SAMPLE_RATE / 100 * CHANNELS * 2;
+    private static final int WAV_HEADER_SIZE = 44;
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("multi_track_recorder", "");
+        directory.delete();
+        directory.mkdir();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void keepsTracksSeparate() throws IOException {
+        MultiTrackRecorder recorder = new MultiTrackRecorder(directory, 2, 16, 16 * 1024);
+        MultiTrackRecorder.Track first = recorder.startTrack("first");
+        MultiTrackRecorder.Track second = recorder.startTrack("second");
+        ByteBuffer sample = ByteBuffer.allocateDirect(BYTES_PER_CALLBACK);
+
+        for (int i = 0; i < 10; i++) {
+            fill(sample, (byte) 1);
+            first.write(sample, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE, CHANNELS);
+            fill(sample, (byte) 2);
+            second.write(sample, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE, CHANNELS);
+        }
+        first.finish();
+        second.finish();
+        recorder.release();
+
+        assertEquals(0, recorder.getActiveTracks());
+        assertEquals(0, recorder.getBufferPool().getInUse());
+        assertFilled(new File(first.getFullFilePath()), 10 * BYTES_PER_CALLBACK, (byte) 1);
+        assertFilled(new File(second.getFullFilePath()), 10 * BYTES_PER_CALLBACK, (byte) 2);
+    }
+
+    @Test
+    public void sixteenConcurrentTracks() throws Exception {
+        final int tracks = 16;
+        final int callbacks = 1000; // Ten seconds of audio per track
+        final MultiTrackRecorder recorder = new MultiTrackRecorder(directory);
+        final MultiTrackRecorder.Track[] recorderTracks = new MultiTrackRecorder.Track[tracks];
+        final CountDownLatch done = new CountDownLatch(tracks);
+
+        for (int i = 0; i < tracks; i++) {
+            recorderTracks[i] = recorder.startTrack("track_" + i);
+        }
+
+        for (int i = 0; i < tracks; i++) {
+            final MultiTrackRecorder.Track track = recorderTracks[i];
+            new Thread(() -> {
+                ByteBuffer sample = ByteBuffer.allocateDirect(BYTES_PER_CALLBACK);
+                for (int callback = 0; callback < callbacks; callback++) {
+                    track.write(sample, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE, CHANNELS);
+                    // Pause briefly now and then so the writers get a chance to keep up
+                    if (callback % 10 == 0) {
+                        sleep(1);
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        for (MultiTrackRecorder.Track track : recorderTracks) {
+            track.finish();
+        }
+        recorder.release();
+
+        long total = (long) tracks * callbacks * BYTES_PER_CALLBACK;
+        assertEquals(total, recorder.getWrittenBytes() + recorder.getDroppedBytes());
+        for (MultiTrackRecorder.Track track : recorderTracks) {
+            File file = new File(track.getFullFilePath());
+            assertEquals(callbacks * BYTES_PER_CALLBACK - track.getDroppedBytes(),
+                    file.length() - WAV_HEADER_SIZE);
+        }
+        assertTrue(recorder.getBufferPool().getPeakInUse()
+                <= recorder.getBufferPool().getBufferCount());
+    }
+
+    private static void fill(ByteBuffer sample, byte value) {
+        sample.clear();
+        while (sample.hasRemaining()) {
+            sample.put(value);
+        }
+        sample.flip();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void assertFilled(File file, int length, byte value) throws IOException {
+        byte[] expected = new byte[length];
+        byte[] actual = new byte[length];
+        Arrays.fill(expected, value);
+        try (RandomAccessFile wav = new RandomAccessFile(file, "r")) {
+            assertEquals(WAV_HEADER_SIZE + length, wav.length());
+            wav.seek(WAV_HEADER_SIZE);
+            wav.readFully(actual);
+        }
+        assertArrayEquals(expected, actual);
+    }
+}
@@ -0,0 +1,70 @@
+package com.twilio.exampleaudiosink;
+
+import android.media.AudioFormat;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static com.twilio.exampleaudiosink.Benchmarks.threadAllocatedBytes;
+import static org.junit.Assert.assertTrue;
+
+public class PcmFormatConverterBenchmark {
+    private static final int PCM_8BIT = AudioFormat.ENCODING_PCM_8BIT;
+    private static final int PCM_16BIT = AudioFormat.ENCODING_PCM_16BIT;
+    private static final int PCM_FLOAT = AudioFormat.ENCODING_PCM_FLOAT;
+
+    @Test
+    public void conversionCostPerSample() {
+        int[][] conversions = {
+                // source encoding, rate, channels -> target encoding, rate, channels
+                {PCM_16BIT, 48000, 2, PCM_16BIT, 48000, 2},
+                {PCM_FLOAT, 48000, 2, PCM_16BIT, 48000, 2},
+                {PCM_8BIT, 48000, 2, PCM_16BIT, 48000, 2},
+                {PCM_16BIT, 48000, 2, PCM_16BIT, 48000, 1},
+                {PCM_16BIT, 48000, 1, PCM_16BIT, 48000, 2},
+                {PCM_16BIT, 16000, 1, PCM_16BIT, 48000, 2},
+                {PCM_16BIT, 44100, 2, PCM_16BIT, 48000, 2},
+                {PCM_16BIT, 48000, 2, PCM_FLOAT, 16000, 1},
+        };
+        int warmupCallbacks = 2000;
+        int measuredCallbacks = 10000;
+        for (int[] conversion : conversions) {
+            PcmFormatConverter converter =
+                    new PcmFormatConverter(conversion[3], conversion[4], conversion[5]);
+            int frames = conversion[1] / 100;
+            ByteBuffer sample = PcmFormatConverterTest.sine(conversion[0], conversion[1],
+                    conversion[2], frames, 0);
+            for (int i = 0; i < warmupCallbacks; i++) {
+                converter.convert(sample, conversion[0], conversion[1], conversion[2]);
+            }
+
+            long allocatedBefore = threadAllocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < measuredCallbacks; i++) {
+                converter.convert(sample, conversion[0], conversion[1], conversion[2]);
+            }
+            long elapsed = System.nanoTime() - start;
+            long allocated = threadAllocatedBytes() - allocatedBefore;
+
+            Benchmarks.report("%s %dHz %dch -> %s %dHz %dch: %.2f ns/sample, %.2f bytes " +
+                            "allocated per callback",
+                    name(conversion[0]), conversion[1], conversion[2],
+                    name(conversion[3]), conversion[4], conversion[5],
+                    (double) elapsed / ((long) measuredCallbacks * frames * conversion[2]),
+                    (double) allocated / measuredCallbacks);
+            assertTrue(allocated < measuredCallbacks);
+        }
+    }
+
+    private static String name(int encoding) {
+        switch (encoding) {
+            case PCM_8BIT:
+                return "8-bit";
+            case PCM_16BIT:
+                return "16-bit";
+            default:
+                return "float";
+        }
+    }
+}
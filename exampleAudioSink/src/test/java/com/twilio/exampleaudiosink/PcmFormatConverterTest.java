@@ -0,0 +1,175 @@
+package com.twilio.exampleaudiosink;
+
+import android.media.AudioFormat;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PcmFormatConverterTest {
+    private static final int PCM_8BIT = AudioFormat.ENCODING_PCM_8BIT;
+    private static final int PCM_16BIT = AudioFormat.ENCODING_PCM_16BIT;
+    private static final int PCM_FLOAT = AudioFormat.ENCODING_PCM_FLOAT;
+
+    @Test
+    public void passesMatchingFormatsThrough() {
+        PcmFormatConverter converter = new PcmFormatConverter(PCM_16BIT, 48000, 2);
+        ByteBuffer sample = sine(PCM_16BIT, 48000, 2, 480, 0);
+
+        assertSame(sample, converter.convert(sample, PCM_16BIT, 48000, 2));
+    }
+
+    @Test
+    public void convertsEncodings() {
+        PcmFormatConverter toShort = new PcmFormatConverter(PCM_16BIT, 48000, 1);
+        ByteBuffer floats = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN)
+                .putFloat(0.5f).putFloat(-1f).putFloat(2f);
+        floats.flip();
+        ByteBuffer shorts = toShort.convert(floats, PCM_FLOAT, 48000, 1);
+        assertEquals(16384, shorts.getShort(0));
+        assertEquals(-32768, shorts.getShort(2));
+        assertEquals(32767, shorts.getShort(4));
+
+        PcmFormatConverter toByte = new PcmFormatConverter(PCM_8BIT, 48000, 1);
+        ByteBuffer bytes = toByte.convert(shorts, PCM_16BIT, 48000, 1);
+        assertEquals(192, bytes.get(0) & 0xff);
+        assertEquals(0, bytes.get(1) & 0xff);
+        assertEquals(255, bytes.get(2) & 0xff);
+
+        PcmFormatConverter toFloat = new PcmFormatConverter(PCM_FLOAT, 48000, 1);
+        ByteBuffer roundTrip = toFloat.convert(bytes, PCM_8BIT, 48000, 1);
+        assertEquals(0.5f, roundTrip.getFloat(0), 0f);
+        assertEquals(-1f, roundTrip.getFloat(4), 0f);
+    }
+
+    @Test
+    public void mixesChannelsDownAndUp() {
+        ByteBuffer stereo = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN)
+                .putShort((short) 1000).putShort((short) 3000)
+                .putShort((short) -1000).putShort((short) 1000);
+        stereo.flip();
+        ByteBuffer mono = new PcmFormatConverter(PCM_16BIT, 48000, 1)
+                .convert(stereo, PCM_16BIT, 48000, 2);
+        assertEquals(4, mono.remaining());
+        assertEquals(2000, mono.getShort(0));
+        assertEquals(0, mono.getShort(2));
+
+        ByteBuffer upmixed = new PcmFormatConverter(PCM_16BIT, 48000, 2)
+                .convert(mono, PCM_16BIT, 48000, 1);
+        assertEquals(8, upmixed.remaining());
+        assertEquals(2000, upmixed.getShort(0));
+        assertEquals(2000, upmixed.getShort(2));
+        assertEquals(0, upmixed.getShort(4));
+    }
+
+    @Test
+    public void resamplesAcrossCallbacks() {
+        assertResampled(16000, 48000);
+        assertResampled(48000, 16000);
+        assertResampled(44100, 48000);
+    }
+
+    @Test
+    public void carriesPartialFramesOver() {
+        ByteBuffer sample = sine(PCM_16BIT, 48000, 2, 480, 0);
+        ByteBuffer whole = copy(new PcmFormatConverter(PCM_FLOAT, 48000, 2)
+                .convert(sample, PCM_16BIT, 48000, 2));
+
+        PcmFormatConverter converter = new PcmFormatConverter(PCM_FLOAT, 48000, 2);
+        ByteBuffer split = ByteBuffer.allocate(whole.remaining());
+        // Split the callback inside a frame and inside a sample
+        int[] cuts = {0, 3, 1001, 1919, 1920};
+        for (int i = 1; i < cuts.length; i++) {
+            sample.limit(cuts[i]).position(cuts[i - 1]);
+            split.put(converter.convert(sample, PCM_16BIT, 48000, 2));
+        }
+        split.flip();
+
+        assertEquals(whole, split);
+    }
+
+    @Test
+    public void rejectsUnknownFormats() {
+        PcmFormatConverter converter = new PcmFormatConverter(PCM_16BIT, 48000, 2);
+        try {
+            converter.convert(ByteBuffer.allocate(4), 13, 48000, 2);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new WavFileHelper("unused").writeBytesToFile(ByteBuffer.allocate(6), PCM_16BIT,
+                    48000, 3);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        } catch (Exception e) {
+            // The channel count must be rejected before the file is touched
+            fail(e.toString());
+        }
+    }
+
+    private static void assertResampled(int sourceRate, int targetRate) {
+        PcmFormatConverter converter = new PcmFormatConverter(PCM_FLOAT, targetRate, 1);
+        int callbacks = 100;
+        int sourceFrames = sourceRate / 100;
+        int outputFrames = 0;
+        double maxError = 0;
+
+        for (int callback = 0; callback < callbacks; callback++) {
+            ByteBuffer sample = sine(PCM_FLOAT, sourceRate, 1, sourceFrames,
+                    callback * sourceFrames);
+            ByteBuffer converted = converter.convert(sample, PCM_FLOAT, sourceRate, 1);
+            while (converted.hasRemaining()) {
+                // The first output frame lines up with the first source frame
+                double t = (double) outputFrames / targetRate;
+                double expected = 0.5 * Math.sin(2 * Math.PI * 440 * t);
+                maxError = Math.max(maxError, Math.abs(converted.getFloat() - expected));
+                outputFrames++;
+            }
+        }
+
+        // Interpolation holds back output until the next source frame has arrived
+        int expectedFrames = callbacks * targetRate / 100;
+        int latencyFrames = (int) Math.ceil((double) targetRate / sourceRate);
+        assertTrue(outputFrames + " frames", outputFrames <= expectedFrames &&
+                outputFrames >= expectedFrames - latencyFrames);
+        assertTrue("error " + maxError, maxError < 0.01);
+    }
+
+    static ByteBuffer sine(int encoding, int sampleRate, int channels, int frames,
+                                   int firstFrame) {
+        ByteBuffer sample = ByteBuffer.allocateDirect(
+                frames * channels * PcmFormatConverter.bytesPerSample(encoding))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (int frame = 0; frame < frames; frame++) {
+            double value = 0.5 * Math.sin(2 * Math.PI * 440 * (firstFrame + frame) / sampleRate);
+            for (int channel = 0; channel < channels; channel++) {
+                switch (encoding) {
+                    case PCM_8BIT:
+                        sample.put((byte) (Math.round(value * 128) + 128));
+                        break;
+                    case PCM_16BIT:
+                        sample.putShort((short) Math.round(value * 32768));
+                        break;
+                    default:
+                        sample.putFloat((float) value);
+                        break;
+                }
+            }
+        }
+        sample.flip();
+        return sample;
+    }
+
+    private static ByteBuffer copy(ByteBuffer buffer) {
+        ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+        copy.put(buffer.duplicate());
+        copy.flip();
+        return copy;
+    }
+}
@@ -0,0 +1,209 @@
+package com.twilio.exampleaudiosink;
+
+import android.media.AudioFormat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SegmentingAudioFileWriterTest {
+    private static final int SAMPLE_RATE = 8000;
+    private static final int CHANNELS = 1;
+    private static final int BYTES_PER_SECOND = SAMPLE_RATE * CHANNELS * 2;
+    // 100ms batches, like the ones AsyncAudioFileWriter writes
+    private static final int BYTES_PER_WRITE = BYTES_PER_SECOND / 10;
+    private static final int WAV_HEADER_SIZE = 44;
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("segmenting_writer", "");
+        directory.delete();
+        directory.mkdir();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void rollsOverAtMaximumLength() throws IOException {
+        SegmentingAudioFileWriter writer =
+                new SegmentingAudioFileWriter(directory, "test", 3, 60);
+        writer.createFile();
+        write(writer, 10, false);
+        write(writer, 90, true);
+        writer.finish();
+
+        assertEquals(4, writer.getSegmentCount());
+        for (int segment = 0; segment < 4; segment++) {
+            long length = SegmentIndex.segmentFile(directory, "test", segment).length();
+            assertEquals(segment < 3 ? 3 * BYTES_PER_SECOND : BYTES_PER_SECOND,
+                    length - WAV_HEADER_SIZE);
+        }
+    }
+
+    @Test
+    public void rollsOverAtSilenceAfterMinimumLength() throws IOException {
+        SegmentingAudioFileWriter writer =
+                new SegmentingAudioFileWriter(directory, "test", 60, 2);
+        writer.createFile();
+        // A pause before the minimum length is kept in the first segment
+        write(writer, 10, false);
+        write(writer, 10, true);
+        write(writer, 5, false);
+        write(writer, 10, true);
+        write(writer, 5, false);
+        write(writer, 10, true);
+        writer.finish();
+
+        assertEquals(2, writer.getSegmentCount());
+        // The second segment starts where the pause after the minimum length starts
+        long firstSegment = SegmentIndex.segmentFile(directory, "test", 0).length() -
+                WAV_HEADER_SIZE;
+        assertEquals(20 * BYTES_PER_WRITE, firstSegment);
+    }
+
+    @Test
+    public void locatesEveryPositionAcrossSegments() throws IOException {
+        SegmentingAudioFileWriter writer =
+                new SegmentingAudioFileWriter(directory, "test", 2, 1);
+        writer.createFile();
+        write(writer, 10, false);
+        for (int i = 0; i < 6; i++) {
+            write(writer, 13, true);
+            write(writer, 4, false);
+        }
+        writer.finish();
+
+        SegmentIndex index = SegmentIndex.open(writer.getFullFilePath());
+        assertEquals(writer.getSegmentCount(), index.getSegmentCount());
+        assertEquals(SAMPLE_RATE, index.getSampleRate());
+        assertEquals(CHANNELS, index.getChannels());
+        assertEquals(11200, index.getDurationMs());
+
+        long[] segmentStart = new long[index.getSegmentCount()];
+        for (int segment = 1; segment < segmentStart.length; segment++) {
+            segmentStart[segment] = segmentStart[segment - 1] +
+                    index.getSegmentFile(segment - 1).length() - WAV_HEADER_SIZE;
+        }
+        for (long positionMs = 0; positionMs < index.getDurationMs(); positionMs += 10) {
+            SegmentIndex.Position position = index.locate(positionMs);
+            long recordingOffset = segmentStart[position.segmentNumber] + position.byteOffset;
+            assertEquals("position " + positionMs, positionMs * BYTES_PER_SECOND / 1000,
+                    recordingOffset);
+            // Every sample holds its own index in the recording, so check the file itself
+            assertEquals(positionMs * SAMPLE_RATE / 1000 % 100, readSample(position));
+        }
+    }
+
+    @Test
+    public void indexesCaptureTimeAcrossSkippedSilence() throws IOException {
+        assertCaptureTimeAcrossSkippedSilence();
+    }
+
+    @Test
+    public void measuresCapturedSamplesInTheirOwnFormat() throws IOException {
+        // The sink delivers 44.1kHz stereo while the writer is handed the converted audio
+        captureSampleRate = 44100;
+        captureChannels = 2;
+        assertCaptureTimeAcrossSkippedSilence();
+    }
+
+    private void assertCaptureTimeAcrossSkippedSilence() throws IOException {
+        SegmentingAudioFileWriter writer =
+                new SegmentingAudioFileWriter(directory, "test", 60, 1);
+        writer.createFile();
+        skipSilence = true;
+        write(writer, 10, false);
+        write(writer, 20, true);
+        write(writer, 30, false);
+        write(writer, 20, true);
+        writer.finish();
+
+        SegmentIndex index = SegmentIndex.open(writer.getFullFilePath());
+        long recorded = 0;
+        for (int segment = 0; segment < index.getSegmentCount(); segment++) {
+            recorded += index.getSegmentFile(segment).length() - WAV_HEADER_SIZE;
+        }
+        assertEquals(40 * BYTES_PER_WRITE, recorded);
+        // The skipped silence still breaks the segment
+        assertEquals(2, index.getSegmentCount());
+        // Speech resumed six seconds into the call, after three seconds of skipped silence
+        SegmentIndex.Position resumed = index.locateWallClock(6000);
+        assertEquals(1, resumed.segmentNumber);
+        assertEquals(0, resumed.byteOffset);
+        SegmentIndex.Position beforeSilence = index.locateWallClock(5999);
+        assertEquals(0, beforeSilence.segmentNumber);
+        assertEquals(BYTES_PER_SECOND, beforeSilence.byteOffset);
+        assertTrue(index.locateWallClock(Long.MAX_VALUE).segmentNumber == 1);
+        assertEquals(0, index.locateWallClock(0).byteOffset);
+    }
+
+    private int samplesWritten;
+    private int capturedWrites;
+    private boolean skipSilence;
+    private int captureSampleRate = SAMPLE_RATE;
+    private int captureChannels = CHANNELS;
+
+    /*
+     * Captures speech or silent batches, one every 100ms, and writes them converted to the
+     * recording format like the activity does. Every recorded sample counts up through the recording so positions can be checked
+     * against the audio itself.
+     */
+    private void write(SegmentingAudioFileWriter writer, int writes, boolean speech)
+            throws IOException {
+        ByteBuffer sample = ByteBuffer.allocate(BYTES_PER_WRITE).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < writes; i++) {
+            sample.clear();
+            boolean recorded = speech || !skipSilence;
+            writer.onSampleCaptured(captureSampleRate / 10 * captureChannels * 2,
+                    AudioFormat.ENCODING_PCM_16BIT, captureSampleRate, captureChannels, speech,
+                    recorded, capturedWrites++ * 100L);
+            if (!recorded) {
+                continue;
+            }
+            while (sample.hasRemaining()) {
+                int counter = samplesWritten++ % 100;
+                int level = speech ? 8000 : 0;
+                int sign = samplesWritten % 20 < 10 ? 1 : -1;
+                sample.putShort((short) (sign * level + counter - 50));
+            }
+            sample.flip();
+            writer.writeBytesToFile(sample, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE,
+                    CHANNELS);
+        }
+    }
+
+    private static int readSample(SegmentIndex.Position position) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(position.segmentFile, "r")) {
+            file.seek(WAV_HEADER_SIZE + position.byteOffset);
+            int sample = (short) (file.read() | file.read() << 8);
+            // Strip the square wave and offset to recover the counter
+            for (int level : new int[]{8000, -8000, 0}) {
+                int counter = sample - level + 50;
+                if (counter >= 0 && counter < 100) {
+                    return counter;
+                }
+            }
+            return -1;
+        }
+    }
+}
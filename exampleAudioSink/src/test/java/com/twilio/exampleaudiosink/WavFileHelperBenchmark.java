@@ -0,0 +1,101 @@
+package com.twilio.exampleaudiosink;
+
+import android.media.AudioFormat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static com.twilio.exampleaudiosink.Benchmarks.threadAllocatedBytes;
+
+/**
+ * Compares {@link WavFileHelper}'s FileChannel writes with the FileOutputStream writer it
+ * replaced.
+ */
+public class WavFileHelperBenchmark {
+    private static final int SAMPLE_RATE = 48000;
+    private static final int CHANNELS = 2;
+    private static final int BYTES_PER_CALLBACK = SAMPLE_RATE / 100 * CHANNELS * 2;
+
+    private File outputFile;
+
+    @Before
+    public void setUp() throws IOException {
+        outputFile = File.createTempFile("wav_file_helper", ".wav");
+    }
+
+    @After
+    public void tearDown() {
+        outputFile.delete();
+    }
+
+    @Test
+    public void channelWriterVersusStreamWriter() throws IOException {
+        int callbacks = 30000; // Five minutes of audio
+        ByteBuffer heapSample = ByteBuffer.allocate(BYTES_PER_CALLBACK);
+        ByteBuffer directSample = ByteBuffer.allocateDirect(BYTES_PER_CALLBACK);
+
+        // Warm up both paths before measuring
+        runChannelWriter(heapSample, callbacks / 10, 0);
+        runStreamWriter(heapSample, callbacks / 10);
+
+        report("stream, heap buffer", runStreamWriter(heapSample, callbacks), callbacks);
+        report("stream, direct buffer", runStreamWriter(directSample, callbacks), callbacks);
+        report("channel, heap buffer", runChannelWriter(heapSample, callbacks, 0), callbacks);
+        report("channel, direct buffer", runChannelWriter(directSample, callbacks, 0), callbacks);
+        report("channel, direct buffer, preallocated",
+                runChannelWriter(directSample, callbacks,
+                        WavFileHelper.DEFAULT_PREALLOCATION_CHUNK_SIZE), callbacks);
+    }
+
+    private long[] runChannelWriter(ByteBuffer sample, int callbacks, int preallocationChunkSize)
+            throws IOException {
+        WavFileHelper wavFileHelper = new WavFileHelper(outputFile.getPath(),
+                preallocationChunkSize);
+        wavFileHelper.createFile();
+        long allocatedBefore = threadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < callbacks; i++) {
+            wavFileHelper.writeBytesToFile(sample, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE,
+                    CHANNELS);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threadAllocatedBytes() - allocatedBefore;
+        wavFileHelper.finish();
+        return new long[]{elapsed, allocated};
+    }
+
+    /*
+     * Mirrors the previous FileOutputStream based writer. Direct buffers have no backing array so
+     * they have to be copied out first.
+     */
+    private long[] runStreamWriter(ByteBuffer sample, int callbacks) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(outputFile)) {
+            long allocatedBefore = threadAllocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < callbacks; i++) {
+                if (sample.hasArray()) {
+                    out.write(sample.array());
+                } else {
+                    byte[] copy = new byte[sample.remaining()];
+                    sample.duplicate().get(copy);
+                    out.write(copy);
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            return new long[]{elapsed, threadAllocatedBytes() - allocatedBefore};
+        }
+    }
+
+    private static void report(String name, long[] result, int callbacks) {
+        double seconds = result[0] / 1e9;
+        Benchmarks.report("%s: %.1f MB/s, %.0f bytes allocated/s of audio", name,
+                (double) callbacks * BYTES_PER_CALLBACK / seconds / (1024 * 1024),
+                result[1] / (callbacks / 100.0));
+    }
+}
@@ -0,0 +1,76 @@
+package com.twilio.exampleaudiosink;
+
+import android.media.AudioFormat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class WavFileHelperTest {
+    private static final int SAMPLE_RATE = 48000;
+    private static final int CHANNELS = 2;
+    private static final int BYTES_PER_CALLBACK = SAMPLE_RATE / 100 * CHANNELS * 2;
+    private static final int WAV_HEADER_SIZE = 44;
+
+    private File outputFile;
+
+    @Before
+    public void setUp() throws IOException {
+        outputFile = File.createTempFile("wav_file_helper", ".wav");
+    }
+
+    @After
+    public void tearDown() {
+        outputFile.delete();
+    }
+
+    @Test
+    public void writesFromPositionToLimitOfDirectBuffer() throws IOException {
+        WavFileHelper wavFileHelper = new WavFileHelper(outputFile.getPath());
+        ByteBuffer sample = ByteBuffer.allocateDirect(16);
+        for (byte i = 0; i < 16; i++) {
+            sample.put(i);
+        }
+        sample.position(4).limit(12);
+
+        wavFileHelper.createFile();
+        wavFileHelper.writeBytesToFile(sample, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE,
+                CHANNELS);
+        wavFileHelper.finish();
+
+        assertEquals(4, sample.position());
+        assertArrayEquals(new byte[]{4, 5, 6, 7, 8, 9, 10, 11}, readData());
+    }
+
+    @Test
+    public void truncatesPreallocatedSpaceOnFinish() throws IOException {
+        WavFileHelper wavFileHelper = new WavFileHelper(outputFile.getPath(), 64 * 1024);
+        ByteBuffer sample = ByteBuffer.allocate(BYTES_PER_CALLBACK);
+
+        wavFileHelper.createFile();
+        for (int i = 0; i < 100; i++) {
+            wavFileHelper.writeBytesToFile(sample, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE,
+                    CHANNELS);
+        }
+        wavFileHelper.finish();
+
+        assertEquals(WAV_HEADER_SIZE + 100 * BYTES_PER_CALLBACK, outputFile.length());
+    }
+
+    private byte[] readData() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(outputFile, "r")) {
+            byte[] data = new byte[(int) file.length() - WAV_HEADER_SIZE];
+            file.seek(WAV_HEADER_SIZE);
+            file.readFully(data);
+            return data;
+        }
+    }
+}
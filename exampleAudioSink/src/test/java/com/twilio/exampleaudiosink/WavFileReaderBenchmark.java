@@ -0,0 +1,54 @@
+package com.twilio.exampleaudiosink;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static com.twilio.exampleaudiosink.Benchmarks.percentile;
+import static com.twilio.exampleaudiosink.WavFileReaderTest.CHUNK_MS;
+import static com.twilio.exampleaudiosink.WavFileReaderTest.CHUNK_SIZE;
+
+public class WavFileReaderBenchmark {
+    private File outputFile;
+
+    @Before
+    public void setUp() throws IOException {
+        outputFile = File.createTempFile("wav_file_reader", ".wav");
+    }
+
+    @After
+    public void tearDown() {
+        outputFile.delete();
+    }
+
+    /*
+     * How long it takes from asking to play a position to having the first chunk ready for the
+     * track, which is everything AudioTrackPlayer does before the audio hardware takes over.
+     * The MediaPlayer comparison needs a device and lives in the instrumented tests.
+     */
+    @Test
+    public void timeToFirstChunk() throws IOException {
+        WavFileReaderTest.record(new MappedWavFileHelper(outputFile.getPath(), 1024 * 1024), 6000);
+        byte[] chunk = new byte[CHUNK_SIZE];
+        int plays = 2000;
+        long[] elapsedNs = new long[plays];
+
+        for (int play = 0; play < plays; play++) {
+            long positionMs = (play * 7919L) % 60000;
+            long start = System.nanoTime();
+            WavFileReader reader = WavFileReader.open(outputFile);
+            reader.seekToMs(positionMs);
+            reader.read(chunk, 0, CHUNK_SIZE);
+            elapsedNs[play] = System.nanoTime() - start;
+            reader.close();
+        }
+
+        Arrays.sort(elapsedNs);
+        Benchmarks.report("Open, seek and first %dms chunk: p50=%.1fus p99=%.1fus", CHUNK_MS,
+                percentile(elapsedNs, 50) / 1e3, percentile(elapsedNs, 99) / 1e3);
+    }
+}
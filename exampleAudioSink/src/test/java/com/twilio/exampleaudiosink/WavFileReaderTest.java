@@ -0,0 +1,147 @@
+package com.twilio.exampleaudiosink;
+
+import android.media.AudioFormat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class WavFileReaderTest {
+    private static final int SAMPLE_RATE = 48000;
+    private static final int CHANNELS = 2;
+    private static final int BYTES_PER_FRAME = CHANNELS * 2;
+    private static final int BYTES_PER_CALLBACK = SAMPLE_RATE / 100 * BYTES_PER_FRAME;
+    // The 10ms chunks AudioTrackPlayer streams in
+    static final int CHUNK_MS = 10;
+    static final int CHUNK_SIZE = SAMPLE_RATE * CHUNK_MS / 1000 * BYTES_PER_FRAME;
+
+    private File outputFile;
+
+    @Before
+    public void setUp() throws IOException {
+        outputFile = File.createTempFile("wav_file_reader", ".wav");
+    }
+
+    @After
+    public void tearDown() {
+        outputFile.delete();
+    }
+
+    @Test
+    public void readsWavFileHelperRecordings() throws IOException {
+        record(new WavFileHelper(outputFile.getPath()), 100);
+        WavFileReader reader = WavFileReader.open(outputFile);
+
+        assertEquals(AudioFormat.ENCODING_PCM_16BIT, reader.getEncoding());
+        assertEquals(SAMPLE_RATE, reader.getSampleRate());
+        assertEquals(CHANNELS, reader.getChannels());
+        assertEquals(100 * BYTES_PER_CALLBACK, reader.getDataLength());
+        assertEquals(1000, reader.getDurationMs());
+        assertFramesFrom(reader, 0, reader.getDataLength());
+        reader.close();
+    }
+
+    @Test
+    public void seeksAcrossMappingWindows() throws IOException {
+        record(new MappedWavFileHelper(outputFile.getPath(), 64 * 1024), 300);
+        // A small window so reads and seeks cross many mappings
+        WavFileReader reader = WavFileReader.open(outputFile, 16 * 1024);
+        assertEquals(300 * BYTES_PER_CALLBACK, reader.getDataLength());
+
+        for (long positionMs : new long[]{2500, 10, 1999, 0, 2950}) {
+            reader.seekToMs(positionMs);
+            assertEquals(positionMs * SAMPLE_RATE / 1000 * BYTES_PER_FRAME, reader.position());
+            assertFramesFrom(reader, reader.position(), 5 * CHUNK_SIZE);
+        }
+        // Seeks are clamped to the data and rounded down to a frame
+        reader.seek(3);
+        assertEquals(0, reader.position());
+        reader.seekToMs(60000);
+        assertEquals(-1, reader.read(new byte[CHUNK_SIZE], 0, CHUNK_SIZE));
+        reader.close();
+    }
+
+    @Test
+    public void takesDataSizeFromDs64() throws IOException {
+        int frames = 4800;
+        ByteBuffer header = ByteBuffer.allocate(MappedWavFileHelper.WAV_HEADER_SIZE);
+        MappedWavFileHelper.writeWavHeader(header, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE,
+                CHANNELS);
+        MappedWavFileHelper.writeSizes(header, 5L * 1024 * 1024 * 1024, BYTES_PER_FRAME);
+        // Shrink the 64-bit size so the file stays small, and add a chunk after the data
+        header.putLong(28, frames * BYTES_PER_FRAME);
+        try (RandomAccessFile file = new RandomAccessFile(outputFile, "rw")) {
+            file.write(header.array());
+            file.write(frames(0, frames));
+            file.write(new byte[]{'L', 'I', 'S', 'T', 4, 0, 0, 0, 1, 2, 3, 4});
+        }
+
+        WavFileReader reader = WavFileReader.open(outputFile);
+        assertEquals(frames * BYTES_PER_FRAME, reader.getDataLength());
+        assertFramesFrom(reader, 0, reader.getDataLength());
+        reader.close();
+    }
+
+    @Test
+    public void rejectsCompressedRecordings() throws IOException {
+        ImaAdpcmWavFileHelper adpcm = new ImaAdpcmWavFileHelper(outputFile.getPath());
+        adpcm.createFile();
+        adpcm.writeBytesToFile(ByteBuffer.wrap(frames(0, 4800)),
+                AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE, CHANNELS);
+        adpcm.finish();
+        try {
+            WavFileReader.open(outputFile);
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    static void record(AudioFileWriter writer, int callbacks) throws IOException {
+        writer.createFile();
+        for (int callback = 0; callback < callbacks; callback++) {
+            ByteBuffer sample = ByteBuffer.wrap(frames(callback * SAMPLE_RATE / 100,
+                    SAMPLE_RATE / 100));
+            writer.writeBytesToFile(sample, AudioFormat.ENCODING_PCM_16BIT, SAMPLE_RATE,
+                    CHANNELS);
+        }
+        writer.finish();
+    }
+
+    /*
+     * Every frame holds its own index in both channels, so any read can be checked in place.
+     */
+    private static byte[] frames(int firstFrame, int frames) {
+        ByteBuffer buffer = ByteBuffer.allocate(frames * BYTES_PER_FRAME)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (int frame = firstFrame; frame < firstFrame + frames; frame++) {
+            buffer.putShort((short) frame).putShort((short) ~frame);
+        }
+        return buffer.array();
+    }
+
+    private static void assertFramesFrom(WavFileReader reader, long byteOffset, long length)
+            throws IOException {
+        byte[] chunk = new byte[CHUNK_SIZE];
+        ByteBuffer samples = ByteBuffer.wrap(chunk).order(ByteOrder.LITTLE_ENDIAN);
+        long frame = byteOffset / BYTES_PER_FRAME;
+        long remaining = length;
+        while (remaining > 0) {
+            int read = reader.read(chunk, 0, (int) Math.min(chunk.length, remaining));
+            assertEquals(0, read % BYTES_PER_FRAME);
+            for (int i = 0; i < read; i += BYTES_PER_FRAME, frame++) {
+                assertEquals("frame " + frame, (short) frame, samples.getShort(i));
+                assertEquals("frame " + frame, (short) ~frame, samples.getShort(i + 2));
+            }
+            remaining -= read;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.twilio.video.examples.customcapturer;
+
+import android.app.Instrumentation;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.GradientDrawable;
+import android.os.Build;
+import android.os.Debug;
+import android.os.HandlerThread;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.View;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import com.twilio.video.VideoDimensions;
+import com.twilio.video.VideoFrame;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares capturing a view the way ViewCapturer used to, with a new bitmap, canvas, buffer and
+ * frame on the main thread every tick, against {@link ViewCaptureEngine}. Reports the time the
+ * main thread is busy per frame, the time until the frame is delivered, heap bytes allocated and
+ * garbage collections at common view sizes. Also compares handing frames off as RGBA against
+ * converting them to NV21 with {@link RgbaToYuvConverter} first.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ViewCapturerBenchmarkTest {
+    private static final String TAG = "ViewCapturerBenchmark";
+    private static final int WARMUP_FRAMES = 5;
+    private static final int FRAMES = 30;
+    private static final int[][] VIEW_SIZES = {{360, 640}, {720, 1280}, {1080, 1920}};
+
+    private final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+    private HandlerThread captureThread;
+
+    @Before
+    public void setUp() {
+        captureThread = new HandlerThread("ViewCapturerBenchmark");
+        captureThread.start();
+    }
+
+    @After
+    public void tearDown() {
+        captureThread.quit();
+    }
+
+    @Test
+    public void engineKeepsPixelWorkOffTheMainThread() throws InterruptedException {
+        for (int[] size : VIEW_SIZES) {
+            View view = createView(size[0], size[1]);
+            Result before = measure(() -> captureOnMainThread(view), null);
+
+            Semaphore delivered = new Semaphore(0);
+            ViewCaptureEngine engine = new ViewCaptureEngine(view, captureThread.getLooper(),
+                    (rgbaPixels, width, height, captureTimeNs) -> delivered.release(), false);
+            Result after = measure(engine::capture, delivered);
+            engine.release();
+
+            Log.i(TAG, String.format("%dx%d view: before %s, after %s", size[0], size[1], before,
+                    after));
+            assertTrue(after.mainThreadMillisPerFrame < before.mainThreadMillisPerFrame);
+        }
+    }
+
+    @Test
+    public void yuvOutputHandsOffFewerBytes() throws InterruptedException {
+        int parallelism = Math.min(4, Runtime.getRuntime().availableProcessors());
+        RgbaToYuvConverter converter = new RgbaToYuvConverter(parallelism);
+        for (int[] size : VIEW_SIZES) {
+            View view = createView(size[0], size[1]);
+            VideoDimensions dimensions = new VideoDimensions(size[0], size[1]);
+            byte[] nv21 = new byte[RgbaToYuvConverter.frameSize(size[0], size[1])];
+
+            Semaphore delivered = new Semaphore(0);
+            ViewCaptureEngine rgbaEngine = new ViewCaptureEngine(view,
+                    captureThread.getLooper(), (rgbaPixels, width, height, captureTimeNs) -> {
+                new VideoFrame(rgbaPixels.array(), dimensions,
+                        VideoFrame.RotationAngle.ROTATION_0, captureTimeNs);
+                delivered.release();
+            }, false);
+            Result rgba = measure(rgbaEngine::capture, delivered);
+            rgbaEngine.release();
+
+            ViewCaptureEngine yuvEngine = new ViewCaptureEngine(view,
+                    captureThread.getLooper(), (rgbaPixels, width, height, captureTimeNs) -> {
+                converter.convert(rgbaPixels.array(), width, height, nv21, width, height,
+                        RgbaToYuvConverter.NV21);
+                new VideoFrame(nv21, dimensions, VideoFrame.RotationAngle.ROTATION_0,
+                        captureTimeNs);
+                delivered.release();
+            }, false);
+            Result yuv = measure(yuvEngine::capture, delivered);
+            yuvEngine.release();
+
+            Log.i(TAG, String.format("%dx%d view: RGBA hands off %dKB per frame with %s, NV21 " +
+                            "hands off %dKB per frame with %s", size[0], size[1],
+                    size[0] * size[1] * 4 / 1024, rgba, nv21.length / 1024, yuv));
+            assertTrue(yuv.bytesPerFrame < 0 || yuv.bytesPerFrame < nv21.length);
+        }
+        converter.release();
+    }
+
+    /*
+     * A layout with text and a gradient, roughly what a captured view holds.
+     */
+    private View createView(int width, int height) {
+        final View[] view = new View[1];
+        instrumentation.runOnMainSync(() -> {
+            LinearLayout layout = new LinearLayout(instrumentation.getTargetContext());
+            layout.setOrientation(LinearLayout.VERTICAL);
+            layout.setBackground(new GradientDrawable(GradientDrawable.Orientation.TL_BR,
+                    new int[]{Color.BLUE, Color.MAGENTA}));
+            for (int i = 0; i < 10; i++) {
+                TextView textView = new TextView(instrumentation.getTargetContext());
+                textView.setText(String.format("Line %d of the captured view", i));
+                textView.setTextSize(24);
+                layout.addView(textView);
+            }
+            layout.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+            layout.layout(0, 0, width, height);
+            view[0] = layout;
+        });
+        return view[0];
+    }
+
+    /*
+     * One tick of the capturer as it used to be.
+     */
+    private static void captureOnMainThread(View view) {
+        Bitmap viewBitmap = Bitmap.createBitmap(view.getWidth(), view.getHeight(),
+                Bitmap.Config.ARGB_8888);
+        Canvas viewCanvas = new Canvas(viewBitmap);
+        view.draw(viewCanvas);
+        ByteBuffer buffer = ByteBuffer.allocate(viewBitmap.getByteCount());
+        viewBitmap.copyPixelsToBuffer(buffer);
+        new VideoFrame(buffer.array(), new VideoDimensions(view.getWidth(), view.getHeight()),
+                VideoFrame.RotationAngle.ROTATION_0, System.nanoTime());
+    }
+
+    /*
+     * Runs a capture on the main thread per frame and, when given, waits for it to be delivered
+     * before taking the next one.
+     */
+    private Result measure(Runnable capture, Semaphore delivered) throws InterruptedException {
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            captureFrame(capture, delivered);
+        }
+        long allocatedBefore = runtimeStat("art.gc.bytes-allocated");
+        long gcCountBefore = runtimeStat("art.gc.gc-count");
+        long mainThreadNanos = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) {
+            mainThreadNanos += captureFrame(capture, delivered);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Result result = new Result();
+        result.mainThreadMillisPerFrame = mainThreadNanos / 1e6 / FRAMES;
+        result.millisPerFrame = elapsed / 1e6 / FRAMES;
+        if (allocatedBefore >= 0) {
+            result.bytesPerFrame =
+                    (runtimeStat("art.gc.bytes-allocated") - allocatedBefore) / FRAMES;
+            result.garbageCollections = runtimeStat("art.gc.gc-count") - gcCountBefore;
+        }
+        return result;
+    }
+
+    private long captureFrame(Runnable capture, Semaphore delivered)
+            throws InterruptedException {
+        final long[] mainThreadNanos = new long[1];
+        instrumentation.runOnMainSync(() -> {
+            long start = System.nanoTime();
+            capture.run();
+            mainThreadNanos[0] = System.nanoTime() - start;
+        });
+        if (delivered != null) {
+            assertTrue(delivered.tryAcquire(1, TimeUnit.SECONDS));
+        }
+        return mainThreadNanos[0];
+    }
+
+    /*
+     * Process wide ART counters, or -1 where they are not reported.
+     */
+    private static long runtimeStat(String name) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return -1;
+        }
+        return Long.parseLong(Debug.getRuntimeStat(name));
+    }
+
+    private static final class Result {
+        double mainThreadMillisPerFrame;
+        double millisPerFrame;
+        long bytesPerFrame = -1;
+        long garbageCollections = -1;
+
+        @Override
+        public String toString() {
+            String times = String.format("%.2fms on the main thread and %.2fms in total per " +
+                    "frame", mainThreadMillisPerFrame, millisPerFrame);
+            if (bytesPerFrame < 0) {
+                return times;
+            }
+            return String.format("%s, %dKB per frame, %d GCs over %d frames", times,
+                    bytesPerFrame / 1024, garbageCollections, FRAMES);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.twilio.video.examples.customcapturer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AdaptiveCaptureScheduler decides when a view is captured. A capture is only taken after the
+ * content changed, at most once per frame interval, and while nothing changes the last frame is
+ * repeated at a low keep-alive rate so the remote side keeps receiving video. Several changes
+ * within one interval are coalesced into a single capture.
+ */
+final class AdaptiveCaptureScheduler {
+    static final int NONE = 0;
+    static final int CAPTURE = 1;
+    static final int REPEAT = 2;
+
+    private final long minIntervalNanos;
+    private final long keepAliveIntervalNanos;
+    // The first poll always captures
+    private boolean contentChanged = true;
+    private boolean hasFrame;
+    private long lastFrameNanos;
+
+    AdaptiveCaptureScheduler(int maxFps, long keepAliveIntervalMs) {
+        if (maxFps <= 0) {
+            throw new IllegalArgumentException("The frame rate must be positive");
+        }
+        this.minIntervalNanos = TimeUnit.SECONDS.toNanos(1) / maxFps;
+        this.keepAliveIntervalNanos = TimeUnit.MILLISECONDS.toNanos(keepAliveIntervalMs);
+    }
+
+    synchronized void onContentChanged() {
+        contentChanged = true;
+    }
+
+    /**
+     * Returns whether a change is waiting to be captured.
+     */
+    synchronized boolean isContentChanged() {
+        return contentChanged;
+    }
+
+    /**
+     * Returns whether to capture, repeat the last frame or do nothing at the given time.
+     */
+    synchronized int poll(long nowNanos) {
+        if (hasFrame && nowNanos - lastFrameNanos < minIntervalNanos) {
+            return NONE;
+        }
+        if (contentChanged) {
+            contentChanged = false;
+            hasFrame = true;
+            lastFrameNanos = nowNanos;
+            return CAPTURE;
+        }
+        if (hasFrame && nowNanos - lastFrameNanos >= keepAliveIntervalNanos) {
+            lastFrameNanos = nowNanos;
+            return REPEAT;
+        }
+        return NONE;
+    }
+
+    /**
+     * Returns how long until {@link #poll} has something to do, unless the content changes in
+     * the meantime.
+     */
+    synchronized long getNextPollDelayNanos(long nowNanos) {
+        if (!hasFrame) {
+            return 0;
+        }
+        long dueNanos = lastFrameNanos +
+                (contentChanged ? minIntervalNanos : keepAliveIntervalNanos);
+        return Math.max(0, dueNanos - nowNanos);
+    }
+
+    synchronized void reset() {
+        contentChanged = true;
+        hasFrame = false;
+    }
+}
@@ -0,0 +1,34 @@
+package com.twilio.video.examples.customcapturer;
+
+/**
+ * CaptureMetrics is a snapshot of how a {@link ViewCapturer} has been producing frames since
+ * capturing started.
+ */
+public final class CaptureMetrics {
+    // Frames captured because the view changed
+    public final long capturedFrames;
+    // Frames repeated to keep the video alive while the view did not change
+    public final long repeatedFrames;
+    // Redraws of the window that left the captured view unchanged and so were not captured
+    public final long skippedUnchangedFrames;
+    // Captures dropped because the capture thread was still busy
+    public final long droppedFrames;
+    // The rate frames were delivered at over the last couple of seconds
+    public final double effectiveFps;
+
+    CaptureMetrics(long capturedFrames, long repeatedFrames, long skippedUnchangedFrames,
+                   long droppedFrames, double effectiveFps) {
+        this.capturedFrames = capturedFrames;
+        this.repeatedFrames = repeatedFrames;
+        this.skippedUnchangedFrames = skippedUnchangedFrames;
+        this.droppedFrames = droppedFrames;
+        this.effectiveFps = effectiveFps;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d captured, %d repeated, %d skipped unchanged, %d dropped, " +
+                        "%.1f fps", capturedFrames, repeatedFrames, skippedUnchangedFrames,
+                droppedFrames, effectiveFps);
+    }
+}
@@ -0,0 +1,267 @@
+package com.twilio.video.examples.customcapturer;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.View;
+
+import com.twilio.video.VideoCapturer;
+import com.twilio.video.VideoDimensions;
+import com.twilio.video.VideoFormat;
+import com.twilio.video.VideoFrame;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CompositingCapturer publishes the frames of a camera capturer with the contents of a view,
+ * such as annotations or captions, drawn on top, as a single {@link VideoCapturer}. The overlay
+ * view should have a transparent background; it is stretched over the whole camera frame as it
+ * is shown upright.
+ *
+ * <p>The overlay is captured by a {@link ViewCaptureEngine} whenever the view changes, at most at
+ * the camera frame rate. Camera frames are copied out of the camera buffer into pooled buffers
+ * and blended with the latest overlay on a compositing thread by a {@link Nv21OverlayBlender},
+ * so frames are emitted at the camera's cadence and the camera thread is never held up by the
+ * blend. While {@link #MAX_PENDING_FRAMES} camera frames are still being composited new ones
+ * are dropped. {@link #getMetrics()} reports the latency of each stage.
+ *
+ * <p>The camera capturer must deliver frames in memory as NV21, as
+ * {@link com.twilio.video.CameraCapturer} does. Other frames are passed through untouched.
+ */
+public class CompositingCapturer implements VideoCapturer {
+    static final int MAX_PENDING_FRAMES = 2;
+    private static final int DEFAULT_FRAMERATE = 30;
+
+    private final VideoCapturer cameraCapturer;
+    private final View overlayView;
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private final AtomicInteger pendingFrames = new AtomicInteger();
+    private final SizedPool<byte[]> framePool = new SizedPool<>(MAX_PENDING_FRAMES,
+            new SizedPool.Allocator<byte[]>() {
+                @Override
+                public byte[] allocate(int width, int height) {
+                    return new byte[width * height * 3 / 2];
+                }
+
+                @Override
+                public void discard(byte[] buffer) {
+                }
+            });
+    private final LatencyStats sourceWait = new LatencyStats();
+    private final LatencyStats blend = new LatencyStats();
+    private final LatencyStats handOff = new LatencyStats();
+    private final FrameRateMeter frameRateMeter = new FrameRateMeter();
+    private VideoCapturer.Listener videoCapturerListener;
+    private HandlerThread compositingThread;
+    private Handler compositingHandler;
+    private ViewCaptureEngine overlayEngine;
+    private ViewChangeScheduler overlayScheduler;
+    private volatile long compositedFrames;
+    private volatile long passedThroughFrames;
+    private volatile long droppedFrames;
+    private volatile long overlayUpdates;
+    // Only touched on the compositing thread
+    private final Nv21OverlayBlender blender = new Nv21OverlayBlender();
+
+    // The camera keeps the video alive, so the overlay is only captured when it changes
+    private final ViewChangeScheduler.Callback overlayCallback =
+            new ViewChangeScheduler.Callback() {
+                @Override
+                public boolean onCapture() {
+                    return overlayEngine.capture();
+                }
+
+                @Override
+                public void onRepeat() {
+                }
+
+                @Override
+                public void onUnchangedDraw() {
+                }
+            };
+    private final VideoCapturer.Listener cameraListener = new VideoCapturer.Listener() {
+        @Override
+        public void onCapturerStarted(boolean success) {
+            videoCapturerListener.onCapturerStarted(success);
+        }
+
+        @Override
+        public void onFrameCaptured(VideoFrame videoFrame) {
+            queueCameraFrame(videoFrame);
+        }
+    };
+
+    /**
+     * @param cameraCapturer the capturer of the frames the overlay is drawn on, which this
+     *                       capturer starts and stops
+     * @param overlayView the view drawn on top of the camera frames
+     */
+    public CompositingCapturer(VideoCapturer cameraCapturer, View overlayView) {
+        this.cameraCapturer = cameraCapturer;
+        this.overlayView = overlayView;
+    }
+
+    /**
+     * Returns the formats of the camera capturer.
+     */
+    @Override
+    public List<VideoFormat> getSupportedFormats() {
+        return cameraCapturer.getSupportedFormats();
+    }
+
+    @Override
+    public boolean isScreencast() {
+        return cameraCapturer.isScreencast();
+    }
+
+    /**
+     * Returns how frames have been produced since capturing last started.
+     */
+    public CompositingMetrics getMetrics() {
+        return new CompositingMetrics(compositedFrames,
+                passedThroughFrames,
+                droppedFrames,
+                overlayUpdates,
+                sourceWait,
+                blend,
+                handOff,
+                frameRateMeter.getFramesPerSecond(System.nanoTime()));
+    }
+
+    /**
+     * Starts the camera capturer with the given format, and captures the overlay whenever it
+     * changes at most at the frame rate of that format.
+     */
+    @Override
+    public void startCapture(VideoFormat videoFormat, Listener listener) {
+        this.videoCapturerListener = listener;
+        int maxFps = videoFormat != null && videoFormat.framerate > 0 ?
+                videoFormat.framerate : DEFAULT_FRAMERATE;
+        compositedFrames = 0;
+        passedThroughFrames = 0;
+        droppedFrames = 0;
+        overlayUpdates = 0;
+        sourceWait.reset();
+        blend.reset();
+        handOff.reset();
+        frameRateMeter.reset();
+        compositingThread = new HandlerThread("CompositingCapturer");
+        compositingThread.start();
+        compositingHandler = new Handler(compositingThread.getLooper());
+        overlayEngine = new ViewCaptureEngine(overlayView, compositingThread.getLooper(),
+                this::onOverlayFrame, false);
+        overlayScheduler = new ViewChangeScheduler(overlayView,
+                new AdaptiveCaptureScheduler(maxFps, ViewCapturer.KEEP_ALIVE_INTERVAL_MS), false,
+                overlayCallback);
+        started.set(true);
+
+        overlayScheduler.start();
+        // The camera capturer reports whether capturing started through the listener
+        cameraCapturer.startCapture(videoFormat, cameraListener);
+    }
+
+    /**
+     * Stops the camera capturer and the overlay capture. Note that the SDK cannot receive frames
+     * once this has been invoked.
+     */
+    @Override
+    public void stopCapture() {
+        started.set(false);
+        cameraCapturer.stopCapture();
+        if (overlayScheduler != null) {
+            overlayScheduler.stop();
+            overlayScheduler = null;
+        }
+        if (compositingThread != null) {
+            overlayEngine.release();
+            // Free the buffers once the frames still in flight are done
+            compositingHandler.post(() -> {
+                framePool.clear();
+                blender.clearOverlay();
+            });
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+                compositingThread.quitSafely();
+            } else {
+                compositingThread.quit();
+            }
+            compositingThread = null;
+        }
+    }
+
+    /*
+     * Runs on the camera thread. The camera reuses its buffer once this returns, so the frame is
+     * copied into a pooled buffer before it is handed to the compositing thread.
+     */
+    private void queueCameraFrame(VideoFrame videoFrame) {
+        if (!started.get()) {
+            return;
+        }
+        VideoDimensions dimensions = videoFrame.dimensions;
+        int frameSize = dimensions.width * dimensions.height * 3 / 2;
+        if (videoFrame.imageBuffer == null || videoFrame.imageBuffer.length < frameSize) {
+            videoCapturerListener.onFrameCaptured(videoFrame);
+            passedThroughFrames++;
+            frameRateMeter.record(System.nanoTime());
+            return;
+        }
+        if (pendingFrames.incrementAndGet() > MAX_PENDING_FRAMES) {
+            pendingFrames.decrementAndGet();
+            droppedFrames++;
+            return;
+        }
+        long arrivalNanos = System.nanoTime();
+        byte[] buffer = framePool.acquire(dimensions.width, dimensions.height);
+        System.arraycopy(videoFrame.imageBuffer, 0, buffer, 0, frameSize);
+        VideoFrame.RotationAngle orientation = videoFrame.orientation;
+        long timestamp = videoFrame.timestamp;
+        if (!compositingHandler.post(() -> composite(buffer, dimensions, orientation, timestamp,
+                arrivalNanos))) {
+            // The compositing thread quit while capturing stopped
+            framePool.release(buffer, dimensions.width, dimensions.height);
+            pendingFrames.decrementAndGet();
+        }
+    }
+
+    /*
+     * Runs on the compositing thread. The SDK copies the frame before onFrameCaptured returns,
+     * so the buffer goes straight back to the pool afterwards.
+     */
+    private void composite(byte[] buffer, VideoDimensions dimensions,
+                           VideoFrame.RotationAngle orientation, long timestamp,
+                           long arrivalNanos) {
+        try {
+            if (!started.get()) {
+                return;
+            }
+            long blendStart = System.nanoTime();
+            sourceWait.record(blendStart - arrivalNanos);
+            blender.blend(buffer, dimensions.width, dimensions.height, orientation.getValue());
+            long handOffStart = System.nanoTime();
+            blend.record(handOffStart - blendStart);
+            videoCapturerListener.onFrameCaptured(new VideoFrame(buffer, dimensions, orientation,
+                    timestamp));
+            long handedOff = System.nanoTime();
+            handOff.record(handedOff - handOffStart);
+            compositedFrames++;
+            frameRateMeter.record(handedOff);
+        } finally {
+            framePool.release(buffer, dimensions.width, dimensions.height);
+            pendingFrames.decrementAndGet();
+        }
+    }
+
+    /*
+     * Runs on the compositing thread, so the overlay is only ever replaced between blends.
+     */
+    private void onOverlayFrame(ByteBuffer rgbaPixels, int width, int height,
+                                long captureTimeNs) {
+        if (!started.get()) {
+            return;
+        }
+        blender.setOverlay(rgbaPixels.array(), width, height);
+        overlayUpdates++;
+    }
+}
@@ -0,0 +1,53 @@
+package com.twilio.video.examples.customcapturer;
+
+/**
+ * CompositingMetrics is a snapshot of how a {@link CompositingCapturer} has been producing frames
+ * since capturing started, with the average and maximum latency of each stage in milliseconds.
+ */
+public final class CompositingMetrics {
+    // Camera frames delivered with the overlay blended in
+    public final long compositedFrames;
+    // Camera frames delivered untouched because they were not in memory NV21 frames
+    public final long passedThroughFrames;
+    // Camera frames dropped because the compositing thread was still busy
+    public final long droppedFrames;
+    // Captures of the overlay view
+    public final long overlayUpdates;
+    // From a camera frame arriving until it is picked up by the compositing thread
+    public final double averageSourceWaitMs;
+    public final double maxSourceWaitMs;
+    // Blending the overlay, including preparing it after it changed
+    public final double averageBlendMs;
+    public final double maxBlendMs;
+    // Handing the composited frame to the SDK
+    public final double averageHandOffMs;
+    public final double maxHandOffMs;
+    // The rate frames were delivered at over the last couple of seconds
+    public final double effectiveFps;
+
+    CompositingMetrics(long compositedFrames, long passedThroughFrames, long droppedFrames,
+                       long overlayUpdates, LatencyStats sourceWait, LatencyStats blend,
+                       LatencyStats handOff, double effectiveFps) {
+        this.compositedFrames = compositedFrames;
+        this.passedThroughFrames = passedThroughFrames;
+        this.droppedFrames = droppedFrames;
+        this.overlayUpdates = overlayUpdates;
+        this.averageSourceWaitMs = sourceWait.getAverageMillis();
+        this.maxSourceWaitMs = sourceWait.getMaxMillis();
+        this.averageBlendMs = blend.getAverageMillis();
+        this.maxBlendMs = blend.getMaxMillis();
+        this.averageHandOffMs = handOff.getAverageMillis();
+        this.maxHandOffMs = handOff.getMaxMillis();
+        this.effectiveFps = effectiveFps;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d composited, %d passed through, %d dropped, %d overlay updates, " +
+                        "%.1f fps, source wait %.2f/%.2fms, blend %.2f/%.2fms, " +
+                        "hand-off %.2f/%.2fms (average/max)", compositedFrames,
+                passedThroughFrames, droppedFrames, overlayUpdates, effectiveFps,
+                averageSourceWaitMs, maxSourceWaitMs, averageBlendMs, maxBlendMs,
+                averageHandOffMs, maxHandOffMs);
+    }
+}
@@ -2,6 +2,8 @@ package com.twilio.video.examples.customcapturer;
 
 import android.app.Activity;
 import android.os.Bundle;
+import android.os.Handler;
+import android.util.Log;
 import android.widget.Chronometer;
 import android.widget.LinearLayout;
 
@@ -14,10 +16,22 @@ import com.twilio.video.VideoView;
  * {@link VideoView} below.
  */
 public class CustomCapturerVideoActivity extends Activity {
+    private static final String TAG = "CustomCapturerActivity";
+    private static final long CAPTURE_METRICS_LOG_INTERVAL_MS = 5000;
+
     private LinearLayout capturedView;
     private VideoView videoView;
     private Chronometer timerView;
     private LocalVideoTrack localVideoTrack;
+    private ViewCapturer viewCapturer;
+    private final Handler handler = new Handler();
+    private final Runnable logCaptureMetrics = new Runnable() {
+        @Override
+        public void run() {
+            Log.d(TAG, viewCapturer.getMetrics().toString());
+            handler.postDelayed(this, CAPTURE_METRICS_LOG_INTERVAL_MS);
+        }
+    };
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -30,12 +44,15 @@ public class CustomCapturerVideoActivity extends Activity {
         timerView.start();
 
         // Once added we should see our linear layout rendered live below
-        localVideoTrack = LocalVideoTrack.create(this, true, new ViewCapturer(capturedView));
+        viewCapturer = new ViewCapturer(capturedView);
+        localVideoTrack = LocalVideoTrack.create(this, true, viewCapturer);
         localVideoTrack.addRenderer(videoView);
+        handler.postDelayed(logCaptureMetrics, CAPTURE_METRICS_LOG_INTERVAL_MS);
     }
 
     @Override
     protected void onDestroy() {
+        handler.removeCallbacks(logCaptureMetrics);
         localVideoTrack.removeRenderer(videoView);
         localVideoTrack.release();
         localVideoTrack = null;
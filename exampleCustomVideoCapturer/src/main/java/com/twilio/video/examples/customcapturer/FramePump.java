@@ -0,0 +1,257 @@
+package com.twilio.video.examples.customcapturer;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * FramePump reads frames from a {@link FrameSource} and hands them to a {@link FrameSink} at a
+ * fixed frame rate, to put a frame pipeline under a known, repeatable load. It has no Android
+ * dependencies, so the same load can be applied in JVM tests.
+ *
+ * <p>Frames are due on a fixed grid from the moment pumping starts, so timing errors do not add
+ * up over a long run. The pump thread parks until shortly before a frame is due and spins the
+ * rest of the way, since parking alone can oversleep by a millisecond or more. The next frame is
+ * read as soon as the previous one was handed off, so reading the source stays off the deadline.
+ * When the sink or the source falls behind by more than a frame interval, the missed frames are
+ * skipped and counted rather than delivered in a burst.
+ *
+ * <p>All frames are read into one buffer allocated up front; the sink must not keep it once
+ * {@link FrameSink#onFrame} returns.
+ *
+ * <p>Time is told and waited for through a {@link Clock}, so tests can pace frames without
+ * depending on real time.
+ */
+final class FramePump {
+    // Park until this close to a deadline and spin the rest of the way
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+
+    /**
+     * FrameSink receives the pumped frames on the pump thread.
+     */
+    interface FrameSink {
+        /**
+         * @param frame the frame in the layout the pump was created with, only valid until the
+         *              callback returns
+         * @param timestampNs the time the frame was due, on the pump's {@link Clock}
+         */
+        void onFrame(byte[] frame, int width, int height, long timestampNs);
+    }
+
+    /**
+     * Clock tells the time frames are paced by, and waits for it to pass.
+     */
+    interface Clock {
+        long nanoTime();
+
+        /**
+         * Waits for the given time, or less; the pump checks the time again afterwards.
+         */
+        void sleep(long nanos);
+    }
+
+    // The System.nanoTime() clock, parking and spinning as described above
+    static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public void sleep(long nanos) {
+            if (nanos > SPIN_NANOS) {
+                LockSupport.parkNanos(nanos - SPIN_NANOS);
+            } else {
+                Thread.yield();
+            }
+        }
+    };
+
+    private final FrameSource source;
+    private final int layout;
+    private final boolean loop;
+    private final FrameSink sink;
+    private final Clock clock;
+    private final long frameIntervalNanos;
+    private final byte[] frame;
+    private final LatencyStats lateness = new LatencyStats();
+    private final LatencyStats readTime = new LatencyStats();
+    private volatile boolean running;
+    private volatile long emittedFrames;
+    private volatile long skippedFrames;
+    private volatile IOException error;
+    private Thread thread;
+
+    /**
+     * @param layout {@link RgbaToYuvConverter#I420} or {@link RgbaToYuvConverter#NV21}
+     * @param loop start over from the first frame when the source runs out
+     */
+    FramePump(FrameSource source, double fps, int layout, boolean loop, FrameSink sink) {
+        this(source, fps, layout, loop, sink, SYSTEM_CLOCK);
+    }
+
+    /**
+     * @param clock the clock frames are paced and timestamped by
+     */
+    FramePump(FrameSource source, double fps, int layout, boolean loop, FrameSink sink,
+              Clock clock) {
+        if (fps <= 0) {
+            throw new IllegalArgumentException("The frame rate must be positive");
+        }
+        this.source = source;
+        this.layout = layout;
+        this.loop = loop;
+        this.sink = sink;
+        this.clock = clock;
+        this.frameIntervalNanos = Math.round(TimeUnit.SECONDS.toNanos(1) / fps);
+        this.frame = new byte[RgbaToYuvConverter.frameSize(source.getWidth(),
+                source.getHeight())];
+    }
+
+    /**
+     * Starts pumping frames at the frame rate on a new thread, until {@link #stop()} is called
+     * or the source runs out.
+     */
+    synchronized void start() {
+        if (thread != null) {
+            throw new IllegalStateException("The pump is already started");
+        }
+        running = true;
+        thread = new Thread(this::pace, "FramePump");
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Stops the pump and waits for the frame being handed off, if any. Must not be called from
+     * the sink.
+     */
+    synchronized void stop() {
+        running = false;
+        if (thread == null) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        thread = null;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Hands frames to the sink as fast as they can be produced on the calling thread, without
+     * pacing, to measure the most a pipeline can take.
+     *
+     * @return the number of frames handed off, less than asked if the source ran out
+     */
+    int pumpFrames(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            if (!readNextFrame()) {
+                return i;
+            }
+            emit(clock.nanoTime());
+        }
+        return count;
+    }
+
+    /**
+     * Pumps frames at the frame rate on the calling thread, like {@link #start()} does on its
+     * own thread, until the source runs out or the sink calls {@link #stop()}.
+     */
+    void runPaced() {
+        running = true;
+        pace();
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    long getEmittedFrames() {
+        return emittedFrames;
+    }
+
+    /**
+     * Returns how many frames were skipped because the pump fell behind.
+     */
+    long getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    /**
+     * Returns how late frames were handed off compared to when they were due.
+     */
+    LatencyStats getLateness() {
+        return lateness;
+    }
+
+    /**
+     * Returns how long reading a frame from the source took.
+     */
+    LatencyStats getReadTime() {
+        return readTime;
+    }
+
+    /**
+     * Returns the error reading the source stopped the pump with, if any.
+     */
+    IOException getError() {
+        return error;
+    }
+
+    private void pace() {
+        try {
+            long deadline = clock.nanoTime();
+            while (running && readNextFrame()) {
+                waitUntil(deadline);
+                if (!running) {
+                    break;
+                }
+                lateness.record(clock.nanoTime() - deadline);
+                emit(deadline);
+                deadline += frameIntervalNanos;
+                long behind = clock.nanoTime() - deadline;
+                if (behind > frameIntervalNanos) {
+                    long missed = behind / frameIntervalNanos;
+                    skippedFrames += missed;
+                    deadline += missed * frameIntervalNanos;
+                }
+            }
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            running = false;
+        }
+    }
+
+    private boolean readNextFrame() throws IOException {
+        long start = clock.nanoTime();
+        boolean read = source.readFrame(frame, layout);
+        if (!read && loop) {
+            source.rewind();
+            read = source.readFrame(frame, layout);
+        }
+        readTime.record(clock.nanoTime() - start);
+        return read;
+    }
+
+    private void emit(long timestampNs) {
+        sink.onFrame(frame, source.getWidth(), source.getHeight(), timestampNs);
+        emittedFrames++;
+    }
+
+    private void waitUntil(long deadline) {
+        long remaining;
+        while (running && (remaining = deadline - clock.nanoTime()) > 0) {
+            clock.sleep(remaining);
+        }
+    }
+}
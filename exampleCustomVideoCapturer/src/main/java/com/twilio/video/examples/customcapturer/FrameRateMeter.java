@@ -0,0 +1,53 @@
+package com.twilio.video.examples.customcapturer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FrameRateMeter measures the rate frames are actually delivered at over the last couple of
+ * seconds. Timestamps are kept in a fixed ring, so recording a frame does not allocate.
+ */
+final class FrameRateMeter {
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(2);
+    // Enough for the window at 60 fps
+    private static final int MAX_SAMPLES = 128;
+
+    private final long[] frameTimes = new long[MAX_SAMPLES];
+    private int next;
+    private int count;
+
+    synchronized void record(long frameTimeNanos) {
+        frameTimes[next] = frameTimeNanos;
+        next = (next + 1) % MAX_SAMPLES;
+        count = Math.min(count + 1, MAX_SAMPLES);
+    }
+
+    /**
+     * Returns the frame rate over the frames recorded within the window before the given time,
+     * or 0 if there are fewer than two.
+     */
+    synchronized double getFramesPerSecond(long nowNanos) {
+        int frames = 0;
+        long oldest = nowNanos;
+        long newest = 0;
+        for (int i = 1; i <= count; i++) {
+            long frameTime = frameTimes[(next - i + MAX_SAMPLES) % MAX_SAMPLES];
+            if (nowNanos - frameTime > WINDOW_NANOS) {
+                break;
+            }
+            if (frames == 0) {
+                newest = frameTime;
+            }
+            oldest = frameTime;
+            frames++;
+        }
+        if (frames < 2 || newest == oldest) {
+            return 0;
+        }
+        return (frames - 1) * 1e9 / (newest - oldest);
+    }
+
+    synchronized void reset() {
+        next = 0;
+        count = 0;
+    }
+}
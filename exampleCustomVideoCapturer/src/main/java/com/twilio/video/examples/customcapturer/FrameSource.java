@@ -0,0 +1,29 @@
+package com.twilio.video.examples.customcapturer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * FrameSource produces YUV 4:2:0 frames of a fixed, even size, such as a file being played back
+ * or a generated test pattern. It has no Android dependencies, so it can drive frame pipelines
+ * in JVM tests as well as a {@link FrameSourceCapturer}.
+ */
+public interface FrameSource extends Closeable {
+    int getWidth();
+
+    int getHeight();
+
+    /**
+     * Writes the next frame into {@code frame}, which holds at least
+     * {@link RgbaToYuvConverter#frameSize} bytes.
+     *
+     * @param layout {@link RgbaToYuvConverter#I420} or {@link RgbaToYuvConverter#NV21}
+     * @return false once the source has no more frames
+     */
+    boolean readFrame(byte[] frame, int layout) throws IOException;
+
+    /**
+     * Goes back to the first frame.
+     */
+    void rewind() throws IOException;
+}
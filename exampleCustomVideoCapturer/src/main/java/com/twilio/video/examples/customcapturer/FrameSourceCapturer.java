@@ -0,0 +1,103 @@
+package com.twilio.video.examples.customcapturer;
+
+import android.util.Log;
+
+import com.twilio.video.VideoCapturer;
+import com.twilio.video.VideoDimensions;
+import com.twilio.video.VideoFormat;
+import com.twilio.video.VideoFrame;
+import com.twilio.video.VideoPixelFormat;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * FrameSourceCapturer publishes frames from a {@link FrameSource}, such as a
+ * {@link YuvFileFrameSource} or a {@link SyntheticFrameSource}, at a fixed frame rate. Unlike the
+ * other capturers it needs no camera, screen or view, so a track can be put under the same load
+ * on every run for performance testing.
+ *
+ * <p>Frames are paced by a {@link FramePump} and handed to the SDK as NV21 from a single reused
+ * buffer.
+ */
+public class FrameSourceCapturer implements VideoCapturer {
+    private static final String TAG = "FrameSourceCapturer";
+
+    private final FrameSource source;
+    private final double fps;
+    private final boolean loop;
+    private final VideoDimensions dimensions;
+    private VideoCapturer.Listener videoCapturerListener;
+    private FramePump pump;
+
+    /**
+     * @param fps the rate frames are published at, whatever format the capturer is started with
+     * @param loop start over from the first frame when the source runs out
+     */
+    public FrameSourceCapturer(FrameSource source, double fps, boolean loop) {
+        this.source = source;
+        this.fps = fps;
+        this.loop = loop;
+        this.dimensions = new VideoDimensions(source.getWidth(), source.getHeight());
+    }
+
+    /**
+     * Returns the single format of the source, at the configured frame rate.
+     */
+    @Override
+    public List<VideoFormat> getSupportedFormats() {
+        return Collections.singletonList(new VideoFormat(dimensions,
+                (int) Math.round(fps), VideoPixelFormat.NV21));
+    }
+
+    @Override
+    public boolean isScreencast() {
+        return false;
+    }
+
+    /**
+     * Returns the pump driving the capturer while it is started, for its timing statistics.
+     */
+    FramePump getPump() {
+        return pump;
+    }
+
+    @Override
+    public void startCapture(VideoFormat videoFormat, Listener listener) {
+        this.videoCapturerListener = listener;
+        try {
+            source.rewind();
+        } catch (IOException e) {
+            Log.e(TAG, String.format("Failed to rewind the frame source: %s", e.getMessage()));
+            listener.onCapturerStarted(false);
+            return;
+        }
+        pump = new FramePump(source, fps, RgbaToYuvConverter.NV21, loop, this::onFrame);
+        pump.start();
+        listener.onCapturerStarted(true);
+    }
+
+    /**
+     * Stop capturing frames. Note that the SDK cannot receive frames once this has been invoked.
+     */
+    @Override
+    public void stopCapture() {
+        if (pump != null) {
+            pump.stop();
+            if (pump.getError() != null) {
+                Log.e(TAG, String.format("Reading the frame source failed: %s",
+                        pump.getError().getMessage()));
+            }
+        }
+    }
+
+    /*
+     * Runs on the pump thread. The SDK copies the frame before onFrameCaptured returns, so the
+     * pump reads the next frame into the same buffer afterwards.
+     */
+    private void onFrame(byte[] frame, int width, int height, long timestampNs) {
+        videoCapturerListener.onFrameCaptured(new VideoFrame(frame, dimensions,
+                VideoFrame.RotationAngle.ROTATION_0, timestampNs));
+    }
+}
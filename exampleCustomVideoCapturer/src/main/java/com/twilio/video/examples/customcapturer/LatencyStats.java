@@ -0,0 +1,31 @@
+package com.twilio.video.examples.customcapturer;
+
+/**
+ * LatencyStats keeps the average and maximum of the durations recorded for one stage of a
+ * pipeline. Recording does not allocate, so it can be done for every frame.
+ */
+final class LatencyStats {
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+
+    synchronized void record(long nanos) {
+        count++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    synchronized double getAverageMillis() {
+        return count == 0 ? 0 : totalNanos / 1e6 / count;
+    }
+
+    synchronized double getMaxMillis() {
+        return maxNanos / 1e6;
+    }
+
+    synchronized void reset() {
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+}
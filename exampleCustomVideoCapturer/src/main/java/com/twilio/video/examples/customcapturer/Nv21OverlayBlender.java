@@ -0,0 +1,239 @@
+package com.twilio.video.examples.customcapturer;
+
+/**
+ * Nv21OverlayBlender alpha blends an RGBA overlay onto NV21 camera frames in place. The overlay
+ * is stretched over the frame as it is shown, upright, so it is mapped through the rotation of
+ * the camera buffer.
+ *
+ * <p>Blending works on the YUV planes directly: whenever the overlay, the frame size or the
+ * rotation changes, the overlay is converted once into per pixel luma, chroma and alpha tables
+ * laid out like the camera buffer, along with the span of each row that is not transparent.
+ * Blending a frame then only touches the covered part of each row, so a sparse overlay such as a
+ * drawing costs next to nothing. Nothing is allocated per frame once the tables exist.
+ *
+ * <p>Not thread safe; both methods are meant to be called on the compositing thread.
+ */
+final class Nv21OverlayBlender {
+    private byte[] overlay = new byte[0];
+    private int overlayWidth;
+    private int overlayHeight;
+    private boolean overlayChanged;
+
+    // The overlay prepared for frames of this size and rotation
+    private int preparedWidth;
+    private int preparedHeight;
+    private int preparedRotation;
+    private byte[] lumaValues = new byte[0];
+    private byte[] lumaAlphas = new byte[0];
+    private byte[] chromaValues = new byte[0];
+    private byte[] chromaAlphas = new byte[0];
+    private int[] lumaSpans = new int[0];
+    private int[] chromaSpans = new int[0];
+    // Offsets into the overlay of each frame column and row
+    private int[] columnOffsets = new int[0];
+    private int[] rowOffsets = new int[0];
+
+    /**
+     * Replaces the overlay with a copy of the given tightly packed frame, whose colours are
+     * premultiplied by alpha as {@link android.graphics.Bitmap} stores them.
+     */
+    void setOverlay(byte[] rgba, int width, int height) {
+        int size = width * height * 4;
+        if (overlay.length != size) {
+            overlay = new byte[size];
+        }
+        System.arraycopy(rgba, 0, overlay, 0, size);
+        overlayWidth = width;
+        overlayHeight = height;
+        overlayChanged = true;
+    }
+
+    /**
+     * Drops the overlay and the tables prepared from it.
+     */
+    void clearOverlay() {
+        overlay = new byte[0];
+        overlayWidth = 0;
+        overlayHeight = 0;
+        preparedWidth = 0;
+        lumaValues = lumaAlphas = chromaValues = chromaAlphas = new byte[0];
+        lumaSpans = chromaSpans = columnOffsets = rowOffsets = new int[0];
+    }
+
+    /**
+     * Blends the overlay onto an NV21 frame.
+     *
+     * @param rotationDegrees the clockwise rotation that shows the frame upright
+     * @return false if there is no overlay or the frame is not an NV21 frame of even size
+     */
+    boolean blend(byte[] nv21, int width, int height, int rotationDegrees) {
+        if (overlayWidth == 0 || (width & 1) != 0 || (height & 1) != 0 ||
+                nv21.length < width * height * 3 / 2) {
+            return false;
+        }
+        if (overlayChanged || width != preparedWidth || height != preparedHeight ||
+                rotationDegrees != preparedRotation) {
+            prepare(width, height, rotationDegrees);
+            overlayChanged = false;
+        }
+        blendPlane(nv21, 0, width, height, lumaValues, lumaAlphas, lumaSpans);
+        blendPlane(nv21, width * height, width, height / 2, chromaValues, chromaAlphas,
+                chromaSpans);
+        return true;
+    }
+
+    private static void blendPlane(byte[] frame, int planeOffset, int rowLength, int rows,
+                                   byte[] values, byte[] alphas, int[] spans) {
+        for (int row = 0; row < rows; row++) {
+            int rowStart = row * rowLength;
+            int end = rowStart + spans[2 * row + 1];
+            for (int i = rowStart + spans[2 * row]; i < end; i++) {
+                int alpha = alphas[i] & 0xff;
+                if (alpha == 0) {
+                    continue;
+                }
+                // Scale to 0-256 so an opaque pixel replaces the frame exactly
+                alpha += alpha >> 7;
+                int frameValue = frame[planeOffset + i] & 0xff;
+                frame[planeOffset + i] = (byte) (frameValue +
+                        ((((values[i] & 0xff) - frameValue) * alpha + 128) >> 8));
+            }
+        }
+    }
+
+    private void prepare(int width, int height, int rotationDegrees) {
+        if (lumaValues.length != width * height) {
+            lumaValues = new byte[width * height];
+            lumaAlphas = new byte[width * height];
+            chromaValues = new byte[width * height / 2];
+            chromaAlphas = new byte[width * height / 2];
+            lumaSpans = new int[2 * height];
+            chromaSpans = new int[height];
+            columnOffsets = new int[width];
+            rowOffsets = new int[height];
+        }
+        mapOverlay(width, height, rotationDegrees);
+        preparedWidth = width;
+        preparedHeight = height;
+        preparedRotation = rotationDegrees;
+
+        for (int y = 0; y < height; y++) {
+            int first = width;
+            int last = -1;
+            for (int x = 0; x < width; x++) {
+                int pixel = rowOffsets[y] + columnOffsets[x];
+                int alpha = overlay[pixel + 3] & 0xff;
+                int i = y * width + x;
+                lumaAlphas[i] = (byte) alpha;
+                if (alpha == 0) {
+                    continue;
+                }
+                lumaValues[i] = RgbaToYuvConverter.luma(unpremultiply(overlay[pixel], alpha),
+                        unpremultiply(overlay[pixel + 1], alpha),
+                        unpremultiply(overlay[pixel + 2], alpha));
+                first = Math.min(first, x);
+                last = x;
+            }
+            setSpan(lumaSpans, y, first, last + 1);
+        }
+
+        // Chroma comes from the average of each 2x2 block, with V before U as in NV21
+        for (int chromaRow = 0; chromaRow < height / 2; chromaRow++) {
+            int top = rowOffsets[2 * chromaRow];
+            int bottom = rowOffsets[2 * chromaRow + 1];
+            int first = width;
+            int last = -1;
+            for (int x = 0; x < width; x += 2) {
+                int left = columnOffsets[x];
+                int right = columnOffsets[x + 1];
+                int alpha = average(overlay, top + left, top + right, bottom + left,
+                        bottom + right, 3);
+                int i = chromaRow * width + x;
+                chromaAlphas[i] = chromaAlphas[i + 1] = (byte) alpha;
+                if (alpha == 0) {
+                    continue;
+                }
+                int r = unpremultiply(average(overlay, top + left, top + right, bottom + left,
+                        bottom + right, 0), alpha);
+                int g = unpremultiply(average(overlay, top + left, top + right, bottom + left,
+                        bottom + right, 1), alpha);
+                int b = unpremultiply(average(overlay, top + left, top + right, bottom + left,
+                        bottom + right, 2), alpha);
+                chromaValues[i] = RgbaToYuvConverter.chromaV(r, g, b);
+                chromaValues[i + 1] = RgbaToYuvConverter.chromaU(r, g, b);
+                first = Math.min(first, x);
+                last = x + 1;
+            }
+            setSpan(chromaSpans, chromaRow, first, last + 1);
+        }
+    }
+
+    /*
+     * Maps each column and row of the camera buffer to the overlay pixel shown at that place
+     * once the buffer is rotated upright. The overlay index of a pixel is then the sum of the
+     * offsets of its row and column.
+     */
+    private void mapOverlay(int width, int height, int rotationDegrees) {
+        boolean transposed = rotationDegrees == 90 || rotationDegrees == 270;
+        int uprightWidth = transposed ? height : width;
+        int uprightHeight = transposed ? width : height;
+        int overlayStride = overlayWidth * 4;
+        for (int x = 0; x < width; x++) {
+            switch (rotationDegrees) {
+                case 90:
+                    columnOffsets[x] = scale(x, uprightHeight, overlayHeight) * overlayStride;
+                    break;
+                case 180:
+                    columnOffsets[x] = scale(width - 1 - x, uprightWidth, overlayWidth) * 4;
+                    break;
+                case 270:
+                    columnOffsets[x] = scale(width - 1 - x, uprightHeight, overlayHeight) *
+                            overlayStride;
+                    break;
+                default:
+                    columnOffsets[x] = scale(x, uprightWidth, overlayWidth) * 4;
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            switch (rotationDegrees) {
+                case 90:
+                    rowOffsets[y] = scale(height - 1 - y, uprightWidth, overlayWidth) * 4;
+                    break;
+                case 180:
+                    rowOffsets[y] = scale(height - 1 - y, uprightHeight, overlayHeight) *
+                            overlayStride;
+                    break;
+                case 270:
+                    rowOffsets[y] = scale(y, uprightWidth, overlayWidth) * 4;
+                    break;
+                default:
+                    rowOffsets[y] = scale(y, uprightHeight, overlayHeight) * overlayStride;
+            }
+        }
+    }
+
+    private static int scale(int position, int size, int overlaySize) {
+        return (int) ((long) position * overlaySize / size);
+    }
+
+    private static int average(byte[] rgba, int a, int b, int c, int d, int channel) {
+        return ((rgba[a + channel] & 0xff) + (rgba[b + channel] & 0xff) +
+                (rgba[c + channel] & 0xff) + (rgba[d + channel] & 0xff) + 2) >> 2;
+    }
+
+    private static int unpremultiply(byte value, int alpha) {
+        return unpremultiply(value & 0xff, alpha);
+    }
+
+    private static int unpremultiply(int value, int alpha) {
+        return Math.min(255, (value * 255 + alpha / 2) / alpha);
+    }
+
+    private static void setSpan(int[] spans, int row, int start, int end) {
+        if (end <= start) {
+            start = end = 0;
+        }
+        spans[2 * row] = start;
+        spans[2 * row + 1] = end;
+    }
+}
@@ -0,0 +1,234 @@
+package com.twilio.video.examples.customcapturer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * RgbaToYuvConverter converts captured RGBA frames to YUV 4:2:0, which takes 1.5 bytes per pixel
+ * instead of 4, optionally scaling them down at the same time with nearest neighbour sampling.
+ * Luma is computed per pixel and chroma from the average of each 2x2 block, with the BT.601
+ * limited range coefficients encoders expect.
+ *
+ * <p>The rows are split into bands that are converted in parallel when the converter is created
+ * with a parallelism above one: the calling thread takes the first band and a few long lived
+ * workers the rest. The row loop allocates nothing and the lookup tables are only rebuilt when
+ * the frame size changes. {@link #convert} must only be called from one thread at a time.
+ */
+final class RgbaToYuvConverter {
+    // The planes follow each other, U before V
+    static final int I420 = 0;
+    // The luma plane followed by interleaved V and U, as android.graphics.ImageFormat.NV21
+    static final int NV21 = 1;
+
+    private final RowBand[] bands;
+    private final ExecutorService workers;
+    private int pendingBands;
+
+    // The frame being converted, published to the workers by the executor
+    private byte[] source;
+    private int sourceWidth;
+    private byte[] output;
+    private int width;
+    private int height;
+    private int layout;
+    private int[] columnMap = new int[0];
+    private int[] rowMap = new int[0];
+    private int mappedSourceWidth;
+    private int mappedSourceHeight;
+
+    RgbaToYuvConverter(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("The parallelism must be positive");
+        }
+        this.bands = new RowBand[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            bands[i] = new RowBand();
+        }
+        this.workers = parallelism == 1 ? null :
+                Executors.newFixedThreadPool(parallelism - 1, runnable -> {
+                    Thread thread = new Thread(runnable, "RgbaToYuvConverter");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Returns the bytes needed for a frame, whose dimensions must be even.
+     */
+    static int frameSize(int width, int height) {
+        return width * height * 3 / 2;
+    }
+
+    /**
+     * Converts a tightly packed RGBA frame into {@code output}, scaling it to the output size.
+     *
+     * @param width the output width, which must be even and no larger than the source width
+     * @param height the output height, which must be even and no larger than the source height
+     * @param layout {@link #I420} or {@link #NV21}
+     */
+    void convert(byte[] rgba, int sourceWidth, int sourceHeight, byte[] output, int width,
+                 int height, int layout) {
+        if ((width & 1) != 0 || (height & 1) != 0) {
+            throw new IllegalArgumentException("The output dimensions must be even");
+        }
+        if (output.length < frameSize(width, height)) {
+            throw new IllegalArgumentException("The output is too small for the frame");
+        }
+        prepareMaps(sourceWidth, sourceHeight, width, height);
+        this.source = rgba;
+        this.sourceWidth = sourceWidth;
+        this.output = output;
+        this.width = width;
+        this.height = height;
+        this.layout = layout;
+
+        int chromaRows = height / 2;
+        for (int i = 0; i < bands.length; i++) {
+            bands[i].firstChromaRow = chromaRows * i / bands.length;
+            bands[i].endChromaRow = chromaRows * (i + 1) / bands.length;
+        }
+        if (workers == null) {
+            convertRows(0, chromaRows);
+            return;
+        }
+        synchronized (this) {
+            pendingBands = bands.length - 1;
+        }
+        for (int i = 1; i < bands.length; i++) {
+            workers.execute(bands[i]);
+        }
+        bands[0].run();
+        synchronized (this) {
+            boolean interrupted = false;
+            while (pendingBands > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    // The workers still write into the output, so wait for them regardless
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    void release() {
+        if (workers != null) {
+            workers.shutdown();
+        }
+    }
+
+    private void convertRows(int firstChromaRow, int endChromaRow) {
+        final byte[] source = this.source;
+        final byte[] output = this.output;
+        final int[] columnMap = this.columnMap;
+        final int width = this.width;
+        final int sourceStride = sourceWidth * 4;
+        final int chromaWidth = width / 2;
+        final int uOffset = width * height;
+        final int vOffset = uOffset + chromaWidth * (height / 2);
+
+        for (int chromaRow = firstChromaRow; chromaRow < endChromaRow; chromaRow++) {
+            int y0 = 2 * chromaRow;
+            int topRow = rowMap[y0] * sourceStride;
+            int bottomRow = rowMap[y0 + 1] * sourceStride;
+            int topLuma = y0 * width;
+            int bottomLuma = topLuma + width;
+            int chromaIndex = layout == NV21 ?
+                    uOffset + chromaRow * width :
+                    chromaRow * chromaWidth;
+
+            for (int x = 0; x < width; x += 2) {
+                int left = columnMap[x] * 4;
+                int right = columnMap[x + 1] * 4;
+                int r0 = source[topRow + left] & 0xff;
+                int g0 = source[topRow + left + 1] & 0xff;
+                int b0 = source[topRow + left + 2] & 0xff;
+                int r1 = source[topRow + right] & 0xff;
+                int g1 = source[topRow + right + 1] & 0xff;
+                int b1 = source[topRow + right + 2] & 0xff;
+                int r2 = source[bottomRow + left] & 0xff;
+                int g2 = source[bottomRow + left + 1] & 0xff;
+                int b2 = source[bottomRow + left + 2] & 0xff;
+                int r3 = source[bottomRow + right] & 0xff;
+                int g3 = source[bottomRow + right + 1] & 0xff;
+                int b3 = source[bottomRow + right + 2] & 0xff;
+
+                output[topLuma + x] = luma(r0, g0, b0);
+                output[topLuma + x + 1] = luma(r1, g1, b1);
+                output[bottomLuma + x] = luma(r2, g2, b2);
+                output[bottomLuma + x + 1] = luma(r3, g3, b3);
+
+                int r = (r0 + r1 + r2 + r3 + 2) >> 2;
+                int g = (g0 + g1 + g2 + g3 + 2) >> 2;
+                int b = (b0 + b1 + b2 + b3 + 2) >> 2;
+                byte u = chromaU(r, g, b);
+                byte v = chromaV(r, g, b);
+                if (layout == NV21) {
+                    output[chromaIndex++] = v;
+                    output[chromaIndex++] = u;
+                } else {
+                    output[uOffset + chromaIndex] = u;
+                    output[vOffset + chromaIndex] = v;
+                    chromaIndex++;
+                }
+            }
+        }
+    }
+
+    static byte luma(int r, int g, int b) {
+        return (byte) (((66 * r + 129 * g + 25 * b + 128) >> 8) + 16);
+    }
+
+    static byte chromaU(int r, int g, int b) {
+        return (byte) (((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128);
+    }
+
+    static byte chromaV(int r, int g, int b) {
+        return (byte) (((112 * r - 94 * g - 18 * b + 128) >> 8) + 128);
+    }
+
+    private void prepareMaps(int sourceWidth, int sourceHeight, int width, int height) {
+        if (width > sourceWidth || height > sourceHeight) {
+            throw new IllegalArgumentException("Frames can only be scaled down");
+        }
+        if (columnMap.length == width && rowMap.length == height &&
+                mappedSourceWidth == sourceWidth && mappedSourceHeight == sourceHeight) {
+            return;
+        }
+        columnMap = new int[width];
+        rowMap = new int[height];
+        for (int x = 0; x < width; x++) {
+            columnMap[x] = (int) ((long) x * sourceWidth / width);
+        }
+        for (int y = 0; y < height; y++) {
+            rowMap[y] = (int) ((long) y * sourceHeight / height);
+        }
+        mappedSourceWidth = sourceWidth;
+        mappedSourceHeight = sourceHeight;
+    }
+
+    private final class RowBand implements Runnable {
+        int firstChromaRow;
+        int endChromaRow;
+
+        @Override
+        public void run() {
+            try {
+                convertRows(firstChromaRow, endChromaRow);
+            } finally {
+                if (this != bands[0]) {
+                    synchronized (RgbaToYuvConverter.this) {
+                        pendingBands--;
+                        RgbaToYuvConverter.this.notifyAll();
+                    }
+                }
+            }
+        }
+    }
+}
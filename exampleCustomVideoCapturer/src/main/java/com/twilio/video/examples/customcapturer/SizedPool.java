@@ -0,0 +1,90 @@
+package com.twilio.video.examples.customcapturer;
+
+/**
+ * SizedPool recycles objects whose size follows the size of a view, such as bitmaps and frame
+ * buffers. Items are handed out for the current size and returned with {@link #release}; once
+ * the view is resized the idle items of the old size are discarded and new ones allocated, so
+ * allocation only happens on resize or when more items are in flight than ever before. The pool
+ * is thread safe.
+ *
+ * @param <T> the pooled type
+ */
+final class SizedPool<T> {
+    /**
+     * Allocator creates items of a given size and frees the ones the pool lets go of.
+     */
+    interface Allocator<T> {
+        T allocate(int width, int height);
+
+        void discard(T item);
+    }
+
+    private final Allocator<T> allocator;
+    private final Object[] idleItems;
+    private int idleCount;
+    private int width;
+    private int height;
+    private long allocatedItems;
+
+    SizedPool(int maxIdleItems, Allocator<T> allocator) {
+        if (maxIdleItems <= 0) {
+            throw new IllegalArgumentException("The pool needs room for at least one item");
+        }
+        this.allocator = allocator;
+        this.idleItems = new Object[maxIdleItems];
+    }
+
+    /**
+     * Returns an idle item of the given size, or a new one if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized T acquire(int width, int height) {
+        if (width != this.width || height != this.height) {
+            discardIdleItems();
+            this.width = width;
+            this.height = height;
+        }
+        if (idleCount > 0) {
+            T item = (T) idleItems[--idleCount];
+            idleItems[idleCount] = null;
+            return item;
+        }
+        allocatedItems++;
+        return allocator.allocate(width, height);
+    }
+
+    /**
+     * Hands back an item acquired with the given size. Items of a size the pool has moved on
+     * from, or beyond the number of idle items kept, are discarded.
+     */
+    synchronized void release(T item, int width, int height) {
+        if (width != this.width || height != this.height || idleCount == idleItems.length) {
+            allocator.discard(item);
+            return;
+        }
+        idleItems[idleCount++] = item;
+    }
+
+    /**
+     * Discards every idle item, for example once capturing stops.
+     */
+    synchronized void clear() {
+        discardIdleItems();
+    }
+
+    synchronized long getAllocatedItems() {
+        return allocatedItems;
+    }
+
+    synchronized int getIdleItems() {
+        return idleCount;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void discardIdleItems() {
+        while (idleCount > 0) {
+            allocator.discard((T) idleItems[--idleCount]);
+            idleItems[idleCount] = null;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.twilio.video.examples.customcapturer;
+
+import java.util.Arrays;
+
+/**
+ * SyntheticFrameSource generates an endless sequence of test frames, so a pipeline can be loaded
+ * the same way on every run without a camera or a view:
+ *
+ * <ul>
+ *     <li>{@link #COLOR_BARS} repeats the same frame, like a static screen.</li>
+ *     <li>{@link #MOVING_BOX} moves a white box over the bars, so every frame changes a little,
+ *     like a typical call.</li>
+ *     <li>{@link #NOISE} fills every frame with pseudo random pixels, the worst case for an
+ *     encoder.</li>
+ * </ul>
+ *
+ * <p>The bars are rendered once per layout and copied into each frame, and the noise comes from a
+ * seeded xorshift generator, so frames are cheap to produce and identical across runs. Nothing is
+ * allocated per frame.
+ */
+final class SyntheticFrameSource implements FrameSource {
+    static final int COLOR_BARS = 0;
+    static final int MOVING_BOX = 1;
+    static final int NOISE = 2;
+
+    // 75% bars: white, yellow, cyan, green, magenta, red, blue and black
+    private static final int[][] BAR_COLORS = {
+            {191, 191, 191}, {191, 191, 0}, {0, 191, 191}, {0, 191, 0},
+            {191, 0, 191}, {191, 0, 0}, {0, 0, 191}, {0, 0, 0}
+    };
+    private static final long NOISE_SEED = 0x9e3779b97f4a7c15L;
+
+    private final int width;
+    private final int height;
+    private final int pattern;
+    private final int boxSize;
+    private byte[] bars = new byte[0];
+    private int barsLayout = -1;
+    private long frameIndex;
+    private long noiseState = NOISE_SEED;
+
+    SyntheticFrameSource(int width, int height, int pattern) {
+        if (width <= 0 || height <= 0 || (width & 1) != 0 || (height & 1) != 0) {
+            throw new IllegalArgumentException("The frame dimensions must be positive and even");
+        }
+        if (pattern < COLOR_BARS || pattern > NOISE) {
+            throw new IllegalArgumentException("Unknown pattern " + pattern);
+        }
+        this.width = width;
+        this.height = height;
+        this.pattern = pattern;
+        // Even, so the box covers whole chroma samples
+        this.boxSize = Math.max(2, Math.min(width, height) / 4 & ~1);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public boolean readFrame(byte[] frame, int layout) {
+        if (pattern == NOISE) {
+            fillNoise(frame);
+        } else {
+            if (barsLayout != layout) {
+                renderBars(layout);
+            }
+            System.arraycopy(bars, 0, frame, 0, bars.length);
+            if (pattern == MOVING_BOX) {
+                drawBox(frame, layout);
+            }
+        }
+        frameIndex++;
+        return true;
+    }
+
+    @Override
+    public void rewind() {
+        frameIndex = 0;
+        noiseState = NOISE_SEED;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private void renderBars(int layout) {
+        bars = new byte[RgbaToYuvConverter.frameSize(width, height)];
+        for (int x = 0; x < width; x++) {
+            int[] color = BAR_COLORS[x * BAR_COLORS.length / width];
+            bars[x] = RgbaToYuvConverter.luma(color[0], color[1], color[2]);
+        }
+        for (int y = 1; y < height; y++) {
+            System.arraycopy(bars, 0, bars, y * width, width);
+        }
+        for (int chromaRow = 0; chromaRow < height / 2; chromaRow++) {
+            for (int chromaColumn = 0; chromaColumn < width / 2; chromaColumn++) {
+                int[] color = BAR_COLORS[2 * chromaColumn * BAR_COLORS.length / width];
+                setChroma(bars, layout, chromaColumn, chromaRow,
+                        RgbaToYuvConverter.chromaU(color[0], color[1], color[2]),
+                        RgbaToYuvConverter.chromaV(color[0], color[1], color[2]));
+            }
+        }
+        barsLayout = layout;
+    }
+
+    /*
+     * The box bounces between the edges of the frame, moving two pixels per frame each way.
+     */
+    private void drawBox(byte[] frame, int layout) {
+        int left = bounce(2 * frameIndex, width - boxSize) & ~1;
+        int top = bounce(2 * frameIndex, height - boxSize) & ~1;
+        for (int y = top; y < top + boxSize; y++) {
+            Arrays.fill(frame, y * width + left, y * width + left + boxSize, (byte) 235);
+        }
+        for (int chromaRow = top / 2; chromaRow < (top + boxSize) / 2; chromaRow++) {
+            for (int chromaColumn = left / 2; chromaColumn < (left + boxSize) / 2;
+                 chromaColumn++) {
+                setChroma(frame, layout, chromaColumn, chromaRow, (byte) 128, (byte) 128);
+            }
+        }
+    }
+
+    private static int bounce(long position, int range) {
+        if (range <= 0) {
+            return 0;
+        }
+        int offset = (int) (position % (2L * range));
+        return offset <= range ? offset : 2 * range - offset;
+    }
+
+    private void fillNoise(byte[] frame) {
+        int size = RgbaToYuvConverter.frameSize(width, height);
+        long state = noiseState;
+        int i = 0;
+        // Eight pixels from each step of the generator
+        for (; i + 8 <= size; i += 8) {
+            state ^= state << 13;
+            state ^= state >>> 7;
+            state ^= state << 17;
+            long bits = state;
+            for (int j = 0; j < 8; j++) {
+                frame[i + j] = (byte) bits;
+                bits >>>= 8;
+            }
+        }
+        for (; i < size; i++) {
+            state ^= state << 13;
+            state ^= state >>> 7;
+            state ^= state << 17;
+            frame[i] = (byte) state;
+        }
+        noiseState = state;
+    }
+
+    private void setChroma(byte[] frame, int layout, int chromaColumn, int chromaRow, byte u,
+                           byte v) {
+        int lumaSize = width * height;
+        if (layout == RgbaToYuvConverter.NV21) {
+            int i = lumaSize + chromaRow * width + 2 * chromaColumn;
+            frame[i] = v;
+            frame[i + 1] = u;
+        } else {
+            int i = chromaRow * (width / 2) + chromaColumn;
+            frame[lumaSize + i] = u;
+            frame[lumaSize + lumaSize / 4 + i] = v;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.twilio.video.examples.customcapturer;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Picture;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.PixelCopy;
+import android.view.View;
+import android.view.Window;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ViewCaptureEngine turns the contents of a view into RGBA frames while keeping the main thread
+ * free of pixel work. On the main thread the view is only recorded into a {@link Picture}, its
+ * display list, which the capture thread then rasterizes into a bitmap. From Android O on the
+ * window contents can be copied with {@link PixelCopy} instead, which needs no drawing on the
+ * main thread at all and also captures hardware rendered content.
+ *
+ * <p>Pictures, bitmaps and frame buffers come from pools keyed by the view size, so nothing is
+ * allocated per frame once capturing has warmed up, and buffers are only reallocated when the
+ * view is resized. While {@link #MAX_PENDING_FRAMES} frames are still being processed new
+ * captures are dropped rather than queued. The last frame delivered is kept so it can be sent
+ * again with {@link #repeatLastFrame()} while the view does not change.
+ */
+final class ViewCaptureEngine {
+    static final int MAX_PENDING_FRAMES = 2;
+
+    /**
+     * FrameCallback receives the captured frames on the capture thread.
+     */
+    interface FrameCallback {
+        /**
+         * @param rgbaPixels the frame, tightly packed and only valid until the callback returns
+         * @param captureTimeNs the time the view was captured, on the elapsed realtime clock
+         */
+        void onFrame(ByteBuffer rgbaPixels, int width, int height, long captureTimeNs);
+    }
+
+    private final View view;
+    private final Handler captureHandler;
+    private final FrameCallback callback;
+    private final boolean usePixelCopy;
+    private final SizedPool<Picture> picturePool = new SizedPool<>(MAX_PENDING_FRAMES,
+            new SizedPool.Allocator<Picture>() {
+                @Override
+                public Picture allocate(int width, int height) {
+                    return new Picture();
+                }
+
+                @Override
+                public void discard(Picture picture) {
+                }
+            });
+    private final SizedPool<Bitmap> bitmapPool = new SizedPool<>(MAX_PENDING_FRAMES,
+            new SizedPool.Allocator<Bitmap>() {
+                @Override
+                public Bitmap allocate(int width, int height) {
+                    return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                }
+
+                @Override
+                public void discard(Bitmap bitmap) {
+                    bitmap.recycle();
+                }
+            });
+    // Heap buffers, so the backing array can be handed to a VideoFrame. One more than the
+    // frames in flight since the last frame is held on to.
+    private final SizedPool<ByteBuffer> bufferPool = new SizedPool<>(MAX_PENDING_FRAMES + 1,
+            new SizedPool.Allocator<ByteBuffer>() {
+                @Override
+                public ByteBuffer allocate(int width, int height) {
+                    return ByteBuffer.allocate(width * height * 4);
+                }
+
+                @Override
+                public void discard(ByteBuffer buffer) {
+                }
+            });
+    private final AtomicInteger pendingFrames = new AtomicInteger();
+    private final int[] locationInWindow = new int[2];
+    private final Rect sourceRect = new Rect();
+    private Window window;
+
+    // Only used on the capture thread
+    private final Canvas rasterCanvas = new Canvas();
+    private ByteBuffer lastFrame;
+    private int lastFrameWidth;
+    private int lastFrameHeight;
+
+    private volatile long capturedFrames;
+    private volatile long droppedFrames;
+
+    /**
+     * @param captureLooper the looper of the thread the pixels are extracted and delivered on
+     * @param usePixelCopy copy the window contents on Android O and later when the view is shown
+     *                     in an activity
+     */
+    ViewCaptureEngine(View view, Looper captureLooper, FrameCallback callback,
+                      boolean usePixelCopy) {
+        this.view = view;
+        this.captureHandler = new Handler(captureLooper);
+        this.callback = callback;
+        this.usePixelCopy = usePixelCopy && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O;
+    }
+
+    /**
+     * Captures the view as it looks now. Must be called on the main thread.
+     *
+     * @return false if the view has no size yet or the frame was dropped because the capture
+     * thread is still busy with earlier frames
+     */
+    boolean capture() {
+        int width = view.getWidth();
+        int height = view.getHeight();
+        if (width == 0 || height == 0) {
+            return false;
+        }
+        if (pendingFrames.incrementAndGet() > MAX_PENDING_FRAMES) {
+            pendingFrames.decrementAndGet();
+            droppedFrames++;
+            return false;
+        }
+        long captureTimeNs = TimeUnit.MILLISECONDS.toNanos(SystemClock.elapsedRealtime());
+        if (usePixelCopy && view.isShown() && findWindow() != null) {
+            requestPixelCopy(width, height, captureTimeNs);
+        } else {
+            recordPicture(width, height, captureTimeNs);
+        }
+        return true;
+    }
+
+    /**
+     * Delivers the last captured frame again, stamped with the current time. Does nothing if no
+     * frame has been captured yet.
+     */
+    void repeatLastFrame() {
+        captureHandler.post(() -> {
+            if (lastFrame == null) {
+                return;
+            }
+            lastFrame.rewind();
+            callback.onFrame(lastFrame, lastFrameWidth, lastFrameHeight,
+                    TimeUnit.MILLISECONDS.toNanos(SystemClock.elapsedRealtime()));
+        });
+    }
+
+    long getCapturedFrames() {
+        return capturedFrames;
+    }
+
+    /**
+     * Returns how many captures were dropped because the capture thread fell behind or the
+     * pixel copy failed.
+     */
+    long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * Frees the idle pooled bitmaps once the frames still in flight are done.
+     */
+    void release() {
+        captureHandler.post(() -> {
+            if (lastFrame != null) {
+                bufferPool.release(lastFrame, lastFrameWidth, lastFrameHeight);
+                lastFrame = null;
+            }
+            picturePool.clear();
+            bitmapPool.clear();
+            bufferPool.clear();
+        });
+    }
+
+    /*
+     * Recording only stores the drawing commands, the pixels are produced on the capture thread.
+     */
+    private void recordPicture(final int width, final int height, final long captureTimeNs) {
+        // A view that is not attached is never laid out by the view hierarchy
+        if (view.getWindowToken() == null) {
+            view.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+            view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        }
+        final Picture picture = picturePool.acquire(width, height);
+        Canvas canvas = picture.beginRecording(width, height);
+        view.draw(canvas);
+        picture.endRecording();
+
+        captureHandler.post(() -> {
+            Bitmap bitmap = bitmapPool.acquire(width, height);
+            bitmap.eraseColor(Color.TRANSPARENT);
+            rasterCanvas.setBitmap(bitmap);
+            rasterCanvas.drawPicture(picture);
+            rasterCanvas.setBitmap(null);
+            picturePool.release(picture, width, height);
+            deliver(bitmap, width, height, captureTimeNs);
+        });
+    }
+
+    @TargetApi(Build.VERSION_CODES.O)
+    private void requestPixelCopy(final int width, final int height, final long captureTimeNs) {
+        view.getLocationInWindow(locationInWindow);
+        sourceRect.set(locationInWindow[0], locationInWindow[1], locationInWindow[0] + width,
+                locationInWindow[1] + height);
+        final Bitmap bitmap = bitmapPool.acquire(width, height);
+        PixelCopy.request(window, sourceRect, bitmap, result -> {
+            if (result == PixelCopy.SUCCESS) {
+                deliver(bitmap, width, height, captureTimeNs);
+            } else {
+                bitmapPool.release(bitmap, width, height);
+                pendingFrames.decrementAndGet();
+                droppedFrames++;
+            }
+        }, captureHandler);
+    }
+
+    private void deliver(Bitmap bitmap, int width, int height, long captureTimeNs) {
+        ByteBuffer buffer = bufferPool.acquire(width, height);
+        buffer.clear();
+        bitmap.copyPixelsToBuffer(buffer);
+        bitmapPool.release(bitmap, width, height);
+        buffer.rewind();
+        try {
+            callback.onFrame(buffer, width, height, captureTimeNs);
+            capturedFrames++;
+        } finally {
+            if (lastFrame != null) {
+                bufferPool.release(lastFrame, lastFrameWidth, lastFrameHeight);
+            }
+            lastFrame = buffer;
+            lastFrameWidth = width;
+            lastFrameHeight = height;
+            pendingFrames.decrementAndGet();
+        }
+    }
+
+    private Window findWindow() {
+        if (window == null) {
+            Context context = view.getContext();
+            while (context instanceof ContextWrapper) {
+                if (context instanceof Activity) {
+                    window = ((Activity) context).getWindow();
+                    break;
+                }
+                context = ((ContextWrapper) context).getBaseContext();
+            }
+        }
+        return window;
+    }
+}
@@ -1,10 +1,8 @@
 package com.twilio.video.examples.customcapturer;
 
-import android.graphics.Bitmap;
-import android.graphics.Canvas;
+import android.os.Build;
 import android.os.Handler;
-import android.os.Looper;
-import android.os.SystemClock;
+import android.os.HandlerThread;
 import android.view.View;
 
 import com.twilio.video.VideoCapturer;
@@ -16,82 +14,112 @@ import com.twilio.video.VideoPixelFormat;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * ViewCapturer demonstrates how to implement a custom {@link VideoCapturer}. This class
  * captures the contents of a provided view and signals the {@link VideoCapturer.Listener} when
  * the frame is available.
+ *
+ * <p>The main thread only records the view when it is captured. The pixels are extracted into
+ * pooled buffers by a {@link ViewCaptureEngine} on a capture thread, which also delivers the
+ * frames.
+ *
+ * <p>Rather than capturing on a fixed timer, a {@link ViewChangeScheduler} listens for the window
+ * being drawn and only captures when the view has actually changed, at most at the frame rate
+ * requested in {@link #startCapture}. While the view stays the same the last frame is repeated
+ * once every {@link #KEEP_ALIVE_INTERVAL_MS}. {@link #getMetrics()} reports how frames were
+ * produced.
+ *
+ * <p>Frames are handed to the SDK as RGBA by default. With YUV output they are converted to NV21
+ * on the capture thread first, and optionally scaled down, so the SDK receives 1.5 bytes per
+ * pixel and does not have to convert them itself.
  */
 public class ViewCapturer implements VideoCapturer {
-    private static final int VIEW_CAPTURER_FRAMERATE_MS = 100;
+    public static final long KEEP_ALIVE_INTERVAL_MS = 1000;
+    private static final int DEFAULT_FRAMERATE = 30;
+    private static final int CONVERSION_PARALLELISM =
+            Math.min(4, Runtime.getRuntime().availableProcessors());
 
     private final View view;
-    private Handler handler = new Handler(Looper.getMainLooper());
+    private final boolean usePixelCopy;
+    private final boolean yuvOutput;
+    private final VideoDimensions maxOutputDimensions;
     private VideoCapturer.Listener videoCapturerListener;
     private AtomicBoolean started = new AtomicBoolean(false);
-    private final Runnable viewCapturer = new Runnable() {
-        @Override
-        public void run() {
-            boolean dropFrame = view.getWidth() == 0 || view.getHeight() == 0;
-
-            // Only capture the view if the dimensions have been established
-            if (!dropFrame) {
-                // Draw view into bitmap backed canvas
-                int measuredWidth = View.MeasureSpec.makeMeasureSpec(view.getWidth(),
-                        View.MeasureSpec.EXACTLY);
-                int measuredHeight = View.MeasureSpec.makeMeasureSpec(view.getHeight(),
-                        View.MeasureSpec.EXACTLY);
-                view.measure(measuredWidth, measuredHeight);
-                view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
-
-                Bitmap viewBitmap = Bitmap.createBitmap(view.getWidth(), view.getHeight(),
-                        Bitmap.Config.ARGB_8888);
-                Canvas viewCanvas = new Canvas(viewBitmap);
-                view.draw(viewCanvas);
-
-                // Extract the frame from the bitmap
-                int bytes = viewBitmap.getByteCount();
-                ByteBuffer buffer = ByteBuffer.allocate(bytes);
-                viewBitmap.copyPixelsToBuffer(buffer);
-                byte[] array = buffer.array();
-                final long captureTimeNs =
-                        TimeUnit.MILLISECONDS.toNanos(SystemClock.elapsedRealtime());
-
-                // Create video frame
-                VideoDimensions dimensions = new VideoDimensions(view.getWidth(), view.getHeight());
-                VideoFrame videoFrame = new VideoFrame(array,
-                        dimensions, VideoFrame.RotationAngle.ROTATION_0, captureTimeNs);
-
-                // Notify the listener
-                if (started.get()) {
-                    videoCapturerListener.onFrameCaptured(videoFrame);
+    private HandlerThread captureThread;
+    private ViewCaptureEngine captureEngine;
+    private ViewChangeScheduler viewChangeScheduler;
+    private final FrameRateMeter frameRateMeter = new FrameRateMeter();
+    private volatile long repeatedFrames;
+    private volatile long skippedUnchangedFrames;
+    private volatile RgbaToYuvConverter yuvConverter;
+    // Only touched on the capture thread
+    private VideoDimensions frameDimensions;
+    private byte[] yuvFrame = new byte[0];
+    private int yuvSourceWidth;
+    private int yuvSourceHeight;
+    private final ViewChangeScheduler.Callback captureCallback =
+            new ViewChangeScheduler.Callback() {
+                @Override
+                public boolean onCapture() {
+                    return captureEngine.capture();
                 }
-            }
 
-            // Schedule the next capture
-            if (started.get()) {
-                handler.postDelayed(this, VIEW_CAPTURER_FRAMERATE_MS);
-            }
-        }
-    };
+                @Override
+                public void onRepeat() {
+                    captureEngine.repeatLastFrame();
+                    repeatedFrames++;
+                }
+
+                @Override
+                public void onUnchangedDraw() {
+                    skippedUnchangedFrames++;
+                }
+            };
 
     public ViewCapturer(View view) {
+        this(view, false);
+    }
+
+    /**
+     * @param usePixelCopy copy the window contents with PixelCopy on Android O and later instead
+     *                     of drawing the view. This also captures hardware rendered content such
+     *                     as a TextureView, but only while the view is on screen and anything
+     *                     overlapping it is captured too.
+     */
+    public ViewCapturer(View view, boolean usePixelCopy) {
+        this(view, usePixelCopy, false, null);
+    }
+
+    /**
+     * @param usePixelCopy see {@link #ViewCapturer(View, boolean)}
+     * @param yuvOutput convert frames to NV21 before handing them to the SDK
+     * @param maxOutputDimensions YUV frames are scaled down to fit within these dimensions,
+     *                            or keep the size of the view if null
+     */
+    public ViewCapturer(View view, boolean usePixelCopy, boolean yuvOutput,
+                        VideoDimensions maxOutputDimensions) {
         this.view = view;
+        this.usePixelCopy = usePixelCopy;
+        this.yuvOutput = yuvOutput;
+        this.maxOutputDimensions = maxOutputDimensions;
     }
 
     /**
-     * Returns the list of supported formats for this view capturer. Currently, only supports
-     * capturing to RGBA_8888 bitmaps.
+     * Returns the list of supported formats for this view capturer. Supports capturing to
+     * RGBA_8888 bitmaps, or NV21 when converting to YUV.
      *
      * @return list of supported formats.
      */
     @Override
     public List<VideoFormat> getSupportedFormats() {
         List<VideoFormat> videoFormats = new ArrayList<>();
-        VideoDimensions videoDimensions = new VideoDimensions(view.getWidth(), view.getHeight());
-        VideoFormat videoFormat = new VideoFormat(videoDimensions, 30, VideoPixelFormat.RGBA_8888);
+        VideoDimensions videoDimensions = yuvOutput ?
+                yuvDimensions(view.getWidth(), view.getHeight()) :
+                new VideoDimensions(view.getWidth(), view.getHeight());
+        VideoFormat videoFormat = new VideoFormat(videoDimensions, 30, yuvOutput ?
+                VideoPixelFormat.NV21 : VideoPixelFormat.RGBA_8888);
 
         videoFormats.add(videoFormat);
 
@@ -106,21 +134,48 @@ public class ViewCapturer implements VideoCapturer {
         return true;
     }
 
+    /**
+     * Returns how frames have been produced since capturing last started.
+     */
+    public CaptureMetrics getMetrics() {
+        ViewCaptureEngine engine = captureEngine;
+        return new CaptureMetrics(engine != null ? engine.getCapturedFrames() : 0,
+                repeatedFrames,
+                skippedUnchangedFrames,
+                engine != null ? engine.getDroppedFrames() : 0,
+                frameRateMeter.getFramesPerSecond(System.nanoTime()));
+    }
+
     /**
      * This will be invoked when it is time to start capturing frames.
      *
-     * @param videoFormat the video format of the frames to be captured.
+     * @param videoFormat the video format of the frames to be captured, whose frame rate is the
+     *                    most the view is captured at.
      * @param listener capturer listener.
      */
     @Override
     public void startCapture(VideoFormat videoFormat, Listener listener) {
         // Store the capturer listener
         this.videoCapturerListener = listener;
+        int maxFps = videoFormat != null && videoFormat.framerate > 0 ?
+                videoFormat.framerate : DEFAULT_FRAMERATE;
+        repeatedFrames = 0;
+        skippedUnchangedFrames = 0;
+        frameRateMeter.reset();
+        if (yuvOutput) {
+            yuvConverter = new RgbaToYuvConverter(CONVERSION_PARALLELISM);
+        }
+        captureThread = new HandlerThread("ViewCapturer");
+        captureThread.start();
+        captureEngine = new ViewCaptureEngine(view, captureThread.getLooper(), this::onFrame,
+                usePixelCopy);
+        viewChangeScheduler = new ViewChangeScheduler(view,
+                new AdaptiveCaptureScheduler(maxFps, KEEP_ALIVE_INTERVAL_MS), true,
+                captureCallback);
         this.started.set(true);
 
         // Notify capturer API that the capturer has started
-        boolean capturerStarted = handler.postDelayed(viewCapturer,
-                VIEW_CAPTURER_FRAMERATE_MS);
+        boolean capturerStarted = viewChangeScheduler.start();
         this.videoCapturerListener.onCapturerStarted(capturerStarted);
     }
 
@@ -130,6 +185,75 @@ public class ViewCapturer implements VideoCapturer {
     @Override
     public void stopCapture() {
         this.started.set(false);
-        handler.removeCallbacks(viewCapturer);
+        if (viewChangeScheduler != null) {
+            viewChangeScheduler.stop();
+            viewChangeScheduler = null;
+        }
+        if (captureThread != null) {
+            captureEngine.release();
+            if (yuvConverter != null) {
+                // Stop the conversion workers after the frames still in flight
+                new Handler(captureThread.getLooper()).post(yuvConverter::release);
+                yuvConverter = null;
+            }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+                captureThread.quitSafely();
+            } else {
+                captureThread.quit();
+            }
+            captureThread = null;
+        }
+    }
+
+    /*
+     * Runs on the capture thread. The SDK copies the frame before onFrameCaptured returns, so
+     * the pixels go straight back to the pool afterwards.
+     */
+    private void onFrame(ByteBuffer rgbaPixels, int width, int height, long captureTimeNs) {
+        RgbaToYuvConverter converter = yuvConverter;
+        if (!started.get()) {
+            return;
+        }
+        byte[] frame = rgbaPixels.array();
+        int frameWidth = width;
+        int frameHeight = height;
+        if (converter != null) {
+            if (frameDimensions == null || yuvSourceWidth != width ||
+                    yuvSourceHeight != height) {
+                frameDimensions = yuvDimensions(width, height);
+                yuvSourceWidth = width;
+                yuvSourceHeight = height;
+            }
+            frameWidth = frameDimensions.width;
+            frameHeight = frameDimensions.height;
+            int frameSize = RgbaToYuvConverter.frameSize(frameWidth, frameHeight);
+            if (yuvFrame.length != frameSize) {
+                yuvFrame = new byte[frameSize];
+            }
+            converter.convert(frame, width, height, yuvFrame, frameWidth, frameHeight,
+                    RgbaToYuvConverter.NV21);
+            frame = yuvFrame;
+        } else if (frameDimensions == null || frameDimensions.width != width ||
+                frameDimensions.height != height) {
+            frameDimensions = new VideoDimensions(width, height);
+        }
+        VideoFrame videoFrame = new VideoFrame(frame, frameDimensions,
+                VideoFrame.RotationAngle.ROTATION_0, captureTimeNs);
+        videoCapturerListener.onFrameCaptured(videoFrame);
+        frameRateMeter.record(System.nanoTime());
+    }
+
+    /*
+     * The view size scaled down to fit the maximum output dimensions, rounded down to even
+     * dimensions as 4:2:0 chroma needs.
+     */
+    private VideoDimensions yuvDimensions(int viewWidth, int viewHeight) {
+        float scale = 1;
+        if (maxOutputDimensions != null) {
+            scale = Math.min(scale, Math.min((float) maxOutputDimensions.width / viewWidth,
+                    (float) maxOutputDimensions.height / viewHeight));
+        }
+        return new VideoDimensions(Math.max(2, (int) (viewWidth * scale) & ~1),
+                Math.max(2, (int) (viewHeight * scale) & ~1));
     }
 }
@@ -0,0 +1,134 @@
+package com.twilio.video.examples.customcapturer;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ViewChangeScheduler captures a view on the main thread whenever it changes, as decided by an
+ * {@link AdaptiveCaptureScheduler}. It listens for the window being drawn, and only a draw that
+ * marked the view dirty schedules a capture. A view that is not attached is never drawn by the
+ * window, so it is captured as if it changed every time instead.
+ *
+ * <p>A scheduler is started once and stopped once; create a new one to capture again.
+ */
+final class ViewChangeScheduler {
+    /**
+     * Callback runs on the main thread.
+     */
+    interface Callback {
+        /**
+         * Captures the view.
+         *
+         * @return false if no frame could be captured, in which case the capture is retried
+         */
+        boolean onCapture();
+
+        /**
+         * Repeats the last frame, since the view stayed the same for the keep-alive interval.
+         */
+        void onRepeat();
+
+        /**
+         * Called for draws of the window that left the view unchanged.
+         */
+        void onUnchangedDraw();
+    }
+
+    private final View view;
+    private final AdaptiveCaptureScheduler captureScheduler;
+    private final boolean keepAlive;
+    private final Callback callback;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private volatile boolean started;
+    private final Runnable poller = new Runnable() {
+        @Override
+        public void run() {
+            if (!started) {
+                return;
+            }
+            long now = System.nanoTime();
+            switch (captureScheduler.poll(now)) {
+                case AdaptiveCaptureScheduler.CAPTURE:
+                    // Frames are dropped until the dimensions have been established
+                    if (!callback.onCapture()) {
+                        captureScheduler.onContentChanged();
+                    }
+                    break;
+                case AdaptiveCaptureScheduler.REPEAT:
+                    if (keepAlive) {
+                        callback.onRepeat();
+                    }
+                    break;
+            }
+            // A view that is not attached is never drawn by the window, so keep capturing it
+            if (view.getWindowToken() == null) {
+                captureScheduler.onContentChanged();
+            }
+            // Otherwise the next draw that changes the view brings the next capture forward
+            if (keepAlive || captureScheduler.isContentChanged()) {
+                schedulePoll(captureScheduler.getNextPollDelayNanos(now));
+            }
+        }
+    };
+    /*
+     * Called before every draw of the window. Only changes to the captured view, which mark it
+     * dirty, lead to a capture.
+     */
+    private final ViewTreeObserver.OnDrawListener drawListener = () -> {
+        if (!started) {
+            return;
+        }
+        if (view.isDirty()) {
+            captureScheduler.onContentChanged();
+            // Posted so the view is captured after this draw rather than during it
+            schedulePoll(captureScheduler.getNextPollDelayNanos(System.nanoTime()));
+        } else {
+            callback.onUnchangedDraw();
+        }
+    };
+
+    /**
+     * @param keepAlive repeat the last frame every keep-alive interval of the capture scheduler
+     *                  while the view stays the same, rather than only capturing on changes
+     */
+    ViewChangeScheduler(View view, AdaptiveCaptureScheduler captureScheduler, boolean keepAlive,
+                        Callback callback) {
+        this.view = view;
+        this.captureScheduler = captureScheduler;
+        this.keepAlive = keepAlive;
+        this.callback = callback;
+    }
+
+    /**
+     * Starts listening for draws and captures the view right away, both on the main thread.
+     *
+     * @return false if the main thread is not running
+     */
+    boolean start() {
+        started = true;
+        return handler.post(() -> {
+            if (started) {
+                view.getViewTreeObserver().addOnDrawListener(drawListener);
+                poller.run();
+            }
+        });
+    }
+
+    void stop() {
+        started = false;
+        handler.removeCallbacks(poller);
+        // The listener may only be removed on the main thread, like it was added
+        handler.post(() -> view.getViewTreeObserver().removeOnDrawListener(drawListener));
+    }
+
+    private void schedulePoll(long delayNanos) {
+        handler.removeCallbacks(poller);
+        // Round up so a rate limited capture is not polled too early
+        handler.postDelayed(poller, (delayNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1) /
+                TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,191 @@
+package com.twilio.video.examples.customcapturer;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * YuvFileFrameSource plays back raw video, either a YUV4MPEG2 (.y4m) file with 4:2:0 chroma or a
+ * headerless file of I420 frames of a known size. Frames are read straight into the caller's
+ * buffer; for NV21 the chroma planes go through one reused scratch buffer to be interleaved.
+ */
+final class YuvFileFrameSource implements FrameSource {
+    private static final String Y4M_SIGNATURE = "YUV4MPEG2";
+    private static final byte[] Y4M_FRAME_SIGNATURE = {'F', 'R', 'A', 'M', 'E'};
+    private static final int MAX_HEADER_LENGTH = 1024;
+
+    private final RandomAccessFile file;
+    private final int width;
+    private final int height;
+    private final double frameRate;
+    private final boolean y4m;
+    private final long firstFrameOffset;
+    private final byte[] frameSignature = new byte[Y4M_FRAME_SIGNATURE.length];
+    private byte[] chromaScratch = new byte[0];
+
+    /**
+     * Opens a YUV4MPEG2 file, whose header gives the frame size and rate.
+     */
+    static YuvFileFrameSource openY4m(File file) throws IOException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            String header = readLine(input);
+            String[] params = header.split(" ");
+            if (!params[0].equals(Y4M_SIGNATURE)) {
+                throw new IOException("Not a YUV4MPEG2 file: " + file);
+            }
+            int width = 0;
+            int height = 0;
+            double frameRate = 0;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i];
+                if (param.isEmpty()) {
+                    continue;
+                }
+                String value = param.substring(1);
+                switch (param.charAt(0)) {
+                    case 'W':
+                        width = Integer.parseInt(value);
+                        break;
+                    case 'H':
+                        height = Integer.parseInt(value);
+                        break;
+                    case 'F':
+                        String[] ratio = value.split(":");
+                        frameRate = Double.parseDouble(ratio[0]) / Double.parseDouble(ratio[1]);
+                        break;
+                    case 'C':
+                        if (!value.startsWith("420")) {
+                            throw new IOException("Unsupported chroma subsampling " + value);
+                        }
+                        break;
+                }
+            }
+            return new YuvFileFrameSource(input, width, height, frameRate, true,
+                    input.getFilePointer());
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            input.close();
+            throw new IOException("Malformed YUV4MPEG2 header in " + file, e);
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a file of back to back I420 frames of the given size.
+     */
+    static YuvFileFrameSource openI420(File file, int width, int height) throws IOException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            return new YuvFileFrameSource(input, width, height, 0, false, 0);
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    private YuvFileFrameSource(RandomAccessFile file, int width, int height, double frameRate,
+                               boolean y4m, long firstFrameOffset) throws IOException {
+        if (width <= 0 || height <= 0 || (width & 1) != 0 || (height & 1) != 0) {
+            throw new IOException(String.format("Unsupported frame size %dx%d, the dimensions " +
+                    "must be positive and even", width, height));
+        }
+        this.file = file;
+        this.width = width;
+        this.height = height;
+        this.frameRate = frameRate;
+        this.y4m = y4m;
+        this.firstFrameOffset = firstFrameOffset;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the frame rate given by the file, or 0 if it does not give one.
+     */
+    double getFrameRate() {
+        return frameRate;
+    }
+
+    @Override
+    public boolean readFrame(byte[] frame, int layout) throws IOException {
+        if (file.getFilePointer() >= file.length()) {
+            return false;
+        }
+        if (y4m) {
+            file.readFully(frameSignature);
+            for (int i = 0; i < frameSignature.length; i++) {
+                if (frameSignature[i] != Y4M_FRAME_SIGNATURE[i]) {
+                    throw new IOException("Missing frame header");
+                }
+            }
+            // Frame parameters are not used
+            skipLine(file);
+        }
+        int lumaSize = width * height;
+        file.readFully(frame, 0, lumaSize);
+        if (layout == RgbaToYuvConverter.NV21) {
+            int chromaSize = lumaSize / 2;
+            if (chromaScratch.length != chromaSize) {
+                chromaScratch = new byte[chromaSize];
+            }
+            file.readFully(chromaScratch);
+            int planeSize = lumaSize / 4;
+            for (int i = 0; i < planeSize; i++) {
+                frame[lumaSize + 2 * i] = chromaScratch[planeSize + i];
+                frame[lumaSize + 2 * i + 1] = chromaScratch[i];
+            }
+        } else {
+            file.readFully(frame, lumaSize, lumaSize / 2);
+        }
+        return true;
+    }
+
+    @Override
+    public void rewind() throws IOException {
+        file.seek(firstFrameOffset);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private static String readLine(RandomAccessFile input) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = input.read()) != '\n') {
+            if (b < 0) {
+                throw new EOFException();
+            }
+            if (line.length() == MAX_HEADER_LENGTH) {
+                throw new IOException("Header too long");
+            }
+            line.append((char) b);
+        }
+        return line.toString();
+    }
+
+    private static void skipLine(RandomAccessFile input) throws IOException {
+        for (int length = 0; length <= MAX_HEADER_LENGTH; length++) {
+            int b = input.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            if (b == '\n') {
+                return;
+            }
+        }
+        throw new IOException("Header too long");
+    }
+}
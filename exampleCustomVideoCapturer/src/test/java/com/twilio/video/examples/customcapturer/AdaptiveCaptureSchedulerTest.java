@@ -0,0 +1,63 @@
+package com.twilio.video.examples.customcapturer;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.twilio.video.examples.customcapturer.AdaptiveCaptureScheduler.CAPTURE;
+import static com.twilio.video.examples.customcapturer.AdaptiveCaptureScheduler.NONE;
+import static com.twilio.video.examples.customcapturer.AdaptiveCaptureScheduler.REPEAT;
+import static org.junit.Assert.assertEquals;
+
+public class AdaptiveCaptureSchedulerTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AdaptiveCaptureScheduler scheduler = new AdaptiveCaptureScheduler(20, 1000);
+
+    @Test
+    public void capturesTheFirstFrameRightAway() {
+        assertEquals(0, scheduler.getNextPollDelayNanos(0));
+        assertEquals(CAPTURE, scheduler.poll(5 * MS));
+        assertEquals(NONE, scheduler.poll(100 * MS));
+    }
+
+    @Test
+    public void limitsChangesToTheFrameRate() {
+        scheduler.poll(0);
+        scheduler.onContentChanged();
+        assertEquals(NONE, scheduler.poll(10 * MS));
+        assertEquals(40 * MS, scheduler.getNextPollDelayNanos(10 * MS));
+
+        // Changes within one interval are coalesced into one capture
+        scheduler.onContentChanged();
+        assertEquals(CAPTURE, scheduler.poll(50 * MS));
+        assertEquals(NONE, scheduler.poll(120 * MS));
+    }
+
+    @Test
+    public void repeatsTheLastFrameWhileIdle() {
+        scheduler.poll(0);
+        assertEquals(1000 * MS, scheduler.getNextPollDelayNanos(0));
+        assertEquals(NONE, scheduler.poll(999 * MS));
+        assertEquals(REPEAT, scheduler.poll(1000 * MS));
+        assertEquals(NONE, scheduler.poll(1500 * MS));
+        assertEquals(REPEAT, scheduler.poll(2100 * MS));
+
+        // A change after a repeat still waits for the frame interval
+        scheduler.onContentChanged();
+        assertEquals(NONE, scheduler.poll(2120 * MS));
+        assertEquals(CAPTURE, scheduler.poll(2150 * MS));
+    }
+
+    @Test
+    public void capturesAgainAfterReset() {
+        scheduler.poll(0);
+        scheduler.reset();
+        assertEquals(CAPTURE, scheduler.poll(MS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveFrameRates() {
+        new AdaptiveCaptureScheduler(0, 1000);
+    }
+}
@@ -0,0 +1,25 @@
+package com.twilio.video.examples.customcapturer;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Benchmarks holds what the *Benchmark classes share. Their numbers describe the machine they run
+ * on as much as the code, so the unit test task only runs them when Gradle is invoked with
+ * {@code -Pbenchmarks}.
+ */
+final class Benchmarks {
+    private Benchmarks() {
+    }
+
+    static void report(String format, Object... args) {
+        System.out.println(String.format(format, args));
+    }
+
+    /*
+     * Querying the counter allocates a little itself, so checks built on it need some slack.
+     */
+    static long threadAllocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,29 @@
+package com.twilio.video.examples.customcapturer;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static com.twilio.video.examples.customcapturer.Benchmarks.threadAllocatedBytes;
+import static org.junit.Assert.assertTrue;
+
+public class FramePumpBenchmark {
+    @Test
+    public void steadyStateDoesNotAllocate() throws IOException {
+        FramePump pump = new FramePump(new SyntheticFrameSource(1280, 720,
+                SyntheticFrameSource.MOVING_BOX), 30, RgbaToYuvConverter.NV21, true,
+                (frame, width, height, timestampNs) -> {
+                });
+        pump.pumpFrames(10);
+
+        int frames = 100;
+        long allocatedBefore = threadAllocatedBytes();
+        pump.pumpFrames(frames);
+        long allocated = threadAllocatedBytes() - allocatedBefore;
+
+        Benchmarks.report("FramePump 1280x720 moving box: %.3f ms to read a frame, %d bytes " +
+                        "allocated per frame", pump.getReadTime().getAverageMillis(),
+                allocated / frames);
+        assertTrue(allocated < 1024);
+    }
+}
@@ -0,0 +1,136 @@
+package com.twilio.video.examples.customcapturer;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class FramePumpTest {
+    @Test
+    public void pumpsFramesUnpacedOnTheCallingThread() throws IOException {
+        List<byte[]> frames = new ArrayList<>();
+        FramePump pump = new FramePump(new SyntheticFrameSource(32, 16,
+                SyntheticFrameSource.MOVING_BOX), 30, RgbaToYuvConverter.I420, false,
+                (frame, width, height, timestampNs) -> {
+                    assertEquals(32, width);
+                    assertEquals(16, height);
+                    frames.add(frame);
+                });
+
+        assertEquals(5, pump.pumpFrames(5));
+
+        assertEquals(5, pump.getEmittedFrames());
+        // Every frame is read into the same buffer
+        for (byte[] frame : frames) {
+            assertSame(frames.get(0), frame);
+        }
+    }
+
+    @Test
+    public void stopsOrLoopsWhenTheSourceRunsOut() throws IOException {
+        assertEquals(3, new FramePump(new FiniteSource(3), 30, RgbaToYuvConverter.I420, false,
+                (frame, width, height, timestampNs) -> {
+                }).pumpFrames(10));
+        FiniteSource source = new FiniteSource(3);
+        assertEquals(10, new FramePump(source, 30, RgbaToYuvConverter.I420, true,
+                (frame, width, height, timestampNs) -> {
+                }).pumpFrames(10));
+        assertEquals(3, source.rewinds);
+    }
+
+    @Test
+    public void pacesFramesOnAFixedGrid() {
+        long interval = TimeUnit.MILLISECONDS.toNanos(10);
+        long start = TimeUnit.SECONDS.toNanos(1);
+        FakeClock clock = new FakeClock(start);
+        List<Long> timestamps = new ArrayList<>();
+        FramePump pump = new FramePump(new FiniteSource(10), 100, RgbaToYuvConverter.I420, false,
+                (frame, width, height, timestampNs) -> {
+                    timestamps.add(timestampNs - start);
+                    // The fourth frame holds the sink up for three and a half intervals
+                    if (timestamps.size() == 4) {
+                        clock.now += interval * 7 / 2;
+                    }
+                }, clock);
+
+        pump.runPaced();
+
+        assertFalse(pump.isRunning());
+        assertNull(pump.getError());
+        // The frames missed meanwhile are skipped, the rest stay on the grid
+        long[] expected = {0, 1, 2, 3, 6, 7, 8, 9, 10, 11};
+        assertEquals(expected.length, timestamps.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i] * interval, (long) timestamps.get(i));
+        }
+        assertEquals(10, pump.getEmittedFrames());
+        assertEquals(2, pump.getSkippedFrames());
+        assertEquals(5, pump.getLateness().getMaxMillis(), 0);
+    }
+
+    /*
+     * A clock that only moves when the pump sleeps, or when a test moves it.
+     */
+    private static final class FakeClock implements FramePump.Clock {
+        long now;
+
+        FakeClock(long now) {
+            this.now = now;
+        }
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+
+        @Override
+        public void sleep(long nanos) {
+            now += nanos;
+        }
+    }
+
+    /*
+     * A source of a few blank frames.
+     */
+    private static final class FiniteSource implements FrameSource {
+        private final int frames;
+        private int position;
+        int rewinds;
+
+        FiniteSource(int frames) {
+            this.frames = frames;
+        }
+
+        @Override
+        public int getWidth() {
+            return 2;
+        }
+
+        @Override
+        public int getHeight() {
+            return 2;
+        }
+
+        @Override
+        public boolean readFrame(byte[] frame, int layout) {
+            return position++ < frames;
+        }
+
+        @Override
+        public void rewind() {
+            position = 0;
+            rewinds++;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.twilio.video.examples.customcapturer;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class FrameRateMeterTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void measuresTheRecentFrameRate() {
+        FrameRateMeter meter = new FrameRateMeter();
+        assertEquals(0, meter.getFramesPerSecond(0), 0);
+        for (int i = 0; i <= 30; i++) {
+            meter.record(i * 33 * MS);
+        }
+
+        assertEquals(30.3, meter.getFramesPerSecond(1000 * MS), 0.1);
+    }
+
+    @Test
+    public void forgetsFramesOutsideTheWindow() {
+        FrameRateMeter meter = new FrameRateMeter();
+        // A burst at 30 fps, then keep-alive frames once a second
+        for (int i = 0; i < 30; i++) {
+            meter.record(i * 33 * MS);
+        }
+        for (int i = 2; i <= 6; i++) {
+            meter.record(i * 1000 * MS);
+        }
+
+        assertEquals(1, meter.getFramesPerSecond(6000 * MS), 0.01);
+        assertEquals(0, meter.getFramesPerSecond(20000 * MS), 0);
+    }
+
+    @Test
+    public void keepsUpWithHighFrameRates() {
+        FrameRateMeter meter = new FrameRateMeter();
+        for (int i = 0; i < 1000; i++) {
+            meter.record(i * 10 * MS);
+        }
+
+        assertEquals(100, meter.getFramesPerSecond(10000 * MS), 0.01);
+        meter.reset();
+        assertEquals(0, meter.getFramesPerSecond(10000 * MS), 0);
+    }
+}
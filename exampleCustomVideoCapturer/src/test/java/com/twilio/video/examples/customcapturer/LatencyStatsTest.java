@@ -0,0 +1,30 @@
+package com.twilio.video.examples.customcapturer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencyStatsTest {
+    @Test
+    public void reportsAverageAndMaximum() {
+        LatencyStats stats = new LatencyStats();
+        assertEquals(0, stats.getAverageMillis(), 0);
+
+        stats.record(1000000);
+        stats.record(3000000);
+
+        assertEquals(2, stats.getAverageMillis(), 1e-9);
+        assertEquals(3, stats.getMaxMillis(), 1e-9);
+    }
+
+    @Test
+    public void resetForgetsEarlierDurations() {
+        LatencyStats stats = new LatencyStats();
+        stats.record(5000000);
+        stats.reset();
+        stats.record(1000000);
+
+        assertEquals(1, stats.getAverageMillis(), 1e-9);
+        assertEquals(1, stats.getMaxMillis(), 1e-9);
+    }
+}
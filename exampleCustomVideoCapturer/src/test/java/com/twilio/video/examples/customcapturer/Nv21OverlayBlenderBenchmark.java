@@ -0,0 +1,40 @@
+package com.twilio.video.examples.customcapturer;
+
+import org.junit.Test;
+
+import static com.twilio.video.examples.customcapturer.Benchmarks.threadAllocatedBytes;
+import static org.junit.Assert.assertTrue;
+
+public class Nv21OverlayBlenderBenchmark {
+    @Test
+    public void blendingDoesNotAllocate() {
+        Nv21OverlayBlender blender = new Nv21OverlayBlender();
+        int width = 1280;
+        int height = 720;
+        // A drawing covering a band across the middle
+        byte[] overlay = new byte[720 * 1280 * 4];
+        for (int y = 600; y < 680; y++) {
+            for (int x = 0; x < 720; x++) {
+                Nv21OverlayBlenderTest.fill(overlay, y * 720 + x, 200, 0, 0, 255);
+            }
+        }
+        blender.setOverlay(overlay, 720, 1280);
+        byte[] frame = Nv21OverlayBlenderTest.grayFrame(width, height);
+        for (int i = 0; i < 10; i++) {
+            blender.blend(frame, width, height, 90);
+        }
+
+        int frames = 100;
+        long allocatedBefore = threadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            blender.blend(frame, width, height, 90);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threadAllocatedBytes() - allocatedBefore;
+
+        Benchmarks.report("Nv21OverlayBlender %dx%d: %.3f ms per frame, %d bytes allocated per " +
+                "frame", width, height, elapsed / 1e6 / frames, allocated / frames);
+        assertTrue(allocated < 1024);
+    }
+}
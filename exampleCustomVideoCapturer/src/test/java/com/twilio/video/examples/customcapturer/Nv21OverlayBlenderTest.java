@@ -0,0 +1,109 @@
+package com.twilio.video.examples.customcapturer;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class Nv21OverlayBlenderTest {
+    private final Nv21OverlayBlender blender = new Nv21OverlayBlender();
+
+    @Test
+    public void leavesFramesAloneWithoutAnOverlay() {
+        byte[] frame = grayFrame(4, 4);
+        byte[] original = frame.clone();
+
+        assertFalse(blender.blend(frame, 4, 4, 0));
+        blender.setOverlay(new byte[4 * 4 * 4], 4, 4);
+        assertTrue(blender.blend(frame, 4, 4, 0));
+
+        assertArrayEquals(original, frame);
+    }
+
+    @Test
+    public void opaquePixelsReplaceTheFrame() {
+        byte[] overlay = new byte[2 * 2 * 4];
+        fill(overlay, 0, 255, 255, 255, 255);
+        blender.setOverlay(overlay, 2, 2);
+        byte[] frame = grayFrame(4, 4);
+
+        blender.blend(frame, 4, 4, 0);
+
+        // The white top left quarter of the overlay covers the top left 2x2 block
+        assertEquals(235, frame[0] & 0xff);
+        assertEquals(235, frame[5] & 0xff);
+        assertEquals(128, frame[2] & 0xff);
+        assertEquals(128, frame[10] & 0xff);
+        assertEquals(128, frame[16] & 0xff);
+    }
+
+    @Test
+    public void translucentPixelsAreMixed() {
+        // Premultiplied white at half alpha
+        byte[] overlay = new byte[2 * 2 * 4];
+        for (int i = 0; i < 4; i++) {
+            fill(overlay, i, 128, 128, 128, 128);
+        }
+        blender.setOverlay(overlay, 2, 2);
+        byte[] frame = new byte[RgbaToYuvConverter.frameSize(2, 2)];
+        Arrays.fill(frame, 0, 4, (byte) 16);
+        Arrays.fill(frame, 4, 6, (byte) 128);
+
+        blender.blend(frame, 2, 2, 0);
+
+        assertEquals(126, frame[0] & 0xff, 1);
+        assertEquals(128, frame[4] & 0xff);
+    }
+
+    @Test
+    public void followsTheRotationOfTheCameraBuffer() {
+        // A 2x4 upright overlay, white only in its top row
+        byte[] overlay = new byte[2 * 4 * 4];
+        fill(overlay, 0, 255, 255, 255, 255);
+        fill(overlay, 1, 255, 255, 255, 255);
+        blender.setOverlay(overlay, 2, 4);
+
+        // A 4x2 buffer rotated by 90 degrees shows its first column as the top row
+        byte[] frame = grayFrame(4, 2);
+        blender.blend(frame, 4, 2, 90);
+        assertColumn(frame, 4, 2, 0, 235);
+        assertColumn(frame, 4, 2, 1, 128);
+
+        // Rotated by 270 degrees its last column is shown as the top row
+        frame = grayFrame(4, 2);
+        blender.blend(frame, 4, 2, 270);
+        assertColumn(frame, 4, 2, 3, 235);
+        assertColumn(frame, 4, 2, 0, 128);
+    }
+
+    @Test
+    public void rejectsFramesThatAreNotNv21() {
+        blender.setOverlay(new byte[]{(byte) 255, (byte) 255, (byte) 255, (byte) 255}, 1, 1);
+
+        assertFalse(blender.blend(new byte[4 * 4], 4, 4, 0));
+        assertFalse(blender.blend(new byte[3 * 3 * 2], 3, 3, 0));
+    }
+
+    private static void assertColumn(byte[] frame, int width, int height, int x, int luma) {
+        for (int y = 0; y < height; y++) {
+            assertEquals(luma, frame[y * width + x] & 0xff);
+        }
+    }
+
+    static void fill(byte[] rgba, int pixel, int r, int g, int b, int a) {
+        rgba[pixel * 4] = (byte) r;
+        rgba[pixel * 4 + 1] = (byte) g;
+        rgba[pixel * 4 + 2] = (byte) b;
+        rgba[pixel * 4 + 3] = (byte) a;
+    }
+
+    static byte[] grayFrame(int width, int height) {
+        byte[] frame = new byte[RgbaToYuvConverter.frameSize(width, height)];
+        Arrays.fill(frame, (byte) 128);
+        return frame;
+    }
+}
@@ -0,0 +1,57 @@
+package com.twilio.video.examples.customcapturer;
+
+import org.junit.Test;
+
+import static com.twilio.video.examples.customcapturer.Benchmarks.threadAllocatedBytes;
+import static org.junit.Assert.assertTrue;
+
+public class RgbaToYuvConverterBenchmark {
+    @Test
+    public void yuvOutputHandsOffFewerBytes() {
+        int[][] sizes = {{720, 1280}, {1080, 1920}};
+        int parallelism = Math.min(4, Runtime.getRuntime().availableProcessors());
+        for (int[] size : sizes) {
+            int width = size[0];
+            int height = size[1];
+            byte[] rgba = RgbaToYuvConverterTest.random(width, height, 3);
+            byte[] output = new byte[RgbaToYuvConverter.frameSize(width, height)];
+            byte[] halfOutput = new byte[RgbaToYuvConverter.frameSize(width / 2, height / 2)];
+            RgbaToYuvConverter sequential = new RgbaToYuvConverter(1);
+            RgbaToYuvConverter parallel = new RgbaToYuvConverter(parallelism);
+
+            double sequentialMillis = measure(() -> sequential.convert(rgba, width, height,
+                    output, width, height, RgbaToYuvConverter.NV21));
+            double parallelMillis = measure(() -> parallel.convert(rgba, width, height,
+                    output, width, height, RgbaToYuvConverter.NV21));
+            double halfMillis = measure(() -> parallel.convert(rgba, width, height,
+                    halfOutput, width / 2, height / 2, RgbaToYuvConverter.NV21));
+            long allocatedBefore = threadAllocatedBytes();
+            for (int i = 0; i < 10; i++) {
+                parallel.convert(rgba, width, height, output, width, height,
+                        RgbaToYuvConverter.NV21);
+            }
+            long allocated = threadAllocatedBytes() - allocatedBefore;
+            parallel.release();
+
+            Benchmarks.report("RgbaToYuvConverter %dx%d: %dKB RGBA handed off as %dKB NV21 " +
+                            "(%dKB at half size), %.2f ms per frame sequential, %.2f ms with %d " +
+                            "threads, %.2f ms scaling to half size", width, height,
+                    rgba.length / 1024, output.length / 1024, halfOutput.length / 1024,
+                    sequentialMillis, parallelMillis, parallelism, halfMillis);
+            // Handing work to the workers allocates a little per frame, never a frame buffer
+            assertTrue(allocated < output.length / 100);
+        }
+    }
+
+    private static double measure(Runnable conversion) {
+        for (int i = 0; i < 10; i++) {
+            conversion.run();
+        }
+        int frames = 30;
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            conversion.run();
+        }
+        return (System.nanoTime() - start) / 1e6 / frames;
+    }
+}
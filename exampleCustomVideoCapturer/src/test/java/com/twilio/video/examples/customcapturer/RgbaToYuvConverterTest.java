@@ -0,0 +1,103 @@
+package com.twilio.video.examples.customcapturer;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class RgbaToYuvConverterTest {
+    @Test
+    public void convertsKnownColors() {
+        RgbaToYuvConverter converter = new RgbaToYuvConverter(1);
+        byte[] white = solid(2, 2, 255, 255, 255);
+        byte[] red = solid(2, 2, 255, 0, 0);
+        byte[] output = new byte[RgbaToYuvConverter.frameSize(2, 2)];
+
+        converter.convert(white, 2, 2, output, 2, 2, RgbaToYuvConverter.I420);
+        assertEquals(235, output[0] & 0xff);
+        assertEquals(128, output[4] & 0xff);
+        assertEquals(128, output[5] & 0xff);
+
+        converter.convert(red, 2, 2, output, 2, 2, RgbaToYuvConverter.I420);
+        assertEquals(82, output[0] & 0xff);
+        assertEquals(90, output[4] & 0xff);
+        assertEquals(240, output[5] & 0xff);
+    }
+
+    @Test
+    public void nv21InterleavesVBeforeU() {
+        RgbaToYuvConverter converter = new RgbaToYuvConverter(1);
+        byte[] rgba = random(8, 6, 1);
+        byte[] i420 = new byte[RgbaToYuvConverter.frameSize(8, 6)];
+        byte[] nv21 = new byte[i420.length];
+
+        converter.convert(rgba, 8, 6, i420, 8, 6, RgbaToYuvConverter.I420);
+        converter.convert(rgba, 8, 6, nv21, 8, 6, RgbaToYuvConverter.NV21);
+
+        for (int i = 0; i < 48; i++) {
+            assertEquals(i420[i], nv21[i]);
+        }
+        for (int i = 0; i < 12; i++) {
+            assertEquals(i420[48 + 12 + i], nv21[48 + 2 * i]);
+            assertEquals(i420[48 + i], nv21[48 + 2 * i + 1]);
+        }
+    }
+
+    @Test
+    public void downscalesWhileConverting() {
+        // Left half black, right half white, scaled from 8x4 to 4x2
+        byte[] rgba = new byte[8 * 4 * 4];
+        for (int y = 0; y < 4; y++) {
+            for (int x = 4; x < 8; x++) {
+                int offset = (y * 8 + x) * 4;
+                rgba[offset] = rgba[offset + 1] = rgba[offset + 2] = (byte) 255;
+            }
+        }
+        byte[] output = new byte[RgbaToYuvConverter.frameSize(4, 2)];
+
+        new RgbaToYuvConverter(1).convert(rgba, 8, 4, output, 4, 2, RgbaToYuvConverter.I420);
+
+        assertArrayEquals(new byte[]{16, 16, (byte) 235, (byte) 235, 16, 16, (byte) 235,
+                (byte) 235, (byte) 128, (byte) 128, (byte) 128, (byte) 128}, output);
+    }
+
+    @Test
+    public void parallelConversionMatchesSequential() {
+        RgbaToYuvConverter sequential = new RgbaToYuvConverter(1);
+        RgbaToYuvConverter parallel = new RgbaToYuvConverter(3);
+        byte[] rgba = random(64, 50, 2);
+        byte[] expected = new byte[RgbaToYuvConverter.frameSize(40, 30)];
+        byte[] actual = new byte[expected.length];
+
+        sequential.convert(rgba, 64, 50, expected, 40, 30, RgbaToYuvConverter.NV21);
+        parallel.convert(rgba, 64, 50, actual, 40, 30, RgbaToYuvConverter.NV21);
+        parallel.release();
+
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOddOutputDimensions() {
+        new RgbaToYuvConverter(1).convert(new byte[5 * 4 * 4], 5, 4,
+                new byte[RgbaToYuvConverter.frameSize(6, 4)], 5, 4, RgbaToYuvConverter.I420);
+    }
+
+    private static byte[] solid(int width, int height, int r, int g, int b) {
+        byte[] rgba = new byte[width * height * 4];
+        for (int i = 0; i < rgba.length; i += 4) {
+            rgba[i] = (byte) r;
+            rgba[i + 1] = (byte) g;
+            rgba[i + 2] = (byte) b;
+            rgba[i + 3] = (byte) 255;
+        }
+        return rgba;
+    }
+
+    static byte[] random(int width, int height, long seed) {
+        byte[] rgba = new byte[width * height * 4];
+        new Random(seed).nextBytes(rgba);
+        return rgba;
+    }
+}
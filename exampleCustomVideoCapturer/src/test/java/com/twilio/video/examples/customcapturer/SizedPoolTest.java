@@ -0,0 +1,89 @@
+package com.twilio.video.examples.customcapturer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SizedPoolTest {
+    private final List<int[]> discarded = new ArrayList<>();
+    private final SizedPool<int[]> pool = new SizedPool<>(2, new SizedPool.Allocator<int[]>() {
+        @Override
+        public int[] allocate(int width, int height) {
+            return new int[width * height];
+        }
+
+        @Override
+        public void discard(int[] item) {
+            discarded.add(item);
+        }
+    });
+
+    @Test
+    public void reusesItemsOfTheCurrentSize() {
+        int[] first = pool.acquire(4, 3);
+        int[] second = pool.acquire(4, 3);
+        assertNotSame(first, second);
+        pool.release(first, 4, 3);
+        pool.release(second, 4, 3);
+
+        assertSame(second, pool.acquire(4, 3));
+        assertSame(first, pool.acquire(4, 3));
+        assertEquals(2, pool.getAllocatedItems());
+    }
+
+    @Test
+    public void discardsTheOldSizeOnResize() {
+        int[] small = pool.acquire(4, 3);
+        int[] inFlight = pool.acquire(4, 3);
+        pool.release(small, 4, 3);
+
+        int[] large = pool.acquire(8, 6);
+        assertEquals(48, large.length);
+        assertEquals(1, discarded.size());
+        assertSame(small, discarded.get(0));
+
+        // Items of the old size still in flight are discarded when they come back
+        pool.release(inFlight, 4, 3);
+        assertSame(inFlight, discarded.get(1));
+        assertEquals(0, pool.getIdleItems());
+    }
+
+    @Test
+    public void keepsAtMostTheConfiguredIdleItems() {
+        int[][] items = {pool.acquire(2, 2), pool.acquire(2, 2), pool.acquire(2, 2)};
+        for (int[] item : items) {
+            pool.release(item, 2, 2);
+        }
+
+        assertEquals(2, pool.getIdleItems());
+        assertSame(items[2], discarded.get(0));
+        pool.clear();
+        assertEquals(0, pool.getIdleItems());
+        assertEquals(3, discarded.size());
+    }
+
+    @Test
+    public void steadyStateReusesTheSameItems() {
+        for (int i = 0; i < 1000; i++) {
+            acquireAndReleaseTwo();
+        }
+
+        assertEquals(2, pool.getAllocatedItems());
+        assertEquals(2, pool.getIdleItems());
+        assertTrue(discarded.isEmpty());
+    }
+
+    // Two frames in flight, like a capture being processed while the next one is taken
+    private void acquireAndReleaseTwo() {
+        int[] first = pool.acquire(720, 1280);
+        int[] second = pool.acquire(720, 1280);
+        pool.release(first, 720, 1280);
+        pool.release(second, 720, 1280);
+    }
+}
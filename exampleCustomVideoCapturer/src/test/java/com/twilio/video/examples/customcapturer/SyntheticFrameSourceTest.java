@@ -0,0 +1,69 @@
+package com.twilio.video.examples.customcapturer;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class SyntheticFrameSourceTest {
+    @Test
+    public void colorBarsMatchInBothLayouts() {
+        SyntheticFrameSource source = new SyntheticFrameSource(16, 4,
+                SyntheticFrameSource.COLOR_BARS);
+        byte[] i420 = new byte[RgbaToYuvConverter.frameSize(16, 4)];
+        byte[] nv21 = new byte[i420.length];
+
+        source.readFrame(i420, RgbaToYuvConverter.I420);
+        source.readFrame(nv21, RgbaToYuvConverter.NV21);
+
+        // 75% white on the left and black on the right
+        assertEquals(180, i420[0] & 0xff);
+        assertEquals(16, i420[15] & 0xff);
+        assertArrayEquals(Arrays.copyOf(i420, 64), Arrays.copyOf(nv21, 64));
+        for (int i = 0; i < 16; i++) {
+            assertEquals(i420[64 + 16 + i], nv21[64 + 2 * i]);
+            assertEquals(i420[64 + i], nv21[64 + 2 * i + 1]);
+        }
+    }
+
+    @Test
+    public void movingBoxChangesEveryFrame() {
+        SyntheticFrameSource source = new SyntheticFrameSource(64, 32,
+                SyntheticFrameSource.MOVING_BOX);
+        byte[] first = new byte[RgbaToYuvConverter.frameSize(64, 32)];
+        byte[] second = new byte[first.length];
+
+        source.readFrame(first, RgbaToYuvConverter.NV21);
+        source.readFrame(second, RgbaToYuvConverter.NV21);
+
+        assertFalse(Arrays.equals(first, second));
+        // The box starts in the top left corner
+        assertEquals(235, first[0] & 0xff);
+        assertEquals(235, first[7 * 64 + 7] & 0xff);
+    }
+
+    @Test
+    public void rewindRepeatsTheSameFrames() {
+        for (int pattern : new int[]{SyntheticFrameSource.MOVING_BOX,
+                SyntheticFrameSource.NOISE}) {
+            SyntheticFrameSource source = new SyntheticFrameSource(32, 16, pattern);
+            byte[] first = new byte[RgbaToYuvConverter.frameSize(32, 16)];
+            byte[] again = new byte[first.length];
+
+            source.readFrame(first, RgbaToYuvConverter.I420);
+            source.readFrame(again, RgbaToYuvConverter.I420);
+            source.rewind();
+            source.readFrame(again, RgbaToYuvConverter.I420);
+
+            assertArrayEquals(first, again);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOddDimensions() {
+        new SyntheticFrameSource(15, 4, SyntheticFrameSource.COLOR_BARS);
+    }
+}
@@ -0,0 +1,110 @@
+package com.twilio.video.examples.customcapturer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class YuvFileFrameSourceTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("yuv_file_frame_source", ".y4m");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void readsY4mFramesAsI420() throws IOException {
+        write("YUV4MPEG2 W4 H2 F30000:1001 Ip A1:1 C420jpeg\n",
+                "FRAME\n", frame(1), "FRAME Ixyz\n", frame(2));
+        YuvFileFrameSource source = YuvFileFrameSource.openY4m(file);
+        byte[] frame = new byte[RgbaToYuvConverter.frameSize(4, 2)];
+
+        assertEquals(4, source.getWidth());
+        assertEquals(2, source.getHeight());
+        assertEquals(29.97, source.getFrameRate(), 0.01);
+        assertTrue(source.readFrame(frame, RgbaToYuvConverter.I420));
+        assertArrayEquals(frame(1), frame);
+        assertTrue(source.readFrame(frame, RgbaToYuvConverter.I420));
+        assertArrayEquals(frame(2), frame);
+        assertFalse(source.readFrame(frame, RgbaToYuvConverter.I420));
+
+        source.rewind();
+        assertTrue(source.readFrame(frame, RgbaToYuvConverter.I420));
+        assertArrayEquals(frame(1), frame);
+        source.close();
+    }
+
+    @Test
+    public void interleavesChromaForNv21() throws IOException {
+        write("YUV4MPEG2 W4 H2 F30:1\n", "FRAME\n", frame(1));
+        YuvFileFrameSource source = YuvFileFrameSource.openY4m(file);
+        byte[] frame = new byte[RgbaToYuvConverter.frameSize(4, 2)];
+
+        assertTrue(source.readFrame(frame, RgbaToYuvConverter.NV21));
+        source.close();
+
+        // Luma, then V and U of each chroma sample
+        assertArrayEquals(new byte[]{10, 11, 12, 13, 14, 15, 16, 17, 20, 18, 21, 19}, frame);
+    }
+
+    @Test
+    public void readsHeaderlessI420Files() throws IOException {
+        write(frame(1), frame(2));
+        YuvFileFrameSource source = YuvFileFrameSource.openI420(file, 4, 2);
+        byte[] frame = new byte[RgbaToYuvConverter.frameSize(4, 2)];
+
+        assertEquals(0, source.getFrameRate(), 0);
+        assertTrue(source.readFrame(frame, RgbaToYuvConverter.I420));
+        assertTrue(source.readFrame(frame, RgbaToYuvConverter.I420));
+        assertArrayEquals(frame(2), frame);
+        assertFalse(source.readFrame(frame, RgbaToYuvConverter.I420));
+        source.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherChromaSubsampling() throws IOException {
+        write("YUV4MPEG2 W4 H2 F30:1 C444\n");
+        YuvFileFrameSource.openY4m(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsFilesWithoutTheSignature() throws IOException {
+        write("RIFF W4 H2\n");
+        YuvFileFrameSource.openY4m(file);
+    }
+
+    /*
+     * A 4x2 I420 frame whose bytes count up from ten times the index.
+     */
+    private static byte[] frame(int index) {
+        byte[] frame = new byte[RgbaToYuvConverter.frameSize(4, 2)];
+        for (int i = 0; i < frame.length; i++) {
+            frame[i] = (byte) (10 * index + i);
+        }
+        return frame;
+    }
+
+    private void write(Object... parts) throws IOException {
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            for (Object part : parts) {
+                output.write(part instanceof String ?
+                        ((String) part).getBytes(Charset.forName("US-ASCII")) : (byte[]) part);
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.twilio.video.examples.customrenderer;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.ImageFormat;
+import android.graphics.Matrix;
+import android.graphics.Rect;
+import android.graphics.YuvImage;
+import android.os.Build;
+import android.os.Debug;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares taking a snapshot of an in-memory frame through a JPEG round trip, as
+ * SnapshotVideoRenderer used to, with converting it straight into a reused bitmap.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SnapshotBenchmarkTest {
+    private static final String TAG = "SnapshotBenchmarkTest";
+    private static final int WARMUP_SNAPSHOTS = 3;
+    private static final int SNAPSHOTS = 10;
+    private static final int ROTATION = 90;
+
+    @Test
+    public void directConversionBeatsJpegRoundTrip() {
+        int[][] sizes = {{1280, 720}, {1920, 1080}};
+        for (int[] size : sizes) {
+            int width = size[0];
+            int height = size[1];
+            // Pad the rows the way hardware decoders and cameras often do
+            int[] strides = {width + 64, width / 2 + 32, width / 2 + 32};
+            ByteBuffer[] planes = createFrame(width, height, strides);
+
+            Result jpeg = measure(() -> jpegRoundTrip(planes, strides, width, height));
+            I420ToArgbConverter converter = new I420ToArgbConverter();
+            Bitmap bitmap = Bitmap.createBitmap(height, width, Bitmap.Config.ARGB_8888);
+            Result direct = measure(() -> {
+                int[] pixels = converter.convert(planes, strides, width, height, ROTATION);
+                bitmap.setPixels(pixels, 0, height, 0, 0, height, width);
+            });
+
+            Log.i(TAG, String.format("%dx%d snapshot: JPEG round trip %.1fms %s, " +
+                            "direct %.1fms %s", width, height,
+                    jpeg.millisPerSnapshot, jpeg.describeAllocation(),
+                    direct.millisPerSnapshot, direct.describeAllocation()));
+            assertTrue(direct.millisPerSnapshot < jpeg.millisPerSnapshot);
+        }
+    }
+
+    private static Result measure(Runnable snapshot) {
+        for (int i = 0; i < WARMUP_SNAPSHOTS; i++) {
+            snapshot.run();
+        }
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < SNAPSHOTS; i++) {
+            snapshot.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocatedAfter = allocatedBytes();
+
+        Result result = new Result();
+        result.millisPerSnapshot = elapsed / 1e6 / SNAPSHOTS;
+        result.bytesPerSnapshot = allocatedBefore < 0 ?
+                -1 : (allocatedAfter - allocatedBefore) / SNAPSHOTS;
+        return result;
+    }
+
+    /*
+     * The snapshot path as it was: pack NV21, compress to JPEG, decode and rotate.
+     */
+    private static Bitmap jpegRoundTrip(ByteBuffer[] planes, int[] strides, int width,
+                                        int height) {
+        byte[] nv21 = new byte[width * height * 3 / 2];
+        int i = 0;
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                nv21[i++] = planes[0].get(col + row * strides[0]);
+            }
+        }
+        for (int row = 0; row < height / 2; row++) {
+            for (int col = 0; col < width / 2; col++) {
+                nv21[i++] = planes[2].get(col + row * strides[2]);
+                nv21[i++] = planes[1].get(col + row * strides[1]);
+            }
+        }
+        YuvImage yuvImage = new YuvImage(nv21, ImageFormat.NV21, width, height, null);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        yuvImage.compressToJpeg(new Rect(0, 0, width, height), 100, stream);
+        byte[] imageBytes = stream.toByteArray();
+        Bitmap bitmap = BitmapFactory.decodeByteArray(imageBytes, 0, imageBytes.length);
+        Matrix matrix = new Matrix();
+        matrix.postRotate(ROTATION);
+        return Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix,
+                true);
+    }
+
+    private static ByteBuffer[] createFrame(int width, int height, int[] strides) {
+        ByteBuffer[] planes = {
+                ByteBuffer.allocateDirect(strides[0] * height),
+                ByteBuffer.allocateDirect(strides[1] * height / 2),
+                ByteBuffer.allocateDirect(strides[2] * height / 2)
+        };
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                planes[0].put(row * strides[0] + col, (byte) (row + col));
+                planes[1].put(row / 2 * strides[1] + col / 2, (byte) row);
+                planes[2].put(row / 2 * strides[2] + col / 2, (byte) col);
+            }
+        }
+        return planes;
+    }
+
+    /*
+     * Java heap bytes allocated by the whole process, or -1 where ART does not report it.
+     */
+    private static long allocatedBytes() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return -1;
+        }
+        return Long.parseLong(Debug.getRuntimeStat("art.gc.bytes-allocated"));
+    }
+
+    private static final class Result {
+        double millisPerSnapshot;
+        long bytesPerSnapshot;
+
+        String describeAllocation() {
+            return bytesPerSnapshot < 0 ?
+                    "(allocation not reported)" :
+                    String.format("%dKB allocated", bytesPerSnapshot / 1024);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.twilio.video.examples.customrenderer;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.graphics.YuvImage;
+import android.opengl.GLES11Ext;
+import android.os.Build;
+import android.os.Debug;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.webrtc.EglBase;
+import org.webrtc.GlUtil;
+import org.webrtc.YuvConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares reading a texture frame back for a snapshot with a new YuvConverter and freshly
+ * allocated direct buffers per snapshot, as SnapshotVideoRenderer used to, against
+ * {@link TextureFrameReader}, and the whole way from texture to bitmap through YUV, NV21 and
+ * JPEG against reading RGBA with {@link TextureRgbaReader}. Reports latency, heap bytes allocated
+ * and garbage collections.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TextureSnapshotBenchmarkTest {
+    private static final String TAG = "TextureSnapshotBenchmark";
+    private static final int WARMUP_SNAPSHOTS = 5;
+    private static final int SNAPSHOTS = 30;
+    private static final float[] IDENTITY_MATRIX = {
+            1, 0, 0, 0,
+            0, 1, 0, 0,
+            0, 0, 1, 0,
+            0, 0, 0, 1
+    };
+
+    private EglBase eglBase;
+    private int textureId;
+
+    @Before
+    public void setUp() {
+        eglBase = EglBase.create();
+        eglBase.createDummyPbufferSurface();
+        eglBase.makeCurrent();
+        textureId = GlUtil.generateTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES);
+    }
+
+    @After
+    public void tearDown() {
+        eglBase.release();
+    }
+
+    @Test
+    public void pooledReaderReducesGcPressure() {
+        int[][] sizes = {{1280, 720}, {1920, 1080}};
+        for (int[] size : sizes) {
+            int width = size[0];
+            int height = size[1];
+            Result before = measure(() -> readWithNewConverter(width, height));
+            TextureFrameReader reader =
+                    new TextureFrameReader(new I420FramePool(new DirectBufferPool()));
+            Result after = measure(() -> reader.recycle(reader.read(textureId, IDENTITY_MATRIX,
+                    width, height)));
+            reader.release();
+
+            Log.i(TAG, String.format("%dx%d texture snapshot: before %s, after %s", width,
+                    height, before, after));
+            assertTrue(after.millisPerSnapshot < before.millisPerSnapshot);
+        }
+    }
+
+    @Test
+    public void rgbaReadbackIsFasterThanTheJpegChain() {
+        int[][] sizes = {{1280, 720}, {1920, 1080}};
+        for (int[] size : sizes) {
+            int width = size[0];
+            int height = size[1];
+            TextureFrameReader yuvReader =
+                    new TextureFrameReader(new I420FramePool(new DirectBufferPool()));
+            I420PlanePacker packer = new I420PlanePacker();
+            Result before = measure(() -> readThroughJpeg(yuvReader, packer, width, height));
+            yuvReader.release();
+
+            TextureRgbaReader rgbaReader = new TextureRgbaReader(new DirectBufferPool());
+            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            float[] texMatrix = TextureMatrix.forReadback(IDENTITY_MATRIX, 0);
+            Result after = measure(() -> {
+                ByteBuffer pixels = rgbaReader.read(textureId, texMatrix, width, height);
+                bitmap.copyPixelsFromBuffer(pixels);
+                rgbaReader.recycle(pixels);
+            });
+            rgbaReader.release();
+            bitmap.recycle();
+
+            Log.i(TAG, String.format("%dx%d texture to bitmap: YUV and JPEG %s, RGBA %s", width,
+                    height, before, after));
+            assertTrue(after.millisPerSnapshot < before.millisPerSnapshot);
+        }
+    }
+
+    /*
+     * The texture to bitmap chain SnapshotVideoRenderer used before reading back RGBA.
+     */
+    private void readThroughJpeg(TextureFrameReader reader, I420PlanePacker packer, int width,
+                                 int height) {
+        PooledI420Frame frame = reader.read(textureId, IDENTITY_MATRIX, width, height);
+        byte[] nv21 = packer.packNv21(frame.yuvPlanes, frame.yuvStrides, width, height);
+        reader.recycle(frame);
+        YuvImage yuvImage = new YuvImage(nv21, ImageFormat.NV21, width, height, null);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        yuvImage.compressToJpeg(new Rect(0, 0, width, height), 100, stream);
+        byte[] imageBytes = stream.toByteArray();
+        BitmapFactory.decodeByteArray(imageBytes, 0, imageBytes.length).recycle();
+    }
+
+    /*
+     * The texture read as it used to be, with the direct buffer read through get() since
+     * array() is not supported on direct buffers.
+     */
+    private void readWithNewConverter(int width, int height) {
+        ByteBuffer outputFrameBuffer = ByteBuffer.allocateDirect(width * height * 3 / 2);
+        YuvConverter yuvConverter = new YuvConverter();
+        yuvConverter.convert(outputFrameBuffer, width, height, width, textureId,
+                IDENTITY_MATRIX);
+        ByteBuffer[] yuvPlanes = new ByteBuffer[]{
+                ByteBuffer.allocateDirect(width * height),
+                ByteBuffer.allocateDirect(width * height / 4),
+                ByteBuffer.allocateDirect(width * height / 4)
+        };
+        byte[] row = new byte[width];
+        for (int r = 0; r < height; r++) {
+            outputFrameBuffer.position(r * width);
+            outputFrameBuffer.get(row, 0, width);
+            yuvPlanes[0].put(row, 0, width);
+        }
+        for (int r = height; r < height * 3 / 2; r++) {
+            outputFrameBuffer.position(r * width);
+            outputFrameBuffer.get(row, 0, width);
+            yuvPlanes[1].put(row, 0, width / 2);
+            yuvPlanes[2].put(row, width / 2, width / 2);
+        }
+        yuvConverter.release();
+    }
+
+    private static Result measure(Runnable snapshot) {
+        for (int i = 0; i < WARMUP_SNAPSHOTS; i++) {
+            snapshot.run();
+        }
+        long allocatedBefore = runtimeStat("art.gc.bytes-allocated");
+        long gcCountBefore = runtimeStat("art.gc.gc-count");
+        long start = System.nanoTime();
+        for (int i = 0; i < SNAPSHOTS; i++) {
+            snapshot.run();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Result result = new Result();
+        result.millisPerSnapshot = elapsed / 1e6 / SNAPSHOTS;
+        if (allocatedBefore >= 0) {
+            result.bytesPerSnapshot =
+                    (runtimeStat("art.gc.bytes-allocated") - allocatedBefore) / SNAPSHOTS;
+            result.garbageCollections = runtimeStat("art.gc.gc-count") - gcCountBefore;
+        }
+        return result;
+    }
+
+    /*
+     * Process wide ART counters, or -1 where they are not reported.
+     */
+    private static long runtimeStat(String name) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return -1;
+        }
+        return Long.parseLong(Debug.getRuntimeStat(name));
+    }
+
+    private static final class Result {
+        double millisPerSnapshot;
+        long bytesPerSnapshot = -1;
+        long garbageCollections = -1;
+
+        @Override
+        public String toString() {
+            if (bytesPerSnapshot < 0) {
+                return String.format("%.2fms per snapshot", millisPerSnapshot);
+            }
+            return String.format("%.2fms and %dKB per snapshot, %d GCs over %d snapshots",
+                    millisPerSnapshot, bytesPerSnapshot / 1024, garbageCollections, SNAPSHOTS);
+        }
+    }
+}
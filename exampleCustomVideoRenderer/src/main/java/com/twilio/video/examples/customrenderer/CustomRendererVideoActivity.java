@@ -4,9 +4,11 @@ import android.Manifest;
 import android.app.Activity;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
+import android.os.Handler;
 import android.support.annotation.NonNull;
 import android.support.v4.app.ActivityCompat;
 import android.support.v4.content.ContextCompat;
+import android.util.Log;
 import android.view.View;
 import android.widget.ImageView;
 import android.widget.TextView;
@@ -14,21 +16,44 @@ import android.widget.Toast;
 
 import com.twilio.video.CameraCapturer;
 import com.twilio.video.LocalVideoTrack;
+import com.twilio.video.VideoRenderer;
 import com.twilio.video.VideoView;
 
 /**
  * This example demonstrates how to implement a custom renderer. Here we render the contents
  * of our {@link CameraCapturer} to a video view and to a snapshot renderer which allows user to
- * grab the latest frame rendered. When the camera view is tapped the frame is updated.
+ * grab the latest frame rendered. When the camera view is tapped the frame is updated. A
+ * {@link FrameStatsVideoRenderer} also records what the camera delivers, which is logged
+ * periodically.
  */
 public class CustomRendererVideoActivity extends Activity {
     private static final int CAMERA_PERMISSION_REQUEST_CODE = 100;
+    private static final String TAG = "CustomRendererActivity";
+    private static final long FRAME_STATS_LOG_INTERVAL_MS = 5000;
+
+    /*
+     * Only redraw the video view and take snapshots when the frame changed, which suits mostly
+     * static video like screen shares
+     */
+    private static final boolean SKIP_UNCHANGED_FRAMES = false;
 
     private VideoView localVideoView;
     private ImageView snapshotImageView;
     private TextView tapForSnapshotTextView;
     private SnapshotVideoRenderer snapshotVideoRenderer;
+    private FrameStatsVideoRenderer frameStatsVideoRenderer;
+    private VideoRenderer localVideoRenderer;
+    private VideoRenderer snapshotRenderer;
     private LocalVideoTrack localVideoTrack;
+    private final Handler handler = new Handler();
+    private final Runnable logFrameStats = new Runnable() {
+        @Override
+        public void run() {
+            Log.d(TAG, frameStatsVideoRenderer.toString());
+            Log.d(TAG, snapshotVideoRenderer.toString());
+            handler.postDelayed(this, FRAME_STATS_LOG_INTERVAL_MS);
+        }
+    };
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -72,8 +97,14 @@ public class CustomRendererVideoActivity extends Activity {
 
     @Override
     protected void onDestroy() {
-        localVideoTrack.removeRenderer(localVideoView);
-        localVideoTrack.removeRenderer(snapshotVideoRenderer);
+        // Renderers free their GL objects on the render thread, so release them first
+        releaseIfDifferencing(localVideoRenderer);
+        releaseIfDifferencing(snapshotRenderer);
+        snapshotVideoRenderer.release();
+        localVideoTrack.removeRenderer(localVideoRenderer);
+        localVideoTrack.removeRenderer(snapshotRenderer);
+        localVideoTrack.removeRenderer(frameStatsVideoRenderer);
+        handler.removeCallbacks(logFrameStats);
         localVideoTrack.release();
         localVideoTrack = null;
         super.onDestroy();
@@ -83,14 +114,29 @@ public class CustomRendererVideoActivity extends Activity {
         localVideoTrack = LocalVideoTrack.create(this, true, new CameraCapturer(this,
                 CameraCapturer.CameraSource.FRONT_CAMERA, null));
         snapshotVideoRenderer = new SnapshotVideoRenderer(snapshotImageView);
-        localVideoTrack.addRenderer(localVideoView);
-        localVideoTrack.addRenderer(snapshotVideoRenderer);
+        localVideoRenderer = SKIP_UNCHANGED_FRAMES ?
+                new FrameDifferencingVideoRenderer(localVideoView) :
+                localVideoView;
+        snapshotRenderer = SKIP_UNCHANGED_FRAMES ?
+                new FrameDifferencingVideoRenderer(snapshotVideoRenderer) :
+                snapshotVideoRenderer;
+        localVideoTrack.addRenderer(localVideoRenderer);
+        localVideoTrack.addRenderer(snapshotRenderer);
+        frameStatsVideoRenderer = new FrameStatsVideoRenderer("camera");
+        localVideoTrack.addRenderer(frameStatsVideoRenderer);
+        handler.postDelayed(logFrameStats, FRAME_STATS_LOG_INTERVAL_MS);
         localVideoView.setOnClickListener(v -> {
             tapForSnapshotTextView.setVisibility(View.GONE);
             snapshotVideoRenderer.takeSnapshot();
         });
     }
 
+    private void releaseIfDifferencing(VideoRenderer renderer) {
+        if (renderer instanceof FrameDifferencingVideoRenderer) {
+            ((FrameDifferencingVideoRenderer) renderer).release();
+        }
+    }
+
     private boolean checkPermissionForCamera(){
         int resultCamera = ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA);
         return resultCamera == PackageManager.PERMISSION_GRANTED;
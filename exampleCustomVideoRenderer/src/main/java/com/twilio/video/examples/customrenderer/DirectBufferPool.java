@@ -0,0 +1,77 @@
+package com.twilio.video.examples.customrenderer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * DirectBufferPool recycles the direct buffers frames are read into. Direct buffers live outside
+ * the Java heap and are only freed once the garbage collector finalizes them, so allocating one
+ * per frame builds up native memory and GC pressure quickly at video resolutions.
+ *
+ * <p>The pool keeps up to a fixed number of idle buffers and hands out one of the requested
+ * capacity when it has one. When all slots are taken by buffers of other sizes, for example after
+ * the resolution changed, the idle buffers are replaced in turn. The pool is thread safe.
+ */
+final class DirectBufferPool {
+    static final int DEFAULT_MAX_IDLE_BUFFERS = 4;
+
+    private final ByteBuffer[] idleBuffers;
+    private int nextEviction;
+    private long allocatedBuffers;
+    private long reusedBuffers;
+
+    DirectBufferPool() {
+        this(DEFAULT_MAX_IDLE_BUFFERS);
+    }
+
+    DirectBufferPool(int maxIdleBuffers) {
+        this.idleBuffers = new ByteBuffer[maxIdleBuffers];
+    }
+
+    /**
+     * Returns a cleared direct buffer with exactly the requested capacity.
+     */
+    synchronized ByteBuffer acquire(int capacity) {
+        for (int i = 0; i < idleBuffers.length; i++) {
+            ByteBuffer buffer = idleBuffers[i];
+            if (buffer != null && buffer.capacity() == capacity) {
+                idleBuffers[i] = null;
+                reusedBuffers++;
+                buffer.clear();
+                return buffer;
+            }
+        }
+        allocatedBuffers++;
+        return ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * Hands a buffer back to the pool. The buffer must not be used by the caller afterwards.
+     */
+    synchronized void release(ByteBuffer buffer) {
+        if (!buffer.isDirect()) {
+            throw new IllegalArgumentException("Only direct buffers can be pooled");
+        }
+        for (int i = 0; i < idleBuffers.length; i++) {
+            if (idleBuffers[i] == null) {
+                idleBuffers[i] = buffer;
+                return;
+            }
+        }
+        idleBuffers[nextEviction] = buffer;
+        nextEviction = (nextEviction + 1) % idleBuffers.length;
+    }
+
+    synchronized void clear() {
+        for (int i = 0; i < idleBuffers.length; i++) {
+            idleBuffers[i] = null;
+        }
+    }
+
+    synchronized long getAllocatedBuffers() {
+        return allocatedBuffers;
+    }
+
+    synchronized long getReusedBuffers() {
+        return reusedBuffers;
+    }
+}
@@ -0,0 +1,89 @@
+package com.twilio.video.examples.customrenderer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DropOldestQueue is a bounded FIFO queue that never blocks the producer. When the queue is full
+ * the oldest element is evicted to make room and handed back to the producer, so a consumer that
+ * falls behind sees the most recent elements instead of stalling whoever produces them.
+ *
+ * @param <T> the element type
+ */
+final class DropOldestQueue<T> {
+    private final Object[] elements;
+    private int head;
+    private int size;
+    private long droppedCount;
+
+    DropOldestQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+        this.elements = new Object[capacity];
+    }
+
+    /**
+     * Adds an element to the tail of the queue.
+     *
+     * @return the element evicted to make room, or null if the queue was not full
+     */
+    synchronized T offer(T element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        T evicted = null;
+        if (size == elements.length) {
+            evicted = removeHead();
+            droppedCount++;
+        }
+        elements[(head + size) % elements.length] = element;
+        size++;
+        notifyAll();
+        return evicted;
+    }
+
+    /**
+     * Removes the head of the queue, or returns null if the queue is empty.
+     */
+    synchronized T poll() {
+        return size == 0 ? null : removeHead();
+    }
+
+    /**
+     * Removes the head of the queue, waiting up to the timeout for an element to arrive.
+     *
+     * @return the head of the queue, or null if the timeout elapsed first
+     */
+    synchronized T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long remainingNanos = unit.toNanos(timeout);
+        long deadline = System.nanoTime() + remainingNanos;
+        while (size == 0) {
+            if (remainingNanos <= 0) {
+                return null;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+            remainingNanos = deadline - System.nanoTime();
+        }
+        return removeHead();
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns how many elements were evicted because the queue was full.
+     */
+    synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T removeHead() {
+        T element = (T) elements[head];
+        elements[head] = null;
+        head = (head + 1) % elements.length;
+        size--;
+        return element;
+    }
+}
@@ -0,0 +1,121 @@
+package com.twilio.video.examples.customrenderer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * FrameChangeDetector tells whether a frame differs visibly from the last frame that was let
+ * through, from the luma plane alone. The plane is sampled on a sparse grid and the samples are
+ * compared in blocks by their mean absolute difference, so a change confined to one block, such
+ * as a moving cursor, is not averaged away by the rest of the frame while noise stays below the
+ * threshold.
+ *
+ * <p>Frames are compared with the last changed frame rather than the previous one, so a slow fade
+ * is noticed once it adds up. Buffers are kept between frames, so detecting does not allocate. An
+ * instance must only be used from one thread at a time.
+ */
+final class FrameChangeDetector {
+    static final int DEFAULT_SAMPLE_STEP = 8;
+    static final int DEFAULT_BLOCK_SAMPLES = 8;
+    static final int DEFAULT_THRESHOLD = 6;
+
+    private final int blockSamples;
+    private final int threshold;
+    private byte[] reference = new byte[0];
+    private byte[] samples = new byte[0];
+    private byte[] row = new byte[0];
+    private int[] blockSads = new int[0];
+    private int gridWidth;
+    private int gridHeight;
+    private boolean hasReference;
+
+    FrameChangeDetector() {
+        this(DEFAULT_BLOCK_SAMPLES, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param blockSamples the width and height of a block in samples
+     * @param threshold the mean absolute luma difference within a block above which the frame
+     *                  has changed
+     */
+    FrameChangeDetector(int blockSamples, int threshold) {
+        this.blockSamples = blockSamples;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Samples the luma plane every sampleStep pixels and rows and compares it with the last
+     * changed frame. Frames of another size always count as changed. The position of the plane
+     * is left untouched.
+     */
+    boolean hasChanged(ByteBuffer yPlane, int yStride, int width, int height, int sampleStep) {
+        int sampledWidth = (width + sampleStep - 1) / sampleStep;
+        int sampledHeight = (height + sampleStep - 1) / sampleStep;
+        int blocksX = (sampledWidth + blockSamples - 1) / blockSamples;
+        int blocksY = (sampledHeight + blockSamples - 1) / blockSamples;
+        if (sampledWidth != gridWidth || sampledHeight != gridHeight) {
+            gridWidth = sampledWidth;
+            gridHeight = sampledHeight;
+            reference = new byte[sampledWidth * sampledHeight];
+            samples = new byte[sampledWidth * sampledHeight];
+            blockSads = new int[blocksX * blocksY];
+            hasReference = false;
+        }
+        if (row.length < width) {
+            row = new byte[width];
+        }
+
+        int position = yPlane.position();
+        for (int y = 0; y < sampledHeight; y++) {
+            yPlane.position(y * sampleStep * yStride);
+            if (sampleStep == 1) {
+                yPlane.get(samples, y * sampledWidth, sampledWidth);
+                continue;
+            }
+            yPlane.get(row, 0, width);
+            for (int x = 0, offset = y * sampledWidth; x < sampledWidth; x++) {
+                samples[offset + x] = row[x * sampleStep];
+            }
+        }
+        yPlane.position(position);
+
+        boolean changed = !hasReference || differs(blocksX, blocksY);
+        if (changed) {
+            byte[] previous = reference;
+            reference = samples;
+            samples = previous;
+            hasReference = true;
+        }
+        return changed;
+    }
+
+    /**
+     * Forgets the last changed frame, so the next frame counts as changed.
+     */
+    void reset() {
+        hasReference = false;
+    }
+
+    private boolean differs(int blocksX, int blocksY) {
+        for (int i = 0; i < blockSads.length; i++) {
+            blockSads[i] = 0;
+        }
+        for (int y = 0; y < gridHeight; y++) {
+            int blockRow = y / blockSamples * blocksX;
+            for (int x = 0, offset = y * gridWidth; x < gridWidth; x++) {
+                int difference = (samples[offset + x] & 0xff) - (reference[offset + x] & 0xff);
+                blockSads[blockRow + x / blockSamples] +=
+                        difference < 0 ? -difference : difference;
+            }
+        }
+        for (int blockY = 0; blockY < blocksY; blockY++) {
+            int rows = Math.min(blockSamples, gridHeight - blockY * blockSamples);
+            for (int blockX = 0; blockX < blocksX; blockX++) {
+                int columns = Math.min(blockSamples, gridWidth - blockX * blockSamples);
+                if (blockSads[blockY * blocksX + blockX] > threshold * rows * columns) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
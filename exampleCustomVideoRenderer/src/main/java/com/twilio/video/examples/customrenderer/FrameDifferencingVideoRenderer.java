@@ -0,0 +1,123 @@
+package com.twilio.video.examples.customrenderer;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.twilio.video.I420Frame;
+import com.twilio.video.VideoRenderer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FrameDifferencingVideoRenderer passes frames on to another {@link VideoRenderer} only when they
+ * differ visibly from the last frame passed on, as judged by a {@link FrameChangeDetector}.
+ * Mostly static tracks like screen shares and slides then no longer redraw the view, or convert a
+ * snapshot, for every frame. A frame is still passed on at least every keep alive interval so the
+ * renderer behind never goes stale, for example when a snapshot is waiting for the next frame.
+ *
+ * <p>Texture frames are read back at the sampling resolution first, which lets the GPU do the
+ * sampling.
+ */
+public class FrameDifferencingVideoRenderer implements VideoRenderer {
+    public static final long DEFAULT_KEEP_ALIVE_MS = 1000;
+
+    private final VideoRenderer renderer;
+    private final long keepAliveNanos;
+    private final FrameChangeDetector frameChangeDetector = new FrameChangeDetector();
+    private final TextureFrameReader textureFrameReader =
+            new TextureFrameReader(new I420FramePool(new DirectBufferPool()));
+    // The render thread's looper, if it has one, so release() can free the GL objects there
+    private volatile Handler renderThreadHandler;
+    private volatile boolean released;
+    private long lastForwardedNanos;
+    private volatile long forwardedFrames;
+    private volatile long skippedFrames;
+
+    public FrameDifferencingVideoRenderer(VideoRenderer renderer) {
+        this(renderer, DEFAULT_KEEP_ALIVE_MS);
+    }
+
+    /**
+     * @param keepAliveMs the longest time frames are held back while nothing changes
+     */
+    public FrameDifferencingVideoRenderer(VideoRenderer renderer, long keepAliveMs) {
+        this.renderer = renderer;
+        this.keepAliveNanos = TimeUnit.MILLISECONDS.toNanos(keepAliveMs);
+    }
+
+    @Override
+    public void renderFrame(I420Frame i420Frame) {
+        if (released) {
+            textureFrameReader.release();
+            renderer.renderFrame(i420Frame);
+            return;
+        }
+        long now = System.nanoTime();
+        boolean keepAlive = forwardedFrames == 0 || now - lastForwardedNanos >= keepAliveNanos;
+        if (hasChanged(i420Frame) || keepAlive) {
+            lastForwardedNanos = now;
+            forwardedFrames++;
+            renderer.renderFrame(i420Frame);
+        } else {
+            skippedFrames++;
+
+            // Frames must be released after rendering to free the native memory
+            i420Frame.release();
+        }
+    }
+
+    public long getForwardedFrames() {
+        return forwardedFrames;
+    }
+
+    /**
+     * Returns how many frames were held back because they had not changed.
+     */
+    public long getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    /**
+     * Frees the GL objects used to read texture frames back. They belong to the render thread's
+     * EGL context, so they are deleted on the render thread, posted to its looper if it has one
+     * and otherwise with the next frame rendered. Frames rendered afterwards are all passed on.
+     * The renderer behind is not released.
+     */
+    public void release() {
+        released = true;
+        Handler renderThreadHandler = this.renderThreadHandler;
+        if (renderThreadHandler != null) {
+            renderThreadHandler.post(textureFrameReader::release);
+        }
+    }
+
+    private boolean hasChanged(I420Frame i420Frame) {
+        int sampleStep = FrameChangeDetector.DEFAULT_SAMPLE_STEP;
+        if (i420Frame.yuvPlanes != null) {
+            return frameChangeDetector.hasChanged(i420Frame.yuvPlanes[0],
+                    i420Frame.yuvStrides[0],
+                    i420Frame.width,
+                    i420Frame.height,
+                    sampleStep);
+        }
+
+        if (renderThreadHandler == null && Looper.myLooper() != null) {
+            renderThreadHandler = new Handler(Looper.myLooper());
+        }
+
+        // Rotation does not matter for differencing, so the texture is read back unrotated
+        PooledI420Frame frame = textureFrameReader.read(i420Frame.textureId,
+                i420Frame.samplingMatrix,
+                (i420Frame.width + sampleStep - 1) / sampleStep,
+                (i420Frame.height + sampleStep - 1) / sampleStep);
+        try {
+            return frameChangeDetector.hasChanged(frame.yuvPlanes[0],
+                    frame.yuvStrides[0],
+                    frame.width,
+                    frame.height,
+                    1);
+        } finally {
+            textureFrameReader.recycle(frame);
+        }
+    }
+}
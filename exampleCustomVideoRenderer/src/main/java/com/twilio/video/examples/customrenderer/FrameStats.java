@@ -0,0 +1,47 @@
+package com.twilio.video.examples.customrenderer;
+
+/**
+ * FrameStats is a snapshot of the frames a {@link FrameStatsVideoRenderer} received. Rates and
+ * jitter cover the recent frames kept by the renderer, while the counters cover every frame.
+ *
+ * <p>Jitter is how far the time between two frames strayed from the average time between frames,
+ * so a steady stream has low jitter whatever its frame rate.
+ */
+public final class FrameStats {
+    public final long frameCount;
+    public final double framesPerSecond;
+    public final double meanFrameIntervalMs;
+    public final double jitterP50Ms;
+    public final double jitterP95Ms;
+    public final double jitterP99Ms;
+    public final double maxFrameIntervalMs;
+    public final int width;
+    public final int height;
+    public final int rotationDegree;
+    public final int resolutionChanges;
+
+    FrameStats(long frameCount, double framesPerSecond, double meanFrameIntervalMs,
+               double jitterP50Ms, double jitterP95Ms, double jitterP99Ms,
+               double maxFrameIntervalMs, int width, int height, int rotationDegree,
+               int resolutionChanges) {
+        this.frameCount = frameCount;
+        this.framesPerSecond = framesPerSecond;
+        this.meanFrameIntervalMs = meanFrameIntervalMs;
+        this.jitterP50Ms = jitterP50Ms;
+        this.jitterP95Ms = jitterP95Ms;
+        this.jitterP99Ms = jitterP99Ms;
+        this.maxFrameIntervalMs = maxFrameIntervalMs;
+        this.width = width;
+        this.height = height;
+        this.rotationDegree = rotationDegree;
+        this.resolutionChanges = resolutionChanges;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%dx%d@%d %.1ffps, jitter p50 %.1fms p95 %.1fms p99 %.1fms, " +
+                        "max interval %.1fms, %d resolution changes, %d frames", width, height,
+                rotationDegree, framesPerSecond, jitterP50Ms, jitterP95Ms, jitterP99Ms,
+                maxFrameIntervalMs, resolutionChanges, frameCount);
+    }
+}
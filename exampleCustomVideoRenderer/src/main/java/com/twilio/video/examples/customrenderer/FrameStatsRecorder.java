@@ -0,0 +1,105 @@
+package com.twilio.video.examples.customrenderer;
+
+import java.util.Arrays;
+
+/**
+ * FrameStatsRecorder keeps the arrival time, dimensions and rotation of the most recent frames of
+ * a track in a fixed ring of primitive arrays, so recording a frame does not allocate. Frame rate
+ * and jitter are computed over that ring when {@link #getStats()} is called, while frame and
+ * resolution change counts cover the whole track.
+ *
+ * <p>{@link #record} is called on the render thread and {@link #getStats()} from any thread.
+ */
+final class FrameStatsRecorder {
+    static final int DEFAULT_CAPACITY = 256;
+
+    private final long[] arrivalNanos;
+    private final int[] widths;
+    private final int[] heights;
+    private final int[] rotations;
+    private final double[] jitterScratch;
+    private int nextFrame;
+    private int recentFrames;
+    private long frameCount;
+    private int resolutionChanges;
+
+    FrameStatsRecorder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    FrameStatsRecorder(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("At least two frames are needed for rates");
+        }
+        this.arrivalNanos = new long[capacity];
+        this.widths = new int[capacity];
+        this.heights = new int[capacity];
+        this.rotations = new int[capacity];
+        this.jitterScratch = new double[capacity - 1];
+    }
+
+    synchronized void record(long frameArrivalNanos, int width, int height, int rotationDegree) {
+        if (frameCount > 0) {
+            int last = (nextFrame + arrivalNanos.length - 1) % arrivalNanos.length;
+            if (widths[last] != width || heights[last] != height) {
+                resolutionChanges++;
+            }
+        }
+        arrivalNanos[nextFrame] = frameArrivalNanos;
+        widths[nextFrame] = width;
+        heights[nextFrame] = height;
+        rotations[nextFrame] = rotationDegree;
+        nextFrame = (nextFrame + 1) % arrivalNanos.length;
+        recentFrames = Math.min(recentFrames + 1, arrivalNanos.length);
+        frameCount++;
+    }
+
+    synchronized void reset() {
+        nextFrame = 0;
+        recentFrames = 0;
+        frameCount = 0;
+        resolutionChanges = 0;
+    }
+
+    synchronized FrameStats getStats() {
+        int capacity = arrivalNanos.length;
+        int first = (nextFrame + capacity - recentFrames) % capacity;
+        int last = (nextFrame + capacity - 1) % capacity;
+        if (recentFrames < 2) {
+            return new FrameStats(frameCount, 0, 0, 0, 0, 0, 0,
+                    recentFrames == 0 ? 0 : widths[last],
+                    recentFrames == 0 ? 0 : heights[last],
+                    recentFrames == 0 ? 0 : rotations[last],
+                    resolutionChanges);
+        }
+
+        int intervals = recentFrames - 1;
+        long spanNanos = arrivalNanos[last] - arrivalNanos[first];
+        double meanIntervalNanos = (double) spanNanos / intervals;
+        long maxIntervalNanos = 0;
+        for (int i = 0; i < intervals; i++) {
+            int frame = (first + i) % capacity;
+            long interval = arrivalNanos[(frame + 1) % capacity] - arrivalNanos[frame];
+            maxIntervalNanos = Math.max(maxIntervalNanos, interval);
+            jitterScratch[i] = Math.abs(interval - meanIntervalNanos);
+        }
+        Arrays.sort(jitterScratch, 0, intervals);
+
+        return new FrameStats(frameCount,
+                spanNanos == 0 ? 0 : intervals * 1e9 / spanNanos,
+                meanIntervalNanos / 1e6,
+                percentile(intervals, 50) / 1e6,
+                percentile(intervals, 95) / 1e6,
+                percentile(intervals, 99) / 1e6,
+                maxIntervalNanos / 1e6,
+                widths[last],
+                heights[last],
+                rotations[last],
+                resolutionChanges);
+    }
+
+    private double percentile(int count, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return jitterScratch[Math.max(0, Math.min(count - 1, index))];
+    }
+}
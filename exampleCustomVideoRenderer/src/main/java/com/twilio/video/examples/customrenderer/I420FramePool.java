@@ -0,0 +1,93 @@
+package com.twilio.video.examples.customrenderer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * I420FramePool hands out {@link PooledI420Frame}s backed by a {@link DirectBufferPool}. Frames
+ * are either filled by the caller, like {@link TextureFrameReader} does, or copied from the planes
+ * of a rendered frame with {@link #copyOf}, which lets the rendered frame be released right away.
+ *
+ * <p>Buffers of one size are usually filled with the same layout, so the plane views of the last
+ * few buffers are kept and reused. {@link #acquire} and {@link #copyOf} must be called from one
+ * thread at a time, while frames can be released from any thread.
+ */
+final class I420FramePool {
+    private final DirectBufferPool bufferPool;
+    private final PooledI420Frame[] frames =
+            new PooledI420Frame[DirectBufferPool.DEFAULT_MAX_IDLE_BUFFERS];
+    private final int[] planeOffsets = new int[3];
+    private final int[] planeLengths = new int[3];
+    private int nextFrameSlot;
+
+    I420FramePool(DirectBufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * Returns a frame whose planes start at the given offsets of a buffer of the given capacity.
+     * The contents of the buffer are undefined.
+     */
+    PooledI420Frame acquire(int capacity, int[] planeOffsets, int[] yuvStrides, int width,
+                            int height) {
+        ByteBuffer buffer = bufferPool.acquire(capacity);
+        PooledI420Frame frame = null;
+        for (PooledI420Frame cached : frames) {
+            if (cached != null && cached.hasLayout(buffer, planeOffsets, yuvStrides)) {
+                frame = cached;
+                break;
+            }
+        }
+        if (frame == null) {
+            frame = new PooledI420Frame(buffer, planeOffsets, yuvStrides);
+            frames[nextFrameSlot] = frame;
+            nextFrameSlot = (nextFrameSlot + 1) % frames.length;
+        }
+        frame.width = width;
+        frame.height = height;
+        frame.rotationDegree = 0;
+        frame.fromTexture = false;
+        return frame;
+    }
+
+    /**
+     * Copies the planes of a frame into a pooled frame, keeping their strides. Each plane is
+     * copied with a single bulk put, and the positions of the source planes are left untouched.
+     */
+    PooledI420Frame copyOf(ByteBuffer[] yuvPlanes, int[] yuvStrides, int width, int height,
+                           int rotationDegree) {
+        int chromaWidth = (width + 1) / 2;
+        int chromaHeight = (height + 1) / 2;
+        // The last row of a plane may stop at the frame width rather than the stride
+        planeLengths[0] = planeLength(yuvPlanes[0], yuvStrides[0], width, height);
+        planeLengths[1] = planeLength(yuvPlanes[1], yuvStrides[1], chromaWidth, chromaHeight);
+        planeLengths[2] = planeLength(yuvPlanes[2], yuvStrides[2], chromaWidth, chromaHeight);
+        planeOffsets[0] = 0;
+        planeOffsets[1] = planeLengths[0];
+        planeOffsets[2] = planeLengths[0] + planeLengths[1];
+
+        PooledI420Frame frame = acquire(planeOffsets[2] + planeLengths[2], planeOffsets,
+                yuvStrides, width, height);
+        frame.rotationDegree = rotationDegree;
+        for (int plane = 0; plane < 3; plane++) {
+            ByteBuffer source = yuvPlanes[plane];
+            int position = source.position();
+            int limit = source.limit();
+            source.limit(planeLengths[plane]);
+            source.position(0);
+            frame.buffer.position(planeOffsets[plane]);
+            frame.buffer.put(source);
+            source.limit(limit);
+            source.position(position);
+        }
+        frame.buffer.clear();
+        return frame;
+    }
+
+    void release(PooledI420Frame frame) {
+        bufferPool.release(frame.buffer);
+    }
+
+    private static int planeLength(ByteBuffer plane, int stride, int width, int rows) {
+        return Math.min(plane.capacity(), stride * (rows - 1) + width);
+    }
+}
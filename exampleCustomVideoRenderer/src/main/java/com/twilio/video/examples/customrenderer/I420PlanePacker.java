@@ -0,0 +1,69 @@
+package com.twilio.video.examples.customrenderer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * I420PlanePacker packs the strided planes of an I420 frame into the tightly packed NV21 layout
+ * expected by {@link android.graphics.YuvImage}. Rows are copied out of the planes with bulk
+ * gets, all at once when the luma plane has no padding, and the chroma rows are interleaved from
+ * plain arrays.
+ *
+ * <p>The output array is reused between frames of the same size, so it is only valid until the
+ * next call. An instance must only be used from one thread at a time.
+ */
+final class I420PlanePacker {
+    private byte[] nv21 = new byte[0];
+    private byte[] uRow = new byte[0];
+    private byte[] vRow = new byte[0];
+
+    /**
+     * Returns the frame as NV21. The positions of the plane buffers are left untouched.
+     */
+    byte[] packNv21(ByteBuffer[] yuvPlanes, int[] yuvStrides, int width, int height) {
+        int chromaWidth = width / 2;
+        int chromaHeight = height / 2;
+        if (nv21.length != width * height * 3 / 2) {
+            nv21 = new byte[width * height * 3 / 2];
+        }
+        if (uRow.length != chromaWidth) {
+            uRow = new byte[chromaWidth];
+            vRow = new byte[chromaWidth];
+        }
+        byte[] nv21 = this.nv21;
+        byte[] uRow = this.uRow;
+        byte[] vRow = this.vRow;
+        ByteBuffer yPlane = yuvPlanes[0];
+        ByteBuffer uPlane = yuvPlanes[1];
+        ByteBuffer vPlane = yuvPlanes[2];
+        int yPosition = yPlane.position();
+        int uPosition = uPlane.position();
+        int vPosition = vPlane.position();
+
+        if (yuvStrides[0] == width) {
+            yPlane.position(0);
+            yPlane.get(nv21, 0, width * height);
+        } else {
+            for (int row = 0; row < height; row++) {
+                yPlane.position(row * yuvStrides[0]);
+                yPlane.get(nv21, row * width, width);
+            }
+        }
+
+        int i = width * height;
+        for (int row = 0; row < chromaHeight; row++) {
+            uPlane.position(row * yuvStrides[1]);
+            uPlane.get(uRow, 0, chromaWidth);
+            vPlane.position(row * yuvStrides[2]);
+            vPlane.get(vRow, 0, chromaWidth);
+            for (int col = 0; col < chromaWidth; col++) {
+                nv21[i++] = vRow[col];
+                nv21[i++] = uRow[col];
+            }
+        }
+
+        yPlane.position(yPosition);
+        uPlane.position(uPosition);
+        vPlane.position(vPosition);
+        return nv21;
+    }
+}
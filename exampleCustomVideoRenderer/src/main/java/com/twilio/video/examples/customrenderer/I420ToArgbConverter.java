@@ -0,0 +1,147 @@
+package com.twilio.video.examples.customrenderer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * I420ToArgbConverter converts I420 frames straight into ARGB pixels that can be handed to
+ * {@link android.graphics.Bitmap#setPixels}. Rotation is applied while converting by writing
+ * every row to its rotated place in the output, and planes with any row stride are supported.
+ *
+ * <p>The pixel array and the row buffers are kept between frames and only reallocated when the
+ * frame size changes, so converting a stream of frames does not allocate. An instance must only
+ * be used from one thread at a time.
+ *
+ * <p>The conversion uses the BT.601 limited range coefficients that WebRTC uses for I420.
+ */
+final class I420ToArgbConverter {
+    // 8-bit fixed point BT.601 coefficients
+    private static final int[] Y_TO_RGB = new int[256];
+    private static final int[] V_TO_R = new int[256];
+    private static final int[] U_TO_G = new int[256];
+    private static final int[] V_TO_G = new int[256];
+    private static final int[] U_TO_B = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            Y_TO_RGB[i] = 298 * (i - 16) + 128;
+            V_TO_R[i] = 409 * (i - 128);
+            U_TO_G[i] = -100 * (i - 128);
+            V_TO_G[i] = -208 * (i - 128);
+            U_TO_B[i] = 516 * (i - 128);
+        }
+    }
+
+    private int[] pixels = new int[0];
+    private byte[] yRow = new byte[0];
+    private byte[] uRow = new byte[0];
+    private byte[] vRow = new byte[0];
+    private int outputWidth;
+    private int outputHeight;
+
+    /**
+     * Converts a frame and returns the reused pixel array, which holds
+     * {@link #getOutputWidth()} by {@link #getOutputHeight()} pixels until the next call. The
+     * positions of the plane buffers are left untouched.
+     *
+     * @param rotationDegrees clockwise rotation applied to the frame, a multiple of 90
+     */
+    int[] convert(ByteBuffer[] yuvPlanes, int[] yuvStrides, int width, int height,
+                  int rotationDegrees) {
+        int rotation = ((rotationDegrees % 360) + 360) % 360;
+        if (rotation % 90 != 0) {
+            throw new IllegalArgumentException("Unsupported rotation " + rotationDegrees);
+        }
+        boolean transposed = rotation == 90 || rotation == 270;
+        outputWidth = transposed ? height : width;
+        outputHeight = transposed ? width : height;
+        int chromaWidth = (width + 1) / 2;
+        if (pixels.length != width * height) {
+            pixels = new int[width * height];
+        }
+        if (yRow.length != width) {
+            yRow = new byte[width];
+            uRow = new byte[chromaWidth];
+            vRow = new byte[chromaWidth];
+        }
+
+        /*
+         * Each source row is written to the output starting at rowStart and moving by step for
+         * every pixel, which turns the row into a column for the quarter turns.
+         */
+        int rowStart;
+        int rowStep;
+        int step;
+        switch (rotation) {
+            case 90:
+                rowStart = height - 1;
+                rowStep = -1;
+                step = height;
+                break;
+            case 180:
+                rowStart = width * height - 1;
+                rowStep = -width;
+                step = -1;
+                break;
+            case 270:
+                rowStart = (width - 1) * height;
+                rowStep = 1;
+                step = -height;
+                break;
+            default:
+                rowStart = 0;
+                rowStep = width;
+                step = 1;
+                break;
+        }
+
+        ByteBuffer yPlane = yuvPlanes[0];
+        ByteBuffer uPlane = yuvPlanes[1];
+        ByteBuffer vPlane = yuvPlanes[2];
+        int yPosition = yPlane.position();
+        int uPosition = uPlane.position();
+        int vPosition = vPlane.position();
+        int[] pixels = this.pixels;
+        byte[] yRow = this.yRow;
+        byte[] uRow = this.uRow;
+        byte[] vRow = this.vRow;
+
+        for (int row = 0; row < height; row++) {
+            readRow(yPlane, row * yuvStrides[0], yRow, width);
+            if ((row & 1) == 0) {
+                readRow(uPlane, (row >> 1) * yuvStrides[1], uRow, chromaWidth);
+                readRow(vPlane, (row >> 1) * yuvStrides[2], vRow, chromaWidth);
+            }
+            int index = rowStart + row * rowStep;
+            for (int col = 0; col < width; col++, index += step) {
+                int u = uRow[col >> 1] & 0xff;
+                int v = vRow[col >> 1] & 0xff;
+                int y = Y_TO_RGB[yRow[col] & 0xff];
+                int r = clamp((y + V_TO_R[v]) >> 8);
+                int g = clamp((y + U_TO_G[u] + V_TO_G[v]) >> 8);
+                int b = clamp((y + U_TO_B[u]) >> 8);
+                pixels[index] = 0xff000000 | r << 16 | g << 8 | b;
+            }
+        }
+        yPlane.position(yPosition);
+        uPlane.position(uPosition);
+        vPlane.position(vPosition);
+        return pixels;
+    }
+
+    int getOutputWidth() {
+        return outputWidth;
+    }
+
+    int getOutputHeight() {
+        return outputHeight;
+    }
+
+    private static void readRow(ByteBuffer plane, int offset, byte[] row, int length) {
+        plane.position(offset);
+        plane.get(row, 0, length);
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : value > 255 ? 255 : value;
+    }
+}
@@ -0,0 +1,47 @@
+package com.twilio.video.examples.customrenderer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * PooledI420Frame is an I420 frame held in a direct buffer from an {@link I420FramePool}. The
+ * planes are views into that one buffer, laid out by whoever filled it. Hand the frame back with
+ * {@link I420FramePool#release} once done, after which it must not be used.
+ */
+final class PooledI420Frame {
+    final ByteBuffer buffer;
+    final ByteBuffer[] yuvPlanes;
+    final int[] yuvStrides;
+    final int[] planeOffsets;
+    int width;
+    int height;
+    // Rotation still to be applied, zero for frames read from textures which are rotated already
+    int rotationDegree;
+    boolean fromTexture;
+
+    PooledI420Frame(ByteBuffer buffer, int[] planeOffsets, int[] yuvStrides) {
+        this.buffer = buffer;
+        this.planeOffsets = planeOffsets.clone();
+        this.yuvStrides = yuvStrides.clone();
+        this.yuvPlanes = new ByteBuffer[]{
+                slice(buffer, planeOffsets[0]),
+                slice(buffer, planeOffsets[1]),
+                slice(buffer, planeOffsets[2])
+        };
+    }
+
+    boolean hasLayout(ByteBuffer buffer, int[] planeOffsets, int[] yuvStrides) {
+        return this.buffer == buffer &&
+                this.planeOffsets[0] == planeOffsets[0] &&
+                this.planeOffsets[1] == planeOffsets[1] &&
+                this.planeOffsets[2] == planeOffsets[2] &&
+                this.yuvStrides[0] == yuvStrides[0] &&
+                this.yuvStrides[1] == yuvStrides[1] &&
+                this.yuvStrides[2] == yuvStrides[2];
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        return view.slice();
+    }
+}
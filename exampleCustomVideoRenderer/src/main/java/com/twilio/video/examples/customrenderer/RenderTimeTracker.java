@@ -0,0 +1,80 @@
+package com.twilio.video.examples.customrenderer;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RenderTimeTracker records how long the render thread spends on each frame. The most recent
+ * frames are kept in a fixed ring of samples for percentiles, while the maximum and the number of
+ * frames over budget cover every frame recorded. Recording does not allocate.
+ */
+final class RenderTimeTracker {
+    static final int DEFAULT_SAMPLE_COUNT = 300;
+
+    private final long budgetNanos;
+    private final long[] samples;
+    private final long[] sortedSamples;
+    private int nextSample;
+    private int sampleCount;
+    private long frameCount;
+    private long framesOverBudget;
+    private long maxNanos;
+
+    RenderTimeTracker(long budgetMs) {
+        this(budgetMs, DEFAULT_SAMPLE_COUNT);
+    }
+
+    RenderTimeTracker(long budgetMs, int sampleCount) {
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        this.samples = new long[sampleCount];
+        this.sortedSamples = new long[sampleCount];
+    }
+
+    synchronized void record(long elapsedNanos) {
+        samples[nextSample] = elapsedNanos;
+        nextSample = (nextSample + 1) % samples.length;
+        sampleCount = Math.min(sampleCount + 1, samples.length);
+        frameCount++;
+        if (elapsedNanos > budgetNanos) {
+            framesOverBudget++;
+        }
+        maxNanos = Math.max(maxNanos, elapsedNanos);
+    }
+
+    /**
+     * Returns the given percentile of the recent frames, or zero if none were recorded.
+     */
+    synchronized long getPercentileNanos(int percentile) {
+        if (sampleCount == 0) {
+            return 0;
+        }
+        System.arraycopy(samples, 0, sortedSamples, 0, sampleCount);
+        Arrays.sort(sortedSamples, 0, sampleCount);
+        int index = (int) Math.ceil(percentile / 100.0 * sampleCount) - 1;
+        return sortedSamples[Math.max(0, Math.min(sampleCount - 1, index))];
+    }
+
+    synchronized long getMaxNanos() {
+        return maxNanos;
+    }
+
+    synchronized long getFrameCount() {
+        return frameCount;
+    }
+
+    synchronized long getFramesOverBudget() {
+        return framesOverBudget;
+    }
+
+    long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d frames, p50 %.2fms, p99 %.2fms, max %.2fms, %d over the %dms " +
+                        "budget", frameCount, getPercentileNanos(50) / 1e6,
+                getPercentileNanos(99) / 1e6, maxNanos / 1e6, framesOverBudget,
+                TimeUnit.NANOSECONDS.toMillis(budgetNanos));
+    }
+}
@@ -0,0 +1,72 @@
+package com.twilio.video.examples.customrenderer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SnapshotScheduler decides which rendered frames are captured. A burst captures the next
+ * consecutive frames, while periodic capture takes the first frame rendered once every interval.
+ * Both can be requested from any thread and {@link #shouldCapture(long)} is asked on the render
+ * thread for every frame.
+ */
+final class SnapshotScheduler {
+    private int burstFramesRemaining;
+    private long intervalNanos;
+    private long nextCaptureNanos;
+
+    synchronized void requestBurst(int frameCount) {
+        if (frameCount <= 0) {
+            throw new IllegalArgumentException("A burst needs at least one frame");
+        }
+        burstFramesRemaining += frameCount;
+    }
+
+    /**
+     * Captures a frame every interval starting with the next frame rendered, until
+     * {@link #stopPeriodic()} is called.
+     */
+    synchronized void startPeriodic(long intervalMs) {
+        if (intervalMs <= 0) {
+            throw new IllegalArgumentException("The interval must be positive");
+        }
+        intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        nextCaptureNanos = 0;
+    }
+
+    synchronized void stopPeriodic() {
+        intervalNanos = 0;
+    }
+
+    synchronized void cancel() {
+        burstFramesRemaining = 0;
+        intervalNanos = 0;
+    }
+
+    synchronized boolean isPeriodic() {
+        return intervalNanos != 0;
+    }
+
+    synchronized int getBurstFramesRemaining() {
+        return burstFramesRemaining;
+    }
+
+    synchronized boolean shouldCapture(long frameTimeNanos) {
+        boolean periodicDue = intervalNanos != 0 &&
+                (nextCaptureNanos == 0 || frameTimeNanos - nextCaptureNanos >= 0);
+        if (periodicDue) {
+            /*
+             * Stay on the original schedule unless frames stopped arriving for longer than an
+             * interval, in which case the schedule restarts from this frame rather than
+             * capturing every following frame to catch up.
+             */
+            nextCaptureNanos = nextCaptureNanos == 0 ||
+                    frameTimeNanos - nextCaptureNanos >= intervalNanos ?
+                    frameTimeNanos + intervalNanos :
+                    nextCaptureNanos + intervalNanos;
+        }
+        if (burstFramesRemaining > 0) {
+            burstFramesRemaining--;
+            return true;
+        }
+        return periodicDue;
+    }
+}
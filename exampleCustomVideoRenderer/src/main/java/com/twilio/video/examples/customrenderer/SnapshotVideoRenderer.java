@@ -2,7 +2,6 @@ package com.twilio.video.examples.customrenderer;
 
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.graphics.Matrix;
 import android.graphics.Rect;
 import android.graphics.YuvImage;
 import android.os.Handler;
@@ -13,11 +12,17 @@ import com.twilio.video.I420Frame;
 import com.twilio.video.VideoRenderer;
 
 import org.webrtc.RendererCommon;
-import org.webrtc.YuvConverter;
 
 import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static android.graphics.ImageFormat.NV21;
 
@@ -25,38 +30,131 @@ import static android.graphics.ImageFormat.NV21;
  * SnapshotVideoRenderer demonstrates how to implement a custom {@link VideoRenderer}. Caches the
  * last frame rendered and will update the provided image view any time {@link #takeSnapshot()} is
  * invoked.
+ *
+ * <p>Series of frames can be captured as well, either a burst of consecutive frames with
+ * {@link #takeBurst(int)} or one frame every interval with {@link #startPeriodicSnapshots(long)}.
+ * These frames are queued for {@link #pollSnapshot(long)}. The queue is bounded and drops the
+ * oldest snapshot when the consumer falls behind.
+ *
+ * <p>The render thread is shared by every renderer of a track, so it only copies the planes of a
+ * captured frame into a pooled buffer, or reads a texture frame back into one, and releases the
+ * frame right away. Conversion and bitmap creation happen on a pool of worker threads, and frames
+ * are skipped while the workers are saturated so the render thread never waits on snapshots. The
+ * time spent on the render thread is tracked per frame against {@link #RENDER_BUDGET_MS}.
+ *
+ * <p>Texture frames are drawn into an RGBA framebuffer and read back with one
+ * {@code glReadPixels}, leaving the workers nothing to do but copy the pixels into a bitmap. The
+ * previous path through YUV, NV21 and JPEG can be selected with
+ * {@link #setRgbaTextureReadback(boolean)} for comparison.
  */
 public class SnapshotVideoRenderer implements VideoRenderer {
+    public static final long RENDER_BUDGET_MS = 4;
+    private static final int DEFAULT_MAX_QUEUED_SNAPSHOTS = 8;
+    private static final int SNAPSHOT_WORKERS = 2;
+    // Pooled frames waiting for the workers, which bounds the memory held by snapshots
+    private static final int MAX_PENDING_SNAPSHOTS = SNAPSHOT_WORKERS * 2;
+
+    /**
+     * Snapshot is a frame captured by a burst or periodic capture. The bitmap belongs to the
+     * caller once polled.
+     */
+    public static final class Snapshot {
+        public final Bitmap bitmap;
+        // Counts the frames captured by this renderer, so gaps show where snapshots were lost
+        public final long sequenceNumber;
+        // The System.nanoTime() at which the frame was rendered
+        public final long captureTimeNanos;
+
+        private Snapshot(Bitmap bitmap, long sequenceNumber, long captureTimeNanos) {
+            this.bitmap = bitmap;
+            this.sequenceNumber = sequenceNumber;
+            this.captureTimeNanos = captureTimeNanos;
+        }
+    }
+
     private final ImageView imageView;
     private final AtomicBoolean snapshotRequsted = new AtomicBoolean(false);
     private final Handler handler = new Handler(Looper.getMainLooper());
+    private final I420FramePool framePool = new I420FramePool(new DirectBufferPool());
+    private final TextureFrameReader textureFrameReader = new TextureFrameReader(framePool);
+    private final TextureRgbaReader textureRgbaReader =
+            new TextureRgbaReader(new DirectBufferPool());
+    private volatile boolean rgbaTextureReadback = true;
+    private final RenderTimeTracker renderTimeTracker = new RenderTimeTracker(RENDER_BUDGET_MS);
+    // A bitmap the image view no longer shows, handed back by the main thread for reuse
+    private final AtomicReference<Bitmap> spareDisplayBitmap = new AtomicReference<>();
+    // Only used on the main thread
+    private Bitmap displayedBitmap;
+    private long displayedSequenceNumber = -1;
+
+    private final SnapshotScheduler snapshotScheduler = new SnapshotScheduler();
+    private final DropOldestQueue<Snapshot> snapshotQueue;
+    private final ExecutorService snapshotExecutor = Executors.newFixedThreadPool(SNAPSHOT_WORKERS,
+            runnable -> new Thread(runnable, "SnapshotWorker"));
+    private final AtomicInteger pendingSnapshots = new AtomicInteger();
+    private final AtomicLong skippedSnapshots = new AtomicLong();
+    private final AtomicBoolean released = new AtomicBoolean(false);
+    // The render thread's looper, if it has one, so release() can free the GL objects there
+    private volatile Handler renderThreadHandler;
+    private long nextSequenceNumber;
+    // Numbers the snapshots taken for display, so the main thread can skip ones that finish late
+    private long nextDisplaySequenceNumber;
+    // Converters keep their output between frames, so every worker has its own
+    private final ThreadLocal<I420ToArgbConverter> workerArgbConverters =
+            new ThreadLocal<I420ToArgbConverter>() {
+                @Override
+                protected I420ToArgbConverter initialValue() {
+                    return new I420ToArgbConverter();
+                }
+            };
+    private final ThreadLocal<I420PlanePacker> workerPlanePackers =
+            new ThreadLocal<I420PlanePacker>() {
+                @Override
+                protected I420PlanePacker initialValue() {
+                    return new I420PlanePacker();
+                }
+            };
 
     public SnapshotVideoRenderer(ImageView imageView) {
+        this(imageView, DEFAULT_MAX_QUEUED_SNAPSHOTS);
+    }
+
+    /**
+     * @param imageView the view updated by {@link #takeSnapshot()}, may be null if only bursts
+     *                  and periodic snapshots are used
+     * @param maxQueuedSnapshots how many snapshots are kept for {@link #pollSnapshot(long)}
+     *                           before the oldest are dropped
+     */
+    public SnapshotVideoRenderer(ImageView imageView, int maxQueuedSnapshots) {
         this.imageView = imageView;
+        this.snapshotQueue = new DropOldestQueue<>(maxQueuedSnapshots);
     }
 
     @Override
     public void renderFrame(final I420Frame i420Frame) {
-        // Capture bitmap and post to main thread
-        if (snapshotRequsted.compareAndSet(true, false)) {
-            /*
-             * I420Frame can be represented as texture or an in-memory buffer. yuvPlanes is not
-             * null and textureId is zero when frame is represented in memory and yuvPlanes is
-             * null textureId is a non zero value when the frame is represented as a texture.
-             */
-            final Bitmap bitmap = i420Frame.yuvPlanes == null ?
-                    captureBitmapFromTexture(i420Frame) :
-                    captureBitmapFromYuvFrame(i420Frame);
-            handler.post(() -> {
-                // Update the bitmap of image view
-                imageView.setImageBitmap(bitmap);
-
-                // Frames must be released after rendering to free the native memory
-                i420Frame.release();
-            });
-        } else {
+        if (released.get()) {
+            releaseTextureReaders();
+
+            // Frames must be released after rendering to free the native memory
             i420Frame.release();
+            return;
+        }
+        long frameTimeNanos = System.nanoTime();
+        boolean display = snapshotRequsted.compareAndSet(true, false);
+        boolean queue = snapshotScheduler.shouldCapture(frameTimeNanos);
+
+        if (display || queue) {
+            boolean queued = queueSnapshot(i420Frame, frameTimeNanos, display, queue);
+            if (!queued && display) {
+                // Take the snapshot with a later frame instead
+                snapshotRequsted.set(true);
+            }
         }
+
+        // Frames must be released after rendering to free the native memory
+        i420Frame.release();
+
+        renderTimeTracker.record(System.nanoTime() - frameTimeNanos);
     }
 
     /**
@@ -66,11 +164,264 @@ public class SnapshotVideoRenderer implements VideoRenderer {
         snapshotRequsted.set(true);
     }
 
-    private Bitmap captureBitmapFromTexture(I420Frame i420Frame) {
+    /**
+     * Captures the next frames rendered, queued for {@link #pollSnapshot(long)}.
+     */
+    public void takeBurst(int frameCount) {
+        snapshotScheduler.requestBurst(frameCount);
+    }
+
+    /**
+     * Captures a frame every interval until {@link #stopPeriodicSnapshots()} is called, queued
+     * for {@link #pollSnapshot(long)}.
+     */
+    public void startPeriodicSnapshots(long intervalMs) {
+        snapshotScheduler.startPeriodic(intervalMs);
+    }
+
+    public void stopPeriodicSnapshots() {
+        snapshotScheduler.stopPeriodic();
+    }
+
+    /**
+     * Chooses whether texture frames are read back as RGBA, the default, or converted to YUV
+     * and decoded through JPEG on the workers.
+     */
+    public void setRgbaTextureReadback(boolean rgbaTextureReadback) {
+        this.rgbaTextureReadback = rgbaTextureReadback;
+    }
+
+    /**
+     * Returns the oldest queued snapshot, waiting up to the timeout for one to be captured.
+     *
+     * @return the snapshot, or null if none was captured in time
+     */
+    public Snapshot pollSnapshot(long timeoutMs) throws InterruptedException {
+        return snapshotQueue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns how many frames due to be captured were lost, either skipped because the workers
+     * were saturated or dropped from a full queue.
+     */
+    public long getDroppedSnapshotCount() {
+        return skippedSnapshots.get() + snapshotQueue.getDroppedCount();
+    }
+
+    /**
+     * Returns the given percentile of the time the render thread spent on recent frames.
+     */
+    public long getRenderThreadTimeNanos(int percentile) {
+        return renderTimeTracker.getPercentileNanos(percentile);
+    }
+
+    public long getMaxRenderThreadTimeNanos() {
+        return renderTimeTracker.getMaxNanos();
+    }
+
+    /**
+     * Returns how many frames kept the render thread busy for longer than
+     * {@link #RENDER_BUDGET_MS}.
+     */
+    public long getFramesOverRenderBudget() {
+        return renderTimeTracker.getFramesOverBudget();
+    }
+
+    /**
+     * Summarizes the render thread time. Sorting the recent frames for percentiles takes a
+     * moment, so this is meant to be logged from another thread, not from the render thread.
+     */
+    @Override
+    public String toString() {
+        return String.format("Render thread time: %s", renderTimeTracker);
+    }
+
+    /**
+     * Stops capturing and shuts the worker threads down once the pending snapshots are done.
+     * Snapshots already queued can still be polled.
+     *
+     * <p>The converter, program and framebuffer used to read texture frames back are deleted on
+     * the render thread, since they belong to its EGL context. That is posted to the render
+     * thread if it has a looper, and otherwise done with the next frame rendered, so release the
+     * renderer before removing it from its track.
+     */
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            snapshotScheduler.cancel();
+            snapshotExecutor.shutdown();
+            Handler renderThreadHandler = this.renderThreadHandler;
+            if (renderThreadHandler != null) {
+                renderThreadHandler.post(this::releaseTextureReaders);
+            }
+        }
+    }
+
+    /*
+     * Runs on the render thread. Releasing twice is harmless, so this can run both from the
+     * posted release and with a frame rendered after it.
+     */
+    private void releaseTextureReaders() {
+        textureFrameReader.release();
+        textureRgbaReader.release();
+    }
+
+    /*
+     * Copies the frame into a pooled frame and hands it to the workers. Texture frames are read
+     * back here since that needs the render thread's EGL context.
+     *
+     * Returns false if the frame was skipped.
+     */
+    private boolean queueSnapshot(I420Frame i420Frame, final long frameTimeNanos,
+                                  final boolean display, final boolean queue) {
+        if (released.get()) {
+            return false;
+        }
+        if (pendingSnapshots.incrementAndGet() > MAX_PENDING_SNAPSHOTS) {
+            pendingSnapshots.decrementAndGet();
+            if (queue) {
+                skippedSnapshots.incrementAndGet();
+            }
+            return false;
+        }
+        final long sequenceNumber = queue ? nextSequenceNumber++ : -1;
+        final long displaySequenceNumber = display ? nextDisplaySequenceNumber++ : -1;
+        if (i420Frame.yuvPlanes == null && renderThreadHandler == null &&
+                Looper.myLooper() != null) {
+            renderThreadHandler = new Handler(Looper.myLooper());
+        }
+        if (i420Frame.yuvPlanes == null && rgbaTextureReadback) {
+            final int width = i420Frame.rotatedWidth();
+            final int height = i420Frame.rotatedHeight();
+            final ByteBuffer pixels = textureRgbaReader.read(i420Frame.textureId,
+                    TextureMatrix.forReadback(i420Frame.samplingMatrix,
+                            i420Frame.rotationDegree),
+                    width,
+                    height);
+            if (!execute(() -> convertRgbaSnapshot(pixels, width, height, display, queue,
+                    displaySequenceNumber, sequenceNumber, frameTimeNanos))) {
+                textureRgbaReader.recycle(pixels);
+                return false;
+            }
+            return true;
+        }
+        final PooledI420Frame frame = i420Frame.yuvPlanes == null ?
+                readTexture(i420Frame) :
+                framePool.copyOf(i420Frame.yuvPlanes,
+                        i420Frame.yuvStrides,
+                        i420Frame.width,
+                        i420Frame.height,
+                        i420Frame.rotationDegree);
+        if (!execute(() -> convertSnapshot(frame, display, queue, displaySequenceNumber,
+                sequenceNumber, frameTimeNanos))) {
+            framePool.release(frame);
+            return false;
+        }
+        return true;
+    }
+
+    /*
+     * Returns false if the conversion could not be handed to the workers, in which case the
+     * caller still owns the frame.
+     */
+    private boolean execute(Runnable conversion) {
+        try {
+            snapshotExecutor.execute(conversion);
+            return true;
+        } catch (RejectedExecutionException e) {
+            // The renderer was released while this frame was being queued
+            pendingSnapshots.decrementAndGet();
+            return false;
+        }
+    }
+
+    /*
+     * Runs on a worker. A frame wanted both for display and the queue is converted once.
+     */
+    private void convertSnapshot(PooledI420Frame frame, boolean display, boolean queue,
+                                 long displaySequenceNumber, long sequenceNumber,
+                                 long frameTimeNanos) {
+        Bitmap displayBitmap = null;
+        Bitmap queuedBitmap = null;
+        try {
+            if (frame.fromTexture) {
+                Bitmap bitmap = decodeTextureFrame(frame, workerPlanePackers.get());
+                displayBitmap = display ? bitmap : null;
+                queuedBitmap = !queue ? null :
+                        display ? bitmap.copy(bitmap.getConfig(), false) : bitmap;
+            } else {
+                I420ToArgbConverter converter = workerArgbConverters.get();
+                int[] pixels = converter.convert(frame.yuvPlanes,
+                        frame.yuvStrides,
+                        frame.width,
+                        frame.height,
+                        frame.rotationDegree);
+                int width = converter.getOutputWidth();
+                int height = converter.getOutputHeight();
+                if (display) {
+                    displayBitmap = takeSpareDisplayBitmap(width, height);
+                    displayBitmap.setPixels(pixels, 0, width, 0, 0, width, height);
+                }
+                if (queue) {
+                    queuedBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                    queuedBitmap.setPixels(pixels, 0, width, 0, 0, width, height);
+                }
+            }
+        } finally {
+            framePool.release(frame);
+            pendingSnapshots.decrementAndGet();
+        }
+        publishSnapshot(displayBitmap, displaySequenceNumber, queuedBitmap, sequenceNumber,
+                frameTimeNanos);
+    }
+
+    /*
+     * Runs on a worker. The pixels are already upright RGBA, which is how ARGB_8888 bitmaps are
+     * laid out in memory.
+     */
+    private void convertRgbaSnapshot(ByteBuffer pixels, int width, int height, boolean display,
+                                     boolean queue, long displaySequenceNumber,
+                                     long sequenceNumber, long frameTimeNanos) {
+        Bitmap displayBitmap = null;
+        Bitmap queuedBitmap = null;
+        try {
+            if (display) {
+                displayBitmap = takeSpareDisplayBitmap(width, height);
+                pixels.rewind();
+                displayBitmap.copyPixelsFromBuffer(pixels);
+            }
+            if (queue) {
+                queuedBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                pixels.rewind();
+                queuedBitmap.copyPixelsFromBuffer(pixels);
+            }
+        } finally {
+            textureRgbaReader.recycle(pixels);
+            pendingSnapshots.decrementAndGet();
+        }
+        publishSnapshot(displayBitmap, displaySequenceNumber, queuedBitmap, sequenceNumber,
+                frameTimeNanos);
+    }
+
+    private void publishSnapshot(Bitmap displayBitmap, long displaySequenceNumber,
+                                 Bitmap queuedBitmap, long sequenceNumber, long frameTimeNanos) {
+        if (displayBitmap != null) {
+            final Bitmap bitmap = displayBitmap;
+
+            // Update the bitmap of image view
+            handler.post(() -> showSnapshot(bitmap, displaySequenceNumber));
+        }
+        if (queuedBitmap != null) {
+            Snapshot dropped = snapshotQueue.offer(new Snapshot(queuedBitmap, sequenceNumber,
+                    frameTimeNanos));
+            if (dropped != null) {
+                dropped.bitmap.recycle();
+            }
+        }
+    }
+
+    private PooledI420Frame readTexture(I420Frame i420Frame) {
         int width = i420Frame.rotatedWidth();
         int height = i420Frame.rotatedHeight();
-        int outputFrameSize = width * height * 3 / 2;
-        ByteBuffer outputFrameBuffer = ByteBuffer.allocateDirect(outputFrameSize);
         final float frameAspectRatio = (float) i420Frame.rotatedWidth() /
                 (float) i420Frame.rotatedHeight();
         final float[] rotatedSamplingMatrix =
@@ -82,48 +433,19 @@ public class SnapshotVideoRenderer implements VideoRenderer {
         final float[] texMatrix = RendererCommon.multiplyMatrices(rotatedSamplingMatrix,
                 layoutMatrix);
         /*
-         * YuvConverter must be instantiated on a thread that has an active EGL context. We know
-         * that renderFrame is called from the correct render thread therefore
-         * we defer instantiation of the converter until frame arrives.
+         * The texture reader keeps its YuvConverter for as long as the render thread's EGL
+         * context lives, and reads into pooled direct buffers whose planes are used in place.
          */
-        YuvConverter yuvConverter = new YuvConverter();
-        yuvConverter.convert(outputFrameBuffer,
-                width,
-                height,
+        return textureFrameReader.read(i420Frame.textureId,
+                texMatrix,
                 width,
-                i420Frame.textureId,
-                texMatrix);
-
-        // Now we need to unpack the YUV data into planes
-        byte[] data = outputFrameBuffer.array();
-        int offset = outputFrameBuffer.arrayOffset();
-        int stride = width;
-        ByteBuffer[] yuvPlanes = new ByteBuffer[] {
-                ByteBuffer.allocateDirect(width * height),
-                ByteBuffer.allocateDirect(width * height / 4),
-                ByteBuffer.allocateDirect(width * height / 4)
-        };
-        int[] yuvStrides = new int[] {
-                width,
-                (width + 1) / 2,
-                (width + 1) / 2
-        };
-
-        // Write Y
-        yuvPlanes[0].put(data, offset, width * height);
-
-        // Write U
-        for (int r = height ; r < height * 3 / 2; ++r) {
-            yuvPlanes[1].put(data, offset + r * stride, stride / 2);
-        }
-
-        // Write V
-        for (int r = height ; r < height * 3 / 2 ; ++r) {
-            yuvPlanes[2].put(data, offset + r * stride + stride / 2, stride / 2);
-        }
+                height);
+    }
 
+    private Bitmap decodeTextureFrame(PooledI420Frame frame, I420PlanePacker packer) {
         // Convert the YuvImage
-        YuvImage yuvImage = i420ToYuvImage(yuvPlanes, yuvStrides, width, height);
+        YuvImage yuvImage = i420ToYuvImage(packer, frame.yuvPlanes, frame.yuvStrides,
+                frame.width, frame.height);
 
         ByteArrayOutputStream stream = new ByteArrayOutputStream();
         Rect rect = new Rect(0, 0, yuvImage.getWidth(), yuvImage.getHeight());
@@ -134,99 +456,63 @@ public class SnapshotVideoRenderer implements VideoRenderer {
         // Convert jpeg to Bitmap
         byte[] imageBytes = stream.toByteArray();
 
-        // Release YUV Converter
-        yuvConverter.release();
-
         return BitmapFactory.decodeByteArray(imageBytes, 0, imageBytes.length);
     }
 
-    private Bitmap captureBitmapFromYuvFrame(I420Frame i420Frame) {
-        YuvImage yuvImage = i420ToYuvImage(i420Frame.yuvPlanes,
-                i420Frame.yuvStrides,
-                i420Frame.width,
-                i420Frame.height);
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        Rect rect = new Rect(0, 0, yuvImage.getWidth(), yuvImage.getHeight());
-
-        // Compress YuvImage to jpeg
-        yuvImage.compressToJpeg(rect, 100, stream);
-
-        // Convert jpeg to Bitmap
-        byte[] imageBytes = stream.toByteArray();
-        Bitmap bitmap = BitmapFactory.decodeByteArray(imageBytes, 0, imageBytes.length);
-        Matrix matrix = new Matrix();
-
-        // Apply any needed rotation
-        matrix.postRotate(i420Frame.rotationDegree);
-        bitmap = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix,
-                true);
-
-        return bitmap;
-    }
-
-    private YuvImage i420ToYuvImage(ByteBuffer[] yuvPlanes,
-                                    int[] yuvStrides,
-                                    int width,
-                                    int height) {
-        if (yuvStrides[0] != width) {
-            return fastI420ToYuvImage(yuvPlanes, yuvStrides, width, height);
-        }
-        if (yuvStrides[1] != width / 2) {
-            return fastI420ToYuvImage(yuvPlanes, yuvStrides, width, height);
+    /*
+     * Runs on the main thread. The two workers can finish display snapshots out of order, so a
+     * snapshot older than the one shown is dropped. The bitmap it replaces is no longer drawn and
+     * becomes the spare the workers write the next display snapshot into, which keeps them from
+     * ever writing to the bitmap on screen.
+     */
+    private void showSnapshot(Bitmap bitmap, long displaySequenceNumber) {
+        if (displaySequenceNumber < displayedSequenceNumber) {
+            offerSpareDisplayBitmap(bitmap);
+            return;
         }
-        if (yuvStrides[2] != width / 2) {
-            return fastI420ToYuvImage(yuvPlanes, yuvStrides, width, height);
+        imageView.setImageBitmap(bitmap);
+        Bitmap previous = displayedBitmap;
+        displayedBitmap = bitmap;
+        displayedSequenceNumber = displaySequenceNumber;
+        if (previous != null) {
+            offerSpareDisplayBitmap(previous);
         }
+    }
 
-        byte[] bytes = new byte[yuvStrides[0] * height +
-                yuvStrides[1] * height / 2 +
-                yuvStrides[2] * height / 2];
-        ByteBuffer tmp = ByteBuffer.wrap(bytes, 0, width * height);
-        copyPlane(yuvPlanes[0], tmp);
-
-        byte[] tmpBytes = new byte[width / 2 * height / 2];
-        tmp = ByteBuffer.wrap(tmpBytes, 0, width / 2 * height / 2);
-
-        copyPlane(yuvPlanes[2], tmp);
-        for (int row = 0 ; row < height / 2 ; row++) {
-            for (int col = 0 ; col < width / 2 ; col++) {
-                bytes[width * height + row * width + col * 2]
-                        = tmpBytes[row * width / 2 + col];
-            }
+    private void offerSpareDisplayBitmap(Bitmap bitmap) {
+        Bitmap replaced = spareDisplayBitmap.getAndSet(bitmap);
+        if (replaced != null) {
+            replaced.recycle();
         }
-        copyPlane(yuvPlanes[1], tmp);
-        for (int row = 0 ; row < height / 2 ; row++) {
-            for (int col = 0 ; col < width / 2 ; col++) {
-                bytes[width * height + row * width + col * 2 + 1] =
-                        tmpBytes[row * width / 2 + col];
-            }
-        }
-        return new YuvImage(bytes, NV21, width, height, null);
     }
 
-    private YuvImage fastI420ToYuvImage(ByteBuffer[] yuvPlanes,
-                                        int[] yuvStrides,
-                                        int width,
-                                        int height) {
-        byte[] bytes = new byte[width * height * 3 / 2];
-        int i = 0;
-        for (int row = 0 ; row < height ; row++) {
-            for (int col = 0 ; col < width ; col++) {
-                bytes[i++] = yuvPlanes[0].get(col + row * yuvStrides[0]);
-            }
+    /*
+     * Runs on a worker. Takes the spare bitmap if it fits, so the steady state allocates no
+     * display bitmaps, and otherwise creates one. Bitmaps decoded from JPEG are immutable and
+     * can only be recycled.
+     */
+    private Bitmap takeSpareDisplayBitmap(int width, int height) {
+        Bitmap bitmap = spareDisplayBitmap.getAndSet(null);
+        if (bitmap != null && bitmap.isMutable() && bitmap.getWidth() == width &&
+                bitmap.getHeight() == height) {
+            return bitmap;
         }
-        for (int row = 0 ; row < height / 2 ; row++) {
-            for (int col = 0 ; col < width / 2; col++) {
-                bytes[i++] = yuvPlanes[2].get(col + row * yuvStrides[2]);
-                bytes[i++] = yuvPlanes[1].get(col + row * yuvStrides[1]);
-            }
+        if (bitmap != null) {
+            bitmap.recycle();
         }
-        return new YuvImage(bytes, NV21, width, height, null);
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
     }
 
-    private void copyPlane(ByteBuffer src, ByteBuffer dst) {
-        src.position(0).limit(src.capacity());
-        dst.put(src);
-        dst.position(0).limit(dst.capacity());
+    /*
+     * The packed frame is reused for the next snapshot taken with the same packer, which is fine
+     * since the YuvImage is compressed right away.
+     */
+    private YuvImage i420ToYuvImage(I420PlanePacker packer,
+                                    ByteBuffer[] yuvPlanes,
+                                    int[] yuvStrides,
+                                    int width,
+                                    int height) {
+        byte[] bytes = packer.packNv21(yuvPlanes, yuvStrides, width, height);
+        return new YuvImage(bytes, NV21, width, height, null);
     }
 }
@@ -0,0 +1,74 @@
+package com.twilio.video.examples.customrenderer;
+
+import org.webrtc.YuvConverter;
+
+import javax.microedition.khronos.egl.EGL10;
+import javax.microedition.khronos.egl.EGLContext;
+
+/**
+ * TextureFrameReader reads texture frames back into memory as I420. It keeps one
+ * {@link YuvConverter} for as long as the EGL context it was created on stays current, and reads
+ * into frames from an {@link I420FramePool}. The planes handed out are views into the converter
+ * output, so no further copies are made.
+ *
+ * <p>{@link #read} and {@link #release()} must be called on a thread with an EGL context current,
+ * such as the render thread of a {@link com.twilio.video.VideoRenderer}.
+ */
+final class TextureFrameReader {
+    // YuvConverter requires the row stride to be a multiple of eight
+    private static final int STRIDE_ALIGNMENT = 8;
+
+    private final I420FramePool framePool;
+    private final int[] planeOffsets = new int[3];
+    private final int[] yuvStrides = new int[3];
+    private YuvConverter yuvConverter;
+    private EGLContext yuvConverterContext;
+
+    TextureFrameReader(I420FramePool framePool) {
+        this.framePool = framePool;
+    }
+
+    /**
+     * Reads an OES texture into a pooled buffer.
+     *
+     * @param texMatrix the transform applied when sampling the texture, which also rotates it
+     */
+    PooledI420Frame read(int textureId, float[] texMatrix, int width, int height) {
+        EGLContext currentContext = ((EGL10) EGLContext.getEGL()).eglGetCurrentContext();
+        if (yuvConverter == null || !currentContext.equals(yuvConverterContext)) {
+            /*
+             * The converter belongs to the context it was created on. If that context is gone
+             * its GL objects went with it, so the old converter is simply dropped.
+             */
+            yuvConverter = new YuvConverter();
+            yuvConverterContext = currentContext;
+        }
+
+        int stride = (width + STRIDE_ALIGNMENT - 1) / STRIDE_ALIGNMENT * STRIDE_ALIGNMENT;
+        int size = stride * (height + (height + 1) / 2);
+        // U and V sit side by side below the luma plane
+        planeOffsets[1] = stride * height;
+        planeOffsets[2] = stride * height + stride / 2;
+        yuvStrides[0] = yuvStrides[1] = yuvStrides[2] = stride;
+        PooledI420Frame frame = framePool.acquire(size, planeOffsets, yuvStrides, width, height);
+        yuvConverter.convert(frame.buffer, width, height, stride, textureId, texMatrix);
+        frame.buffer.clear();
+        frame.fromTexture = true;
+        return frame;
+    }
+
+    void recycle(PooledI420Frame frame) {
+        framePool.release(frame);
+    }
+
+    /**
+     * Releases the converter. Must be called on the thread and context it was used on.
+     */
+    void release() {
+        if (yuvConverter != null) {
+            yuvConverter.release();
+            yuvConverter = null;
+            yuvConverterContext = null;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.twilio.video.examples.customrenderer;
+
+/**
+ * TextureMatrix holds the 4x4 texture transforms used when drawing an OES texture for a snapshot.
+ * Matrices are column-major like in OpenGL, so they can be handed to {@code glUniformMatrix4fv}
+ * as they are. Unlike {@link org.webrtc.RendererCommon} this has no Android dependencies, so the
+ * mapping from framebuffer pixels to texture coordinates can be checked on the JVM.
+ */
+final class TextureMatrix {
+    /*
+     * glReadPixels returns the bottom row of the framebuffer first while bitmaps start with the
+     * top row, so the texture is drawn upside down to read it back the right way up.
+     */
+    static final float[] FLIP_VERTICAL = {
+            1, 0, 0, 0,
+            0, -1, 0, 0,
+            0, 0, 1, 0,
+            0, 1, 0, 1
+    };
+
+    private TextureMatrix() {
+    }
+
+    /**
+     * Returns the transform that draws a texture upright and flipped for read back, given its
+     * sampling matrix and the clockwise rotation needed to display it.
+     */
+    static float[] forReadback(float[] samplingMatrix, int rotationDegree) {
+        return multiply(multiply(samplingMatrix, rotation(rotationDegree)), FLIP_VERTICAL);
+    }
+
+    /**
+     * Returns the rotation around the center of the texture that displays a frame rotated
+     * clockwise by the given multiple of 90 degrees, like
+     * {@link org.webrtc.RendererCommon#rotateTextureMatrix}.
+     */
+    static float[] rotation(int rotationDegree) {
+        int cos;
+        int sin;
+        switch ((rotationDegree % 360 + 360) % 360) {
+            case 0:
+                cos = 1;
+                sin = 0;
+                break;
+            case 90:
+                cos = 0;
+                sin = 1;
+                break;
+            case 180:
+                cos = -1;
+                sin = 0;
+                break;
+            case 270:
+                cos = 0;
+                sin = -1;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported rotation " + rotationDegree);
+        }
+        // Rotate texture coordinates counterclockwise around (0.5, 0.5)
+        return new float[]{
+                cos, sin, 0, 0,
+                -sin, cos, 0, 0,
+                0, 0, 1, 0,
+                0.5f - 0.5f * (cos - sin), 0.5f - 0.5f * (sin + cos), 0, 1
+        };
+    }
+
+    /**
+     * Returns a * b, so b is applied to texture coordinates first.
+     */
+    static float[] multiply(float[] a, float[] b) {
+        float[] result = new float[16];
+        for (int column = 0; column < 4; column++) {
+            for (int row = 0; row < 4; row++) {
+                float sum = 0;
+                for (int i = 0; i < 4; i++) {
+                    sum += a[i * 4 + row] * b[column * 4 + i];
+                }
+                result[column * 4 + row] = sum;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Maps texture coordinate (s, t) through the matrix into out[0] and out[1].
+     */
+    static void transform(float[] matrix, float s, float t, float[] out) {
+        out[0] = matrix[0] * s + matrix[4] * t + matrix[12];
+        out[1] = matrix[1] * s + matrix[5] * t + matrix[13];
+    }
+}
@@ -0,0 +1,220 @@
+package com.twilio.video.examples.customrenderer;
+
+import android.opengl.GLES11Ext;
+import android.opengl.GLES20;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import javax.microedition.khronos.egl.EGL10;
+import javax.microedition.khronos.egl.EGLContext;
+
+/**
+ * TextureRgbaReader reads texture frames back as RGBA in a single pass. The OES texture is drawn
+ * rotated into an RGBA framebuffer and read with {@code glReadPixels} straight into a pooled
+ * direct buffer, which {@link android.graphics.Bitmap#copyPixelsFromBuffer} takes as it is. This
+ * skips the YUV conversion, NV21 packing and JPEG round trip {@link TextureFrameReader} needs to
+ * end up with a bitmap.
+ *
+ * <p>The GL objects are created lazily on the EGL context current at the time and recreated if
+ * that context changes. {@link #read} and {@link #release()} must be called on a thread with an
+ * EGL context current, such as the render thread of a {@link com.twilio.video.VideoRenderer}.
+ */
+final class TextureRgbaReader {
+    static final int BYTES_PER_PIXEL = 4;
+
+    private static final String VERTEX_SHADER =
+            "varying vec2 interp_tc;\n" +
+            "attribute vec4 in_pos;\n" +
+            "attribute vec4 in_tc;\n" +
+            "uniform mat4 texMatrix;\n" +
+            "void main() {\n" +
+            "    gl_Position = in_pos;\n" +
+            "    interp_tc = (texMatrix * in_tc).xy;\n" +
+            "}\n";
+    private static final String FRAGMENT_SHADER =
+            "#extension GL_OES_EGL_image_external : require\n" +
+            "precision mediump float;\n" +
+            "varying vec2 interp_tc;\n" +
+            "uniform samplerExternalOES oesTex;\n" +
+            "void main() {\n" +
+            "    gl_FragColor = texture2D(oesTex, interp_tc);\n" +
+            "}\n";
+    // A quad covering the whole viewport, drawn as a triangle strip
+    private static final float[] VERTICES = {-1, -1, 1, -1, -1, 1, 1, 1};
+    private static final float[] TEXTURE_COORDINATES = {0, 0, 1, 0, 0, 1, 1, 1};
+
+    private final DirectBufferPool bufferPool;
+    private final FloatBuffer vertices = floatBuffer(VERTICES);
+    private final FloatBuffer textureCoordinates = floatBuffer(TEXTURE_COORDINATES);
+    private EGLContext glContext;
+    private int program;
+    private int positionLocation;
+    private int textureCoordinateLocation;
+    private int texMatrixLocation;
+    private int framebufferId;
+    private int framebufferTextureId;
+    private int framebufferWidth;
+    private int framebufferHeight;
+
+    TextureRgbaReader(DirectBufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * Reads an OES texture into a pooled buffer of width * height RGBA pixels, top row first.
+     * The buffer must be handed back with {@link #recycle} once the pixels have been used.
+     *
+     * @param texMatrix the transform from {@link TextureMatrix#forReadback}
+     */
+    ByteBuffer read(int textureId, float[] texMatrix, int width, int height) {
+        EGLContext currentContext = ((EGL10) EGLContext.getEGL()).eglGetCurrentContext();
+        if (program == 0 || !currentContext.equals(glContext)) {
+            // GL objects of a context that is gone went with it, so they are simply dropped
+            createProgram();
+            framebufferId = 0;
+            glContext = currentContext;
+        }
+        prepareFramebuffer(width, height);
+
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, framebufferId);
+        GLES20.glViewport(0, 0, width, height);
+        GLES20.glUseProgram(program);
+        GLES20.glUniformMatrix4fv(texMatrixLocation, 1, false, texMatrix, 0);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, textureId);
+        GLES20.glEnableVertexAttribArray(positionLocation);
+        GLES20.glVertexAttribPointer(positionLocation, 2, GLES20.GL_FLOAT, false, 0, vertices);
+        GLES20.glEnableVertexAttribArray(textureCoordinateLocation);
+        GLES20.glVertexAttribPointer(textureCoordinateLocation, 2, GLES20.GL_FLOAT, false, 0,
+                textureCoordinates);
+        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+
+        ByteBuffer pixels = bufferPool.acquire(width * height * BYTES_PER_PIXEL);
+        GLES20.glReadPixels(0, 0, width, height, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE,
+                pixels);
+
+        // Leave the state as the renderer drawing to the screen expects it
+        GLES20.glDisableVertexAttribArray(positionLocation);
+        GLES20.glDisableVertexAttribArray(textureCoordinateLocation);
+        GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, 0);
+        GLES20.glUseProgram(0);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        checkGlError("read back texture");
+        pixels.clear();
+        return pixels;
+    }
+
+    void recycle(ByteBuffer pixels) {
+        bufferPool.release(pixels);
+    }
+
+    /**
+     * Deletes the GL objects. Must be called on the thread and context they were used on.
+     */
+    void release() {
+        if (program == 0) {
+            return;
+        }
+        GLES20.glDeleteProgram(program);
+        if (framebufferId != 0) {
+            GLES20.glDeleteFramebuffers(1, new int[]{framebufferId}, 0);
+            GLES20.glDeleteTextures(1, new int[]{framebufferTextureId}, 0);
+        }
+        program = 0;
+        framebufferId = 0;
+        glContext = null;
+    }
+
+    /*
+     * The framebuffer keeps its texture between snapshots and is only resized with the frame.
+     */
+    private void prepareFramebuffer(int width, int height) {
+        if (framebufferId != 0 && width == framebufferWidth && height == framebufferHeight) {
+            return;
+        }
+        int[] ids = new int[1];
+        if (framebufferId == 0) {
+            GLES20.glGenFramebuffers(1, ids, 0);
+            framebufferId = ids[0];
+            GLES20.glGenTextures(1, ids, 0);
+            framebufferTextureId = ids[0];
+        }
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, framebufferTextureId);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER,
+                GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER,
+                GLES20.GL_LINEAR);
+        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, width, height, 0,
+                GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, framebufferId);
+        GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0,
+                GLES20.GL_TEXTURE_2D, framebufferTextureId, 0);
+        int status = GLES20.glCheckFramebufferStatus(GLES20.GL_FRAMEBUFFER);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        if (status != GLES20.GL_FRAMEBUFFER_COMPLETE) {
+            throw new IllegalStateException("Framebuffer incomplete: " + status);
+        }
+        framebufferWidth = width;
+        framebufferHeight = height;
+    }
+
+    private void createProgram() {
+        int vertexShader = compileShader(GLES20.GL_VERTEX_SHADER, VERTEX_SHADER);
+        int fragmentShader = compileShader(GLES20.GL_FRAGMENT_SHADER, FRAGMENT_SHADER);
+        program = GLES20.glCreateProgram();
+        GLES20.glAttachShader(program, vertexShader);
+        GLES20.glAttachShader(program, fragmentShader);
+        GLES20.glLinkProgram(program);
+        int[] linked = new int[1];
+        GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, linked, 0);
+        // The program keeps the compiled shaders alive as long as it needs them
+        GLES20.glDeleteShader(vertexShader);
+        GLES20.glDeleteShader(fragmentShader);
+        if (linked[0] != GLES20.GL_TRUE) {
+            String log = GLES20.glGetProgramInfoLog(program);
+            GLES20.glDeleteProgram(program);
+            program = 0;
+            throw new IllegalStateException("Unable to link snapshot program: " + log);
+        }
+        positionLocation = GLES20.glGetAttribLocation(program, "in_pos");
+        textureCoordinateLocation = GLES20.glGetAttribLocation(program, "in_tc");
+        texMatrixLocation = GLES20.glGetUniformLocation(program, "texMatrix");
+        GLES20.glUseProgram(program);
+        GLES20.glUniform1i(GLES20.glGetUniformLocation(program, "oesTex"), 0);
+        GLES20.glUseProgram(0);
+    }
+
+    private static int compileShader(int type, String source) {
+        int shader = GLES20.glCreateShader(type);
+        GLES20.glShaderSource(shader, source);
+        GLES20.glCompileShader(shader);
+        int[] compiled = new int[1];
+        GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, compiled, 0);
+        if (compiled[0] != GLES20.GL_TRUE) {
+            String log = GLES20.glGetShaderInfoLog(shader);
+            GLES20.glDeleteShader(shader);
+            throw new IllegalStateException("Unable to compile snapshot shader: " + log);
+        }
+        return shader;
+    }
+
+    private static void checkGlError(String operation) {
+        int error = GLES20.glGetError();
+        if (error != GLES20.GL_NO_ERROR) {
+            throw new IllegalStateException(String.format("Unable to %s: GL error 0x%x",
+                    operation, error));
+        }
+    }
+
+    private static FloatBuffer floatBuffer(float[] values) {
+        FloatBuffer buffer = ByteBuffer.allocateDirect(values.length * 4)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+        buffer.put(values).position(0);
+        return buffer;
+    }
+}
@@ -0,0 +1,30 @@
+package com.twilio.video.examples.customrenderer;
+
+import org.junit.Test;
+
+import static com.twilio.video.examples.customrenderer.Benchmarks.threadAllocatedBytes;
+import static com.twilio.video.examples.customrenderer.DirectBufferPoolTest.FRAME_1080P;
+import static org.junit.Assert.assertTrue;
+
+public class DirectBufferPoolBenchmark {
+    @Test
+    public void steadyStateDoesNotAllocate() {
+        DirectBufferPool pool = new DirectBufferPool();
+        for (int i = 0; i < 100; i++) {
+            pool.release(pool.acquire(FRAME_1080P));
+        }
+
+        int frames = 10000;
+        long allocatedBefore = threadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            pool.release(pool.acquire(FRAME_1080P));
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threadAllocatedBytes() - allocatedBefore;
+
+        Benchmarks.report("DirectBufferPool: %.0f ns and %.2f bytes allocated per 1080p frame",
+                (double) elapsed / frames, (double) allocated / frames);
+        assertTrue(allocated < frames);
+    }
+}
@@ -0,0 +1,70 @@
+package com.twilio.video.examples.customrenderer;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DirectBufferPoolTest {
+    private static final int FRAME_720P = 1280 * 1080;
+    static final int FRAME_1080P = 1920 * 1620;
+
+    @Test
+    public void reusesBuffersOfTheSameSize() {
+        DirectBufferPool pool = new DirectBufferPool(2);
+        ByteBuffer first = pool.acquire(FRAME_720P);
+        assertTrue(first.isDirect());
+        first.position(100);
+        pool.release(first);
+
+        ByteBuffer second = pool.acquire(FRAME_720P);
+        assertSame(first, second);
+        assertEquals(0, second.position());
+        assertEquals(FRAME_720P, second.limit());
+        assertNotSame(second, pool.acquire(FRAME_720P));
+        assertEquals(2, pool.getAllocatedBuffers());
+        assertEquals(1, pool.getReusedBuffers());
+    }
+
+    @Test
+    public void replacesIdleBuffersWhenTheSizeChanges() {
+        DirectBufferPool pool = new DirectBufferPool(2);
+        ByteBuffer first = pool.acquire(FRAME_720P);
+        ByteBuffer second = pool.acquire(FRAME_720P + 1);
+        ByteBuffer large = pool.acquire(FRAME_1080P);
+        pool.release(first);
+        pool.release(second);
+        // The pool is full, so the large buffer takes the place of the first one
+        pool.release(large);
+
+        assertSame(large, pool.acquire(FRAME_1080P));
+        assertSame(second, pool.acquire(FRAME_720P + 1));
+        assertNotSame(first, pool.acquire(FRAME_720P));
+        assertEquals(4, pool.getAllocatedBuffers());
+        assertEquals(2, pool.getReusedBuffers());
+    }
+
+    @Test
+    public void rejectsHeapBuffers() {
+        try {
+            new DirectBufferPool().release(ByteBuffer.allocate(16));
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void steadyStateReusesOneBuffer() {
+        DirectBufferPool pool = new DirectBufferPool();
+        for (int i = 0; i < 1000; i++) {
+            pool.release(pool.acquire(FRAME_1080P));
+        }
+
+        assertEquals(1, pool.getAllocatedBuffers());
+    }
+}
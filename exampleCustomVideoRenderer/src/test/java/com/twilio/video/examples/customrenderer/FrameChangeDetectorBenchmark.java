@@ -0,0 +1,51 @@
+package com.twilio.video.examples.customrenderer;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static com.twilio.video.examples.customrenderer.FrameChangeDetectorTest.HEIGHT;
+import static com.twilio.video.examples.customrenderer.FrameChangeDetectorTest.STEP;
+import static com.twilio.video.examples.customrenderer.FrameChangeDetectorTest.STRIDE;
+import static com.twilio.video.examples.customrenderer.FrameChangeDetectorTest.WIDTH;
+
+public class FrameChangeDetectorBenchmark {
+    /*
+     * A JMH style average time benchmark of comparing an unchanged 1080p frame, the common case
+     * and the most expensive one since no block differs.
+     */
+    @Test
+    public void hashCostAt1080p() {
+        ByteBuffer frame = FrameChangeDetectorTest.createLumaPlane();
+        FrameChangeDetector detector = new FrameChangeDetector();
+        int warmup = 500;
+        int iterations = 10;
+        int operations = 200;
+        for (int i = 0; i < warmup; i++) {
+            detector.hasChanged(frame, STRIDE, WIDTH, HEIGHT, STEP);
+        }
+        double[] iterationUs = new double[iterations];
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < operations; i++) {
+                detector.hasChanged(frame, STRIDE, WIDTH, HEIGHT, STEP);
+            }
+            iterationUs[iteration] = (System.nanoTime() - start) / 1e3 / operations;
+        }
+        double mean = 0;
+        for (double us : iterationUs) {
+            mean += us;
+        }
+        mean /= iterations;
+        double variance = 0;
+        for (double us : iterationUs) {
+            variance += (us - mean) * (us - mean);
+        }
+        variance /= iterations - 1;
+        // Student's t for 9 degrees of freedom at 99.9%, as JMH reports
+        double error = 4.781 * Math.sqrt(variance / iterations);
+
+        Benchmarks.report("FrameChangeDetector 1080p, sample step %d: %.1f +- %.1f us/frame",
+                STEP, mean, error);
+    }
+}
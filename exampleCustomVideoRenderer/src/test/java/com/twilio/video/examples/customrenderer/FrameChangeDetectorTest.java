@@ -0,0 +1,85 @@
+package com.twilio.video.examples.customrenderer;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FrameChangeDetectorTest {
+    static final int WIDTH = 1920;
+    static final int HEIGHT = 1080;
+    static final int STRIDE = 1920;
+    static final int STEP = FrameChangeDetector.DEFAULT_SAMPLE_STEP;
+
+    @Test
+    public void staticAndNoisyFramesAreUnchanged() {
+        ByteBuffer frame = createLumaPlane();
+        FrameChangeDetector detector = new FrameChangeDetector();
+        assertTrue(detector.hasChanged(frame, STRIDE, WIDTH, HEIGHT, STEP));
+        assertFalse(detector.hasChanged(frame, STRIDE, WIDTH, HEIGHT, STEP));
+
+        // Sensor or compression noise of a couple of levels
+        Random random = new Random(7);
+        for (int i = 0; i < frame.capacity(); i++) {
+            frame.put(i, (byte) ((frame.get(i) & 0xff) + random.nextInt(5) - 2));
+        }
+        assertFalse(detector.hasChanged(frame, STRIDE, WIDTH, HEIGHT, STEP));
+    }
+
+    @Test
+    public void smallLocalChangeIsNoticed() {
+        ByteBuffer frame = createLumaPlane();
+        FrameChangeDetector detector = new FrameChangeDetector();
+        detector.hasChanged(frame, STRIDE, WIDTH, HEIGHT, STEP);
+
+        // A 32x32 cursor, a tiny part of the frame but a quarter of a block
+        for (int row = 500; row < 532; row++) {
+            for (int col = 900; col < 932; col++) {
+                frame.put(row * STRIDE + col, (byte) 255);
+            }
+        }
+        assertTrue(detector.hasChanged(frame, STRIDE, WIDTH, HEIGHT, STEP));
+        assertFalse(detector.hasChanged(frame, STRIDE, WIDTH, HEIGHT, STEP));
+        assertEquals(0, frame.position());
+    }
+
+    @Test
+    public void slowFadeAddsUp() {
+        ByteBuffer frame = createLumaPlane();
+        FrameChangeDetector detector = new FrameChangeDetector();
+        detector.hasChanged(frame, STRIDE, WIDTH, HEIGHT, STEP);
+
+        int changes = 0;
+        for (int step = 0; step < 10; step++) {
+            for (int i = 0; i < frame.capacity(); i++) {
+                frame.put(i, (byte) ((frame.get(i) & 0xff) + 2));
+            }
+            if (detector.hasChanged(frame, STRIDE, WIDTH, HEIGHT, STEP)) {
+                changes++;
+            }
+        }
+        // Steps of 2 are below the threshold of 6, but add up to more every fourth step
+        assertEquals(2, changes);
+    }
+
+    @Test
+    public void resizedFrameIsChanged() {
+        FrameChangeDetector detector = new FrameChangeDetector();
+        detector.hasChanged(createLumaPlane(), STRIDE, WIDTH, HEIGHT, STEP);
+        assertTrue(detector.hasChanged(createLumaPlane(), STRIDE, 1280, 720, STEP));
+    }
+
+    static ByteBuffer createLumaPlane() {
+        ByteBuffer plane = ByteBuffer.allocateDirect(STRIDE * HEIGHT);
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                plane.put(row * STRIDE + col, (byte) (40 + (row / 60 + col / 60) % 2 * 100));
+            }
+        }
+        return plane;
+    }
+}
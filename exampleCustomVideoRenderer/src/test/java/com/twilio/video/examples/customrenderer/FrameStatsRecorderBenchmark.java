@@ -0,0 +1,30 @@
+package com.twilio.video.examples.customrenderer;
+
+import org.junit.Test;
+
+import static com.twilio.video.examples.customrenderer.Benchmarks.threadAllocatedBytes;
+import static com.twilio.video.examples.customrenderer.FrameStatsRecorderTest.FRAME_NANOS;
+import static org.junit.Assert.assertTrue;
+
+public class FrameStatsRecorderBenchmark {
+    @Test
+    public void recordingDoesNotAllocate() {
+        FrameStatsRecorder recorder = new FrameStatsRecorder();
+        for (int i = 0; i < 1000; i++) {
+            recorder.record(i * FRAME_NANOS, 1920, 1080, 0);
+        }
+
+        int frames = 100000;
+        long allocatedBefore = threadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            recorder.record(i * FRAME_NANOS, 1920, 1080, 0);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threadAllocatedBytes() - allocatedBefore;
+
+        Benchmarks.report("FrameStatsRecorder: %.0f ns and %.2f bytes allocated per frame",
+                (double) elapsed / frames, (double) allocated / frames);
+        assertTrue(allocated < 1024);
+    }
+}
@@ -0,0 +1,58 @@
+package com.twilio.video.examples.customrenderer;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class FrameStatsRecorderTest {
+    static final long FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(40);
+
+    @Test
+    public void steadyStreamHasNoJitter() {
+        FrameStatsRecorder recorder = new FrameStatsRecorder(64);
+        for (int i = 0; i < 200; i++) {
+            recorder.record(i * FRAME_NANOS, 640, 480, 90);
+        }
+
+        FrameStats stats = recorder.getStats();
+        assertEquals(200, stats.frameCount);
+        assertEquals(25, stats.framesPerSecond, 1e-9);
+        assertEquals(0, stats.jitterP99Ms, 1e-9);
+        assertEquals(640, stats.width);
+        assertEquals(90, stats.rotationDegree);
+        assertEquals(0, stats.resolutionChanges);
+    }
+
+    @Test
+    public void reportsJitterOfRecentFrames() {
+        FrameStatsRecorder recorder = new FrameStatsRecorder(101);
+        long arrival = 0;
+        for (int i = 0; i < 101; i++) {
+            recorder.record(arrival, 1280, 720, 0);
+            // Every tenth frame arrives 20ms late and the next one on time again
+            arrival += i % 10 == 0 ? FRAME_NANOS + TimeUnit.MILLISECONDS.toNanos(20) :
+                    i % 10 == 1 ? FRAME_NANOS - TimeUnit.MILLISECONDS.toNanos(20) : FRAME_NANOS;
+        }
+
+        FrameStats stats = recorder.getStats();
+        assertEquals(40, stats.meanFrameIntervalMs, 1e-6);
+        assertEquals(0, stats.jitterP50Ms, 1e-6);
+        assertEquals(20, stats.jitterP95Ms, 1e-6);
+        assertEquals(60, stats.maxFrameIntervalMs, 1e-6);
+    }
+
+    @Test
+    public void countsResolutionChanges() {
+        FrameStatsRecorder recorder = new FrameStatsRecorder(4);
+        int[][] sizes = {{640, 480}, {640, 480}, {1280, 720}, {1280, 720}, {640, 480}};
+        for (int i = 0; i < sizes.length; i++) {
+            recorder.record(i * FRAME_NANOS, sizes[i][0], sizes[i][1], 0);
+        }
+
+        FrameStats stats = recorder.getStats();
+        assertEquals(2, stats.resolutionChanges);
+        assertEquals(480, stats.height);
+    }
+}
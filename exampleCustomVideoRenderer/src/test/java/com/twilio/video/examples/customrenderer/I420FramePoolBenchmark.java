@@ -0,0 +1,32 @@
+package com.twilio.video.examples.customrenderer;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+public class I420FramePoolBenchmark {
+    private static final int FRAMES = 200;
+
+    /*
+     * The render thread only copies the planes of a captured 1080p frame, which has to fit well
+     * within the render budget.
+     */
+    @Test
+    public void reportsCopyTimeAgainstRenderBudget() {
+        int[] frameCase = {1920, 1080, 1920, 960};
+        ByteBuffer[] planes = I420FramePoolTest.createFrame(frameCase);
+        int[] strides = {frameCase[2], frameCase[3], frameCase[3]};
+        I420FramePool framePool = new I420FramePool(new DirectBufferPool());
+        RenderTimeTracker tracker = new RenderTimeTracker(4);
+
+        for (int i = 0; i < FRAMES; i++) {
+            long start = System.nanoTime();
+            framePool.release(framePool.copyOf(planes, strides, 1920, 1080, 0));
+            if (i >= FRAMES / 2) {
+                tracker.record(System.nanoTime() - start);
+            }
+        }
+
+        Benchmarks.report("1080p plane copy on the render thread: %s", tracker);
+    }
+}
@@ -0,0 +1,81 @@
+package com.twilio.video.examples.customrenderer;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class I420FramePoolTest {
+    @Test
+    public void copiedFrameConvertsLikeTheOriginal() {
+        int[][] cases = {
+                {64, 48, 64, 32},
+                {64, 48, 80, 48},
+                {63, 47, 64, 32},
+        };
+        I420FramePool framePool = new I420FramePool(new DirectBufferPool());
+        for (int[] frameCase : cases) {
+            ByteBuffer[] planes = createFrame(frameCase);
+            int[] strides = {frameCase[2], frameCase[3], frameCase[3]};
+            planes[0].position(5);
+
+            PooledI420Frame copy = framePool.copyOf(planes, strides, frameCase[0], frameCase[1],
+                    90);
+            int[] expected = new I420ToArgbConverter().convert(planes, strides, frameCase[0],
+                    frameCase[1], 90).clone();
+            int[] copied = new I420ToArgbConverter().convert(copy.yuvPlanes, copy.yuvStrides,
+                    copy.width, copy.height, copy.rotationDegree);
+
+            assertArrayEquals(expected, copied);
+            assertEquals(5, planes[0].position());
+            framePool.release(copy);
+        }
+    }
+
+    @Test
+    public void reusesPooledFrames() {
+        int[] frameCase = {64, 48, 80, 48};
+        ByteBuffer[] planes = createFrame(frameCase);
+        int[] strides = {frameCase[2], frameCase[3], frameCase[3]};
+        I420FramePool framePool = new I420FramePool(new DirectBufferPool());
+
+        PooledI420Frame first = framePool.copyOf(planes, strides, 64, 48, 0);
+        framePool.release(first);
+        assertSame(first, framePool.copyOf(planes, strides, 64, 48, 0));
+    }
+
+    @Test
+    public void trackerReportsPercentilesOfRecentFrames() {
+        RenderTimeTracker tracker = new RenderTimeTracker(4, 100);
+        for (int i = 1; i <= 200; i++) {
+            tracker.record(TimeUnit.MILLISECONDS.toNanos(i <= 100 ? 100 : i - 100) / 10);
+        }
+
+        // Only the last 100 frames, 0.1ms to 10ms, count for percentiles
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(5000), tracker.getPercentileNanos(50));
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(9900), tracker.getPercentileNanos(99));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10), tracker.getMaxNanos());
+        assertEquals(200, tracker.getFrameCount());
+        assertEquals(160, tracker.getFramesOverBudget());
+    }
+
+    static ByteBuffer[] createFrame(int[] frameCase) {
+        int height = frameCase[1];
+        int chromaHeight = (height + 1) / 2;
+        ByteBuffer[] planes = {
+                ByteBuffer.allocateDirect(frameCase[2] * height),
+                ByteBuffer.allocateDirect(frameCase[3] * chromaHeight),
+                ByteBuffer.allocateDirect(frameCase[3] * chromaHeight)
+        };
+        for (int plane = 0; plane < 3; plane++) {
+            for (int i = 0; i < planes[plane].capacity(); i++) {
+                planes[plane].put(i, (byte) (i * 31 + plane * 7));
+            }
+        }
+        return planes;
+    }
+}
@@ -0,0 +1,77 @@
+package com.twilio.video.examples.customrenderer;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compares {@link I420PlanePacker} with the per byte packing SnapshotVideoRenderer used to do.
+ */
+public class I420PlanePackerBenchmark {
+    /*
+     * The benchmark cases as width, height, luma stride and chroma stride: tight strides,
+     * padded strides and odd dimensions.
+     */
+    private static final int[][] CASES = {
+            {1920, 1080, 1920, 960},
+            {1920, 1080, 2048, 1024},
+            {1917, 1079, 1920, 960},
+    };
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASUREMENT_ITERATIONS = 10;
+    private static final int OPERATIONS_PER_ITERATION = 20;
+
+    /*
+     * A JMH style average time benchmark: warmup iterations, then measured iterations reported
+     * as the mean time per operation with a 99.9% confidence interval.
+     */
+    @Test
+    public void packingBenchmark() {
+        I420PlanePacker packer = new I420PlanePacker();
+        for (int[] frameCase : CASES) {
+            ByteBuffer[] planes = I420PlanePackerTest.createFrame(frameCase);
+            int[] strides = {frameCase[2], frameCase[3], frameCase[3]};
+            int width = frameCase[0];
+            int height = frameCase[1];
+
+            double[] perByte = run(() ->
+                    I420PlanePackerTest.perByteCopy(planes, strides, width, height));
+            double[] bulk = run(() -> packer.packNv21(planes, strides, width, height));
+
+            Benchmarks.report("%dx%d strides %d/%d: perByteCopy %s, I420PlanePacker %s, " +
+                            "%.1fx faster", width, height, strides[0], strides[1],
+                    describe(perByte), describe(bulk), perByte[0] / bulk[0]);
+        }
+    }
+
+    private static double[] run(Runnable operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS * OPERATIONS_PER_ITERATION; i++) {
+            operation.run();
+        }
+        double[] iterationMs = new double[MEASUREMENT_ITERATIONS];
+        for (int iteration = 0; iteration < MEASUREMENT_ITERATIONS; iteration++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < OPERATIONS_PER_ITERATION; i++) {
+                operation.run();
+            }
+            iterationMs[iteration] = (System.nanoTime() - start) / 1e6 / OPERATIONS_PER_ITERATION;
+        }
+        double mean = 0;
+        for (double ms : iterationMs) {
+            mean += ms;
+        }
+        mean /= MEASUREMENT_ITERATIONS;
+        double variance = 0;
+        for (double ms : iterationMs) {
+            variance += (ms - mean) * (ms - mean);
+        }
+        variance /= MEASUREMENT_ITERATIONS - 1;
+        // Student's t for 9 degrees of freedom at 99.9%, as JMH reports
+        double error = 4.781 * Math.sqrt(variance / MEASUREMENT_ITERATIONS);
+        return new double[]{mean, error};
+    }
+
+    private static String describe(double[] result) {
+        return String.format("%.3f +- %.3f ms/op", result[0], result[1]);
+    }
+}
@@ -0,0 +1,82 @@
+package com.twilio.video.examples.customrenderer;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class I420PlanePackerTest {
+    @Test
+    public void matchesPerByteCopy() {
+        int[][] cases = {
+                {16, 8, 16, 8},
+                {16, 8, 32, 24},
+                {7, 5, 7, 4},
+                {7, 5, 9, 5},
+                {2, 2, 2, 1},
+        };
+        I420PlanePacker packer = new I420PlanePacker();
+        for (int[] frameCase : cases) {
+            ByteBuffer[] planes = createFrame(frameCase);
+            int[] strides = {frameCase[2], frameCase[3], frameCase[3]};
+
+            byte[] expected = perByteCopy(planes, strides, frameCase[0], frameCase[1]);
+            byte[] packed = packer.packNv21(planes, strides, frameCase[0], frameCase[1]);
+
+            assertArrayEquals(Arrays.toString(frameCase), expected, packed);
+            assertEquals(0, planes[0].position());
+        }
+    }
+
+    @Test
+    public void reusesOutputBetweenFrames() {
+        int[] frameCase = {64, 48, 80, 40};
+        ByteBuffer[] planes = createFrame(frameCase);
+        int[] strides = {frameCase[2], frameCase[3], frameCase[3]};
+        I420PlanePacker packer = new I420PlanePacker();
+
+        byte[] first = packer.packNv21(planes, strides, frameCase[0], frameCase[1]);
+        assertSame(first, packer.packNv21(planes, strides, frameCase[0], frameCase[1]));
+    }
+
+    /*
+     * The packing SnapshotVideoRenderer used to do, one indexed get per byte.
+     */
+    static byte[] perByteCopy(ByteBuffer[] yuvPlanes, int[] yuvStrides, int width,
+                              int height) {
+        byte[] bytes = new byte[width * height * 3 / 2];
+        int i = 0;
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                bytes[i++] = yuvPlanes[0].get(col + row * yuvStrides[0]);
+            }
+        }
+        for (int row = 0; row < height / 2; row++) {
+            for (int col = 0; col < width / 2; col++) {
+                bytes[i++] = yuvPlanes[2].get(col + row * yuvStrides[2]);
+                bytes[i++] = yuvPlanes[1].get(col + row * yuvStrides[1]);
+            }
+        }
+        return bytes;
+    }
+
+    static ByteBuffer[] createFrame(int[] frameCase) {
+        int height = frameCase[1];
+        int chromaHeight = (height + 1) / 2;
+        ByteBuffer[] planes = {
+                ByteBuffer.allocateDirect(frameCase[2] * height),
+                ByteBuffer.allocateDirect(frameCase[3] * chromaHeight),
+                ByteBuffer.allocateDirect(frameCase[3] * chromaHeight)
+        };
+        for (int plane = 0; plane < 3; plane++) {
+            for (int i = 0; i < planes[plane].capacity(); i++) {
+                planes[plane].put(i, (byte) (i * 31 + plane * 7));
+            }
+        }
+        return planes;
+    }
+}
@@ -0,0 +1,39 @@
+package com.twilio.video.examples.customrenderer;
+
+import org.junit.Test;
+
+import static com.twilio.video.examples.customrenderer.Benchmarks.threadAllocatedBytes;
+import static org.junit.Assert.assertTrue;
+
+public class I420ToArgbConverterBenchmark {
+    @Test
+    public void conversionCostPerFrame() {
+        int[][] sizes = {{1280, 720, 1280}, {1280, 720, 1344}, {1920, 1080, 1920},
+                {1920, 1080, 2048}};
+        for (int[] size : sizes) {
+            int width = size[0];
+            int height = size[1];
+            I420ToArgbConverterTest.Frame frame =
+                    new I420ToArgbConverterTest.Frame(width, height, size[2], size[2] / 2);
+            frame.gradient();
+            I420ToArgbConverter converter = new I420ToArgbConverter();
+            for (int i = 0; i < 20; i++) {
+                converter.convert(frame.planes, frame.strides, width, height, 90);
+            }
+
+            int frames = 50;
+            long allocatedBefore = threadAllocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < frames; i++) {
+                converter.convert(frame.planes, frame.strides, width, height, i % 4 * 90);
+            }
+            long elapsed = System.nanoTime() - start;
+            long allocated = threadAllocatedBytes() - allocatedBefore;
+
+            Benchmarks.report("I420ToArgbConverter %dx%d stride %d: %.2f ms per frame, %d bytes " +
+                            "allocated per frame", width, height, size[2], elapsed / 1e6 / frames,
+                    allocated / frames);
+            assertTrue(allocated < 4096);
+        }
+    }
+}
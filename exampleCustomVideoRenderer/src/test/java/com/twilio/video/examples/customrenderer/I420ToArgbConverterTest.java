@@ -0,0 +1,156 @@
+package com.twilio.video.examples.customrenderer;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class I420ToArgbConverterTest {
+    @Test
+    public void convertsBt601Colors() {
+        // Y, U, V and the expected RGB
+        int[][] colors = {
+                {16, 128, 128, 0x000000},
+                {235, 128, 128, 0xffffff},
+                {81, 90, 240, 0xff0000},
+                {145, 54, 34, 0x00ff00},
+                {41, 240, 110, 0x0000ff},
+        };
+        I420ToArgbConverter converter = new I420ToArgbConverter();
+        for (int[] color : colors) {
+            Frame frame = new Frame(2, 2, 2, 1);
+            frame.fill(color[0], color[1], color[2]);
+            int[] pixels = converter.convert(frame.planes, frame.strides, 2, 2, 0);
+            for (int i = 0; i < 4; i++) {
+                assertColor(0xff000000 | color[3], pixels[i]);
+            }
+        }
+    }
+
+    @Test
+    public void rotatesWhileConverting() {
+        int width = 6;
+        int height = 4;
+        Frame frame = new Frame(width, height, width, (width + 1) / 2);
+        frame.gradient();
+        I420ToArgbConverter converter = new I420ToArgbConverter();
+        int[] upright = converter.convert(frame.planes, frame.strides, width, height, 0).clone();
+
+        for (int rotation : new int[]{90, 180, 270, -90}) {
+            int[] rotated = converter.convert(frame.planes, frame.strides, width, height,
+                    rotation);
+            int outputWidth = converter.getOutputWidth();
+            assertEquals(rotation % 180 == 0 ? width : height, outputWidth);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int index;
+                    switch ((rotation + 360) % 360) {
+                        case 90:
+                            index = x * outputWidth + (height - 1 - y);
+                            break;
+                        case 180:
+                            index = (height - 1 - y) * outputWidth + (width - 1 - x);
+                            break;
+                        default:
+                            index = (width - 1 - x) * outputWidth + y;
+                            break;
+                    }
+                    assertEquals(rotation + " " + x + "," + y, upright[y * width + x],
+                            rotated[index]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void handlesPaddedStridesAndOddSizes() {
+        int width = 7;
+        int height = 5;
+        Frame tight = new Frame(width, height, width, (width + 1) / 2);
+        Frame padded = new Frame(width, height, 32, 24);
+        tight.gradient();
+        padded.gradient();
+        I420ToArgbConverter converter = new I420ToArgbConverter();
+
+        int[] expected = converter.convert(tight.planes, tight.strides, width, height, 0)
+                .clone();
+        int[] actual = converter.convert(padded.planes, padded.strides, width, height, 0);
+
+        for (int i = 0; i < width * height; i++) {
+            assertEquals(expected[i], actual[i]);
+        }
+        assertEquals(0, padded.planes[0].position());
+    }
+
+    @Test
+    public void reusesOutputAcrossRotations() {
+        Frame frame = new Frame(16, 8, 16, 8);
+        frame.gradient();
+        I420ToArgbConverter converter = new I420ToArgbConverter();
+
+        int[] pixels = converter.convert(frame.planes, frame.strides, 16, 8, 0);
+        for (int rotation = 90; rotation < 360; rotation += 90) {
+            assertSame(pixels, converter.convert(frame.planes, frame.strides, 16, 8, rotation));
+        }
+    }
+
+    private static void assertColor(int expected, int actual) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            int difference = ((expected >> shift) & 0xff) - ((actual >> shift) & 0xff);
+            assertTrue(String.format("expected %08x got %08x", expected, actual),
+                    Math.abs(difference) <= 2);
+        }
+    }
+
+    /*
+     * Frame holds direct I420 planes with the given strides, like the ones WebRTC delivers.
+     */
+    static final class Frame {
+        final int width;
+        final int height;
+        final int[] strides;
+        final ByteBuffer[] planes;
+
+        Frame(int width, int height, int lumaStride, int chromaStride) {
+            this.width = width;
+            this.height = height;
+            int chromaHeight = (height + 1) / 2;
+            strides = new int[]{lumaStride, chromaStride, chromaStride};
+            planes = new ByteBuffer[]{
+                    ByteBuffer.allocateDirect(lumaStride * height),
+                    ByteBuffer.allocateDirect(chromaStride * chromaHeight),
+                    ByteBuffer.allocateDirect(chromaStride * chromaHeight)
+            };
+            // Padding holds garbage that must never show up in the output
+            for (ByteBuffer plane : planes) {
+                while (plane.hasRemaining()) {
+                    plane.put((byte) 0x5a);
+                }
+                plane.clear();
+            }
+        }
+
+        void fill(int y, int u, int v) {
+            for (int row = 0; row < height; row++) {
+                for (int col = 0; col < width; col++) {
+                    planes[0].put(row * strides[0] + col, (byte) y);
+                    planes[1].put(row / 2 * strides[1] + col / 2, (byte) u);
+                    planes[2].put(row / 2 * strides[2] + col / 2, (byte) v);
+                }
+            }
+        }
+
+        void gradient() {
+            for (int row = 0; row < height; row++) {
+                for (int col = 0; col < width; col++) {
+                    planes[0].put(row * strides[0] + col, (byte) (16 + (row * 31 + col * 7) % 220));
+                    planes[1].put(row / 2 * strides[1] + col / 2, (byte) (row * 13 + col * 5));
+                    planes[2].put(row / 2 * strides[2] + col / 2, (byte) (255 - row * 11 - col));
+                }
+            }
+        }
+    }
+}
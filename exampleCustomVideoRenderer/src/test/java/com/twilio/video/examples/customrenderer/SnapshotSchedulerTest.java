@@ -0,0 +1,90 @@
+package com.twilio.video.examples.customrenderer;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotSchedulerTest {
+    // 30 fps frames
+    private static final long FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(33);
+
+    @Test
+    public void burstCapturesConsecutiveFrames() {
+        SnapshotScheduler scheduler = new SnapshotScheduler();
+        assertFalse(scheduler.shouldCapture(0));
+
+        scheduler.requestBurst(3);
+        for (int frame = 1; frame <= 3; frame++) {
+            assertTrue(scheduler.shouldCapture(frame * FRAME_NANOS));
+        }
+        assertFalse(scheduler.shouldCapture(4 * FRAME_NANOS));
+        assertEquals(0, scheduler.getBurstFramesRemaining());
+    }
+
+    @Test
+    public void periodicCapturesTwoFramesPerSecond() {
+        SnapshotScheduler scheduler = new SnapshotScheduler();
+        scheduler.startPeriodic(500);
+
+        int captured = 0;
+        for (int frame = 0; frame < 300; frame++) {
+            if (scheduler.shouldCapture(1000 + frame * FRAME_NANOS)) {
+                captured++;
+            }
+        }
+        // 300 frames span 9.9 seconds
+        assertEquals(20, captured);
+
+        scheduler.stopPeriodic();
+        assertFalse(scheduler.shouldCapture(1000 + 300 * FRAME_NANOS));
+    }
+
+    @Test
+    public void periodicRestartsAfterAStall() {
+        SnapshotScheduler scheduler = new SnapshotScheduler();
+        scheduler.startPeriodic(500);
+        long interval = TimeUnit.MILLISECONDS.toNanos(500);
+        assertTrue(scheduler.shouldCapture(1000));
+
+        // No frames for five intervals, then one capture rather than five to catch up
+        long resumed = 1000 + 5 * interval;
+        assertTrue(scheduler.shouldCapture(resumed));
+        assertFalse(scheduler.shouldCapture(resumed + FRAME_NANOS));
+        assertTrue(scheduler.shouldCapture(resumed + interval));
+    }
+
+    @Test
+    public void queueDropsOldestWhenFull() throws InterruptedException {
+        DropOldestQueue<Integer> queue = new DropOldestQueue<>(2);
+        assertNull(queue.offer(1));
+        assertNull(queue.offer(2));
+        assertEquals(Integer.valueOf(1), queue.offer(3));
+
+        assertEquals(1, queue.getDroppedCount());
+        assertEquals(Integer.valueOf(2), queue.poll());
+        assertEquals(Integer.valueOf(3), queue.poll(10, TimeUnit.MILLISECONDS));
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void pollWaitsForProducer() throws InterruptedException {
+        DropOldestQueue<Integer> queue = new DropOldestQueue<>(4);
+        Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.offer(42);
+        });
+        producer.start();
+
+        assertEquals(Integer.valueOf(42), queue.poll(5, TimeUnit.SECONDS));
+        producer.join();
+    }
+}
@@ -0,0 +1,112 @@
+package com.twilio.video.examples.customrenderer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs the snapshot shader on the CPU: every framebuffer pixel is mapped through the readback
+ * matrix and sampled from a source image the way the GPU would, then the rows are listed in the
+ * order glReadPixels returns them.
+ */
+public class TextureMatrixTest {
+    private static final float[] IDENTITY = {
+            1, 0, 0, 0,
+            0, 1, 0, 0,
+            0, 0, 1, 0,
+            0, 0, 0, 1
+    };
+    // Three pixels wide and two high, top row first
+    private static final char[][] SOURCE = {
+            {'A', 'B', 'C'},
+            {'D', 'E', 'F'}
+    };
+
+    @Test
+    public void readsTheTopRowFirst() {
+        assertArrayEquals(new char[][]{
+                {'A', 'B', 'C'},
+                {'D', 'E', 'F'}
+        }, readBack(IDENTITY, 0, 3, 2, false));
+    }
+
+    @Test
+    public void rotatesClockwise() {
+        assertArrayEquals(new char[][]{
+                {'D', 'A'},
+                {'E', 'B'},
+                {'F', 'C'}
+        }, readBack(IDENTITY, 90, 2, 3, false));
+        assertArrayEquals(new char[][]{
+                {'F', 'E', 'D'},
+                {'C', 'B', 'A'}
+        }, readBack(IDENTITY, 180, 3, 2, false));
+        assertArrayEquals(new char[][]{
+                {'C', 'F'},
+                {'B', 'E'},
+                {'A', 'D'}
+        }, readBack(IDENTITY, 270, 2, 3, false));
+    }
+
+    @Test
+    public void appliesTheSamplingMatrixLast() {
+        // Surface textures are commonly stored upside down and come with a flipping matrix
+        assertArrayEquals(new char[][]{
+                {'D', 'A'},
+                {'E', 'B'},
+                {'F', 'C'}
+        }, readBack(TextureMatrix.FLIP_VERTICAL, 90, 2, 3, true));
+    }
+
+    @Test
+    public void matchesTheWebRtcRotation() {
+        // RendererCommon.rotateTextureMatrix for 90 degrees, with the origin adjusted to the center
+        float[] expected = {
+                0, 1, 0, 0,
+                -1, 0, 0, 0,
+                0, 0, 1, 0,
+                1, 0, 0, 1
+        };
+        assertArrayEquals(expected, TextureMatrix.rotation(90), 0);
+        assertArrayEquals(IDENTITY, TextureMatrix.rotation(-360), 0);
+        assertArrayEquals(IDENTITY,
+                TextureMatrix.multiply(TextureMatrix.rotation(90), TextureMatrix.rotation(270)),
+                0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsArbitraryRotations() {
+        TextureMatrix.rotation(45);
+    }
+
+    @Test
+    public void transformsPoints() {
+        float[] out = new float[2];
+        TextureMatrix.transform(TextureMatrix.FLIP_VERTICAL, 0.25f, 0.25f, out);
+        assertEquals(0.25f, out[0], 0);
+        assertEquals(0.75f, out[1], 0);
+    }
+
+    /*
+     * Returns the framebuffer rows in the order glReadPixels returns them, the bottom one first.
+     * The source is sampled with t pointing up, or down when it is stored upside down.
+     */
+    private static char[][] readBack(float[] samplingMatrix, int rotation, int width,
+                                     int height, boolean upsideDown) {
+        float[] matrix = TextureMatrix.forReadback(samplingMatrix, rotation);
+        float[] coordinates = new float[2];
+        char[][] rows = new char[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                TextureMatrix.transform(matrix, (x + 0.5f) / width, (y + 0.5f) / height,
+                        coordinates);
+                int column = (int) (coordinates[0] * SOURCE[0].length);
+                int row = (int) ((upsideDown ? coordinates[1] : 1 - coordinates[1]) *
+                        SOURCE.length);
+                rows[y][x] = SOURCE[row][column];
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,52 @@
+package com.twilio.examplemultipartyvideo;
+
+import com.twilio.video.I420Frame;
+import com.twilio.video.VideoRenderer;
+
+/**
+ * FrameStatsVideoRenderer is a {@link VideoRenderer} that draws nothing and only records when
+ * frames of a track arrive, their dimensions and rotation. Add one to every track of interest to
+ * compare what each of them actually delivers with {@link #getStats()}.
+ */
+public class FrameStatsVideoRenderer implements VideoRenderer {
+    private final String name;
+    private final FrameStatsRecorder frameStatsRecorder = new FrameStatsRecorder();
+
+    /**
+     * @param name identifies the track in {@link #toString()}
+     */
+    public FrameStatsVideoRenderer(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public void renderFrame(I420Frame i420Frame) {
+        frameStatsRecorder.record(System.nanoTime(),
+                i420Frame.width,
+                i420Frame.height,
+                i420Frame.rotationDegree);
+
+        // Frames must be released after rendering to free the native memory
+        i420Frame.release();
+    }
+
+    public FrameStats getStats() {
+        return frameStatsRecorder.getStats();
+    }
+
+    /**
+     * Starts over, for example when the renderer moves to another track.
+     */
+    public void reset() {
+        frameStatsRecorder.reset();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %s", name, getStats());
+    }
+}
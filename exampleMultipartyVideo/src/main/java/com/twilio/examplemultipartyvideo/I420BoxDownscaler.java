@@ -0,0 +1,204 @@
+package com.twilio.examplemultipartyvideo;
+
+import java.nio.ByteBuffer;
+
+/**
+ * I420BoxDownscaler shrinks I420 frames to thumbnail tiles and converts them to ARGB in one pass.
+ * Every tile pixel is the average of the block of frame pixels it covers, which reads each frame
+ * pixel once and avoids the aliasing of simply picking pixels. The center of the frame is cropped
+ * to the aspect ratio of the tile so the tile is filled, and rotation is applied while writing.
+ *
+ * <p>Rows are read out of the planes with bulk gets and the work arrays are kept between frames,
+ * so downscaling a stream of frames does not allocate. An instance must only be used from one
+ * thread at a time. Colors are converted with the BT.601 limited range coefficients WebRTC uses.
+ */
+final class I420BoxDownscaler {
+    // 8-bit fixed point BT.601 coefficients
+    private static final int[] Y_TO_RGB = new int[256];
+    private static final int[] V_TO_R = new int[256];
+    private static final int[] U_TO_G = new int[256];
+    private static final int[] V_TO_G = new int[256];
+    private static final int[] U_TO_B = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            Y_TO_RGB[i] = 298 * (i - 16) + 128;
+            V_TO_R[i] = 409 * (i - 128);
+            U_TO_G[i] = -100 * (i - 128);
+            V_TO_G[i] = -208 * (i - 128);
+            U_TO_B[i] = 516 * (i - 128);
+        }
+    }
+
+    private byte[] row = new byte[0];
+    private int[] columnStarts = new int[0];
+    private int[] columnEnds = new int[0];
+    private int[] ySums = new int[0];
+    private int[] uSums = new int[0];
+    private int[] vSums = new int[0];
+    private final int[] planePositions = new int[3];
+
+    /**
+     * Downscales a frame into a tile of ARGB pixels. The positions of the plane buffers are left
+     * untouched.
+     *
+     * @param rotationDegrees clockwise rotation applied to the frame, a multiple of 90
+     * @param out the pixels the tile is written to, starting at outOffset with outStride pixels
+     *            between rows, like {@link android.graphics.Bitmap#setPixels}
+     */
+    void downscale(ByteBuffer[] yuvPlanes, int[] yuvStrides, int width, int height,
+                   int rotationDegrees, int[] out, int outOffset, int outStride, int tileWidth,
+                   int tileHeight) {
+        int rotation = ((rotationDegrees % 360) + 360) % 360;
+        if (rotation % 90 != 0) {
+            throw new IllegalArgumentException("Unsupported rotation " + rotationDegrees);
+        }
+        boolean transposed = rotation == 90 || rotation == 270;
+        // The tile size before rotation
+        int scaledWidth = transposed ? tileHeight : tileWidth;
+        int scaledHeight = transposed ? tileWidth : tileHeight;
+
+        // Crop the center of the frame to the tile aspect ratio, on even pixels to keep chroma
+        int cropWidth = width;
+        int cropHeight = height;
+        if ((long) width * scaledHeight > (long) height * scaledWidth) {
+            cropWidth = (int) ((long) height * scaledWidth / scaledHeight);
+        } else {
+            cropHeight = (int) ((long) width * scaledHeight / scaledWidth);
+        }
+        int cropX = (width - cropWidth) / 2 & ~1;
+        int cropY = (height - cropHeight) / 2 & ~1;
+
+        if (columnStarts.length != scaledWidth) {
+            columnStarts = new int[scaledWidth];
+            columnEnds = new int[scaledWidth];
+            ySums = new int[scaledWidth];
+            uSums = new int[scaledWidth];
+            vSums = new int[scaledWidth];
+        }
+        if (row.length < width) {
+            row = new byte[width];
+        }
+        for (int x = 0; x < scaledWidth; x++) {
+            columnStarts[x] = cropX + blockStart(x, cropWidth, scaledWidth);
+            columnEnds[x] = cropX + blockEnd(x, cropWidth, scaledWidth);
+        }
+
+        int chromaWidth = (width + 1) / 2;
+        int chromaHeight = (height + 1) / 2;
+        for (int plane = 0; plane < 3; plane++) {
+            planePositions[plane] = yuvPlanes[plane].position();
+        }
+        for (int y = 0; y < scaledHeight; y++) {
+            int rowStart = cropY + blockStart(y, cropHeight, scaledHeight);
+            int rowEnd = cropY + blockEnd(y, cropHeight, scaledHeight);
+            int chromaRowStart = rowStart / 2;
+            int chromaRowEnd = Math.min(chromaHeight, Math.max(chromaRowStart + 1, rowEnd / 2));
+
+            clear(ySums, scaledWidth);
+            clear(uSums, scaledWidth);
+            clear(vSums, scaledWidth);
+            for (int r = rowStart; r < rowEnd; r++) {
+                readRow(yuvPlanes[0], r * yuvStrides[0], width);
+                for (int x = 0; x < scaledWidth; x++) {
+                    int sum = 0;
+                    for (int c = columnStarts[x]; c < columnEnds[x]; c++) {
+                        sum += row[c] & 0xff;
+                    }
+                    ySums[x] += sum;
+                }
+            }
+            for (int r = chromaRowStart; r < chromaRowEnd; r++) {
+                readRow(yuvPlanes[1], r * yuvStrides[1], chromaWidth);
+                sumChroma(uSums, scaledWidth, chromaWidth);
+                readRow(yuvPlanes[2], r * yuvStrides[2], chromaWidth);
+                sumChroma(vSums, scaledWidth, chromaWidth);
+            }
+
+            int chromaRows = chromaRowEnd - chromaRowStart;
+            for (int x = 0; x < scaledWidth; x++) {
+                int lumaCount = (columnEnds[x] - columnStarts[x]) * (rowEnd - rowStart);
+                int chromaCount = chromaColumns(x, chromaWidth) * chromaRows;
+                int luma = ySums[x] / lumaCount;
+                int u = uSums[x] / chromaCount;
+                int v = vSums[x] / chromaCount;
+
+                int outX;
+                int outY;
+                switch (rotation) {
+                    case 90:
+                        outX = scaledHeight - 1 - y;
+                        outY = x;
+                        break;
+                    case 180:
+                        outX = scaledWidth - 1 - x;
+                        outY = scaledHeight - 1 - y;
+                        break;
+                    case 270:
+                        outX = y;
+                        outY = scaledWidth - 1 - x;
+                        break;
+                    default:
+                        outX = x;
+                        outY = y;
+                }
+                out[outOffset + outY * outStride + outX] = argb(luma, u, v);
+            }
+        }
+        for (int plane = 0; plane < 3; plane++) {
+            yuvPlanes[plane].position(planePositions[plane]);
+        }
+    }
+
+    private void readRow(ByteBuffer plane, int offset, int length) {
+        plane.position(offset);
+        plane.get(row, 0, Math.min(length, plane.limit() - offset));
+    }
+
+    private void sumChroma(int[] sums, int scaledWidth, int chromaWidth) {
+        for (int x = 0; x < scaledWidth; x++) {
+            int start = columnStarts[x] / 2;
+            int end = start + chromaColumns(x, chromaWidth);
+            int sum = 0;
+            for (int c = start; c < end; c++) {
+                sum += row[c] & 0xff;
+            }
+            sums[x] += sum;
+        }
+    }
+
+    private int chromaColumns(int x, int chromaWidth) {
+        int start = columnStarts[x] / 2;
+        return Math.min(chromaWidth, Math.max(start + 1, columnEnds[x] / 2)) - start;
+    }
+
+    /*
+     * The frame pixels covered by tile pixel i, at least one even when enlarging.
+     */
+    private static int blockStart(int i, int frameLength, int tileLength) {
+        return (int) ((long) i * frameLength / tileLength);
+    }
+
+    private static int blockEnd(int i, int frameLength, int tileLength) {
+        return Math.max(blockStart(i, frameLength, tileLength) + 1,
+                (int) ((long) (i + 1) * frameLength / tileLength));
+    }
+
+    private static void clear(int[] sums, int length) {
+        for (int i = 0; i < length; i++) {
+            sums[i] = 0;
+        }
+    }
+
+    private static int argb(int y, int u, int v) {
+        int luma = Y_TO_RGB[y];
+        int r = clamp((luma + V_TO_R[v]) >> 8);
+        int g = clamp((luma + U_TO_G[u] + V_TO_G[v]) >> 8);
+        int b = clamp((luma + U_TO_B[u]) >> 8);
+        return 0xff000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : value > 255 ? 255 : value;
+    }
+}
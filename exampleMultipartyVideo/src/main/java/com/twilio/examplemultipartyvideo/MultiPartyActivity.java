@@ -10,6 +10,7 @@ import android.media.AudioFocusRequest;
 import android.media.AudioManager;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
 import android.preference.PreferenceManager;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
@@ -72,6 +73,18 @@ public class MultiPartyActivity extends AppCompatActivity {
 
     private static final int CAMERA_MIC_PERMISSION_REQUEST_CODE = 5;
     private static final String TAG = "MultiPartyActivity";
+    private static final long FRAME_STATS_LOG_INTERVAL_MS = 5000;
+
+    /*
+     * Render remote participants as tiles of one shared thumbnail atlas instead of a
+     * VideoTextureView each, which scales better to large grids
+     */
+    private static final boolean USE_THUMBNAIL_RENDERER = false;
+    private static final int THUMBNAIL_MAX_FPS = 10;
+    private static final int THUMBNAIL_WIDTH = 160;
+    private static final int THUMBNAIL_HEIGHT = 120;
+    private static final int THUMBNAIL_ATLAS_COLUMNS = 4;
+    private static final int THUMBNAIL_ATLAS_ROWS = 4;
 
     /*
      * Audio and video tracks can be created with names. This feature is useful for categorizing
@@ -140,6 +153,27 @@ public class MultiPartyActivity extends AppCompatActivity {
     private ImageView currentDominantSpeakerImg;
     private VideoTextureView localVideoTextureView;
 
+    /*
+     * Frame statistics of the local video track and of every remote video track by participant
+     * sid, logged together so that tracks can be compared side by side
+     */
+    private final FrameStatsVideoRenderer localFrameStatsRenderer =
+            new FrameStatsVideoRenderer(LOCAL_VIDEO_TRACK_NAME);
+    private final Map<String, FrameStatsVideoRenderer> remoteFrameStatsRenderers = new HashMap<>();
+    private final Handler frameStatsHandler = new Handler();
+    private ThumbnailAtlas thumbnailAtlas;
+    private final Map<String, ThumbnailVideoRenderer> thumbnailRenderers = new HashMap<>();
+    private final Runnable logFrameStats = new Runnable() {
+        @Override
+        public void run() {
+            Log.d(TAG, localFrameStatsRenderer.toString());
+            for (FrameStatsVideoRenderer frameStatsRenderer : remoteFrameStatsRenderers.values()) {
+                Log.d(TAG, frameStatsRenderer.toString());
+            }
+            frameStatsHandler.postDelayed(this, FRAME_STATS_LOG_INTERVAL_MS);
+        }
+    };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -220,6 +254,7 @@ public class MultiPartyActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
+        frameStatsHandler.postDelayed(logFrameStats, FRAME_STATS_LOG_INTERVAL_MS);
         audioCodec = getAudioCodec();
         videoCodec = getVideoCodec();
 
@@ -232,6 +267,8 @@ public class MultiPartyActivity extends AppCompatActivity {
                     cameraCapturerCompat,
                     LOCAL_VIDEO_TRACK_NAME);
             localVideoTrack.addRenderer(localVideoTextureView);
+            localFrameStatsRenderer.reset();
+            localVideoTrack.addRenderer(localFrameStatsRenderer);
 
             /*
              * If connected to a Room then share the local video track.
@@ -263,6 +300,8 @@ public class MultiPartyActivity extends AppCompatActivity {
 
     @Override
     protected void onPause() {
+        frameStatsHandler.removeCallbacks(logFrameStats);
+
         /*
          * Release the local video track before going in the background. This ensures that the
          * camera can be used by other applications while this app is in the background.
@@ -344,6 +383,7 @@ public class MultiPartyActivity extends AppCompatActivity {
                 cameraCapturerCompat,
                 LOCAL_VIDEO_TRACK_NAME);
         localVideoTrack.addRenderer(localVideoTextureView);
+        localVideoTrack.addRenderer(localFrameStatsRenderer);
     }
 
     private CameraSource getAvailableCameraSource() {
@@ -515,9 +555,41 @@ public class MultiPartyActivity extends AppCompatActivity {
         VideoTextureView videoTextureView = participantContainer.getVideoView();
 
         videoTextureView.setTag(videoTrack);
-        videoTextureView.setVisibility(VISIBLE);
-        videoTrack.addRenderer(videoTextureView);
+        if (USE_THUMBNAIL_RENDERER) {
+            addRemoteParticipantThumbnail(remoteParticipant, videoTrack, participantContainer);
+        } else {
+            videoTextureView.setVisibility(VISIBLE);
+            videoTrack.addRenderer(videoTextureView);
+        }
         participantViewGroupMap.put(remoteParticipant.getSid(), participantContainer);
+
+        FrameStatsVideoRenderer frameStatsRenderer =
+                new FrameStatsVideoRenderer(remoteParticipant.getIdentity());
+        videoTrack.addRenderer(frameStatsRenderer);
+        remoteFrameStatsRenderers.put(remoteParticipant.getSid(), frameStatsRenderer);
+    }
+
+    /*
+     * Render participant video into a tile of the shared thumbnail atlas
+     */
+    private void addRemoteParticipantThumbnail(RemoteParticipant remoteParticipant,
+                                               VideoTrack videoTrack,
+                                               ParticipantView participantContainer) {
+        if (thumbnailAtlas == null) {
+            thumbnailAtlas = new ThumbnailAtlas(THUMBNAIL_WIDTH,
+                    THUMBNAIL_HEIGHT,
+                    THUMBNAIL_ATLAS_COLUMNS,
+                    THUMBNAIL_ATLAS_ROWS);
+        }
+        int tile = thumbnailAtlas.acquireTile();
+        ThumbnailVideoRenderer thumbnailRenderer =
+                new ThumbnailVideoRenderer(thumbnailAtlas, tile, THUMBNAIL_MAX_FPS);
+        ThumbnailView thumbnailView = participantContainer.getThumbnailView();
+
+        thumbnailView.setTile(thumbnailAtlas, tile);
+        thumbnailView.setVisibility(VISIBLE);
+        videoTrack.addRenderer(thumbnailRenderer);
+        thumbnailRenderers.put(remoteParticipant.getSid(), thumbnailRenderer);
     }
 
     /*
@@ -550,9 +622,28 @@ public class MultiPartyActivity extends AppCompatActivity {
         VideoTextureView videoTextureView = participantContainer.getVideoView();
 
         VideoTrack videoTrack = (VideoTrack) videoTextureView.getTag();
-        videoTrack.removeRenderer(videoTextureView);
+        ThumbnailVideoRenderer thumbnailRenderer =
+                thumbnailRenderers.remove(remoteParticipant.getSid());
+        if (thumbnailRenderer != null) {
+            ThumbnailView thumbnailView = participantContainer.getThumbnailView();
+
+            // The renderer frees its converter on the render thread, so release it first
+            thumbnailRenderer.release();
+            videoTrack.removeRenderer(thumbnailRenderer);
+            thumbnailAtlas.releaseTile(thumbnailRenderer.getTile());
+            thumbnailView.clearTile();
+            thumbnailView.setVisibility(GONE);
+        } else {
+            videoTrack.removeRenderer(videoTextureView);
+        }
         videoTextureView.setVisibility(GONE);
 
+        FrameStatsVideoRenderer frameStatsRenderer =
+                remoteFrameStatsRenderers.remove(remoteParticipant.getSid());
+        if (frameStatsRenderer != null) {
+            videoTrack.removeRenderer(frameStatsRenderer);
+        }
+
         participantViewGroupMap.remove(remoteParticipant.getSid());
         availableParticipantContainers.add(participantContainer);
 
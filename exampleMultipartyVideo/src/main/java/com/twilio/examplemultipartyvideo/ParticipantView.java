@@ -9,6 +9,7 @@ import com.twilio.video.VideoTextureView;
 
 public class ParticipantView extends RelativeLayout {
     private VideoTextureView videoView;
+    private ThumbnailView thumbnailView;
     private ImageView dominantSpeakerImg;
 
     public ParticipantView(Context context) {
@@ -25,6 +26,7 @@ public class ParticipantView extends RelativeLayout {
 
     private void init() {
         videoView = findViewById(R.id.video_view);
+        thumbnailView = findViewById(R.id.thumbnail_view);
         dominantSpeakerImg = findViewById(R.id.dominant_speaker_img);
     }
 
@@ -32,6 +34,14 @@ public class ParticipantView extends RelativeLayout {
         return videoView;
     }
 
+    /**
+     * Returns the view used instead of the video view when the participant is rendered by a
+     * {@link ThumbnailVideoRenderer}.
+     */
+    public ThumbnailView getThumbnailView() {
+        return thumbnailView;
+    }
+
     public ImageView getDominantSpeakerImg() {
         return dominantSpeakerImg;
     }
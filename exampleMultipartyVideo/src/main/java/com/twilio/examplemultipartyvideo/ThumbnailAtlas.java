@@ -0,0 +1,153 @@
+package com.twilio.examplemultipartyvideo;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+
+import java.util.Arrays;
+
+/**
+ * ThumbnailAtlas is a single bitmap shared by a grid of thumbnail tiles, so a large gallery needs
+ * one bitmap instead of one surface or bitmap per participant. Renderers hand finished tiles to
+ * {@link #updateTile} from their render threads. The tiles are copied into the bitmap on the main
+ * thread, at most once per main loop pass however many tiles changed, and the views showing them
+ * are invalidated.
+ *
+ * <p>Each tile has two pixel buffers. Renderers write into the pending one under the atlas lock,
+ * and the main thread swaps it for the one it copies from, so the copy into the bitmap happens
+ * outside the lock and never holds up a render thread.
+ */
+final class ThumbnailAtlas {
+    private final int tileWidth;
+    private final int tileHeight;
+    private final int columns;
+    private final Bitmap bitmap;
+    private final int[][] pendingPixels;
+    private final int[][] flushPixels;
+    private final boolean[] tilesInUse;
+    private final boolean[] dirtyTiles;
+    private final View[] tileViews;
+    // Only used on the main thread, by flushDirtyTiles
+    private final int[] flushTiles;
+    private final View[] flushViews;
+    private final Rect tileBounds = new Rect();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushDirtyTiles = this::flushDirtyTiles;
+    private boolean flushPosted;
+
+    ThumbnailAtlas(int tileWidth, int tileHeight, int columns, int rows) {
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.columns = columns;
+        this.bitmap = Bitmap.createBitmap(tileWidth * columns, tileHeight * rows,
+                Bitmap.Config.ARGB_8888);
+        this.pendingPixels = new int[columns * rows][tileWidth * tileHeight];
+        this.flushPixels = new int[columns * rows][tileWidth * tileHeight];
+        this.tilesInUse = new boolean[columns * rows];
+        this.dirtyTiles = new boolean[columns * rows];
+        this.tileViews = new View[columns * rows];
+        this.flushTiles = new int[columns * rows];
+        this.flushViews = new View[columns * rows];
+    }
+
+    int getTileWidth() {
+        return tileWidth;
+    }
+
+    int getTileHeight() {
+        return tileHeight;
+    }
+
+    /**
+     * Reserves a free tile.
+     *
+     * @throws IllegalStateException if every tile is in use
+     */
+    synchronized int acquireTile() {
+        for (int tile = 0; tile < tilesInUse.length; tile++) {
+            if (!tilesInUse[tile]) {
+                tilesInUse[tile] = true;
+                return tile;
+            }
+        }
+        throw new IllegalStateException("All " + tilesInUse.length + " tiles are in use");
+    }
+
+    /**
+     * Frees the tile and clears it, so the next participant given the tile does not show the last
+     * frame of this one before their first frame arrives.
+     */
+    synchronized void releaseTile(int tile) {
+        tilesInUse[tile] = false;
+        tileViews[tile] = null;
+        Arrays.fill(pendingPixels[tile], 0);
+        markDirty(tile);
+    }
+
+    /**
+     * Sets the view invalidated whenever the tile changes. Must be called on the main thread.
+     */
+    synchronized void setTileView(int tile, View view) {
+        tileViews[tile] = view;
+    }
+
+    /**
+     * Copies tileWidth by tileHeight pixels into the tile. Can be called from any thread.
+     */
+    synchronized void updateTile(int tile, int[] pixels) {
+        if (!tilesInUse[tile]) {
+            return;
+        }
+        System.arraycopy(pixels, 0, pendingPixels[tile], 0, pendingPixels[tile].length);
+        markDirty(tile);
+    }
+
+    /**
+     * Draws the tile scaled to the destination. Must be called on the main thread.
+     */
+    void drawTile(Canvas canvas, int tile, Rect destination, Paint paint) {
+        int left = tile % columns * tileWidth;
+        int top = tile / columns * tileHeight;
+        tileBounds.set(left, top, left + tileWidth, top + tileHeight);
+        canvas.drawBitmap(bitmap, tileBounds, destination, paint);
+    }
+
+    private void markDirty(int tile) {
+        dirtyTiles[tile] = true;
+        if (!flushPosted) {
+            flushPosted = true;
+            handler.post(flushDirtyTiles);
+        }
+    }
+
+    private void flushDirtyTiles() {
+        int flushCount = 0;
+        synchronized (this) {
+            flushPosted = false;
+            for (int tile = 0; tile < dirtyTiles.length; tile++) {
+                if (!dirtyTiles[tile]) {
+                    continue;
+                }
+                dirtyTiles[tile] = false;
+                int[] pixels = pendingPixels[tile];
+                pendingPixels[tile] = flushPixels[tile];
+                flushPixels[tile] = pixels;
+                flushTiles[flushCount] = tile;
+                flushViews[flushCount++] = tileViews[tile];
+            }
+        }
+        for (int i = 0; i < flushCount; i++) {
+            int tile = flushTiles[i];
+            bitmap.setPixels(flushPixels[tile], 0, tileWidth, tile % columns * tileWidth,
+                    tile / columns * tileHeight, tileWidth, tileHeight);
+            if (flushViews[i] != null) {
+                flushViews[i].invalidate();
+                flushViews[i] = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.twilio.examplemultipartyvideo;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.twilio.video.I420Frame;
+import com.twilio.video.VideoRenderer;
+
+import org.webrtc.RendererCommon;
+import org.webrtc.YuvConverter;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import javax.microedition.khronos.egl.EGL10;
+import javax.microedition.khronos.egl.EGLContext;
+
+/**
+ * ThumbnailVideoRenderer renders a track into one tile of a {@link ThumbnailAtlas}, as a cheaper
+ * alternative to a {@link com.twilio.video.VideoTextureView} per participant in large grids.
+ * In-memory frames are shrunk to the tile size with {@link I420BoxDownscaler} while converting,
+ * and texture frames are scaled by the GPU as they are read back. Frames beyond the configured
+ * frame rate are released without being converted at all.
+ */
+public class ThumbnailVideoRenderer implements VideoRenderer {
+    // YuvConverter requires the row stride to be a multiple of eight
+    private static final int STRIDE_ALIGNMENT = 8;
+
+    private final ThumbnailAtlas atlas;
+    private final int tile;
+    private final long frameIntervalNanos;
+    private final I420BoxDownscaler downscaler = new I420BoxDownscaler();
+    private final int[] tilePixels;
+    private long nextFrameNanos;
+    private volatile long renderedFrames;
+    private volatile long skippedFrames;
+    private volatile boolean released;
+    // The render thread's looper, if it has one, so release() can free the converter there
+    private volatile Handler renderThreadHandler;
+
+    // Texture frames are read back at tile size into this buffer
+    private YuvConverter yuvConverter;
+    private EGLContext yuvConverterContext;
+    private ByteBuffer textureBuffer;
+    private ByteBuffer[] texturePlanes;
+    private int[] textureStrides;
+
+    ThumbnailVideoRenderer(ThumbnailAtlas atlas, int tile, int maxFps) {
+        if (maxFps <= 0) {
+            throw new IllegalArgumentException("The frame rate must be positive");
+        }
+        this.atlas = atlas;
+        this.tile = tile;
+        this.frameIntervalNanos = TimeUnit.SECONDS.toNanos(1) / maxFps;
+        this.tilePixels = new int[atlas.getTileWidth() * atlas.getTileHeight()];
+    }
+
+    @Override
+    public void renderFrame(I420Frame i420Frame) {
+        if (released) {
+            releaseConverter();
+            i420Frame.release();
+            return;
+        }
+        long now = System.nanoTime();
+        if (nextFrameNanos != 0 && now - nextFrameNanos < 0) {
+            skippedFrames++;
+            i420Frame.release();
+            return;
+        }
+        // Keep to the frame rate on average, unless frames stopped arriving for a while
+        nextFrameNanos = nextFrameNanos == 0 || now - nextFrameNanos >= frameIntervalNanos ?
+                now + frameIntervalNanos :
+                nextFrameNanos + frameIntervalNanos;
+
+        int tileWidth = atlas.getTileWidth();
+        int tileHeight = atlas.getTileHeight();
+        if (i420Frame.yuvPlanes != null) {
+            downscaler.downscale(i420Frame.yuvPlanes,
+                    i420Frame.yuvStrides,
+                    i420Frame.width,
+                    i420Frame.height,
+                    i420Frame.rotationDegree,
+                    tilePixels,
+                    0,
+                    tileWidth,
+                    tileWidth,
+                    tileHeight);
+        } else {
+            readTexture(i420Frame, tileWidth, tileHeight);
+            downscaler.downscale(texturePlanes,
+                    textureStrides,
+                    tileWidth,
+                    tileHeight,
+                    0,
+                    tilePixels,
+                    0,
+                    tileWidth,
+                    tileWidth,
+                    tileHeight);
+        }
+        atlas.updateTile(tile, tilePixels);
+        renderedFrames++;
+
+        // Frames must be released after rendering to free the native memory
+        i420Frame.release();
+    }
+
+    int getTile() {
+        return tile;
+    }
+
+    public long getRenderedFrames() {
+        return renderedFrames;
+    }
+
+    /**
+     * Returns how many frames were dropped to keep to the frame rate.
+     */
+    public long getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    /**
+     * Stops updating the tile and frees the converter used for texture frames. The converter
+     * belongs to the render thread's EGL context, so it is released on the render thread, posted
+     * to its looper if it has one and otherwise with the next frame rendered. Call this before
+     * removing the renderer from its track.
+     */
+    public void release() {
+        released = true;
+        Handler renderThreadHandler = this.renderThreadHandler;
+        if (renderThreadHandler != null) {
+            renderThreadHandler.post(this::releaseConverter);
+        }
+    }
+
+    /*
+     * Runs on the render thread, possibly twice.
+     */
+    private void releaseConverter() {
+        if (yuvConverter != null) {
+            yuvConverter.release();
+            yuvConverter = null;
+            yuvConverterContext = null;
+        }
+    }
+
+    /*
+     * Reads the texture back already rotated, cropped and scaled to the tile. The converter is
+     * created on the render thread since it needs its EGL context.
+     */
+    private void readTexture(I420Frame i420Frame, int tileWidth, int tileHeight) {
+        EGLContext currentContext = ((EGL10) EGLContext.getEGL()).eglGetCurrentContext();
+        if (yuvConverter == null || !currentContext.equals(yuvConverterContext)) {
+            /*
+             * The converter belongs to the context it was created on. If that context is gone
+             * its GL objects went with it, so the old converter is simply dropped.
+             */
+            yuvConverter = new YuvConverter();
+            yuvConverterContext = currentContext;
+            if (renderThreadHandler == null && Looper.myLooper() != null) {
+                renderThreadHandler = new Handler(Looper.myLooper());
+            }
+        }
+        if (textureBuffer == null) {
+            int stride = (tileWidth + STRIDE_ALIGNMENT - 1) / STRIDE_ALIGNMENT * STRIDE_ALIGNMENT;
+            textureBuffer = ByteBuffer.allocateDirect(stride * (tileHeight + (tileHeight + 1) / 2));
+            textureStrides = new int[]{stride, stride, stride};
+            // U and V sit side by side below the luma plane
+            texturePlanes = new ByteBuffer[]{
+                    slice(textureBuffer, 0),
+                    slice(textureBuffer, stride * tileHeight),
+                    slice(textureBuffer, stride * tileHeight + stride / 2)
+            };
+        }
+        float frameAspectRatio = (float) i420Frame.rotatedWidth() / i420Frame.rotatedHeight();
+        float[] rotatedSamplingMatrix =
+                RendererCommon.rotateTextureMatrix(i420Frame.samplingMatrix,
+                        i420Frame.rotationDegree);
+        float[] layoutMatrix = RendererCommon.getLayoutMatrix(false,
+                frameAspectRatio,
+                (float) tileWidth / tileHeight);
+        float[] texMatrix = RendererCommon.multiplyMatrices(rotatedSamplingMatrix, layoutMatrix);
+        textureBuffer.clear();
+        yuvConverter.convert(textureBuffer, tileWidth, tileHeight, textureStrides[0],
+                i420Frame.textureId, texMatrix);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        return view.slice();
+    }
+}
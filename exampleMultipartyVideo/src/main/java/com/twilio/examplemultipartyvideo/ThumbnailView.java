@@ -0,0 +1,52 @@
+package com.twilio.examplemultipartyvideo;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * ThumbnailView shows one tile of a {@link ThumbnailAtlas}, scaled to the size of the view.
+ */
+public class ThumbnailView extends View {
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect bounds = new Rect();
+    private ThumbnailAtlas atlas;
+    private int tile = -1;
+
+    public ThumbnailView(Context context) {
+        super(context);
+    }
+
+    public ThumbnailView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public ThumbnailView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+    }
+
+    void setTile(ThumbnailAtlas atlas, int tile) {
+        this.atlas = atlas;
+        this.tile = tile;
+        atlas.setTileView(tile, this);
+        invalidate();
+    }
+
+    void clearTile() {
+        atlas = null;
+        tile = -1;
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (atlas != null) {
+            bounds.set(0, 0, getWidth(), getHeight());
+            atlas.drawTile(canvas, tile, bounds, paint);
+        }
+    }
+}
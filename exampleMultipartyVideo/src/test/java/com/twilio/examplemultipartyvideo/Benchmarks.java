@@ -0,0 +1,21 @@
+package com.twilio.examplemultipartyvideo;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Benchmarks holds what the *Benchmark classes share. Their numbers describe the machine they run
+ * on as much as the code, so the unit test task only runs them when Gradle is invoked with
+ * {@code -Pbenchmarks}.
+ */
+final class Benchmarks {
+    private Benchmarks() {
+    }
+
+    static void report(String format, Object... args) {
+        System.out.println(String.format(format, args));
+    }
+
+    static long threadCpuNanos() {
+        return ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+    }
+}
@@ -0,0 +1,51 @@
+package com.twilio.examplemultipartyvideo;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static com.twilio.examplemultipartyvideo.Benchmarks.threadCpuNanos;
+
+public class I420BoxDownscalerBenchmark {
+    private static final int TILE_WIDTH = 160;
+    private static final int TILE_HEIGHT = 120;
+    private static final int TILE_FPS = 10;
+    private static final int GRID_TILES = 16;
+
+    /*
+     * CPU time to turn one frame into a tile, and what a tile costs at the thumbnail frame rate
+     * for a full grid.
+     */
+    @Test
+    public void cpuPerTileBenchmark() {
+        int[][] sources = {{640, 480}, {1280, 720}, {1920, 1080}};
+        int frames = 100;
+        int[] tile = new int[TILE_WIDTH * TILE_HEIGHT];
+        I420BoxDownscaler downscaler = new I420BoxDownscaler();
+
+        for (int[] source : sources) {
+            int width = source[0];
+            int height = source[1];
+            ByteBuffer[] planes = I420BoxDownscalerTest.createFrame(width, height, width,
+                    (width + 1) / 2);
+            int[] strides = {width, (width + 1) / 2, (width + 1) / 2};
+            for (int i = 0; i < frames; i++) {
+                downscaler.downscale(planes, strides, width, height, 0, tile, 0, TILE_WIDTH,
+                        TILE_WIDTH, TILE_HEIGHT);
+            }
+
+            long cpuStart = threadCpuNanos();
+            for (int i = 0; i < frames; i++) {
+                downscaler.downscale(planes, strides, width, height, 0, tile, 0, TILE_WIDTH,
+                        TILE_WIDTH, TILE_HEIGHT);
+            }
+            double cpuMsPerFrame = (threadCpuNanos() - cpuStart) / 1e6 / frames;
+            double tileCpuPercent = cpuMsPerFrame * TILE_FPS / 10;
+
+            Benchmarks.report("%dx%d to %dx%d tile: %.2fms CPU per frame, %.1f%% of a core per " +
+                            "tile at %dfps, %.1f%% for %d tiles", width, height, TILE_WIDTH,
+                    TILE_HEIGHT, cpuMsPerFrame, tileCpuPercent, TILE_FPS,
+                    tileCpuPercent * GRID_TILES, GRID_TILES);
+        }
+    }
+}
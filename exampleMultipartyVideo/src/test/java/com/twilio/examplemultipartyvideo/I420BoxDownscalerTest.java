@@ -0,0 +1,87 @@
+package com.twilio.examplemultipartyvideo;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class I420BoxDownscalerTest {
+    @Test
+    public void averagesBlocks() {
+        // The center of a 4x2 frame of alternating black and white columns averages to mid gray
+        ByteBuffer[] planes = createFrame(4, 2, 4, 2);
+        for (int i = 0; i < 8; i++) {
+            planes[0].put(i, (byte) (i % 2 == 0 ? 16 : 236));
+        }
+        int[] out = new int[1];
+
+        new I420BoxDownscaler().downscale(planes, new int[]{4, 2, 2}, 4, 2, 0, out, 0, 1, 1, 1);
+
+        // Luma 126, the average of 16 and 236, is 128 in RGB
+        assertEquals(128, out[0] & 0xff);
+        assertEquals(0, planes[0].position());
+    }
+
+    @Test
+    public void cropsTheCenterAndRotates() {
+        // An 8x4 frame whose columns count up from left to right, shrunk to a 2x2 tile
+        ByteBuffer[] planes = createFrame(8, 4, 8, 4);
+        for (int row = 0; row < 4; row++) {
+            for (int col = 0; col < 8; col++) {
+                planes[0].put(row * 8 + col, (byte) (16 + col * 20));
+            }
+        }
+        int[] out = new int[4];
+        I420BoxDownscaler downscaler = new I420BoxDownscaler();
+
+        // The center 4x4 covers columns 2 to 5, so the tile columns average 2,3 and 4,5
+        downscaler.downscale(planes, new int[]{8, 4, 4}, 8, 4, 0, out, 0, 2, 2, 2);
+        int left = out[0] & 0xff;
+        int right = out[1] & 0xff;
+        assertTrue(left < right);
+        assertEquals(out[0], out[2]);
+
+        // Rotated clockwise the left of the frame ends up at the top
+        downscaler.downscale(planes, new int[]{8, 4, 4}, 8, 4, 90, out, 0, 2, 2, 2);
+        assertEquals(left, out[0] & 0xff);
+        assertEquals(left, out[1] & 0xff);
+        assertEquals(right, out[2] & 0xff);
+    }
+
+    @Test
+    public void writesIntoAtlasPosition() {
+        ByteBuffer[] planes = createFrame(64, 48, 64, 32);
+        int atlasWidth = 3 * 16;
+        int[] atlas = new int[atlasWidth * 12];
+
+        new I420BoxDownscaler().downscale(planes, new int[]{64, 32, 32}, 64, 48, 0, atlas,
+                16, atlasWidth, 16, 12);
+
+        for (int row = 0; row < 12; row++) {
+            assertEquals(0, atlas[row * atlasWidth + 15]);
+            assertTrue(atlas[row * atlasWidth + 16] != 0);
+            assertTrue(atlas[row * atlasWidth + 31] != 0);
+            assertEquals(0, atlas[row * atlasWidth + 32]);
+        }
+    }
+
+    static ByteBuffer[] createFrame(int width, int height, int stride, int chromaStride) {
+        int chromaHeight = (height + 1) / 2;
+        ByteBuffer[] planes = {
+                ByteBuffer.allocateDirect(stride * height),
+                ByteBuffer.allocateDirect(chromaStride * chromaHeight),
+                ByteBuffer.allocateDirect(chromaStride * chromaHeight)
+        };
+        for (int i = 0; i < planes[0].capacity(); i++) {
+            planes[0].put(i, (byte) (16 + i % 220));
+        }
+        for (int plane = 1; plane < 3; plane++) {
+            for (int i = 0; i < planes[plane].capacity(); i++) {
+                planes[plane].put(i, (byte) 128);
+            }
+        }
+        return planes;
+    }
+}